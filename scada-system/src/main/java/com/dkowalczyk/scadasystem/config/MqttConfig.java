@@ -80,8 +80,12 @@ public class MqttConfig {
                         topics.split(",")
                 );
 
+        // Deliver payloads as raw byte[]; MqttMessageHandler parses JSON straight from the bytes
+        DefaultPahoMessageConverter converter = new DefaultPahoMessageConverter();
+        converter.setPayloadAsBytes(true);
+
         adapter.setCompletionTimeout(5000);
-        adapter.setConverter(new DefaultPahoMessageConverter());
+        adapter.setConverter(converter);
         adapter.setQos(1); // QoS 1 - at least once delivery
         adapter.setOutputChannel(mqttInputChannel());
 
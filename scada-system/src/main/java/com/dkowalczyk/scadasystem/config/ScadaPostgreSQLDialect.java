@@ -0,0 +1,21 @@
+package com.dkowalczyk.scadasystem.config;
+
+import com.dkowalczyk.scadasystem.model.type.PrimitiveArrayJdbcType;
+import org.hibernate.boot.model.TypeContributions;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.service.ServiceRegistry;
+
+/**
+ * PostgreSQL dialect that maps primitive {@code double[]} / {@code float[]} attributes through
+ * {@link PrimitiveArrayJdbcType} (harmonics and waveforms without boxed elements).
+ * Configured in application.properties ({@code hibernate.dialect}).
+ */
+public class ScadaPostgreSQLDialect extends PostgreSQLDialect {
+
+    @Override
+    public void contributeTypes(TypeContributions typeContributions, ServiceRegistry serviceRegistry) {
+        super.contributeTypes(typeContributions, serviceRegistry);
+        typeContributions.getTypeConfiguration().getJdbcTypeRegistry()
+                .addTypeConstructor(PrimitiveArrayJdbcType.CONSTRUCTOR);
+    }
+}
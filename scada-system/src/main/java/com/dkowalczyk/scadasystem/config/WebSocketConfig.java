@@ -1,7 +1,10 @@
 package com.dkowalczyk.scadasystem.config;
 
+import com.dkowalczyk.scadasystem.service.BinaryFrameNegotiator;
+import com.dkowalczyk.scadasystem.service.WebSocketOutboundGuard;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
 
@@ -10,9 +13,21 @@ import org.springframework.web.socket.config.annotation.*;
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final String[] allowedOrigins;
+    private final WebSocketOutboundGuard outboundGuard;
+    private final BinaryFrameNegotiator binaryFrameNegotiator;
+    private final int sendTimeLimitMs;
+    private final int sendBufferSizeLimitKb;
 
-    public WebSocketConfig(@Value("${cors.allowed-origins}") String[] allowedOrigins) {
+    public WebSocketConfig(@Value("${cors.allowed-origins}") String[] allowedOrigins,
+                           WebSocketOutboundGuard outboundGuard,
+                           BinaryFrameNegotiator binaryFrameNegotiator,
+                           @Value("${websocket.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                           @Value("${websocket.send-buffer-size-limit-kb:512}") int sendBufferSizeLimitKb) {
         this.allowedOrigins = allowedOrigins;
+        this.outboundGuard = outboundGuard;
+        this.binaryFrameNegotiator = binaryFrameNegotiator;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSizeLimitKb = sendBufferSizeLimitKb;
     }
 
     @Override
@@ -26,5 +41,26 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws/measurements")
                 .setAllowedOrigins(allowedOrigins)
                 .withSockJS();
+        // Plain WebSocket (no SockJS fallback): the only transport that can carry binary frames
+        registry.addEndpoint("/ws/measurements-binary")
+                .setAllowedOrigins(allowedOrigins)
+                .addInterceptors(binaryFrameNegotiator.handshakeInterceptor());
+    }
+
+    /**
+     * Binary subscriptions get their dashboard frames swapped to binary before the guard counts them.
+     * Slow consumers: the guard drops frames of sessions that fall behind on the outbound queue;
+     * a session that blocks a single write or buffers too much is closed by Spring.
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(binaryFrameNegotiator, outboundGuard);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(outboundGuard::decorate)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimitKb * 1024);
     }
 }
@@ -1,12 +1,13 @@
 package com.dkowalczyk.scadasystem.controller;
 
-import com.dkowalczyk.scadasystem.model.dto.DashboardDTO;
 import com.dkowalczyk.scadasystem.model.dto.PowerQualityIndicatorsDTO;
 import com.dkowalczyk.scadasystem.service.MeasurementService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -28,18 +29,23 @@ public class DashboardController {
     /**
      * Returns complete dashboard data: latest measurement, waveforms (200 samples),
      * and recent history (100 measurements).
+     * <p>
+     * The body is a DashboardDTO already encoded as JSON from cached parts (written as is).
+     *
+     * @param sensorId optional node id, defaults to the latest data of any node
      */
-    @GetMapping
-    public ResponseEntity<DashboardDTO> getDashboard() {
-        return measurementService.getDashboardData()
-                .map(ResponseEntity::ok)
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getDashboard(
+            @RequestParam(required = false) String sensorId) {
+        return measurementService.getDashboardJson(sensorId)
+                .map(json -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     /**
      * Get PN-EN 50160 power quality indicators.
      * <p>
-     * GET /api/dashboard/power-quality-indicators
+     * GET /api/dashboard/power-quality-indicators?sensorId=node1
      * <p>
      * This endpoint provides data for a separate "Power Quality" section on frontend,
      * displaying standardized indicators according to PN-EN 50160:
@@ -49,11 +55,13 @@ public class DashboardController {
      * <p>
      * Each indicator includes compliance flags and limits per PN-EN 50160.
      *
+     * @param sensorId optional node id, defaults to the latest measurement of any node
      * @return PowerQualityIndicatorsDTO with PN-EN 50160 indicators and compliance status
      */
     @GetMapping("/power-quality-indicators")
-    public ResponseEntity<PowerQualityIndicatorsDTO> getPowerQualityIndicators() {
-        return measurementService.getLatestPowerQualityIndicators()
+    public ResponseEntity<PowerQualityIndicatorsDTO> getPowerQualityIndicators(
+            @RequestParam(required = false) String sensorId) {
+        return measurementService.getLatestPowerQualityIndicators(sensorId)
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
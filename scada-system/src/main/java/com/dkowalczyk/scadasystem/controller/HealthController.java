@@ -1,6 +1,10 @@
 package com.dkowalczyk.scadasystem.controller;
 
 import com.dkowalczyk.scadasystem.service.DataAggregationService;
+import com.dkowalczyk.scadasystem.service.MeasurementIngestService;
+import com.dkowalczyk.scadasystem.service.MeasurementReorderBuffer;
+import com.dkowalczyk.scadasystem.service.WebSocketOutboundGuard;
+import com.dkowalczyk.scadasystem.service.WebSocketService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +26,10 @@ import java.util.Map;
 public class HealthController {
 
     private final DataAggregationService dataAggregationService;
+    private final MeasurementIngestService ingestService;
+    private final MeasurementReorderBuffer reorderBuffer;
+    private final WebSocketService webSocketService;
+    private final WebSocketOutboundGuard webSocketOutboundGuard;
 
     @Operation(summary = "Basic health check", description = "Returns service status and uptime")
     @GetMapping
@@ -57,4 +65,94 @@ public class HealthController {
 
         return health;
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Ingest pipeline health check",
+               description = "Returns ingest queue saturation, drop counters, producer wait time, WAL replay lag, per-shard writer metrics and stream reordering")
+    @GetMapping("/ingest")
+    public Map<String, Object> ingestHealth() {
+        Map<String, Object> health = new HashMap<>();
+
+        int depth = ingestService.getQueueDepth();
+        int capacity = ingestService.getQueueCapacity();
+        long dropped = ingestService.getDroppedCount();
+        long walRejected = ingestService.getWalRejectedCount();
+
+        // DEGRADED: data is already being lost, so alerting should fire before this point
+        health.put("status", dropped > 0 || walRejected > 0 ? "DEGRADED" : "UP");
+
+        Map<String, Object> queue = new HashMap<>();
+        queue.put("depth", depth);
+        queue.put("capacity", capacity);
+        queue.put("utilization_percent", capacity > 0 ? depth * 100.0 / capacity : 0.0);
+        queue.put("overload_policy", ingestService.getOverloadPolicy());
+        queue.put("dropped_count", dropped);
+        queue.put("degraded_count", ingestService.getDegradedCount());
+        queue.put("wait_count", ingestService.getWaitCount());
+        queue.put("wait_time_ms", ingestService.getWaitTimeMs());
+
+        health.put("queue", queue);
+
+        Map<String, Object> wal = new HashMap<>();
+        wal.put("enabled", ingestService.isWalEnabled());
+        wal.put("lag_records", ingestService.getWalLagRecords());
+        wal.put("segments", ingestService.getWalSegmentCount());
+        wal.put("disk_bytes", ingestService.getWalDiskBytes());
+        wal.put("max_disk_bytes", ingestService.getWalMaxDiskBytes());
+        wal.put("rejected_count", walRejected);
+        health.put("wal", wal);
+
+        Map<String, Object> dedup = new HashMap<>();
+        dedup.put("window_size", ingestService.getDedupWindowSize());
+        dedup.put("suppressed_count", ingestService.getDuplicatesSuppressed());
+        health.put("dedup", dedup);
+
+        // Per-shard view: a shard that falls behind points at the nodes routed to it
+        health.put("shard_count", ingestService.getShardCount());
+        health.put("shards", ingestService.getShardStats());
+
+        // Stream ordering after commit: measurements held back and measurements too late to reorder
+        Map<String, Object> reorder = new HashMap<>();
+        reorder.put("allowed_lateness_ms", reorderBuffer.getAllowedLatenessMs());
+        reorder.put("buffered_count", reorderBuffer.getBufferedCount());
+        reorder.put("emitted_count", reorderBuffer.getEmittedCount());
+        reorder.put("late_count", reorderBuffer.getLateCount());
+        reorder.put("days_to_correct", dataAggregationService.getDatesToCorrect().size());
+        health.put("reorder", reorder);
+
+        health.put("timestamp", Instant.now().toString());
+
+        return health;
+    }
+
+    @Operation(summary = "WebSocket broadcast health check",
+               description = "Returns conflation counters, frames dropped for slow subscribers and slow consumers closed")
+    @GetMapping("/websocket")
+    public Map<String, Object> webSocketHealth() {
+        Map<String, Object> health = new HashMap<>();
+
+        long dropped = webSocketOutboundGuard.getDroppedCount();
+        long failed = webSocketService.getFailedCount();
+        // DEGRADED: some subscribers miss frames (conflation alone is expected and not counted)
+        health.put("status", dropped > 0 || failed > 0 ? "DEGRADED" : "UP");
+
+        Map<String, Object> broadcast = new HashMap<>();
+        broadcast.put("conflation_enabled", webSocketService.isConflationEnabled());
+        broadcast.put("published_count", webSocketService.getPublishedCount());
+        broadcast.put("sent_count", webSocketService.getSentCount());
+        broadcast.put("conflated_count", webSocketService.getConflatedCount());
+        broadcast.put("failed_count", failed);
+        broadcast.put("pending_count", webSocketService.getPendingCount());
+        broadcast.put("replayed_count", webSocketService.getReplayedCount());
+        health.put("broadcast", broadcast);
+
+        Map<String, Object> subscribers = new HashMap<>();
+        subscribers.put("session_count", webSocketOutboundGuard.getSessionCount());
+        subscribers.put("dropped_count", dropped);
+        subscribers.put("slow_consumer_count", webSocketOutboundGuard.getSlowConsumerCount());
+        health.put("subscribers", subscribers);
+
+        health.put("timestamp", Instant.now().toString());
+
+        return health;
+    }
+}
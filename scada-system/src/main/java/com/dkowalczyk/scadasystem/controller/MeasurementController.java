@@ -1,6 +1,10 @@
 package com.dkowalczyk.scadasystem.controller;
 
 import com.dkowalczyk.scadasystem.model.dto.*;
+import com.dkowalczyk.scadasystem.service.MeasurementExportService;
+import com.dkowalczyk.scadasystem.service.MeasurementExportService.Column;
+import com.dkowalczyk.scadasystem.service.MeasurementExportService.Format;
+import com.dkowalczyk.scadasystem.service.MeasurementRollupService;
 import com.dkowalczyk.scadasystem.service.MeasurementService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
@@ -9,9 +13,11 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.*;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/measurements")
@@ -20,6 +26,8 @@ import java.util.List;
 public class MeasurementController {
 
     private final MeasurementService measurementService;
+    private final MeasurementRollupService rollupService;
+    private final MeasurementExportService exportService;
 
     /**
      * Accepts measurement via REST API (optional, mainly for testing).
@@ -39,11 +47,14 @@ public class MeasurementController {
     /**
      * Returns the latest valid measurement.
      * <p>
-     * GET /api/measurements/latest
+     * GET /api/measurements/latest?sensorId=node1
+     *
+     * @param sensorId optional node id, defaults to the latest measurement of any node
      */
     @GetMapping("/latest")
-    public ResponseEntity<MeasurementDTO> getLatest() {
-        return measurementService.getLatestMeasurement()
+    public ResponseEntity<MeasurementDTO> getLatest(
+            @RequestParam(required = false) String sensorId) {
+        return measurementService.getLatestMeasurement(sensorId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -51,14 +62,16 @@ public class MeasurementController {
     /**
      * Returns measurement history within specified time range.
      * <p>
-     * GET /api/measurements/history?from=timestamp&amp;to=timestamp&amp;limit=100
+     * GET /api/measurements/history?from=timestamp&amp;to=timestamp&amp;limit=100&amp;sensorId=node1
      *
+     * @param sensorId optional node id, defaults to all nodes
      * @param from  start timestamp (epoch seconds), defaults to 1 hour ago
      * @param to    end timestamp (epoch seconds), defaults to now
      * @param limit maximum number of measurements to return (max 1000)
      */
     @GetMapping("/history")
     public ResponseEntity<List<MeasurementDTO>> getHistory(
+            @RequestParam(required = false) String sensorId,
             @RequestParam(required = false) Long from,
             @RequestParam(required = false) Long to,
             @RequestParam(defaultValue = "100") @Positive @Max(1000) int limit) {
@@ -66,7 +79,80 @@ public class MeasurementController {
         Instant fromTime = from != null ? Instant.ofEpochSecond(from) : Instant.now().minusSeconds(3600);
         Instant toTime = to != null ? Instant.ofEpochSecond(to) : Instant.now();
 
-        List<MeasurementDTO> history = measurementService.getHistory(fromTime, toTime, limit);
+        List<MeasurementDTO> history = measurementService.getHistory(sensorId, fromTime, toTime, limit);
         return ResponseEntity.ok(history);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a downsampled trend (min / avg / max / count / energy per bucket) from the
+     * 1-minute, 10-minute or 1-hour rollups, whichever is the finest that fits maxPoints.
+     * <p>
+     * GET /api/measurements/trend?from=timestamp&amp;to=timestamp&amp;maxPoints=500&amp;sensorId=node1
+     *
+     * @param sensorId  optional node id, defaults to all nodes merged
+     * @param from      start timestamp (epoch seconds), defaults to 24 hours ago
+     * @param to        end timestamp (epoch seconds), defaults to now
+     * @param maxPoints maximum number of points to return (max 5000)
+     */
+    @GetMapping("/trend")
+    public ResponseEntity<TrendDTO> getTrend(
+            @RequestParam(required = false) String sensorId,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(defaultValue = "500") @Positive @Max(5000) int maxPoints) {
+
+        Instant toTime = to != null ? Instant.ofEpochSecond(to) : Instant.now();
+        Instant fromTime = from != null ? Instant.ofEpochSecond(from) : toTime.minusSeconds(86400);
+
+        return ResponseEntity.ok(rollupService.getTrend(sensorId, fromTime, toTime, maxPoints));
+    }
+
+    /**
+     * Streams all valid measurements of a range for offline analysis, oldest first.
+     * Unlike /history there is no row limit; memory use does not depend on the range.
+     * <p>
+     * GET /api/measurements/export?from=timestamp&amp;to=timestamp&amp;format=csv&amp;columns=time,voltage_rms&amp;gzip=true
+     *
+     * @param sensorId optional node id, defaults to all nodes
+     * @param from     start timestamp (epoch seconds), defaults to 24 hours before 'to'
+     * @param to       end timestamp (epoch seconds), defaults to now
+     * @param format   ndjson (one JSON object per line) or csv (with header line)
+     * @param columns  optional comma-separated field names (as in the JSON API), defaults to all
+     * @param gzip     compress the file (.gz attachment)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String sensorId,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String columns,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        Instant toTime = to != null ? Instant.ofEpochSecond(to) : Instant.now();
+        Instant fromTime = from != null ? Instant.ofEpochSecond(from) : toTime.minusSeconds(86400);
+
+        // Validate before streaming: once the body started, errors cannot become a 400
+        Format exportFormat = Format.parse(format);
+        List<Column> exportColumns = Column.parse(columns);
+        exportService.validateRange(fromTime, toTime);
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                // syncFlush: every page flushed by the export reaches the client
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024, true)) {
+                    exportService.export(sensorId, fromTime, toTime, exportFormat, exportColumns, gzipOut);
+                }
+            } else {
+                exportService.export(sensorId, fromTime, toTime, exportFormat, exportColumns, out);
+            }
+        };
+
+        String fileName = "measurements-" + fromTime.getEpochSecond() + "-" + toTime.getEpochSecond()
+                + "." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.validation.ConstraintViolationException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.*;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
@@ -13,10 +14,13 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import java.sql.SQLException;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -33,6 +37,17 @@ import java.util.stream.Collectors;
 public class GlobalExceptionHandler {
     private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    /** SQLState of a unique violation (PostgreSQL and H2). */
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    /**
+     * Unique index on (time, payload_hash), see Measurement and V10. PostgreSQL reports a
+     * duplicate under the partition's own copy of the index, which it names
+     * {partition}_time_payload_hash_idx, e.g. measurements_p20261016_time_payload_hash_idx.
+     */
+    private static final Pattern DUPLICATE_MEASUREMENT_INDEX = Pattern.compile(
+            "uk_measurements_time_payload_hash|measurements_\\w+_time_payload_hash_idx");
+
     @ExceptionHandler(MeasurementNotFoundException.class)
     public ResponseEntity<Map<String, Object>> handleNotFound(
             MeasurementNotFoundException ex) {
@@ -71,6 +86,21 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, "Bad Request", message);
     }
 
+    /**
+     * 409 only for the duplicate-measurement index; any other violation is unexpected and
+     * handled like every other error.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, Object>> handleConflict(
+            DataIntegrityViolationException ex) {
+        if (!isDuplicateMeasurement(ex)) {
+            return handleGeneral(ex);
+        }
+        // The same measurement (time + payload hash) was already stored
+        String message = "Measurement conflicts with stored data (duplicate submission?)";
+        return buildErrorResponse(HttpStatus.CONFLICT, "Conflict", message);
+    }
+
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<Map<String, Object>> handleMalformedJson(
             HttpMessageNotReadableException ex) {
@@ -96,6 +126,33 @@ public class GlobalExceptionHandler {
             errorId);
     }
 
+    /**
+     * True if the duplicate-measurement index, on the parent table or a partition, is named by
+     * Hibernate or, when the exception was not translated through Hibernate, in a message of
+     * the cause chain. A driver exception with another SQLState than a unique violation is
+     * never a duplicate.
+     */
+    static boolean isDuplicateMeasurement(Throwable ex) {
+        boolean named = false;
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getSQLState() != null
+                    && !UNIQUE_VIOLATION.equals(sql.getSQLState())) {
+                return false;
+            }
+            if (cause instanceof org.hibernate.exception.ConstraintViolationException violation
+                    && violation.getConstraintName() != null) {
+                named |= namesDuplicateMeasurementIndex(violation.getConstraintName());
+            } else if (cause.getMessage() != null) {
+                named |= namesDuplicateMeasurementIndex(cause.getMessage());
+            }
+        }
+        return named;
+    }
+
+    private static boolean namesDuplicateMeasurementIndex(String text) {
+        return DUPLICATE_MEASUREMENT_INDEX.matcher(text.toLowerCase(Locale.ROOT)).find();
+    }
+
     private ResponseEntity<Map<String, Object>> buildErrorResponse(
             HttpStatus status, String error, String message, String errorId) {
         Map<String, Object> body = new HashMap<>();
@@ -0,0 +1,41 @@
+package com.dkowalczyk.scadasystem.model.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Snapshot of one ingest shard (writer thread) for /health/ingest.
+ * <p>
+ * A node is always handled by the same shard, so a shard whose queue depth or
+ * batch time grows points at the nodes hashed onto it.
+ */
+@Data
+@Builder
+public class IngestShardStatsDTO {
+
+    private int shard;
+
+    /** Measurements waiting in the shard's in-memory queue. */
+    private int queueDepth;
+
+    /** Measurements in the shard's WAL not yet committed (0 without WAL). */
+    private long walLagRecords;
+
+    /** Batches saved by the shard's writer since startup. */
+    private long batchCount;
+
+    /** Measurements saved by the shard's writer since startup. */
+    private long measurementCount;
+
+    /** Average time of one saveMeasurements call, in milliseconds. */
+    private double avgBatchTimeMs;
+
+    /** Longest saveMeasurements call, in milliseconds. */
+    private double maxBatchTimeMs;
+
+    /** Duration of the most recent saveMeasurements call, in milliseconds. */
+    private double lastBatchTimeMs;
+
+    /** WAL records the database rejected for non-transient reasons and that were dropped. */
+    private long deadLetterCount;
+}
@@ -14,6 +14,7 @@ import java.time.Instant;
 public class MeasurementDTO {
     private Long id;
     private Instant time;
+    private String sensorId;
 
     // Raw measurements
     private Double voltageRms;
@@ -26,8 +27,8 @@ public class MeasurementDTO {
     private Double frequency;
     private Double thdVoltage;
     private Double thdCurrent;
-    private Double[] harmonicsV;
-    private Double[] harmonicsI;
+    private double[] harmonicsV;
+    private double[] harmonicsI;
 
     // PN-EN 50160 power quality indicators (calculated by backend)
     private Double voltageDeviationPercent;  // Group 1: Supply voltage magnitude
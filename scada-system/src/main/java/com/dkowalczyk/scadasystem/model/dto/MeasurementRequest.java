@@ -1,10 +1,12 @@
 package com.dkowalczyk.scadasystem.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 
 /**
@@ -18,10 +20,19 @@ public class MeasurementRequest {
 
     /**
      * Optional Unix timestamp (seconds since epoch).
-     * If not provided by ESP32, backend will assign current server time.
+     * If not provided by ESP32, backend will assign the server receive time ({@link #receivedAt}).
      */
     private Long timestamp;
 
+    /**
+     * Measurement node identifier (e.g. "node1").
+     * For MQTT messages this is taken from the topic (scada/measurements/{sensorId})
+     * and overrides any value in the payload.
+     */
+    @Size(max = 50, message = "sensorId must not exceed 50 characters")
+    @JsonProperty("sensor_id")
+    private String sensorId;
+
     @NotNull(message = "voltageRms is required")
     @DecimalMin(value = "0.0", message = "voltageRms must be non-negative")
     @DecimalMax(value = "500.0", message = "voltageRms must not exceed 500 V")
@@ -79,22 +90,42 @@ public class MeasurementRequest {
     private Double thdCurrent;
 
     @JsonProperty("harm_v")
-    private Double[] harmonicsV;
+    private double[] harmonicsV;
 
     @JsonProperty("harm_i")
-    private Double[] harmonicsI;
+    private double[] harmonicsI;
 
     /**
      * Raw voltage waveform samples (2 cycles, about 400 samples at 50 Hz).
      * Optional - if not provided, frontend will reconstruct from harmonics.
+     * <p>
+     * Primitive array: Jackson fills it directly, without allocating one Double per sample.
      */
     @JsonProperty("waveform_v")
-    private Double[] waveformV;
+    private double[] waveformV;
 
     /**
      * Raw current waveform samples (2 cycles, about 400 samples at 50 Hz).
      * Optional - if not provided, frontend will reconstruct from harmonics.
+     * <p>
+     * Primitive array: Jackson fills it directly, without allocating one Double per sample.
      */
     @JsonProperty("waveform_i")
-    private Double[] waveformI;
+    private double[] waveformI;
+
+    /**
+     * Server receive time (epoch milliseconds), set when the measurement is submitted for ingest.
+     * Persisted as the measurement time when the device sent no timestamp, so rows replayed from
+     * the WAL after an outage keep the time they arrived, not the replay time.
+     */
+    @JsonProperty("received_at")
+    private Long receivedAt;
+
+    /**
+     * Content hash computed at ingest (see PayloadHash), before overload handling may strip
+     * waveforms, so redeliveries keep the same hash. Never read from or written to JSON;
+     * null means it is computed when the entity is built.
+     */
+    @JsonIgnore
+    private Long payloadHash;
 }
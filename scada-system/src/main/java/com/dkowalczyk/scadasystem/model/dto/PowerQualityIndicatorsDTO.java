@@ -92,7 +92,7 @@ public class PowerQualityIndicatorsDTO {
      * Limited to H1-H25 by the current firmware payload.
      * IEC 61000-4-7 specifies measurement up to H40 for full compliance.
      */
-    private Double[] harmonicsVoltage;
+    private double[] harmonicsVoltage;
 
     // === Additional Context ===
 
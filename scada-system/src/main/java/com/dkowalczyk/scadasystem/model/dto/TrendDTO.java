@@ -0,0 +1,30 @@
+package com.dkowalczyk.scadasystem.model.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for downsampled trend chart data (one point per rollup bucket).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendDTO {
+
+    /** Node id, null when the points cover all nodes. */
+    private String sensorId;
+    private Instant from;
+    private Instant to;
+
+    /** Rollup tier the points come from: MINUTE, TEN_MINUTES or HOUR. */
+    private String resolution;
+    private long bucketSeconds;
+
+    private List<TrendPointDTO> points;
+}
@@ -0,0 +1,37 @@
+package com.dkowalczyk.scadasystem.model.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One bucket of a trend chart: min / avg / max of the samples in [time, time + bucket).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendPointDTO {
+
+    /** Bucket start. */
+    private Instant time;
+    private int count;
+
+    private double voltageMin;
+    private double voltageAvg;
+    private double voltageMax;
+
+    /** Null when no sample in the bucket reported active power. */
+    private Double powerMin;
+    private Double powerAvg;
+    private Double powerMax;
+
+    private double frequencyMin;
+    private double frequencyAvg;
+    private double frequencyMax;
+
+    private double energyKwh;
+}
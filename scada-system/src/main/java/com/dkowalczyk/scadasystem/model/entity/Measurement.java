@@ -27,10 +27,15 @@ import org.hibernate.type.SqlTypes;
  * - THD calculation is partial (excludes harmonics 26-40), representing lower bound of actual distortion
  * - No flicker measurement (P_st/P_lt) - requires IEC 61000-4-15 compliant equipment
  * - Event detection (voltage dips, interruptions) implemented separately
+ * <p>
+ * Indexes: Flyway (V13) creates partial btrees WHERE is_valid and a BRIN on time, which
+ * JPA cannot express. The indexes below only approximate them for Hibernate-generated
+ * schemas (dev profile, H2 tests).
  */
 @Entity
 @Table(name = "measurements", indexes = {
-        @Index(name = "idx_measurement_time", columnList = "time")
+        @Index(name = "idx_measurements_valid_sensor_time", columnList = "sensor_id, time DESC"),
+        @Index(name = "uk_measurements_time_payload_hash", columnList = "time, payload_hash", unique = true)
 })
 @Data
 @NoArgsConstructor
@@ -38,8 +43,15 @@ import org.hibernate.type.SqlTypes;
 @Builder
 public class Measurement {
 
+    /**
+     * Primary key drawn from {@code measurements_id_seq} in blocks of 50.
+     * <p>
+     * SEQUENCE (not IDENTITY) lets Hibernate assign ids before the INSERT,
+     * which is required for JDBC batching of the ingest pipeline.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "measurements_id_seq")
+    @SequenceGenerator(name = "measurements_id_seq", sequenceName = "measurements_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -48,6 +60,22 @@ public class Measurement {
     @Column(nullable = false)
     private Instant time;
 
+    /**
+     * Identifier of the ESP32 node that produced the measurement,
+     * derived from the MQTT topic (scada/measurements/{sensorId}).
+     * Null for legacy rows and REST submissions without a node id.
+     */
+    @Column(name = "sensor_id", length = 50)
+    private String sensorId;
+
+    /**
+     * Content hash of the measurement (node, device timestamp and all values).
+     * Unique together with time, so an MQTT redelivery cannot be stored twice.
+     * Null for rows saved before V9.
+     */
+    @Column(name = "payload_hash")
+    private Long payloadHash;
+
     /**
      * RMS voltage measured in 10-20 cycle window (200-400 ms at 50 Hz).
      * Used to calculate voltage deviation indicator (PN-EN 50160 Group 1).
@@ -184,10 +212,12 @@ public class Measurement {
      * Our system reports up to 25th harmonic in the current firmware payload.
      * <p>
      * Calculated by ESP32 from FFT/DFT with Hann window and zero-crossing synchronization.
+     * <p>
+     * Mapped as primitive double[]; on PostgreSQL through PrimitiveArrayJdbcType, no boxed Double per element.
      */
     @Column(name = "harmonics_v")
     @JdbcTypeCode(SqlTypes.ARRAY)
-    private Double[] harmonicsV;
+    private double[] harmonicsV;
 
     /**
      * Current harmonics array containing 25 values (diagnostic parameter, not PN-EN 50160 indicator).
@@ -203,7 +233,7 @@ public class Measurement {
      */
     @Column(name = "harmonics_i")
     @JdbcTypeCode(SqlTypes.ARRAY)
-    private Double[] harmonicsI;
+    private double[] harmonicsI;
 
     /**
      * Raw voltage waveform samples from ESP32 (2 cycles, about 400 samples at 50 Hz).
@@ -212,10 +242,12 @@ public class Measurement {
      * Used for accurate waveform visualization showing real distortions, clipping, asymmetry.
      * <p>
      * Optional field - if not provided, frontend will reconstruct waveform from harmonics.
+     * <p>
+     * Not a column of this table: persisted as {@link MeasurementWaveform} and only loaded
+     * on demand (dashboard). Set on ingested measurements, null on loaded ones.
      */
-    @Column(name = "waveform_v")
-    @JdbcTypeCode(SqlTypes.ARRAY)
-    private Double[] waveformV;
+    @Transient
+    private double[] waveformV;
 
     /**
      * Raw current waveform samples from ESP32 (2 cycles, about 400 samples at 50 Hz).
@@ -224,10 +256,10 @@ public class Measurement {
      * Used for accurate waveform visualization showing real distortions, clipping, asymmetry.
      * <p>
      * Optional field - if not provided, frontend will reconstruct waveform from harmonics.
+     * Stored as {@link MeasurementWaveform}, like {@link #waveformV}.
      */
-    @Column(name = "waveform_i")
-    @JdbcTypeCode(SqlTypes.ARRAY)
-    private Double[] waveformI;
+    @Transient
+    private double[] waveformI;
 
     /**
      * PN-EN 50160 Group 1 indicator: Voltage deviation from declared value.
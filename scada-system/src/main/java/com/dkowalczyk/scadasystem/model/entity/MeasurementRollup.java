@@ -0,0 +1,153 @@
+package com.dkowalczyk.scadasystem.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Downsampled measurements of one node in one time bucket (see V12).
+ * <p>
+ * Keeps min / max / sum and sample count instead of averages, so buckets of a finer
+ * resolution merge exactly into a coarser one (MINUTE -> TEN_MINUTES -> HOUR).
+ * <p>
+ * WHY PERSISTABLE: rollups are always rebuilt by DELETE + INSERT. With a composite,
+ * assigned key {@code saveAll} would otherwise issue a SELECT per row to decide between
+ * persist and merge.
+ */
+@Entity
+@Table(name = "measurement_rollups")
+@IdClass(MeasurementRollup.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeasurementRollup implements Persistable<MeasurementRollup.Key> {
+
+    /**
+     * Rollup tiers, from finest to coarsest.
+     * Buckets are aligned to the epoch (UTC), so every coarser bucket contains whole finer ones.
+     */
+    public enum Resolution {
+        MINUTE(Duration.ofMinutes(1)),
+        TEN_MINUTES(Duration.ofMinutes(10)),
+        HOUR(Duration.ofHours(1));
+
+        private final Duration duration;
+
+        Resolution(Duration duration) {
+            this.duration = duration;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        /** Start of the bucket containing the given time. */
+        public Instant floor(Instant time) {
+            long seconds = duration.getSeconds();
+            return Instant.ofEpochSecond(Math.floorDiv(time.getEpochSecond(), seconds) * seconds);
+        }
+
+        /** Start of the first bucket at or after the given time. */
+        public Instant ceil(Instant time) {
+            Instant floor = floor(time);
+            return floor.equals(time) ? floor : floor.plus(duration);
+        }
+    }
+
+    /** Composite primary key (resolution, sensor_id, bucket). */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Resolution resolution;
+        private String sensorId;
+        private Instant bucket;
+    }
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Resolution resolution;
+
+    /**
+     * Node id, empty string for measurements without one (key columns cannot be null).
+     */
+    @Id
+    @Column(name = "sensor_id", length = 50)
+    private String sensorId;
+
+    /**
+     * Bucket start (inclusive), aligned to the resolution.
+     */
+    @Id
+    private Instant bucket;
+
+    @Column(name = "sample_count", nullable = false)
+    private int sampleCount;
+
+    @Column(name = "voltage_min", nullable = false)
+    private double voltageMin;
+
+    @Column(name = "voltage_max", nullable = false)
+    private double voltageMax;
+
+    @Column(name = "voltage_sum", nullable = false)
+    private double voltageSum;
+
+    /**
+     * Samples with an active power value (power min / max / sum cover only those).
+     */
+    @Column(name = "power_count", nullable = false)
+    private int powerCount;
+
+    @Column(name = "power_min", nullable = false)
+    private double powerMin;
+
+    @Column(name = "power_max", nullable = false)
+    private double powerMax;
+
+    @Column(name = "power_sum", nullable = false)
+    private double powerSum;
+
+    @Column(name = "frequency_min", nullable = false)
+    private double frequencyMin;
+
+    @Column(name = "frequency_max", nullable = false)
+    private double frequencyMax;
+
+    @Column(name = "frequency_sum", nullable = false)
+    private double frequencySum;
+
+    /**
+     * Energy in kWh of the trapezoid segments that end in this bucket.
+     */
+    @Column(name = "energy_kwh", nullable = false)
+    private double energyKwh;
+
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+
+    @Override
+    public Key getId() {
+        return new Key(resolution, sensorId, bucket);
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.persisted = true;
+    }
+}
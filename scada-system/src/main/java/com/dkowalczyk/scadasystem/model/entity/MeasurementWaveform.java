@@ -0,0 +1,63 @@
+package com.dkowalczyk.scadasystem.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * Raw waveform samples of one measurement, stored apart from the measurement row.
+ * <p>
+ * WHY A SIDE TABLE: two arrays of about 400 samples make a row several KB, while only the
+ * dashboard ever reads them. Kept in {@code measurement_waveforms} (see V11), history, stats
+ * and range scans over {@code measurements} never read or de-TOAST waveform bytes. The dashboard
+ * loads one row by (measurement id, time); time is part of the key so the lookup is pruned
+ * to a single partition.
+ * <p>
+ * Only measurements that carried waveforms have a row here.
+ */
+@Entity
+@Table(name = "measurement_waveforms")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MeasurementWaveform {
+
+    /**
+     * Id of the owning measurement (shared primary key).
+     */
+    @Id
+    @Column(name = "measurement_id")
+    private Long measurementId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "measurement_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Measurement measurement;
+
+    /**
+     * Measurement timestamp, copied from the measurement (partition key).
+     */
+    @Column(nullable = false)
+    private Instant time;
+
+    /**
+     * Raw voltage waveform samples from ESP32 (about 400 samples at 50 Hz).
+     */
+    @Column(name = "waveform_v")
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    private double[] waveformV;
+
+    /**
+     * Raw current waveform samples from ESP32 (about 400 samples at 50 Hz).
+     */
+    @Column(name = "waveform_i")
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    private double[] waveformI;
+}
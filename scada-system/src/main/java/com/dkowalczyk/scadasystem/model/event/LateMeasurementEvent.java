@@ -0,0 +1,29 @@
+package com.dkowalczyk.scadasystem.model.event;
+
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.Instant;
+
+/**
+ * Committed measurement that arrived after its node's stream had already moved past it.
+ * <p>
+ * The measurement is stored, but it is not emitted as an OrderedMeasurementEvent (live
+ * consumers would see time go backwards). Listeners correct derived data instead, e.g.
+ * DataAggregationService recalculates the daily statistics of the affected day.
+ */
+@Getter
+public class LateMeasurementEvent extends ApplicationEvent {
+
+    private final Measurement measurement;
+
+    /** Device time of the last measurement already emitted for the node. */
+    private final Instant watermark;
+
+    public LateMeasurementEvent(Object source, Measurement measurement, Instant watermark) {
+        super(source);
+        this.measurement = measurement;
+        this.watermark = watermark;
+    }
+}
@@ -0,0 +1,28 @@
+package com.dkowalczyk.scadasystem.model.event;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Committed measurement released by the reorder buffer.
+ * <p>
+ * WHY: MeasurementSavedEvent fires in commit order, which after reconnect bursts or
+ * redeliveries is not device-time order. Streaming consumers (WebSocket broadcasts,
+ * event detection, running aggregates) listen to this event instead: for each node it
+ * is published in ascending device time, at most {@code stream.reorder.allowed-lateness-ms}
+ * after the measurement was saved.
+ */
+@Getter
+public class OrderedMeasurementEvent extends ApplicationEvent {
+
+    private final Measurement measurement;
+    private final MeasurementDTO dto;
+
+    public OrderedMeasurementEvent(Object source, Measurement measurement, MeasurementDTO dto) {
+        super(source);
+        this.measurement = measurement;
+        this.dto = dto;
+    }
+}
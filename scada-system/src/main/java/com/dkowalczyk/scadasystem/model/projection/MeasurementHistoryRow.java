@@ -0,0 +1,41 @@
+package com.dkowalczyk.scadasystem.model.projection;
+
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+
+import java.time.Instant;
+
+/**
+ * Columns of a measurement shown in history lists (everything in MeasurementDTO).
+ * <p>
+ * WHY: history pages are read-only; a constructor projection skips the persistence context
+ * (no entity instances, no dirty checking) and never selects columns the DTO does not show
+ * (payload hash, audit columns).
+ */
+public record MeasurementHistoryRow(
+        Long id,
+        Instant time,
+        String sensorId,
+        Double voltageRms,
+        Double currentRms,
+        Double powerActive,
+        Double powerApparent,
+        Double powerReactive,
+        Double powerDistortion,
+        Double powerFactor,
+        Double frequency,
+        Double thdVoltage,
+        Double thdCurrent,
+        double[] harmonicsV,
+        double[] harmonicsI,
+        Double voltageDeviationPercent,
+        Double frequencyDeviationHz) {
+
+    /** The history columns of a measurement held in memory (e.g. one just committed). */
+    public static MeasurementHistoryRow of(Measurement m) {
+        return new MeasurementHistoryRow(m.getId(), m.getTime(), m.getSensorId(), m.getVoltageRms(),
+                m.getCurrentRms(), m.getPowerActive(), m.getPowerApparent(), m.getPowerReactive(),
+                m.getPowerDistortion(), m.getPowerFactor(), m.getFrequency(), m.getThdVoltage(),
+                m.getThdCurrent(), m.getHarmonicsV(), m.getHarmonicsI(), m.getVoltageDeviationPercent(),
+                m.getFrequencyDeviationHz());
+    }
+}
@@ -0,0 +1,12 @@
+package com.dkowalczyk.scadasystem.model.projection;
+
+import java.time.Instant;
+
+/**
+ * Unique key of a stored measurement, the columns of uk_measurements_time_payload_hash
+ * (see MeasurementService duplicate check).
+ */
+public record MeasurementKey(
+        Instant time,
+        Long payloadHash) {
+}
@@ -0,0 +1,17 @@
+package com.dkowalczyk.scadasystem.model.projection;
+
+import java.time.Instant;
+
+/**
+ * Columns of a measurement needed to build rollup buckets (see MeasurementRollupService).
+ *
+ * @param sensorId    null for measurements without a node id
+ * @param powerActive null when the node did not report active power
+ */
+public record MeasurementRollupRow(
+        String sensorId,
+        Instant time,
+        Double voltageRms,
+        Double powerActive,
+        Double frequency) {
+}
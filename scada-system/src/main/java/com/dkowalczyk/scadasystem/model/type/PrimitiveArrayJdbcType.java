@@ -0,0 +1,169 @@
+package com.dkowalczyk.scadasystem.model.type;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLArrayJdbcType;
+import org.hibernate.tool.schema.extract.spi.ColumnTypeInformation;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.hibernate.type.descriptor.ValueExtractor;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.JavaType;
+import org.hibernate.type.descriptor.jdbc.BasicBinder;
+import org.hibernate.type.descriptor.jdbc.BasicExtractor;
+import org.hibernate.type.descriptor.jdbc.JdbcType;
+import org.hibernate.type.descriptor.jdbc.JdbcTypeConstructor;
+import org.hibernate.type.spi.TypeConfiguration;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * PostgreSQL array mapping that reads and writes primitive {@code double[]} and {@code float[]}
+ * attributes ({@code float8[]} / {@code float4[]} columns) without boxing.
+ * <p>
+ * WHY: Hibernate's own array mapping goes through {@code java.sql.Array} and {@code Double[]},
+ * i.e. one boxed Double per element on every write and every read (about 850 per measurement
+ * with waveforms). For primitive arrays this type instead
+ * - binds the text literal {@code {v1,v2,...}} (untyped, cast by the server to the column type)
+ * - parses the text form of the result straight into the primitive array
+ * <p>
+ * Other Java types keep the standard PostgreSQL array binding. Registered for PostgreSQL only
+ * (see {@code ScadaPostgreSQLDialect}); other databases (H2 in tests) use Hibernate's mapping.
+ * NULL elements are read as NaN.
+ */
+public class PrimitiveArrayJdbcType extends PostgreSQLArrayJdbcType {
+
+    /** Replaces the dialect's array type constructor, so every array column gets this type. */
+    public static final JdbcTypeConstructor CONSTRUCTOR = new JdbcTypeConstructor() {
+        @Override
+        public JdbcType resolveType(TypeConfiguration typeConfiguration, Dialect dialect,
+                                    JdbcType elementType, ColumnTypeInformation columnTypeInformation) {
+            return new PrimitiveArrayJdbcType(elementType);
+        }
+
+        @Override
+        public int getDefaultSqlTypeCode() {
+            return Types.ARRAY;
+        }
+    };
+
+    public PrimitiveArrayJdbcType(JdbcType elementJdbcType) {
+        super(elementJdbcType);
+    }
+
+    @Override
+    public <X> ValueBinder<X> getBinder(JavaType<X> javaType) {
+        if (!isPrimitiveArray(javaType)) {
+            return super.getBinder(javaType);
+        }
+        return new BasicBinder<>(javaType, this) {
+            @Override
+            protected void doBind(PreparedStatement st, X value, int index, WrapperOptions options)
+                    throws SQLException {
+                st.setObject(index, format(value), Types.OTHER);
+            }
+
+            @Override
+            protected void doBind(CallableStatement st, X value, String name, WrapperOptions options)
+                    throws SQLException {
+                st.setObject(name, format(value), Types.OTHER);
+            }
+        };
+    }
+
+    @Override
+    public <X> ValueExtractor<X> getExtractor(JavaType<X> javaType) {
+        if (!isPrimitiveArray(javaType)) {
+            return super.getExtractor(javaType);
+        }
+        Class<X> type = javaType.getJavaTypeClass();
+        return new BasicExtractor<>(javaType, this) {
+            @Override
+            protected X doExtract(ResultSet rs, int paramIndex, WrapperOptions options) throws SQLException {
+                return parse(rs.getString(paramIndex), type);
+            }
+
+            @Override
+            protected X doExtract(CallableStatement statement, int index, WrapperOptions options)
+                    throws SQLException {
+                return parse(statement.getString(index), type);
+            }
+
+            @Override
+            protected X doExtract(CallableStatement statement, String name, WrapperOptions options)
+                    throws SQLException {
+                return parse(statement.getString(name), type);
+            }
+        };
+    }
+
+    private static boolean isPrimitiveArray(JavaType<?> javaType) {
+        return javaType.getJavaTypeClass() == double[].class || javaType.getJavaTypeClass() == float[].class;
+    }
+
+    /** PostgreSQL array literal, e.g. {@code {230.0,4.8,-1.0E-5}}. */
+    static String format(Object values) {
+        StringBuilder builder;
+        if (values instanceof float[] floats) {
+            builder = new StringBuilder(2 + floats.length * 10).append('{');
+            for (int i = 0; i < floats.length; i++) {
+                builder.append(i > 0 ? "," : "").append(floats[i]);
+            }
+        } else {
+            double[] doubles = (double[]) values;
+            builder = new StringBuilder(2 + doubles.length * 10).append('{');
+            for (int i = 0; i < doubles.length; i++) {
+                builder.append(i > 0 ? "," : "").append(doubles[i]);
+            }
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Parses a one-dimensional array in PostgreSQL text form ({@code {1,2.5,NaN}}) into a
+     * {@code double[]} or {@code float[]}; null for SQL NULL.
+     */
+    static <X> X parse(String literal, Class<X> type) {
+        if (literal == null) {
+            return null;
+        }
+        int start = literal.indexOf('{');
+        int end = literal.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Not an array literal: " + literal);
+        }
+
+        int count = 0;
+        boolean empty = true;
+        for (int i = start + 1; i < end; i++) {
+            char c = literal.charAt(i);
+            if (c == ',') {
+                count++;
+            } else if (c != ' ') {
+                empty = false;
+            }
+        }
+        int length = empty ? 0 : count + 1;
+        double[] doubles = type == double[].class ? new double[length] : null;
+        float[] floats = doubles == null ? new float[length] : null;
+
+        int from = start + 1;
+        for (int n = 0; n < length; n++) {
+            int to = literal.indexOf(',', from);
+            if (to < 0 || to > end) {
+                to = end;
+            }
+            String element = literal.substring(from, to).trim();
+            boolean isNull = element.equalsIgnoreCase("NULL");
+            if (doubles != null) {
+                doubles[n] = isNull ? Double.NaN : Double.parseDouble(element);
+            } else {
+                floats[n] = isNull ? Float.NaN : Float.parseFloat(element);
+            }
+            from = to + 1;
+        }
+        return type.cast(doubles != null ? doubles : floats);
+    }
+}
@@ -0,0 +1,298 @@
+package com.dkowalczyk.scadasystem.repository;
+
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bulk insert path for the ingest pipeline ({@code ingest.write-mode=COPY}).
+ * <p>
+ * WHY COPY: even batched and rewritten into multi-row INSERTs, every statement is parsed,
+ * planned and bound; {@code COPY ... FROM STDIN} streams rows into the table with none of that.
+ * Measurements and their waveforms are written with two COPY commands per batch (text format,
+ * arrays as {@code {...}} literals).
+ * <p>
+ * Ids come from the same pooled Hibernate generator as the JPA path (measurements_id_seq, one
+ * sequence call per 50 rows), so the after-commit broadcast gets saved measurements with ids
+ * and both modes can be mixed. Rows are written on the connection of the current JPA transaction,
+ * so a failed batch is rolled back as a whole.
+ * <p>
+ * The written entities are not managed by the persistence context. On databases other than
+ * PostgreSQL (H2 in tests) the same rows are written with a JDBC batch INSERT.
+ */
+@Repository
+@Slf4j
+public class MeasurementBulkWriter {
+
+    public enum WriteMode {
+        /** Spring Data saveAll with JDBC batching. */
+        JPA,
+        /** PostgreSQL COPY FROM STDIN. */
+        COPY
+    }
+
+    static final String MEASUREMENT_COLUMNS = "id, time, sensor_id, payload_hash, voltage_rms, current_rms, frequency, "
+            + "power_active, power_apparent, power_reactive, power_distortion, power_factor, thd_voltage, thd_current, "
+            + "harmonics_v, harmonics_i, voltage_deviation_percent, frequency_deviation_hz, is_valid, created_at";
+    static final String WAVEFORM_COLUMNS = "measurement_id, time, waveform_v, waveform_i";
+
+    /** COPY data is sent to the server whenever this much text is buffered. */
+    private static final int FLUSH_CHARS = 64 * 1024;
+
+    private final EntityManager entityManager;
+    private final WriteMode mode;
+
+    public MeasurementBulkWriter(EntityManager entityManager,
+                                 @Value("${ingest.write-mode:JPA}") WriteMode mode) {
+        this.entityManager = entityManager;
+        this.mode = mode;
+    }
+
+    public boolean isCopyMode() {
+        return mode == WriteMode.COPY;
+    }
+
+    /**
+     * Assigns ids to the measurements and inserts them and their waveforms.
+     * Must run inside a transaction.
+     *
+     * @param measurements new measurements (ids are set in place)
+     */
+    public void insert(List<Measurement> measurements) {
+        if (measurements.isEmpty()) {
+            return;
+        }
+        assignIds(measurements);
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                copy(connection.unwrap(PGConnection.class), measurements);
+            } else {
+                batchInsert(connection, measurements);
+            }
+        });
+    }
+
+    private void assignIds(List<Measurement> measurements) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory()
+                .getMappingMetamodel()
+                .getEntityDescriptor(Measurement.class)
+                .getGenerator();
+        Instant now = Instant.now();
+        for (Measurement measurement : measurements) {
+            measurement.setId((Long) generator.generate(session, measurement, null, EventType.INSERT));
+            measurement.setCreatedAt(now);
+        }
+    }
+
+    private static void copy(PGConnection connection, List<Measurement> measurements) throws SQLException {
+        StringBuilder rows = new StringBuilder(FLUSH_CHARS + 8 * 1024);
+
+        CopyIn copyIn = connection.getCopyAPI().copyIn(
+                "COPY measurements (" + MEASUREMENT_COLUMNS + ") FROM STDIN");
+        try {
+            for (Measurement m : measurements) {
+                appendValue(rows, m.getId()).append('\t');
+                appendTime(rows, m.getTime()).append('\t');
+                appendText(rows, m.getSensorId()).append('\t');
+                appendValue(rows, m.getPayloadHash()).append('\t');
+                appendValue(rows, m.getVoltageRms()).append('\t');
+                appendValue(rows, m.getCurrentRms()).append('\t');
+                appendValue(rows, m.getFrequency()).append('\t');
+                appendValue(rows, m.getPowerActive()).append('\t');
+                appendValue(rows, m.getPowerApparent()).append('\t');
+                appendValue(rows, m.getPowerReactive()).append('\t');
+                appendValue(rows, m.getPowerDistortion()).append('\t');
+                appendValue(rows, m.getPowerFactor()).append('\t');
+                appendValue(rows, m.getThdVoltage()).append('\t');
+                appendValue(rows, m.getThdCurrent()).append('\t');
+                appendArray(rows, m.getHarmonicsV()).append('\t');
+                appendArray(rows, m.getHarmonicsI()).append('\t');
+                appendValue(rows, m.getVoltageDeviationPercent()).append('\t');
+                appendValue(rows, m.getFrequencyDeviationHz()).append('\t');
+                appendValue(rows, m.getIsValid() == null ? null : m.getIsValid() ? "t" : "f").append('\t');
+                appendTime(rows, m.getCreatedAt()).append('\n');
+                flushIfFull(copyIn, rows);
+            }
+            flush(copyIn, rows);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+
+        if (measurements.stream().noneMatch(MeasurementBulkWriter::hasWaveforms)) {
+            return;
+        }
+        copyIn = connection.getCopyAPI().copyIn("COPY measurement_waveforms (" + WAVEFORM_COLUMNS + ") FROM STDIN");
+        try {
+            for (Measurement m : measurements) {
+                if (!hasWaveforms(m)) {
+                    continue;
+                }
+                appendValue(rows, m.getId()).append('\t');
+                appendTime(rows, m.getTime()).append('\t');
+                appendArray(rows, m.getWaveformV()).append('\t');
+                appendArray(rows, m.getWaveformI()).append('\n');
+                flushIfFull(copyIn, rows);
+            }
+            flush(copyIn, rows);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void batchInsert(Connection connection, List<Measurement> measurements) throws SQLException {
+        try (PreparedStatement st = connection.prepareStatement(
+                "INSERT INTO measurements (" + MEASUREMENT_COLUMNS + ") VALUES (" + placeholders(20) + ")")) {
+            for (Measurement m : measurements) {
+                int i = 0;
+                st.setLong(++i, m.getId());
+                st.setObject(++i, m.getTime().atOffset(ZoneOffset.UTC));
+                st.setString(++i, m.getSensorId());
+                st.setObject(++i, m.getPayloadHash(), Types.BIGINT);
+                st.setObject(++i, m.getVoltageRms(), Types.DOUBLE);
+                st.setObject(++i, m.getCurrentRms(), Types.DOUBLE);
+                st.setObject(++i, m.getFrequency(), Types.DOUBLE);
+                st.setObject(++i, m.getPowerActive(), Types.DOUBLE);
+                st.setObject(++i, m.getPowerApparent(), Types.DOUBLE);
+                st.setObject(++i, m.getPowerReactive(), Types.DOUBLE);
+                st.setObject(++i, m.getPowerDistortion(), Types.DOUBLE);
+                st.setObject(++i, m.getPowerFactor(), Types.DOUBLE);
+                st.setObject(++i, m.getThdVoltage(), Types.DOUBLE);
+                st.setObject(++i, m.getThdCurrent(), Types.DOUBLE);
+                setArray(st, ++i, m.getHarmonicsV());
+                setArray(st, ++i, m.getHarmonicsI());
+                st.setObject(++i, m.getVoltageDeviationPercent(), Types.DOUBLE);
+                st.setObject(++i, m.getFrequencyDeviationHz(), Types.DOUBLE);
+                st.setObject(++i, m.getIsValid(), Types.BOOLEAN);
+                st.setObject(++i, m.getCreatedAt().atOffset(ZoneOffset.UTC));
+                st.addBatch();
+            }
+            st.executeBatch();
+        }
+
+        try (PreparedStatement st = connection.prepareStatement(
+                "INSERT INTO measurement_waveforms (" + WAVEFORM_COLUMNS + ") VALUES (" + placeholders(4) + ")")) {
+            boolean any = false;
+            for (Measurement m : measurements) {
+                if (hasWaveforms(m)) {
+                    st.setLong(1, m.getId());
+                    st.setObject(2, m.getTime().atOffset(ZoneOffset.UTC));
+                    setArray(st, 3, m.getWaveformV());
+                    setArray(st, 4, m.getWaveformI());
+                    st.addBatch();
+                    any = true;
+                }
+            }
+            if (any) {
+                st.executeBatch();
+            }
+        }
+    }
+
+    private static boolean hasWaveforms(Measurement measurement) {
+        return measurement.getWaveformV() != null || measurement.getWaveformI() != null;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static void setArray(PreparedStatement st, int index, double[] values) throws SQLException {
+        if (values == null) {
+            st.setNull(index, Types.ARRAY);
+            return;
+        }
+        Double[] boxed = new Double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        st.setArray(index, st.getConnection().createArrayOf("DOUBLE PRECISION", boxed));
+    }
+
+    // === COPY text format (tab separated, \N for NULL) ===
+
+    private static StringBuilder appendValue(StringBuilder rows, Object value) {
+        return value == null ? rows.append("\\N") : rows.append(value);
+    }
+
+    /**
+     * time columns are timestamp without time zone in the JVM zone, as written by Hibernate
+     * (pgjdbc sets the session TimeZone to the JVM zone); an offset would be ignored.
+     */
+    private static StringBuilder appendTime(StringBuilder rows, Instant value) {
+        return value == null ? rows.append("\\N") : rows.append(LocalDateTime.ofInstant(value, ZoneId.systemDefault()));
+    }
+
+    /** PostgreSQL array literal, e.g. {@code {230.0,4.8,-1.0E-5}} (valid in COPY text format). */
+    private static StringBuilder appendArray(StringBuilder rows, double[] values) {
+        if (values == null) {
+            return rows.append("\\N");
+        }
+        rows.append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                rows.append(',');
+            }
+            rows.append(values[i]);
+        }
+        return rows.append('}');
+    }
+
+    private static StringBuilder appendText(StringBuilder rows, String value) {
+        if (value == null) {
+            return rows.append("\\N");
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> rows.append("\\\\");
+                case '\t' -> rows.append("\\t");
+                case '\n' -> rows.append("\\n");
+                case '\r' -> rows.append("\\r");
+                default -> rows.append(c);
+            }
+        }
+        return rows;
+    }
+
+    private static void flushIfFull(CopyIn copyIn, StringBuilder rows) throws SQLException {
+        if (rows.length() >= FLUSH_CHARS) {
+            flush(copyIn, rows);
+        }
+    }
+
+    private static void flush(CopyIn copyIn, StringBuilder rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        rows.setLength(0);
+    }
+}
@@ -1,6 +1,10 @@
 package com.dkowalczyk.scadasystem.repository;
 
 import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementKey;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementRollupRow;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementStatsRow;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,6 +12,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +34,144 @@ public interface MeasurementRepository extends JpaRepository<Measurement, Long>
     /** Finds valid measurements within time range with pagination. */
     List<Measurement> findByIsValidTrueAndTimeBetween(Instant from, Instant to, Pageable pageable);
 
+    /** Finds the most recent valid measurement of one node (uses idx_measurements_valid_sensor_time). */
+    Optional<Measurement> findTopBySensorIdAndIsValidTrueOrderByTimeDesc(String sensorId);
+
+    /** Finds last 100 valid measurements of one node. */
+    List<Measurement> findTop100BySensorIdAndIsValidTrueOrderByTimeDesc(String sensorId);
+
+    /** Finds valid measurements of one node within time range with pagination. */
+    List<Measurement> findBySensorIdAndIsValidTrueAndTimeBetween(String sensorId, Instant from, Instant to, Pageable pageable);
+
+    /** Valid measurements within time range as history rows (DTO columns only), with pagination. */
+    @Query("""
+        SELECT new com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow(
+            m.id, m.time, m.sensorId, m.voltageRms, m.currentRms,
+            m.powerActive, m.powerApparent, m.powerReactive, m.powerDistortion, m.powerFactor,
+            m.frequency, m.thdVoltage, m.thdCurrent, m.harmonicsV, m.harmonicsI,
+            m.voltageDeviationPercent, m.frequencyDeviationHz)
+        FROM Measurement m
+        WHERE m.isValid = true
+        AND m.time BETWEEN :from AND :to
+    """)
+    List<MeasurementHistoryRow> findHistoryRows(Instant from, Instant to, Pageable pageable);
+
+    /** Valid measurements of one node within time range as history rows, with pagination. */
+    @Query("""
+        SELECT new com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow(
+            m.id, m.time, m.sensorId, m.voltageRms, m.currentRms,
+            m.powerActive, m.powerApparent, m.powerReactive, m.powerDistortion, m.powerFactor,
+            m.frequency, m.thdVoltage, m.thdCurrent, m.harmonicsV, m.harmonicsI,
+            m.voltageDeviationPercent, m.frequencyDeviationHz)
+        FROM Measurement m
+        WHERE m.sensorId = :sensorId
+        AND m.isValid = true
+        AND m.time BETWEEN :from AND :to
+    """)
+    List<MeasurementHistoryRow> findHistoryRowsBySensorId(String sensorId, Instant from, Instant to, Pageable pageable);
+
+    /** Newest valid measurements as history rows, without a time range (page sorted by time). */
+    @Query("""
+        SELECT new com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow(
+            m.id, m.time, m.sensorId, m.voltageRms, m.currentRms,
+            m.powerActive, m.powerApparent, m.powerReactive, m.powerDistortion, m.powerFactor,
+            m.frequency, m.thdVoltage, m.thdCurrent, m.harmonicsV, m.harmonicsI,
+            m.voltageDeviationPercent, m.frequencyDeviationHz)
+        FROM Measurement m
+        WHERE m.isValid = true
+    """)
+    List<MeasurementHistoryRow> findRecentRows(Pageable pageable);
+
+    /** Newest valid measurements of one node as history rows (page sorted by time). */
+    @Query("""
+        SELECT new com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow(
+            m.id, m.time, m.sensorId, m.voltageRms, m.currentRms,
+            m.powerActive, m.powerApparent, m.powerReactive, m.powerDistortion, m.powerFactor,
+            m.frequency, m.thdVoltage, m.thdCurrent, m.harmonicsV, m.harmonicsI,
+            m.voltageDeviationPercent, m.frequencyDeviationHz)
+        FROM Measurement m
+        WHERE m.sensorId = :sensorId
+        AND m.isValid = true
+    """)
+    List<MeasurementHistoryRow> findRecentRowsBySensorId(String sensorId, Pageable pageable);
+
+    /**
+     * Keyset page of valid history rows in [afterTime, to] that come after (afterTime, afterId),
+     * ordered by (time, id). Pass (from, Long.MIN_VALUE) for the first page.
+     * The page size comes from the Pageable (its sort is ignored).
+     */
+    @Query("""
+        SELECT new com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow(
+            m.id, m.time, m.sensorId, m.voltageRms, m.currentRms,
+            m.powerActive, m.powerApparent, m.powerReactive, m.powerDistortion, m.powerFactor,
+            m.frequency, m.thdVoltage, m.thdCurrent, m.harmonicsV, m.harmonicsI,
+            m.voltageDeviationPercent, m.frequencyDeviationHz)
+        FROM Measurement m
+        WHERE m.isValid = true
+        AND m.time >= :afterTime AND m.time <= :to
+        AND (m.time > :afterTime OR m.id > :afterId)
+        ORDER BY m.time, m.id
+    """)
+    List<MeasurementHistoryRow> findHistoryRowsAfter(Instant afterTime, Long afterId, Instant to, Pageable pageable);
+
+    /** Keyset page of valid history rows of one node, see {@link #findHistoryRowsAfter}. */
+    @Query("""
+        SELECT new com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow(
+            m.id, m.time, m.sensorId, m.voltageRms, m.currentRms,
+            m.powerActive, m.powerApparent, m.powerReactive, m.powerDistortion, m.powerFactor,
+            m.frequency, m.thdVoltage, m.thdCurrent, m.harmonicsV, m.harmonicsI,
+            m.voltageDeviationPercent, m.frequencyDeviationHz)
+        FROM Measurement m
+        WHERE m.sensorId = :sensorId
+        AND m.isValid = true
+        AND m.time >= :afterTime AND m.time <= :to
+        AND (m.time > :afterTime OR m.id > :afterId)
+        ORDER BY m.time, m.id
+    """)
+    List<MeasurementHistoryRow> findHistoryRowsBySensorIdAfter(String sensorId, Instant afterTime, Long afterId,
+                                                               Instant to, Pageable pageable);
+
+    /** Scalars needed for daily statistics of valid measurements in [from, to], oldest first. */
+    @Query("""
+        SELECT new com.dkowalczyk.scadasystem.model.projection.MeasurementStatsRow(
+            m.time, m.voltageRms, m.powerActive, m.frequency, m.powerFactor, m.thdVoltage)
+        FROM Measurement m
+        WHERE m.isValid = true
+        AND m.time BETWEEN :from AND :to
+        ORDER BY m.time
+    """)
+    List<MeasurementStatsRow> findStatsRows(Instant from, Instant to);
+
+    /**
+     * Valid measurements in [from, to) for building rollup buckets, ordered by node and time
+     * (each node's samples are consecutive, as needed for energy integration).
+     */
+    @Query("""
+        SELECT new com.dkowalczyk.scadasystem.model.projection.MeasurementRollupRow(
+            m.sensorId, m.time, m.voltageRms, m.powerActive, m.frequency)
+        FROM Measurement m
+        WHERE m.isValid = true
+        AND m.time >= :from AND m.time < :to
+        ORDER BY m.sensorId, m.time
+    """)
+    List<MeasurementRollupRow> findRollupRows(Instant from, Instant to);
+
+    /** Time of the oldest stored measurement (start of the rollup backfill). */
+    @Query("SELECT MIN(m.time) FROM Measurement m")
+    Optional<Instant> findEarliestTime();
+
+    /**
+     * Returns the (time, payload hash) keys stored in the time range with one of the given
+     * hashes (duplicate check; the caller matches the exact keys).
+     */
+    @Query("""
+        SELECT new com.dkowalczyk.scadasystem.model.projection.MeasurementKey(m.time, m.payloadHash)
+        FROM Measurement m
+        WHERE m.time BETWEEN :from AND :to
+        AND m.payloadHash IN :payloadHashes
+    """)
+    List<MeasurementKey> findExistingKeys(Instant from, Instant to, Collection<Long> payloadHashes);
+
     /** Calculates daily aggregated statistics (min/max/avg voltage and power) since given time. */
     @Query("""
         SELECT
@@ -0,0 +1,53 @@
+package com.dkowalczyk.scadasystem.repository;
+
+import com.dkowalczyk.scadasystem.model.entity.MeasurementRollup;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementRollup.Resolution;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for downsampled measurement buckets (see V12).
+ * Ranges are half-open: from &lt;= bucket &lt; to.
+ */
+@Repository
+public interface MeasurementRollupRepository extends JpaRepository<MeasurementRollup, MeasurementRollup.Key> {
+
+    /** Buckets of all nodes in the range, ordered by bucket. */
+    @Query("""
+        SELECT r FROM MeasurementRollup r
+        WHERE r.resolution = :resolution
+        AND r.bucket >= :from AND r.bucket < :to
+        ORDER BY r.bucket, r.sensorId
+    """)
+    List<MeasurementRollup> findBuckets(Resolution resolution, Instant from, Instant to);
+
+    /** Buckets of one node in the range, ordered by bucket. */
+    @Query("""
+        SELECT r FROM MeasurementRollup r
+        WHERE r.resolution = :resolution
+        AND r.sensorId = :sensorId
+        AND r.bucket >= :from AND r.bucket < :to
+        ORDER BY r.bucket
+    """)
+    List<MeasurementRollup> findBucketsBySensorId(Resolution resolution, String sensorId, Instant from, Instant to);
+
+    /** Removes the buckets of all nodes in the range before they are rebuilt. */
+    @Modifying
+    @Query("""
+        DELETE FROM MeasurementRollup r
+        WHERE r.resolution = :resolution
+        AND r.bucket >= :from AND r.bucket < :to
+    """)
+    int deleteBuckets(Resolution resolution, Instant from, Instant to);
+
+    /** Start of the newest bucket of the resolution (empty when nothing is rolled up yet). */
+    @Query("SELECT MAX(r.bucket) FROM MeasurementRollup r WHERE r.resolution = :resolution")
+    Optional<Instant> findLatestBucket(Resolution resolution);
+}
@@ -0,0 +1,22 @@
+package com.dkowalczyk.scadasystem.repository;
+
+import com.dkowalczyk.scadasystem.model.entity.MeasurementWaveform;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Repository for raw waveforms stored apart from measurements.
+ *
+ * @author Bachelor Thesis - SCADA System Project
+ * @since 1.0
+ */
+@Repository
+public interface MeasurementWaveformRepository extends JpaRepository<MeasurementWaveform, Long> {
+
+    /** Finds the waveforms of one measurement (time prunes the lookup to one partition). */
+    Optional<MeasurementWaveform> findByMeasurementIdAndTime(Long measurementId, Instant time);
+}
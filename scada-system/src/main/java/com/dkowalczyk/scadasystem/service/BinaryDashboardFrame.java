@@ -0,0 +1,177 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
+import com.dkowalczyk.scadasystem.model.dto.WaveformDTO;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Binary form of one /topic/dashboard frame, sent instead of the JSON to subscriptions that
+ * asked for it (see {@link BinaryFrameNegotiator}).
+ * <p>
+ * WHY: the JSON frame is mostly the two waveforms written as decimal text (~20 bytes per
+ * sample), which the browser then parses back to numbers. As float32 a sample takes 4 bytes, as
+ * scaled int16 2 bytes, and the client reads them with a typed array without parsing.
+ * <p>
+ * Layout, all little-endian:
+ * <pre>
+ * u8      version (1)
+ * u8      sample encoding: 1 = float32, 2 = int16
+ * u16     voltage sample count (nv)
+ * u16     current sample count (ni)
+ * u8      sensor id length in bytes (L), 0 without sensor id
+ * L       sensor id, UTF-8
+ * i64     measurement id (-1 without id)
+ * i64     measurement time, epoch milliseconds
+ * 12×f32  voltage_rms, current_rms, power_active, power_apparent, power_reactive,
+ *         power_distortion, power_factor, frequency, thd_voltage, thd_current,
+ *         voltage_deviation_percent, frequency_deviation_hz (NaN when null)
+ * float32: nv×f32 voltage samples, ni×f32 current samples
+ * int16:   f32 voltage scale, f32 current scale, nv×i16 voltage, ni×i16 current
+ *          (value = sample × scale)
+ * </pre>
+ * Harmonic amplitudes are left out; they stay available in the JSON frame and REST API.
+ * <p>
+ * The waveforms are only resolved and each encoding only built when a subscriber needs it,
+ * then shared by all subscribers of the frame.
+ */
+public final class BinaryDashboardFrame {
+
+    /** Message header carrying the frame from WebSocketService to the outbound channel. */
+    public static final String HEADER = "binaryDashboardFrame";
+
+    static final byte VERSION = 1;
+    static final int SCALAR_COUNT = 12;
+
+    public enum SampleEncoding {
+        FLOAT32(1, Float.BYTES),
+        INT16(2, Short.BYTES);
+
+        private final byte code;
+        private final int sampleBytes;
+
+        SampleEncoding(int code, int sampleBytes) {
+            this.code = (byte) code;
+            this.sampleBytes = sampleBytes;
+        }
+
+        public byte code() {
+            return code;
+        }
+    }
+
+    private final MeasurementDTO measurement;
+    private final Supplier<WaveformDTO> waveformsSupplier;
+    private volatile WaveformDTO waveforms;
+    private volatile byte[] float32;
+    private volatile byte[] int16;
+
+    public BinaryDashboardFrame(MeasurementDTO measurement, Supplier<WaveformDTO> waveformsSupplier) {
+        this.measurement = measurement;
+        this.waveformsSupplier = waveformsSupplier;
+    }
+
+    /** Frame bytes in the given encoding, built on first use. */
+    public byte[] bytes(SampleEncoding encoding) {
+        if (encoding == SampleEncoding.FLOAT32) {
+            byte[] frame = float32;
+            if (frame == null) {
+                frame = encode(encoding);
+                float32 = frame;
+            }
+            return frame;
+        }
+        byte[] frame = int16;
+        if (frame == null) {
+            frame = encode(encoding);
+            int16 = frame;
+        }
+        return frame;
+    }
+
+    private byte[] encode(SampleEncoding encoding) {
+        WaveformDTO waveforms = this.waveforms;
+        if (waveforms == null) {
+            waveforms = waveformsSupplier.get();
+            this.waveforms = waveforms;
+        }
+        double[] voltage = waveforms.getVoltage() != null ? waveforms.getVoltage() : new double[0];
+        double[] current = waveforms.getCurrent() != null ? waveforms.getCurrent() : new double[0];
+        if (voltage.length > 0xFFFF || current.length > 0xFFFF) {
+            throw new IllegalArgumentException("Waveform too long for a binary frame: "
+                    + Math.max(voltage.length, current.length) + " samples");
+        }
+        byte[] sensorId = measurement.getSensorId() != null
+                ? measurement.getSensorId().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (sensorId.length > 0xFF) {
+            throw new IllegalArgumentException("Sensor id too long for a binary frame: " + sensorId.length + " bytes");
+        }
+
+        int size = 7 + sensorId.length + 2 * Long.BYTES + SCALAR_COUNT * Float.BYTES
+                + (encoding == SampleEncoding.INT16 ? 2 * Float.BYTES : 0)
+                + (voltage.length + current.length) * encoding.sampleBytes;
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(VERSION);
+        buffer.put(encoding.code);
+        buffer.putShort((short) voltage.length);
+        buffer.putShort((short) current.length);
+        buffer.put((byte) sensorId.length);
+        buffer.put(sensorId);
+        buffer.putLong(measurement.getId() != null ? measurement.getId() : -1L);
+        buffer.putLong(measurement.getTime() != null ? measurement.getTime().toEpochMilli() : 0L);
+        putScalar(buffer, measurement.getVoltageRms());
+        putScalar(buffer, measurement.getCurrentRms());
+        putScalar(buffer, measurement.getPowerActive());
+        putScalar(buffer, measurement.getPowerApparent());
+        putScalar(buffer, measurement.getPowerReactive());
+        putScalar(buffer, measurement.getPowerDistortion());
+        putScalar(buffer, measurement.getPowerFactor());
+        putScalar(buffer, measurement.getFrequency());
+        putScalar(buffer, measurement.getThdVoltage());
+        putScalar(buffer, measurement.getThdCurrent());
+        putScalar(buffer, measurement.getVoltageDeviationPercent());
+        putScalar(buffer, measurement.getFrequencyDeviationHz());
+
+        if (encoding == SampleEncoding.FLOAT32) {
+            putFloat32(buffer, voltage);
+            putFloat32(buffer, current);
+        } else {
+            float voltageScale = scale(voltage);
+            float currentScale = scale(current);
+            buffer.putFloat(voltageScale);
+            buffer.putFloat(currentScale);
+            putInt16(buffer, voltage, voltageScale);
+            putInt16(buffer, current, currentScale);
+        }
+        return buffer.array();
+    }
+
+    private static void putScalar(ByteBuffer buffer, Double value) {
+        buffer.putFloat(value != null ? value.floatValue() : Float.NaN);
+    }
+
+    private static void putFloat32(ByteBuffer buffer, double[] samples) {
+        for (double sample : samples) {
+            buffer.putFloat((float) sample);
+        }
+    }
+
+    /** Scale mapping the largest magnitude to Short.MAX_VALUE (1 for an all-zero waveform). */
+    private static float scale(double[] samples) {
+        double peak = 0;
+        for (double sample : samples) {
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        return peak > 0 ? (float) (peak / Short.MAX_VALUE) : 1f;
+    }
+
+    private static void putInt16(ByteBuffer buffer, double[] samples, float scale) {
+        for (double sample : samples) {
+            long scaled = Math.round(sample / scale);
+            buffer.putShort((short) Math.max(-Short.MAX_VALUE, Math.min(Short.MAX_VALUE, scaled)));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.service.BinaryDashboardFrame.SampleEncoding;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in binary dashboard frames, negotiated per subscription.
+ * <p>
+ * A client subscribing to /topic/dashboard or /topic/dashboard/{sensorId} with an
+ * {@code encoding: float32} or {@code encoding: int16} header receives {@link BinaryDashboardFrame}
+ * bytes (content-type application/octet-stream) instead of the JSON; without the header, or with
+ * {@code encoding: json}, nothing changes. Other topics carry no waveforms and stay JSON.
+ * <p>
+ * WHY AN OUTBOUND INTERCEPTOR: the simple broker sends one payload to all subscribers of a
+ * destination. Each frame instead carries its {@link BinaryDashboardFrame} in a message header,
+ * which the broker copies to every subscriber's message, and the payload is swapped here for
+ * the subscriptions that negotiated binary.
+ * <p>
+ * Only sessions of the plain WebSocket endpoint ({@link #handshakeInterceptor()}) can get binary:
+ * SockJS carries STOMP in text frames, which would corrupt the bytes, so a binary request
+ * over SockJS is answered with JSON.
+ */
+@Service
+@Slf4j
+public class BinaryFrameNegotiator implements ChannelInterceptor {
+
+    /** SUBSCRIBE header selecting the frame encoding. */
+    public static final String ENCODING_HEADER = "encoding";
+
+    static final String BINARY_CAPABLE_ATTRIBUTE = "binaryFramesSupported";
+
+    /** Negotiated encodings: session id → subscription id → encoding. */
+    private final Map<String, Map<String, SampleEncoding>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicLong binaryFrameCount = new AtomicLong();
+
+    /**
+     * Marks sessions of the plain WebSocket endpoint as able to receive binary frames.
+     */
+    public HandshakeInterceptor handshakeInterceptor() {
+        return new HandshakeInterceptor() {
+            @Override
+            public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                           WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                attributes.put(BINARY_CAPABLE_ATTRIBUTE, Boolean.TRUE);
+                return true;
+            }
+
+            @Override
+            public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Exception exception) {
+            }
+        };
+    }
+
+    /**
+     * Ordered first so the encoding is known before WebSocketService replays retained frames.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor subscribe = StompHeaderAccessor.wrap(event.getMessage());
+        String requested = subscribe.getFirstNativeHeader(ENCODING_HEADER);
+        if (requested == null || subscribe.getSessionId() == null || subscribe.getSubscriptionId() == null) {
+            return;
+        }
+        SampleEncoding encoding = switch (requested.trim().toLowerCase(Locale.ROOT)) {
+            case "float32" -> SampleEncoding.FLOAT32;
+            case "int16" -> SampleEncoding.INT16;
+            default -> null;
+        };
+        if (encoding == null) {
+            return;
+        }
+        Map<String, Object> attributes = subscribe.getSessionAttributes();
+        if (attributes == null || !Boolean.TRUE.equals(attributes.get(BINARY_CAPABLE_ATTRIBUTE))) {
+            log.debug("Session {} asked for {} frames over SockJS, sending JSON", subscribe.getSessionId(), encoding);
+            return;
+        }
+        subscriptions.computeIfAbsent(subscribe.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(subscribe.getSubscriptionId(), encoding);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor unsubscribe = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, SampleEncoding> session = unsubscribe.getSessionId() != null
+                ? subscriptions.get(unsubscribe.getSessionId()) : null;
+        if (session != null && unsubscribe.getSubscriptionId() != null) {
+            session.remove(unsubscribe.getSubscriptionId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        subscriptions.remove(event.getSessionId());
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!(message.getHeaders().get(BinaryDashboardFrame.HEADER) instanceof BinaryDashboardFrame frame)
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders());
+        Map<String, SampleEncoding> session = sessionId != null ? subscriptions.get(sessionId) : null;
+        SampleEncoding encoding = session != null && subscriptionId != null ? session.get(subscriptionId) : null;
+        if (encoding == null) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setLeaveMutable(true);
+        binaryFrameCount.incrementAndGet();
+        return MessageBuilder.createMessage(frame.bytes(encoding), accessor.getMessageHeaders());
+    }
+
+    /** Frames sent as binary instead of JSON. */
+    public long getBinaryFrameCount() {
+        return binaryFrameCount.get();
+    }
+
+    /** Subscriptions that negotiated binary frames. */
+    public int getBinarySubscriptionCount() {
+        return subscriptions.values().stream().mapToInt(Map::size).sum();
+    }
+}
@@ -1,13 +1,19 @@
 package com.dkowalczyk.scadasystem.service;
 
 import com.dkowalczyk.scadasystem.model.dto.StatsDTO;
+import com.dkowalczyk.scadasystem.model.event.LateMeasurementEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -16,6 +22,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * Runs scheduled job at 00:05 every day to calculate previous day's statistics.
  * <p>
  * Thread-safe implementation using ReadWriteLock for concurrent access to status fields.
+ * <p>
+ * Correction path: measurements that arrive after MeasurementReorderBuffer already moved past
+ * their device time are reported as {@link LateMeasurementEvent}. If such a measurement belongs
+ * to a day whose statistics may already be aggregated, that day is recalculated on the next
+ * {@code stream.reorder.correction-interval-ms} tick.
  */
 @Service
 @Slf4j
@@ -29,6 +40,8 @@ public class DataAggregationService {
     private volatile boolean lastRunSuccess = true;
     private volatile String lastError;
 
+    private final Set<LocalDate> datesToCorrect = ConcurrentHashMap.newKeySet();
+
     /**
      * Runs every day at 00:05 (5 minutes after midnight).
      * Aggregates yesterday's measurements into daily_stats table.
@@ -104,6 +117,44 @@ public class DataAggregationService {
         }
     }
 
+    /**
+     * Marks the day of a late measurement for recalculation.
+     * Today is skipped: its statistics are only aggregated after midnight anyway.
+     */
+    @EventListener
+    public void onLateMeasurement(LateMeasurementEvent event) {
+        LocalDate date = LocalDate.ofInstant(event.getMeasurement().getTime(), ZoneId.systemDefault());
+        if (date.isBefore(LocalDate.now()) && datesToCorrect.add(date)) {
+            log.info("Late measurement for {} (node '{}'), daily stats will be recalculated",
+                    date, event.getMeasurement().getSensorId());
+        }
+    }
+
+    /**
+     * Recalculates daily statistics of days that received late measurements.
+     * A failed day stays marked and is retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${stream.reorder.correction-interval-ms:60000}")
+    public void correctLateDays() {
+        for (LocalDate date : List.copyOf(datesToCorrect)) {
+            datesToCorrect.remove(date);
+            try {
+                statsService.calculateDailyStats(date);
+                log.info("Daily stats for {} recalculated after late measurements", date);
+            } catch (Exception e) {
+                datesToCorrect.add(date);
+                log.error("Failed to recalculate daily stats for {}: {}", date, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Days waiting for recalculation because of late measurements.
+     */
+    public Set<LocalDate> getDatesToCorrect() {
+        return Set.copyOf(datesToCorrect);
+    }
+
     /**
      * Manually trigger statistics calculation for a specific date.
      * Useful for:
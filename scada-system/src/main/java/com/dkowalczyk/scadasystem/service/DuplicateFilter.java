@@ -0,0 +1,85 @@
+package com.dkowalczyk.scadasystem.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory window of recently seen measurements per node, used to drop MQTT redeliveries.
+ * <p>
+ * WHY: the inbound adapter subscribes with QoS 1 and a clean session, so after a reconnect
+ * the broker may deliver a message again. Without this filter every redelivery becomes an
+ * extra row and skews daily statistics and energy integration.
+ * <p>
+ * A measurement is identified by node id + device timestamp + payload hash. Each node keeps
+ * the last {@code windowSize} keys (LRU), so the check is a hash lookup on the MQTT thread,
+ * before the measurement reaches the queue or the transaction. Measurements without a device
+ * timestamp are never treated as duplicates. The unique index on (time, payload_hash)
+ * catches whatever falls outside the window (e.g. after a restart).
+ */
+@Slf4j
+class DuplicateFilter {
+
+    private record Key(long timestamp, long payloadHash) {
+    }
+
+    private final int windowSize;
+    private final Map<String, Map<Key, Boolean>> windows = new ConcurrentHashMap<>();
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    /**
+     * @param windowSize keys remembered per node; 0 disables the filter
+     */
+    DuplicateFilter(int windowSize) {
+        if (windowSize < 0) {
+            throw new IllegalArgumentException("ingest.dedup.window-size must not be negative, got: " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Records the measurement and tells whether it was already seen within the window.
+     *
+     * @param sensorId    node id, null for measurements without one
+     * @param timestamp   device timestamp (epoch seconds), null if the device sent none
+     * @param payloadHash content hash, see {@link com.dkowalczyk.scadasystem.util.PayloadHash}
+     * @return true if this is a duplicate and should be dropped
+     */
+    boolean isDuplicate(String sensorId, Long timestamp, long payloadHash) {
+        if (windowSize == 0 || timestamp == null) {
+            return false;
+        }
+        Map<Key, Boolean> window = windows.computeIfAbsent(sensorId != null ? sensorId : "", k -> newWindow());
+        boolean duplicate;
+        synchronized (window) {
+            duplicate = window.put(new Key(timestamp, payloadHash), Boolean.TRUE) != null;
+        }
+        if (duplicate) {
+            long suppressed = suppressedCount.incrementAndGet();
+            log.debug("Duplicate measurement suppressed: sensorId={}, timestamp={} (total {})",
+                    sensorId, timestamp, suppressed);
+        }
+        return duplicate;
+    }
+
+    long suppressedCount() {
+        return suppressedCount.get();
+    }
+
+    int windowSize() {
+        return windowSize;
+    }
+
+    private Map<Key, Boolean> newWindow() {
+        // Access order: a redelivered key is refreshed, the least recently seen one is evicted
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                return size() > windowSize;
+            }
+        };
+    }
+}
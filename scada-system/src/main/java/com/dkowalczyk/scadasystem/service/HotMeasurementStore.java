@@ -0,0 +1,654 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.event.MeasurementSavedEvent;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementRollupRow;
+import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.DeltaOfDeltaDecoder;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.DeltaOfDeltaEncoder;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.XorDecoder;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.XorEncoder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory columnar copy of the last {@code hot-tier.window-hours} of valid measurements,
+ * per node, compressed with {@link com.dkowalczyk.scadasystem.util.GorillaCodec}.
+ * <p>
+ * WHY: dashboards and short history/trend ranges read the last few hours over and over, and
+ * each read was a database round-trip. At one measurement per second a node produces 21600
+ * rows in 6 hours; compressed they take a few MB, so the whole hot range fits in the heap.
+ * <p>
+ * Layout: each node has sealed, immutable blocks of {@code hot-tier.block-size} rows and one
+ * open block that takes new rows. Every column is its own bit stream (delta-of-delta for
+ * time in epoch microseconds, the database precision, and ids; XOR for doubles; harmonics as a
+ * length stream plus one stream per harmonic order). Blocks keep their min/max time, so a range
+ * query only decodes blocks that overlap it. Rows are appended in commit order; device time may
+ * step back within a block and reads sort the decoded rows.
+ * <p>
+ * Coverage: the store holds every valid measurement with time at or after {@link #coveredFrom},
+ * which moves forward when blocks are evicted (by age every {@code hot-tier.eviction-interval-ms},
+ * oldest first when above {@code hot-tier.max-memory-mb}). Readers ask {@link #covers(Instant)}
+ * and fall back to the repository for older ranges.
+ * <p>
+ * Cold start: after startup the window is loaded from the database in keyset pages. Rows
+ * committed meanwhile are queued and replayed without the ones the load already read. If the
+ * load fails the store stays unready (every read goes to the database) and is retried on the
+ * next eviction run.
+ * <p>
+ * Only sees measurements committed by this instance; with several writers against one database
+ * disable it ({@code hot-tier.enabled=false}).
+ */
+@Service
+@Slf4j
+public class HotMeasurementStore {
+
+    /** Rows per keyset page while loading the window at startup. */
+    static final int HYDRATION_PAGE_SIZE = 5000;
+
+    /** Device clocks ahead of the server are still loaded at startup up to this far. */
+    static final Duration MAX_CLOCK_SKEW = Duration.ofDays(1);
+
+    private enum State { NOT_STARTED, HYDRATING, READY }
+
+    private final MeasurementRepository repository;
+    private final boolean enabled;
+    private final Duration window;
+    private final int blockSize;
+    private final long maxMemoryBytes;
+
+    private final Map<String, NodeSeries> nodes = new ConcurrentHashMap<>();
+    private final AtomicReference<State> state = new AtomicReference<>(State.NOT_STARTED);
+    private final Object hydrationLock = new Object();
+    private List<MeasurementHistoryRow> pendingDuringHydration = new ArrayList<>();
+
+    /** All valid measurements at or after this time are in memory. */
+    private volatile Instant coveredFrom = Instant.MAX;
+
+    public HotMeasurementStore(MeasurementRepository repository,
+                               @Value("${hot-tier.enabled:true}") boolean enabled,
+                               @Value("${hot-tier.window-hours:6}") int windowHours,
+                               @Value("${hot-tier.block-size:1200}") int blockSize,
+                               @Value("${hot-tier.max-memory-mb:256}") int maxMemoryMb) {
+        if (windowHours < 1) {
+            throw new IllegalArgumentException("hot-tier.window-hours must be at least 1, got: " + windowHours);
+        }
+        if (blockSize < 2) {
+            throw new IllegalArgumentException("hot-tier.block-size must be at least 2, got: " + blockSize);
+        }
+        if (maxMemoryMb < 1) {
+            throw new IllegalArgumentException("hot-tier.max-memory-mb must be at least 1, got: " + maxMemoryMb);
+        }
+        this.repository = repository;
+        this.enabled = enabled;
+        this.window = Duration.ofHours(windowHours);
+        this.blockSize = blockSize;
+        this.maxMemoryBytes = maxMemoryMb * 1024L * 1024L;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            hydrate(Instant.now());
+        }
+    }
+
+    /**
+     * Appends every committed valid measurement (runs on the ingest writer or HTTP thread).
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMeasurementSaved(MeasurementSavedEvent event) {
+        Measurement measurement = event.getMeasurement();
+        if (!enabled || !Boolean.TRUE.equals(measurement.getIsValid())) {
+            return;
+        }
+        add(MeasurementHistoryRow.of(measurement));
+    }
+
+    /**
+     * Evicts blocks that left the window and enforces the memory budget;
+     * retries the startup load if it failed.
+     */
+    @Scheduled(fixedDelayString = "${hot-tier.eviction-interval-ms:60000}")
+    public void evict() {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        if (state.get() == State.NOT_STARTED) {
+            hydrate(now);
+            return;
+        }
+        if (state.get() == State.READY) {
+            evictOlderThan(now.minus(window));
+            enforceMemoryBudget();
+        }
+    }
+
+    /** True if every valid measurement at or after {@code from} is in memory. */
+    public boolean covers(Instant from) {
+        return state.get() == State.READY && !from.isBefore(coveredFrom);
+    }
+
+    public Instant getCoveredFrom() {
+        return state.get() == State.READY ? coveredFrom : null;
+    }
+
+    /**
+     * Valid measurements in [from, to], newest first, at most {@code limit}.
+     * Only complete if {@link #covers(Instant) covers(from)}.
+     *
+     * @param sensorId node id, null for all nodes
+     */
+    public List<MeasurementHistoryRow> getHistory(String sensorId, Instant from, Instant to, int limit) {
+        if (limit < 1) {
+            return List.of();
+        }
+        long fromMicros = toMicros(from);
+        long toMicros = toMicros(to);
+        Comparator<MeasurementHistoryRow> newestFirst = Comparator.comparing(MeasurementHistoryRow::time)
+                .thenComparing(MeasurementHistoryRow::id).reversed();
+
+        // Newest blocks first; stop once the next block is older than the limit-th row found
+        List<BlockView> blocks = overlappingBlocks(sensorId, fromMicros, toMicros);
+        blocks.sort(Comparator.comparingLong(BlockView::maxTime).reversed());
+        PriorityQueue<MeasurementHistoryRow> newest = new PriorityQueue<>(newestFirst.reversed());
+        for (BlockView block : blocks) {
+            if (newest.size() >= limit && toMicros(newest.peek().time()) > block.maxTime()) {
+                break;
+            }
+            for (MeasurementHistoryRow row : block.rows()) {
+                long time = toMicros(row.time());
+                if (time >= fromMicros && time <= toMicros) {
+                    newest.add(row);
+                    if (newest.size() > limit) {
+                        newest.poll();
+                    }
+                }
+            }
+        }
+        List<MeasurementHistoryRow> result = new ArrayList<>(newest);
+        result.sort(newestFirst);
+        return result;
+    }
+
+    /**
+     * Rollup input of [from, to) ordered by node and time, like
+     * {@link MeasurementRepository#findRollupRows}.
+     *
+     * @param sensorId node id, null for all nodes
+     */
+    public List<MeasurementRollupRow> getRollupRows(String sensorId, Instant from, Instant to) {
+        long fromMicros = toMicros(from);
+        long toMicros = toMicros(to);
+        List<MeasurementRollupRow> result = new ArrayList<>();
+        for (BlockView block : overlappingBlocks(sensorId, fromMicros, toMicros)) {
+            for (MeasurementHistoryRow row : block.rows()) {
+                long time = toMicros(row.time());
+                if (time >= fromMicros && time < toMicros) {
+                    result.add(new MeasurementRollupRow(row.sensorId(), row.time(), row.voltageRms(),
+                            row.powerActive(), row.frequency()));
+                }
+            }
+        }
+        result.sort(Comparator.comparing(MeasurementRollupRow::sensorId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(MeasurementRollupRow::time));
+        return result;
+    }
+
+    /**
+     * Newest valid measurement of a node (or of all nodes), empty if the store is not ready
+     * or the node sent nothing within the window.
+     */
+    public Optional<MeasurementHistoryRow> getLatest(String sensorId) {
+        if (state.get() != State.READY) {
+            return Optional.empty();
+        }
+        if (sensorId != null) {
+            NodeSeries node = nodes.get(sensorId);
+            return node != null ? Optional.ofNullable(node.latest()) : Optional.empty();
+        }
+        MeasurementHistoryRow latest = null;
+        for (NodeSeries node : nodes.values()) {
+            MeasurementHistoryRow candidate = node.latest();
+            if (candidate != null && (latest == null || candidate.time().isAfter(latest.time()))) {
+                latest = candidate;
+            }
+        }
+        return Optional.ofNullable(latest);
+    }
+
+    /** Measurements held in memory, over all nodes. */
+    public long getRowCount() {
+        long total = 0;
+        for (NodeSeries node : nodes.values()) {
+            total += node.rowCount();
+        }
+        return total;
+    }
+
+    /** Bytes held by the compressed columns, over all nodes. */
+    public long getMemoryBytes() {
+        long total = 0;
+        for (NodeSeries node : nodes.values()) {
+            total += node.sizeBytes();
+        }
+        return total;
+    }
+
+    void add(MeasurementHistoryRow row) {
+        if (state.get() != State.READY) {
+            synchronized (hydrationLock) {
+                State current = state.get();
+                if (current == State.HYDRATING) {
+                    pendingDuringHydration.add(row);
+                    return;
+                }
+                if (current == State.NOT_STARTED) {
+                    // Committed before the load starts, so the load reads it from the database
+                    return;
+                }
+            }
+        }
+        append(row);
+    }
+
+    private void append(MeasurementHistoryRow row) {
+        if (row.time().isBefore(coveredFrom)) {
+            return;
+        }
+        String key = row.sensorId() != null ? row.sensorId() : "";
+        nodes.computeIfAbsent(key, k -> new NodeSeries(row.sensorId(), blockSize)).append(row);
+    }
+
+    /**
+     * Loads [now - window, now + clock skew] from the database in keyset pages, then replays the
+     * rows committed meanwhile.
+     */
+    void hydrate(Instant now) {
+        if (!state.compareAndSet(State.NOT_STARTED, State.HYDRATING)) {
+            return;
+        }
+        Instant from = now.minus(window);
+        Instant to = now.plus(MAX_CLOCK_SKEW);
+        Set<Long> loadedIds = new HashSet<>();
+        try {
+            nodes.clear();
+            coveredFrom = from;
+            Pageable page = PageRequest.of(0, HYDRATION_PAGE_SIZE);
+            Instant afterTime = from;
+            long afterId = Long.MIN_VALUE;
+            while (true) {
+                List<MeasurementHistoryRow> rows = repository.findHistoryRowsAfter(afterTime, afterId, to, page);
+                for (MeasurementHistoryRow row : rows) {
+                    append(row);
+                    loadedIds.add(row.id());
+                }
+                if (rows.size() < HYDRATION_PAGE_SIZE) {
+                    break;
+                }
+                MeasurementHistoryRow last = rows.get(rows.size() - 1);
+                afterTime = last.time();
+                afterId = last.id();
+            }
+        } catch (DataAccessException e) {
+            synchronized (hydrationLock) {
+                nodes.clear();
+                coveredFrom = Instant.MAX;
+                pendingDuringHydration = new ArrayList<>();
+                state.set(State.NOT_STARTED);
+            }
+            log.error("Hot tier load failed, reads use the database until the next attempt: {}", e.getMessage(), e);
+            return;
+        }
+
+        int replayed = 0;
+        synchronized (hydrationLock) {
+            for (MeasurementHistoryRow row : pendingDuringHydration) {
+                if (!loadedIds.contains(row.id())) {
+                    append(row);
+                    replayed++;
+                }
+            }
+            pendingDuringHydration = new ArrayList<>();
+            state.set(State.READY);
+        }
+        log.info("Hot tier loaded: {} measurements of {} nodes since {} ({} replayed, {} KB)",
+                loadedIds.size() + replayed, nodes.size(), from, replayed, getMemoryBytes() / 1024);
+    }
+
+    void evictOlderThan(Instant cutoff) {
+        if (cutoff.isAfter(coveredFrom)) {
+            coveredFrom = cutoff;
+        }
+        long cutoffMicros = toMicros(cutoff);
+        int evicted = 0;
+        for (NodeSeries node : nodes.values()) {
+            evicted += node.evictOlderThan(cutoffMicros);
+        }
+        nodes.values().removeIf(NodeSeries::isEmpty);
+        if (evicted > 0) {
+            log.debug("Hot tier evicted {} blocks older than {}", evicted, cutoff);
+        }
+    }
+
+    void enforceMemoryBudget() {
+        long total = getMemoryBytes();
+        if (total <= maxMemoryBytes) {
+            return;
+        }
+        List<SealedRef> sealed = new ArrayList<>();
+        for (NodeSeries node : nodes.values()) {
+            node.collectSealed(sealed);
+        }
+        sealed.sort(Comparator.comparingLong(ref -> ref.block().maxTime));
+        int evicted = 0;
+        for (SealedRef ref : sealed) {
+            if (total <= maxMemoryBytes) {
+                break;
+            }
+            // Raise coverage before the rows disappear, so no reader relies on them
+            Instant evictedUpTo = fromMicros(ref.block().maxTime + 1);
+            if (evictedUpTo.isAfter(coveredFrom)) {
+                coveredFrom = evictedUpTo;
+            }
+            if (ref.node().remove(ref.block())) {
+                total -= ref.block().sizeBytes();
+                evicted++;
+            }
+        }
+        log.warn("Hot tier above its memory budget ({} MB): evicted {} blocks, now covers from {}",
+                maxMemoryBytes / (1024 * 1024), evicted, coveredFrom);
+    }
+
+    private List<BlockView> overlappingBlocks(String sensorId, long fromMicros, long toMicros) {
+        List<BlockView> views = new ArrayList<>();
+        if (sensorId != null) {
+            NodeSeries node = nodes.get(sensorId);
+            if (node != null) {
+                node.collectOverlapping(fromMicros, toMicros, views);
+            }
+        } else {
+            for (NodeSeries node : nodes.values()) {
+                node.collectOverlapping(fromMicros, toMicros, views);
+            }
+        }
+        return views;
+    }
+
+    static long toMicros(Instant time) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, time);
+    }
+
+    static Instant fromMicros(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+
+    /** Decoded rows of one block; sealed blocks are decoded lazily outside the node lock. */
+    private record BlockView(long maxTime, Block block, List<MeasurementHistoryRow> decoded) {
+        List<MeasurementHistoryRow> rows() {
+            return decoded != null ? decoded : block.decode();
+        }
+    }
+
+    private record SealedRef(NodeSeries node, Block block) {
+    }
+
+    /** Blocks of one node; all access is synchronized on the instance. */
+    private static final class NodeSeries {
+
+        private final String sensorId;
+        private final int blockSize;
+        private final List<Block> sealed = new ArrayList<>();
+        private Block open;
+        private MeasurementHistoryRow latest;
+
+        NodeSeries(String sensorId, int blockSize) {
+            this.sensorId = sensorId;
+            this.blockSize = blockSize;
+            this.open = new Block(sensorId);
+        }
+
+        synchronized void append(MeasurementHistoryRow row) {
+            open.add(row);
+            if (latest == null || !row.time().isBefore(latest.time())) {
+                latest = row;
+            }
+            if (open.count == blockSize) {
+                open.seal();
+                sealed.add(open);
+                open = new Block(sensorId);
+            }
+        }
+
+        synchronized MeasurementHistoryRow latest() {
+            return latest;
+        }
+
+        synchronized void collectOverlapping(long fromMicros, long toMicros, List<BlockView> views) {
+            for (Block block : sealed) {
+                if (block.overlaps(fromMicros, toMicros)) {
+                    views.add(new BlockView(block.maxTime, block, null));
+                }
+            }
+            if (open.count > 0 && open.overlaps(fromMicros, toMicros)) {
+                // The open block keeps changing: decode it while holding the lock
+                views.add(new BlockView(open.maxTime, open, open.decode()));
+            }
+        }
+
+        synchronized void collectSealed(List<SealedRef> refs) {
+            for (Block block : sealed) {
+                refs.add(new SealedRef(this, block));
+            }
+        }
+
+        synchronized boolean remove(Block block) {
+            return sealed.remove(block);
+        }
+
+        /** Drops sealed blocks (and an open block) that end before the cutoff. */
+        synchronized int evictOlderThan(long cutoffMicros) {
+            int before = sealed.size();
+            sealed.removeIf(block -> block.maxTime < cutoffMicros);
+            int evicted = before - sealed.size();
+            if (open.count > 0 && open.maxTime < cutoffMicros) {
+                open = new Block(sensorId);
+                evicted++;
+            }
+            if (latest != null && toMicros(latest.time()) < cutoffMicros) {
+                latest = null;
+            }
+            return evicted;
+        }
+
+        synchronized boolean isEmpty() {
+            return sealed.isEmpty() && open.count == 0;
+        }
+
+        synchronized long rowCount() {
+            long count = open.count;
+            for (Block block : sealed) {
+                count += block.count;
+            }
+            return count;
+        }
+
+        synchronized long sizeBytes() {
+            long size = open.sizeBytes();
+            for (Block block : sealed) {
+                size += block.sizeBytes();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * One column stream per field. Sealed blocks are never written again, so they can be
+     * decoded concurrently (each decode uses its own readers).
+     */
+    private static final class Block {
+
+        /** voltageRms .. frequencyDeviationHz in {@link #add} order. */
+        private static final int SCALARS = 12;
+
+        private final String sensorId;
+        private final DeltaOfDeltaEncoder times = new DeltaOfDeltaEncoder();
+        private final DeltaOfDeltaEncoder ids = new DeltaOfDeltaEncoder();
+        private final XorEncoder[] scalars = new XorEncoder[SCALARS];
+        private final DeltaOfDeltaEncoder harmonicsVLength = new DeltaOfDeltaEncoder();
+        private final DeltaOfDeltaEncoder harmonicsILength = new DeltaOfDeltaEncoder();
+        private final List<XorEncoder> harmonicsV = new ArrayList<>();
+        private final List<XorEncoder> harmonicsI = new ArrayList<>();
+        private int count;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+        private long sealedBytes = -1;
+
+        Block(String sensorId) {
+            this.sensorId = sensorId;
+            for (int i = 0; i < SCALARS; i++) {
+                scalars[i] = new XorEncoder();
+            }
+        }
+
+        void add(MeasurementHistoryRow row) {
+            long time = toMicros(row.time());
+            times.add(time);
+            ids.add(row.id());
+            scalars[0].add(row.voltageRms());
+            scalars[1].add(row.currentRms());
+            scalars[2].add(row.powerActive());
+            scalars[3].add(row.powerApparent());
+            scalars[4].add(row.powerReactive());
+            scalars[5].add(row.powerDistortion());
+            scalars[6].add(row.powerFactor());
+            scalars[7].add(row.frequency());
+            scalars[8].add(row.thdVoltage());
+            scalars[9].add(row.thdCurrent());
+            scalars[10].add(row.voltageDeviationPercent());
+            scalars[11].add(row.frequencyDeviationHz());
+            addArray(row.harmonicsV(), harmonicsVLength, harmonicsV);
+            addArray(row.harmonicsI(), harmonicsILength, harmonicsI);
+            count++;
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+        }
+
+        /** Length (-1 for null) in its own stream, element i in the stream of order i. */
+        private static void addArray(double[] values, DeltaOfDeltaEncoder lengths, List<XorEncoder> columns) {
+            lengths.add(values != null ? values.length : -1);
+            if (values == null) {
+                return;
+            }
+            while (columns.size() < values.length) {
+                columns.add(new XorEncoder());
+            }
+            for (int i = 0; i < values.length; i++) {
+                columns.get(i).add(values[i]);
+            }
+        }
+
+        List<MeasurementHistoryRow> decode() {
+            DeltaOfDeltaDecoder timeIn = times.decoder();
+            DeltaOfDeltaDecoder idIn = ids.decoder();
+            XorDecoder[] scalarIn = new XorDecoder[SCALARS];
+            for (int i = 0; i < SCALARS; i++) {
+                scalarIn[i] = scalars[i].decoder();
+            }
+            DeltaOfDeltaDecoder harmonicsVLengthIn = harmonicsVLength.decoder();
+            DeltaOfDeltaDecoder harmonicsILengthIn = harmonicsILength.decoder();
+            List<XorDecoder> harmonicsVIn = harmonicsV.stream().map(XorEncoder::decoder).toList();
+            List<XorDecoder> harmonicsIIn = harmonicsI.stream().map(XorEncoder::decoder).toList();
+
+            List<MeasurementHistoryRow> rows = new ArrayList<>(count);
+            for (int r = 0; r < count; r++) {
+                Instant time = fromMicros(timeIn.next());
+                long id = idIn.next();
+                Double[] values = new Double[SCALARS];
+                for (int i = 0; i < SCALARS; i++) {
+                    values[i] = scalarIn[i].nextNullable();
+                }
+                double[] rowHarmonicsV = readArray(harmonicsVLengthIn, harmonicsVIn);
+                double[] rowHarmonicsI = readArray(harmonicsILengthIn, harmonicsIIn);
+                rows.add(new MeasurementHistoryRow(id, time, sensorId, values[0], values[1], values[2],
+                        values[3], values[4], values[5], values[6], values[7], values[8], values[9],
+                        rowHarmonicsV, rowHarmonicsI, values[10], values[11]));
+            }
+            return rows;
+        }
+
+        private static double[] readArray(DeltaOfDeltaDecoder lengths, List<XorDecoder> columns) {
+            int length = (int) lengths.next();
+            if (length < 0) {
+                return null;
+            }
+            double[] values = new double[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = columns.get(i).next();
+            }
+            return values;
+        }
+
+        boolean overlaps(long fromMicros, long toMicros) {
+            return minTime <= toMicros && maxTime >= fromMicros;
+        }
+
+        /** Trims the column buffers; the block is read-only afterwards. */
+        void seal() {
+            times.bits().trim();
+            ids.bits().trim();
+            for (XorEncoder column : scalars) {
+                column.bits().trim();
+            }
+            harmonicsVLength.bits().trim();
+            harmonicsILength.bits().trim();
+            harmonicsV.forEach(column -> column.bits().trim());
+            harmonicsI.forEach(column -> column.bits().trim());
+            sealedBytes = computeSizeBytes();
+        }
+
+        long sizeBytes() {
+            return sealedBytes >= 0 ? sealedBytes : computeSizeBytes();
+        }
+
+        private long computeSizeBytes() {
+            long size = times.bits().sizeBytes() + ids.bits().sizeBytes()
+                    + harmonicsVLength.bits().sizeBytes() + harmonicsILength.bits().sizeBytes();
+            for (XorEncoder column : scalars) {
+                size += column.bits().sizeBytes();
+            }
+            for (XorEncoder column : harmonicsV) {
+                size += column.bits().sizeBytes();
+            }
+            for (XorEncoder column : harmonicsI) {
+                size += column.bits().sizeBytes();
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded buffer between the MQTT receive thread and the database writer.
+ * <p>
+ * WHY BOUNDED: an unbounded queue hides a slow database until the JVM runs out of heap.
+ * With a fixed capacity the overload policy decides what gives way:
+ * - BLOCK: producer waits up to blockTimeoutMs, then the new measurement is dropped
+ * - DROP_OLDEST: oldest queued measurement is discarded to make room
+ * - DEGRADE: above the watermark incoming measurements lose waveformV/waveformI
+ *   (the largest part of the payload), at capacity the oldest one is dropped
+ * <p>
+ * Depth, drop/degrade counters and producer wait time are exposed for /health/ingest.
+ * <p>
+ * With the write-ahead log enabled measurements bypass the queue, and only DEGRADE applies,
+ * to the log's disk budget instead of the queue capacity (see {@link #degradeForWal}).
+ */
+@Slf4j
+class IngestQueue {
+
+    /**
+     * What to do when the writer cannot keep up.
+     */
+    enum OverloadPolicy {
+        BLOCK,
+        DROP_OLDEST,
+        DEGRADE
+    }
+
+    private final BlockingQueue<MeasurementRequest> queue;
+    private final int capacity;
+    private final OverloadPolicy policy;
+    private final long blockTimeoutMs;
+    private final double degradeWatermark;
+    private final int degradeThreshold;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong degradedCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong waitTimeNanos = new AtomicLong();
+
+    IngestQueue(int capacity, OverloadPolicy policy, long blockTimeoutMs, double degradeWatermark) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("ingest.queue.capacity must be at least 1, got: " + capacity);
+        }
+        if (degradeWatermark <= 0.0 || degradeWatermark > 1.0) {
+            throw new IllegalArgumentException("ingest.queue.degrade-watermark must be in (0, 1], got: " + degradeWatermark);
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.degradeWatermark = degradeWatermark;
+        this.degradeThreshold = (int) Math.ceil(capacity * degradeWatermark);
+    }
+
+    /**
+     * Adds a measurement according to the overload policy. Never throws on overload.
+     *
+     * @return true if the new measurement was queued, false if it was dropped
+     */
+    boolean offer(MeasurementRequest request) throws InterruptedException {
+        switch (policy) {
+            case BLOCK:
+                return offerBlocking(request);
+            case DEGRADE:
+                if (queue.size() >= degradeThreshold && stripWaveforms(request)) {
+                    degradedCount.incrementAndGet();
+                }
+                return offerDroppingOldest(request);
+            case DROP_OLDEST:
+            default:
+                return offerDroppingOldest(request);
+        }
+    }
+
+    /**
+     * Applies the overload policy to a measurement appended to the write-ahead log instead of
+     * this queue: DEGRADE strips the waveforms while the log uses at least the watermark share
+     * of its disk budget. The log has no oldest record to drop and nothing to wait for but the
+     * database, so at its budget it rejects new measurements whatever the policy (counted as
+     * WAL rejections).
+     *
+     * @param walDiskUsage used share of the log's disk budget, 0 to 1
+     */
+    void degradeForWal(MeasurementRequest request, double walDiskUsage) {
+        if (policy == OverloadPolicy.DEGRADE && walDiskUsage >= degradeWatermark && stripWaveforms(request)) {
+            degradedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Non-blocking add that bypasses the overload policy and counters.
+     * Used for internal control messages (writer shutdown), never for measurements.
+     */
+    boolean offerControl(MeasurementRequest request) {
+        return queue.offer(request);
+    }
+
+    /** Same contract as {@link BlockingQueue#poll(long, TimeUnit)}. */
+    MeasurementRequest poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    /** Same contract as {@link BlockingQueue#drainTo(Collection, int)}. */
+    int drainTo(Collection<? super MeasurementRequest> target, int maxElements) {
+        return queue.drainTo(target, maxElements);
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    OverloadPolicy policy() {
+        return policy;
+    }
+
+    long droppedCount() {
+        return droppedCount.get();
+    }
+
+    long degradedCount() {
+        return degradedCount.get();
+    }
+
+    /** Number of offers that found the queue full and had to wait (BLOCK policy). */
+    long waitCount() {
+        return waitCount.get();
+    }
+
+    /** Total time producers spent waiting for free space, in milliseconds. */
+    long waitTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTimeNanos.get());
+    }
+
+    private boolean offerBlocking(MeasurementRequest request) throws InterruptedException {
+        if (queue.offer(request)) {
+            return true;
+        }
+        long start = System.nanoTime();
+        boolean added = queue.offer(request, blockTimeoutMs, TimeUnit.MILLISECONDS);
+        waitCount.incrementAndGet();
+        waitTimeNanos.addAndGet(System.nanoTime() - start);
+        if (!added) {
+            recordDrop("queue still full after " + blockTimeoutMs + " ms");
+        }
+        return added;
+    }
+
+    private boolean offerDroppingOldest(MeasurementRequest request) {
+        while (!queue.offer(request)) {
+            if (queue.poll() != null) {
+                recordDrop("queue full, oldest measurement discarded");
+            }
+        }
+        return true;
+    }
+
+    private static boolean stripWaveforms(MeasurementRequest request) {
+        if (request.getWaveformV() == null && request.getWaveformI() == null) {
+            return false;
+        }
+        request.setWaveformV(null);
+        request.setWaveformI(null);
+        return true;
+    }
+
+    private void recordDrop(String reason) {
+        long dropped = droppedCount.incrementAndGet();
+        // Log the first drop and then every 1000th to avoid flooding the log under sustained overload
+        if (dropped % 1000 == 1) {
+            log.warn("Ingest overload ({}): {} measurements dropped so far (policy={}, capacity={})",
+                    reason, dropped, policy, capacity);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.IngestShardStatsDTO;
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One ingest lane: a bounded queue (or WAL) and the writer thread that drains it in batches.
+ * <p>
+ * MeasurementIngestService routes every node to exactly one shard, so measurements of a node
+ * are saved in arrival order while different nodes are written in parallel. Each writer flushes
+ * via {@link MeasurementService#saveMeasurements(List)} as soon as either limit is reached:
+ * - batch size ({@code ingest.batch.size})
+ * - maximum delay since the first buffered request ({@code ingest.batch.max-delay-ms})
+ * <p>
+ * With a {@link MeasurementWal} the queue is bypassed: the writer reads its batches from the log,
+ * and a batch that fails because the database is unreachable stays in the log and is retried every
+ * walRetryDelayMs. A batch the database rejects for another reason is retried record by record;
+ * only the records rejected again are dropped (logged and counted as dead letters).
+ * <p>
+ * Batch count, measurement count and saveMeasurements timing are kept per shard for /health/ingest.
+ */
+@Slf4j
+class IngestShard {
+
+    /** Wakes the writer on shutdown; compared by identity, never persisted. */
+    private static final MeasurementRequest SHUTDOWN = new MeasurementRequest();
+
+    private final int index;
+    private final MeasurementService measurementService;
+    private final int batchSize;
+    private final long maxDelayMs;
+    private final IngestQueue queue;
+
+    /** Null when the write-ahead log is disabled. */
+    private final MeasurementWal wal;
+    private final long walRetryDelayMs;
+    private final CountDownLatch stopSignal = new CountDownLatch(1);
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong measurementCount = new AtomicLong();
+    private final AtomicLong totalBatchNanos = new AtomicLong();
+    private final AtomicLong maxBatchNanos = new AtomicLong();
+    private final AtomicLong deadLetterCount = new AtomicLong();
+    private volatile long lastBatchNanos;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    IngestShard(int index, MeasurementService measurementService, int batchSize, long maxDelayMs,
+                IngestQueue queue, MeasurementWal wal, long walRetryDelayMs) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("ingest.batch.size must be at least 1, got: " + batchSize);
+        }
+        this.index = index;
+        this.measurementService = measurementService;
+        this.batchSize = batchSize;
+        this.maxDelayMs = maxDelayMs;
+        this.queue = queue;
+        this.wal = wal;
+        this.walRetryDelayMs = walRetryDelayMs;
+    }
+
+    void start() {
+        if (wal != null) {
+            try {
+                wal.open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open ingest WAL of shard " + index, e);
+            }
+        }
+        running = true;
+        writer = new Thread(wal != null ? this::runWalWriter : this::runWriter, "measurement-writer-" + index);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops the writer and flushes whatever is still buffered.
+     * The writer is woken by a sentinel instead of an interrupt, so an in-flight
+     * transaction can finish. With the WAL enabled, records the database did not accept
+     * stay in the log and are replayed on the next start.
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        stopSignal.countDown();
+        if (writer != null) {
+            // A full queue means the writer is not waiting, so it will see running=false anyway
+            queue.offerControl(SHUTDOWN);
+            if (wal != null) {
+                wal.interruptWaits();
+            }
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    /**
+     * Replays the whole WAL on the calling thread, without starting a writer, and leaves it
+     * open and empty. Used at startup for logs that no running shard owns.
+     * While the database is unavailable the same batch is retried every walRetryDelayMs.
+     */
+    void drainWal() throws InterruptedException {
+        try {
+            wal.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open ingest WAL " + index, e);
+        }
+        while (wal.getLagRecords() > 0) {
+            if (!flushFromWal()) {
+                TimeUnit.MILLISECONDS.sleep(walRetryDelayMs);
+            }
+        }
+    }
+
+    /**
+     * Queues (or logs) a measurement; see {@link MeasurementIngestService#submit(MeasurementRequest)}.
+     */
+    boolean submit(MeasurementRequest request) throws InterruptedException {
+        if (wal == null) {
+            return queue.offer(request);
+        }
+        queue.degradeForWal(request, wal.getDiskUsage());
+        return wal.append(request);
+    }
+
+    IngestQueue queue() {
+        return queue;
+    }
+
+    MeasurementWal wal() {
+        return wal;
+    }
+
+    IngestShardStatsDTO stats() {
+        long batches = batchCount.get();
+        return IngestShardStatsDTO.builder()
+                .shard(index)
+                .queueDepth(queue.size())
+                .walLagRecords(wal != null ? wal.getLagRecords() : 0)
+                .batchCount(batches)
+                .measurementCount(measurementCount.get())
+                .avgBatchTimeMs(batches > 0 ? toMillis(totalBatchNanos.get()) / batches : 0.0)
+                .maxBatchTimeMs(toMillis(maxBatchNanos.get()))
+                .lastBatchTimeMs(toMillis(lastBatchNanos))
+                .deadLetterCount(deadLetterCount.get())
+                .build();
+    }
+
+    private void runWriter() {
+        List<MeasurementRequest> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            flush(batch);
+        }
+
+        // Shutdown: persist the remainder in batch-size chunks
+        flush(batch);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            batch.removeIf(r -> r == SHUTDOWN);
+            flush(batch);
+        }
+    }
+
+    /**
+     * Blocks for the first request, then keeps collecting until the batch is full
+     * or maxDelayMs has elapsed since the first request arrived.
+     */
+    void collectBatch(List<MeasurementRequest> batch) throws InterruptedException {
+        MeasurementRequest first = queue.poll(maxDelayMs, TimeUnit.MILLISECONDS);
+        if (first == null || first == SHUTDOWN) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.removeIf(r -> r == SHUTDOWN) || batch.size() >= batchSize) {
+                break;
+            }
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                break;
+            }
+            MeasurementRequest next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (next == null || next == SHUTDOWN) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<MeasurementRequest> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            save(batch);
+        } catch (Exception e) {
+            log.error("Failed to persist batch of {} measurements: {}", batch.size(), e.getMessage(), e);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writer loop with the WAL enabled: waits for a full batch or maxDelayMs, saves it and
+     * advances the checkpoint. While the database is unreachable the same batch is retried
+     * every walRetryDelayMs; the MQTT thread keeps appending in the meantime.
+     */
+    private void runWalWriter() {
+        while (running) {
+            try {
+                if (wal.awaitRecords(1, maxDelayMs) == 0) {
+                    continue;
+                }
+                wal.awaitRecords(batchSize, maxDelayMs);
+                if (!flushFromWal() && stopSignal.await(walRetryDelayMs, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // Shutdown: persist what the database accepts, the rest is replayed on next start
+        while (wal.getLagRecords() > 0 && flushFromWal()) {
+            // keep draining
+        }
+    }
+
+    /**
+     * Saves the next batch from the WAL.
+     *
+     * @return false if the database is unavailable and the batch must be retried
+     */
+    private boolean flushFromWal() {
+        List<MeasurementRequest> batch = wal.readBatch(batchSize);
+        if (!batch.isEmpty()) {
+            try {
+                save(batch);
+            } catch (Exception e) {
+                if (isDatabaseUnavailable(e)) {
+                    log.warn("Database unavailable, {} measurements kept in WAL of shard {} for replay: {}",
+                            wal.getLagRecords(), index, e.getMessage());
+                    return false;
+                }
+                if (batch.size() > 1) {
+                    log.warn("Batch of {} measurements rejected in shard {}, retrying one by one: {}",
+                            batch.size(), index, e.getMessage());
+                    return flushFromWalOneByOne(batch.size());
+                }
+                // Retrying a record the database rejects would block the log forever
+                deadLetter(batch.get(0), e);
+            }
+        }
+        wal.commit();
+        return true;
+    }
+
+    /**
+     * Saves the next records from the WAL one per transaction after their batch was rejected,
+     * committing each one, so a single bad record (constraint violation, ...) does not take the
+     * valid records of its batch with it.
+     *
+     * @return false if the database became unavailable; the records not yet saved stay in the log
+     */
+    private boolean flushFromWalOneByOne(int records) {
+        for (int i = 0; i < records; i++) {
+            List<MeasurementRequest> single = wal.readBatch(1);
+            if (!single.isEmpty()) {
+                try {
+                    save(single);
+                } catch (Exception e) {
+                    if (isDatabaseUnavailable(e)) {
+                        log.warn("Database unavailable, {} measurements kept in WAL of shard {} for replay: {}",
+                                wal.getLagRecords(), index, e.getMessage());
+                        return false;
+                    }
+                    deadLetter(single.get(0), e);
+                }
+            }
+            wal.commit();
+        }
+        return true;
+    }
+
+    /** Logs a measurement the database rejected; it is dropped from the log afterwards. */
+    private void deadLetter(MeasurementRequest request, Exception e) {
+        deadLetterCount.incrementAndGet();
+        log.error("Measurement rejected by the database, dropped from WAL of shard {}: {} ({})",
+                index, request, e.getMessage(), e);
+    }
+
+    private void save(List<MeasurementRequest> batch) {
+        long start = System.nanoTime();
+        measurementService.saveMeasurements(List.copyOf(batch));
+        long elapsed = System.nanoTime() - start;
+
+        batchCount.incrementAndGet();
+        measurementCount.addAndGet(batch.size());
+        totalBatchNanos.addAndGet(elapsed);
+        maxBatchNanos.accumulateAndGet(elapsed, Math::max);
+        lastBatchNanos = elapsed;
+    }
+
+    /**
+     * True for connection and transient failures, where retrying the same batch later can succeed.
+     */
+    static boolean isDatabaseUnavailable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof CannotCreateTransactionException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof TransientDataAccessException
+                    || t instanceof RecoverableDataAccessException
+                    || t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
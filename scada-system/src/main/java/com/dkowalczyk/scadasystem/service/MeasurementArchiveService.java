@@ -0,0 +1,374 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.event.MeasurementSavedEvent;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import com.dkowalczyk.scadasystem.util.MeasurementColumnFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Archives closed days of valid measurements into columnar files on local disk and reads them
+ * back for ranges the database no longer holds.
+ * <p>
+ * WHY: with {@code measurements.partition.retention-days} old partitions leave the database,
+ * but history and exports of older periods are still needed now and then. Compressed columnar
+ * files (see {@link MeasurementColumnFile}) take a fraction of the table space and are read
+ * without touching PostgreSQL.
+ * <p>
+ * Layout: {@code <archive.dir>/<yyyy-MM-dd>/<node>.mcol}, one file per node and day (local
+ * dates of the JVM time zone, like partitions and daily statistics). A day is written to a
+ * {@code .tmp} directory and renamed when complete, so an existing day directory is always whole.
+ * <p>
+ * Every {@code archive.check-interval-ms} the days after the newest archived one are archived up
+ * to {@code archive.after-days} ago (the first run starts at the oldest stored measurement).
+ * Measurements committed later for an archived day (WAL replay) mark it for re-archiving while
+ * the database still has it. MeasurementPartitionManager does not expire a partition before
+ * its days are archived.
+ * <p>
+ * Reads: {@link #getArchiveEnd()} is the boundary between archive and database. Before it the
+ * archive is read, at and after it the database.
+ */
+@Service
+@Slf4j
+public class MeasurementArchiveService {
+
+    /** File name of measurements without a node id ('@' is escaped in real node ids). */
+    static final String NO_SENSOR_FILE = "@";
+
+    static final int PAGE_SIZE = 5000;
+
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final String OLD_SUFFIX = ".old";
+
+    /** Consumer of archived rows that writes to a stream. */
+    @FunctionalInterface
+    public interface RowsConsumer {
+        void accept(List<MeasurementHistoryRow> rows) throws IOException;
+    }
+
+    private final MeasurementRepository repository;
+    private final boolean enabled;
+    private final Path dir;
+    private final int afterDays;
+    private final int retentionDays;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+
+    /** Newest archived day (all earlier days with data are archived too); null until known. */
+    private volatile LocalDate archivedThrough;
+    private volatile LocalDate oldestArchived;
+    private volatile boolean initialized;
+
+    public MeasurementArchiveService(MeasurementRepository repository,
+                                     @Value("${archive.enabled:false}") boolean enabled,
+                                     @Value("${archive.dir:data/archive}") String dir,
+                                     @Value("${archive.after-days:1}") int afterDays,
+                                     @Value("${measurements.partition.enabled:true}") boolean partitionEnabled,
+                                     @Value("${measurements.partition.retention-days:0}") int retentionDays) {
+        if (afterDays < 1) {
+            throw new IllegalArgumentException("archive.after-days must be at least 1, got: " + afterDays);
+        }
+        if (enabled && partitionEnabled && retentionDays > 0 && afterDays >= retentionDays) {
+            throw new IllegalArgumentException("archive.after-days (" + afterDays
+                    + ") must be less than measurements.partition.retention-days (" + retentionDays + ")");
+        }
+        this.repository = repository;
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.afterDays = afterDays;
+        this.retentionDays = partitionEnabled ? retentionDays : 0;
+    }
+
+    /**
+     * Marks an archived day that received a measurement after it was archived.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMeasurementSaved(MeasurementSavedEvent event) {
+        LocalDate through = archivedThrough;
+        if (!enabled || through == null || !Boolean.TRUE.equals(event.getMeasurement().getIsValid())) {
+            return;
+        }
+        LocalDate day = LocalDate.ofInstant(event.getMeasurement().getTime(), zone);
+        if (!day.isAfter(through) && dirtyDays.add(day)) {
+            log.info("Measurement committed for archived day {}, it will be archived again", day);
+        }
+    }
+
+    /**
+     * Re-archives changed days, then archives every closed day after the newest archived one.
+     * Failures are logged; the next run continues from the last complete day.
+     */
+    @Scheduled(fixedDelayString = "${archive.check-interval-ms:3600000}")
+    public void archiveClosedDays() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            initialize();
+            rearchiveDirtyDays();
+
+            LocalDate lastClosed = LocalDate.now(zone).minusDays(afterDays);
+            LocalDate day = archivedThrough != null
+                    ? archivedThrough.plusDays(1)
+                    : repository.findEarliestTime().map(time -> LocalDate.ofInstant(time, zone)).orElse(null);
+            while (day != null && !day.isAfter(lastClosed)) {
+                archiveDay(day);
+                if (oldestArchived == null) {
+                    oldestArchived = day;
+                }
+                archivedThrough = day;
+                day = day.plusDays(1);
+            }
+        } catch (IOException | UncheckedIOException | DataAccessException e) {
+            log.error("Measurement archiving failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * True if every day before {@code endExclusive} is archived (always true when archiving is
+     * disabled), i.e. a partition ending there may leave the database.
+     */
+    public boolean isArchivedBefore(LocalDate endExclusive) {
+        if (!enabled) {
+            return true;
+        }
+        LocalDate through = archivedThrough;
+        return through != null && !through.isBefore(endExclusive.minusDays(1));
+    }
+
+    /**
+     * Start of the range the database is guaranteed to hold; earlier measurements are read from
+     * the archive. Null when nothing is read from the archive (disabled, no retention, or
+     * nothing archived yet).
+     */
+    public Instant getArchiveEnd() {
+        LocalDate through = archivedThrough;
+        if (!enabled || retentionDays == 0 || through == null) {
+            return null;
+        }
+        Instant retainedFrom = LocalDate.now(zone).minusDays(retentionDays).atStartOfDay(zone).toInstant();
+        Instant archivedUntil = through.plusDays(1).atStartOfDay(zone).toInstant();
+        return archivedUntil.isBefore(retainedFrom) ? archivedUntil : retainedFrom;
+    }
+
+    /**
+     * Archived measurements in [from, to], newest first, at most {@code limit}.
+     *
+     * @param sensorId node id, null for all nodes
+     */
+    public List<MeasurementHistoryRow> readHistory(String sensorId, Instant from, Instant to, int limit) {
+        List<MeasurementHistoryRow> result = new ArrayList<>();
+        LocalDate first = firstArchivedDay(from);
+        if (first == null) {
+            return result;
+        }
+        for (LocalDate day = LocalDate.ofInstant(to, zone); !day.isBefore(first) && result.size() < limit;
+             day = day.minusDays(1)) {
+            List<MeasurementHistoryRow> rows = readDay(day, sensorId, null, from, to);
+            for (int i = rows.size() - 1; i >= 0 && result.size() < limit; i--) {
+                result.add(rows.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Passes archived measurements in [from, to] to the consumer one day at a time, oldest first.
+     *
+     * @param sensorId node id, null for all nodes
+     * @param fields   JSON field names to read, null for all
+     * @return number of measurements passed
+     */
+    public long read(String sensorId, Instant from, Instant to, Set<String> fields, RowsConsumer consumer)
+            throws IOException {
+        long count = 0;
+        LocalDate first = firstArchivedDay(from);
+        LocalDate last = LocalDate.ofInstant(to, zone);
+        for (LocalDate day = first; day != null && !day.isAfter(last); day = day.plusDays(1)) {
+            List<MeasurementHistoryRow> rows = readDay(day, sensorId, fields, from, to);
+            if (!rows.isEmpty()) {
+                consumer.accept(rows);
+                count += rows.size();
+            }
+        }
+        return count;
+    }
+
+    /** Day of {@code from}, or the oldest archived day if that is later; null if nothing is archived. */
+    private LocalDate firstArchivedDay(Instant from) {
+        LocalDate oldest = oldestArchived;
+        if (oldest == null) {
+            return null;
+        }
+        LocalDate day = LocalDate.ofInstant(from, zone);
+        return day.isBefore(oldest) ? oldest : day;
+    }
+
+    /** Rows of one archived day ordered by time and id; empty if the day is not archived. */
+    List<MeasurementHistoryRow> readDay(LocalDate day, String sensorId, Set<String> fields, Instant from, Instant to) {
+        Path dayDir = dir.resolve(day.toString());
+        if (!Files.isDirectory(dayDir)) {
+            return List.of();
+        }
+        try {
+            List<MeasurementHistoryRow> rows = new ArrayList<>();
+            if (sensorId != null) {
+                Path file = dayDir.resolve(fileName(sensorId));
+                if (Files.exists(file)) {
+                    rows.addAll(MeasurementColumnFile.read(file, fields, from, to));
+                }
+            } else {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dayDir, "*" + MeasurementColumnFile.EXTENSION)) {
+                    for (Path file : files) {
+                        rows.addAll(MeasurementColumnFile.read(file, fields, from, to));
+                    }
+                }
+                rows.sort(Comparator.comparing(MeasurementHistoryRow::time).thenComparing(MeasurementHistoryRow::id));
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archived day " + day, e);
+        }
+    }
+
+    /** Writes the valid measurements of one day, replacing an earlier archive of that day. */
+    void archiveDay(LocalDate day) throws IOException {
+        Instant start = day.atStartOfDay(zone).toInstant();
+        Instant end = day.plusDays(1).atStartOfDay(zone).toInstant().minus(1, ChronoUnit.MICROS);
+
+        // HashMap: the null key holds measurements without a node id
+        Map<String, MeasurementColumnFile.Writer> writers = new HashMap<>();
+        Pageable page = PageRequest.of(0, PAGE_SIZE);
+        Instant afterTime = start;
+        long afterId = Long.MIN_VALUE;
+        long count = 0;
+        while (true) {
+            List<MeasurementHistoryRow> rows = repository.findHistoryRowsAfter(afterTime, afterId, end, page);
+            for (MeasurementHistoryRow row : rows) {
+                writers.computeIfAbsent(row.sensorId(), MeasurementColumnFile.Writer::new).add(row);
+            }
+            count += rows.size();
+            if (rows.size() < PAGE_SIZE) {
+                break;
+            }
+            MeasurementHistoryRow last = rows.get(rows.size() - 1);
+            afterTime = last.time();
+            afterId = last.id();
+        }
+
+        Path target = dir.resolve(day.toString());
+        Path tmp = dir.resolve(day + TMP_SUFFIX);
+        deleteRecursively(tmp);
+        Files.createDirectories(tmp);
+        for (Map.Entry<String, MeasurementColumnFile.Writer> entry : writers.entrySet()) {
+            entry.getValue().writeTo(tmp.resolve(fileName(entry.getKey())));
+        }
+        if (Files.exists(target)) {
+            Path old = dir.resolve(day + OLD_SUFFIX);
+            deleteRecursively(old);
+            Files.move(target, old, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            deleteRecursively(old);
+        } else {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        log.info("Archived {} measurements of {} nodes for {}", count, writers.size(), day);
+    }
+
+    private void rearchiveDirtyDays() throws IOException {
+        Instant retainedFrom = retentionDays > 0
+                ? LocalDate.now(zone).minusDays(retentionDays).atStartOfDay(zone).toInstant()
+                : null;
+        for (LocalDate day : dirtyDays.stream().sorted().toList()) {
+            dirtyDays.remove(day);
+            if (retainedFrom != null && day.atStartOfDay(zone).toInstant().isBefore(retainedFrom)) {
+                log.warn("Archived day {} changed but is no longer in the database, archive not updated", day);
+                continue;
+            }
+            try {
+                archiveDay(day);
+            } catch (IOException | RuntimeException e) {
+                dirtyDays.add(day);
+                throw e;
+            }
+        }
+    }
+
+    /** Creates the directory, removes unfinished days and finds the newest archived day. */
+    private void initialize() throws IOException {
+        if (initialized) {
+            return;
+        }
+        Files.createDirectories(dir);
+        LocalDate newest = null;
+        LocalDate oldest = null;
+        try (Stream<Path> entries = Files.list(dir)) {
+            for (Path entry : entries.toList()) {
+                String name = entry.getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX) || name.endsWith(OLD_SUFFIX)) {
+                    deleteRecursively(entry);
+                    continue;
+                }
+                try {
+                    LocalDate day = LocalDate.parse(name);
+                    newest = newest == null || day.isAfter(newest) ? day : newest;
+                    oldest = oldest == null || day.isBefore(oldest) ? day : oldest;
+                } catch (DateTimeParseException e) {
+                    // Not a day directory
+                }
+            }
+        }
+        archivedThrough = newest;
+        oldestArchived = oldest;
+        initialized = true;
+        log.info("Measurement archive at {}: archived days {} - {}", dir.toAbsolutePath(), oldest, newest);
+    }
+
+    /** URL-encoded node id, so any id is a safe and unique file name. */
+    static String fileName(String sensorId) {
+        String name = sensorId != null ? URLEncoder.encode(sensorId, StandardCharsets.UTF_8) : NO_SENSOR_FILE;
+        return name + MeasurementColumnFile.EXTENSION;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (Path entry : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Streams valid measurements of a time range as NDJSON or CSV (bulk export for offline analysis).
+ * <p>
+ * WHY KEYSET PAGES: rows are read in pages of {@code export.page-size} ordered by (time, id),
+ * each page continuing after the last (time, id) of the previous one. Memory stays at one page
+ * regardless of the range, every page is a short query on idx_measurements_valid_time, and no
+ * connection or snapshot is held while a slow client downloads (as a server-side cursor would).
+ * Rows committed behind the cursor during an export are not included.
+ * <p>
+ * Each page is flushed to the client as soon as it is written.
+ */
+@Service
+@Slf4j
+public class MeasurementExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /** Case-insensitive lookup, for request parameters. */
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown export format '" + value + "', expected one of "
+                        + Arrays.toString(values()).toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    /**
+     * Exportable columns, named like the JSON API fields (snake_case).
+     */
+    public enum Column {
+        ID("id", MeasurementHistoryRow::id),
+        TIME("time", MeasurementHistoryRow::time),
+        SENSOR_ID("sensor_id", MeasurementHistoryRow::sensorId),
+        VOLTAGE_RMS("voltage_rms", MeasurementHistoryRow::voltageRms),
+        CURRENT_RMS("current_rms", MeasurementHistoryRow::currentRms),
+        POWER_ACTIVE("power_active", MeasurementHistoryRow::powerActive),
+        POWER_APPARENT("power_apparent", MeasurementHistoryRow::powerApparent),
+        POWER_REACTIVE("power_reactive", MeasurementHistoryRow::powerReactive),
+        POWER_DISTORTION("power_distortion", MeasurementHistoryRow::powerDistortion),
+        POWER_FACTOR("power_factor", MeasurementHistoryRow::powerFactor),
+        FREQUENCY("frequency", MeasurementHistoryRow::frequency),
+        THD_VOLTAGE("thd_voltage", MeasurementHistoryRow::thdVoltage),
+        THD_CURRENT("thd_current", MeasurementHistoryRow::thdCurrent),
+        HARMONICS_V("harmonics_v", MeasurementHistoryRow::harmonicsV),
+        HARMONICS_I("harmonics_i", MeasurementHistoryRow::harmonicsI),
+        VOLTAGE_DEVIATION_PERCENT("voltage_deviation_percent", MeasurementHistoryRow::voltageDeviationPercent),
+        FREQUENCY_DEVIATION_HZ("frequency_deviation_hz", MeasurementHistoryRow::frequencyDeviationHz);
+
+        private final String fieldName;
+        private final Function<MeasurementHistoryRow, Object> accessor;
+
+        Column(String fieldName, Function<MeasurementHistoryRow, Object> accessor) {
+            this.fieldName = fieldName;
+            this.accessor = accessor;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        Object read(MeasurementHistoryRow row) {
+            return accessor.apply(row);
+        }
+
+        /**
+         * Parses a comma-separated list of field names; null or blank selects all columns.
+         */
+        public static List<Column> parse(String fields) {
+            if (fields == null || fields.isBlank()) {
+                return List.of(values());
+            }
+            List<Column> columns = new ArrayList<>();
+            for (String field : fields.split(",")) {
+                String name = field.trim();
+                Column column = Arrays.stream(values())
+                        .filter(c -> c.fieldName.equals(name))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown export column '" + name + "'"));
+                if (!columns.contains(column)) {
+                    columns.add(column);
+                }
+            }
+            return columns;
+        }
+    }
+
+    private final MeasurementRepository repository;
+    private final MeasurementArchiveService archiveService;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+    private final Duration maxRange;
+
+    public MeasurementExportService(MeasurementRepository repository,
+                                    MeasurementArchiveService archiveService,
+                                    ObjectMapper objectMapper,
+                                    @Value("${export.page-size:5000}") int pageSize,
+                                    @Value("${export.max-range-days:92}") int maxRangeDays) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("export.page-size must be at least 1, got: " + pageSize);
+        }
+        if (maxRangeDays < 1) {
+            throw new IllegalArgumentException("export.max-range-days must be at least 1, got: " + maxRangeDays);
+        }
+        this.repository = repository;
+        this.archiveService = archiveService;
+        this.objectMapper = objectMapper;
+        this.pageSize = pageSize;
+        this.maxRange = Duration.ofDays(maxRangeDays);
+    }
+
+    /**
+     * Checks the export range before the response is committed (errors can still become a 400).
+     */
+    public void validateRange(Instant from, Instant to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (Duration.between(from, to).compareTo(maxRange) > 0) {
+            throw new IllegalArgumentException("Export range cannot exceed " + maxRange.toDays() + " days");
+        }
+    }
+
+    /**
+     * Writes all valid measurements in [from, to], oldest first.
+     * The stream is flushed after every page (archived days: every day) but not closed.
+     * <p>
+     * The part before the archive boundary comes from the archive files, reading only the
+     * selected columns; the rest from the database.
+     *
+     * @param sensorId node id, null for all nodes
+     * @return number of exported measurements
+     */
+    public long export(String sensorId, Instant from, Instant to, Format format, List<Column> columns,
+                       OutputStream out) throws IOException {
+        RowWriter writer = format == Format.CSV ? new CsvWriter(out, columns) : new NdjsonWriter(out, columns);
+        Pageable page = PageRequest.of(0, pageSize);
+        Instant afterTime = from;
+        long afterId = Long.MIN_VALUE;
+        long count = 0;
+
+        writer.begin();
+        Instant archiveEnd = archiveService.getArchiveEnd();
+        if (archiveEnd != null && from.isBefore(archiveEnd)) {
+            Instant archiveTo = to.isBefore(archiveEnd) ? to : archiveEnd.minus(1, ChronoUnit.MICROS);
+            Set<String> fields = columns.stream().map(Column::getFieldName).collect(Collectors.toSet());
+            count += archiveService.read(sensorId, from, archiveTo, fields, rows -> {
+                for (MeasurementHistoryRow row : rows) {
+                    writer.write(row);
+                }
+                writer.flush();
+            });
+            if (to.isBefore(archiveEnd)) {
+                log.info("Exported {} archived measurements ({}, node '{}', {} - {})", count, format, sensorId, from, to);
+                return count;
+            }
+            afterTime = archiveEnd;
+        }
+        while (true) {
+            List<MeasurementHistoryRow> rows = sensorId == null
+                    ? repository.findHistoryRowsAfter(afterTime, afterId, to, page)
+                    : repository.findHistoryRowsBySensorIdAfter(sensorId, afterTime, afterId, to, page);
+            for (MeasurementHistoryRow row : rows) {
+                writer.write(row);
+            }
+            writer.flush();
+            count += rows.size();
+
+            if (rows.size() < pageSize) {
+                break;
+            }
+            MeasurementHistoryRow last = rows.get(rows.size() - 1);
+            afterTime = last.time();
+            afterId = last.id();
+        }
+
+        log.info("Exported {} measurements ({}, node '{}', {} - {})", count, format, sensorId, from, to);
+        return count;
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+
+        void write(MeasurementHistoryRow row) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    /** One JSON object per line, same field names and value formats as the REST API. */
+    private final class NdjsonWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private final List<Column> columns;
+
+        NdjsonWriter(OutputStream out, List<Column> columns) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are separated by '\n' below, not by the default root separator (space)
+            this.generator.setRootValueSeparator(null);
+            this.columns = columns;
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void write(MeasurementHistoryRow row) throws IOException {
+            generator.writeStartObject();
+            for (Column column : columns) {
+                generator.writeFieldName(column.fieldName);
+                writeValue(column.read(row));
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        // Written directly: ObjectMapper.writeValue() would flush the stream after every value
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof Double number) {
+                generator.writeNumber(number);
+            } else if (value instanceof Long number) {
+                generator.writeNumber(number);
+            } else if (value instanceof double[] array) {
+                generator.writeArray(array, 0, array.length);
+            } else {
+                // Instant (ISO-8601, as in the REST API) and String
+                generator.writeString(value.toString());
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    /**
+     * Header line, then one line per measurement. Empty field for null; arrays are
+     * semicolon-separated within one field (e.g. {@code 230.1;4.2;1.3}).
+     */
+    private static final class CsvWriter implements RowWriter {
+
+        private final Writer writer;
+        private final List<Column> columns;
+
+        CsvWriter(OutputStream out, List<Column> columns) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.columns = columns;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(columns.get(i).fieldName);
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(MeasurementHistoryRow row) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeValue(columns.get(i).read(row));
+            }
+            writer.write('\n');
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value instanceof double[] array) {
+                for (int i = 0; i < array.length; i++) {
+                    if (i > 0) {
+                        writer.write(';');
+                    }
+                    writer.write(Double.toString(array[i]));
+                }
+            } else if (value instanceof String text) {
+                writer.write(escape(text));
+            } else {
+                writer.write(value.toString());
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /** RFC 4180 quoting for text fields (node ids). */
+    static String escape(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
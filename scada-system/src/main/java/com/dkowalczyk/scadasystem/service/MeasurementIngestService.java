@@ -0,0 +1,334 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.IngestShardStatsDTO;
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.dkowalczyk.scadasystem.util.PayloadHash;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Micro-batching ingest stage between the MQTT handler and the database.
+ * <p>
+ * WHY: Saving every MQTT message in its own transaction costs one database round-trip
+ * per measurement, executed on the Paho callback thread. This service buffers parsed
+ * requests and writer threads flush them via
+ * {@link MeasurementService#saveMeasurements(List)} as one transaction (one JDBC batch)
+ * as soon as either limit is reached:
+ * - batch size ({@code ingest.batch.size})
+ * - maximum delay since the first buffered request ({@code ingest.batch.max-delay-ms})
+ * <p>
+ * After-commit WebSocket broadcasts are unchanged: every saved row still publishes
+ * its own MeasurementSavedEvent.
+ * <p>
+ * WHY SHARDS: with one writer a slow batch delays every node. Measurements are routed to one
+ * of {@code ingest.shards} {@link IngestShard}s by node id, so a node's measurements are always
+ * saved in arrival order by the same writer, while different nodes are written in parallel.
+ * Queue depth and batch timing are reported per shard.
+ * <p>
+ * Each shard buffers in an {@link IngestQueue}; {@code ingest.queue.capacity} is the total over
+ * all shards. When the database falls behind, {@code ingest.queue.overload-policy} decides
+ * whether the MQTT thread blocks, the oldest measurement is dropped, or waveforms are shed first.
+ * <p>
+ * With {@code ingest.wal.enabled=true} the queues are bypassed: each shard appends to its own
+ * {@link MeasurementWal} ({@code ingest.wal.dir}/shard-N) and its writer reads batches from the
+ * log. A batch that fails because the database is unreachable stays in the log and is retried
+ * every {@code ingest.wal.retry-delay-ms}, so an outage delays persistence instead of losing data.
+ * The disk budget ({@code ingest.wal.max-disk-mb}, split across shards) replaces the queue
+ * capacity as the overload bound: with the DEGRADE policy waveforms are shed above the watermark
+ * share of the budget, and at the budget new measurements are rejected whatever the policy
+ * (BLOCK and DROP_OLDEST only apply without the log). Logs left from an earlier run are replayed before the shards
+ * start (see {@link #start()}).
+ * <p>
+ * MQTT QoS 1 redeliveries are dropped in {@link #submit(MeasurementRequest)} by a per-node
+ * {@link DuplicateFilter} ({@code ingest.dedup.window-size}) before they are queued.
+ */
+@Service
+@Slf4j
+public class MeasurementIngestService {
+
+    private static final String SHARD_DIR_PREFIX = "shard-";
+
+    private final List<IngestShard> shards;
+    private final DuplicateFilter duplicateFilter;
+
+    /** {@code ingest.wal.dir}, null when the WAL is disabled. */
+    private final Path walRoot;
+    /** Creates a writer-less shard that replays the log in the given directory. */
+    private final Function<Path, IngestShard> walDrainer;
+
+    @Autowired
+    public MeasurementIngestService(MeasurementService measurementService,
+                                    @Value("${ingest.shards:4}") int shardCount,
+                                    @Value("${ingest.batch.size:50}") int batchSize,
+                                    @Value("${ingest.batch.max-delay-ms:500}") long maxDelayMs,
+                                    @Value("${ingest.queue.capacity:10000}") int queueCapacity,
+                                    @Value("${ingest.queue.overload-policy:DEGRADE}") IngestQueue.OverloadPolicy overloadPolicy,
+                                    @Value("${ingest.queue.block-timeout-ms:1000}") long blockTimeoutMs,
+                                    @Value("${ingest.queue.degrade-watermark:0.8}") double degradeWatermark,
+                                    ObjectMapper objectMapper,
+                                    @Value("${ingest.wal.enabled:false}") boolean walEnabled,
+                                    @Value("${ingest.wal.dir:data/wal}") String walDir,
+                                    @Value("${ingest.wal.segment-size-mb:8}") int walSegmentSizeMb,
+                                    @Value("${ingest.wal.max-disk-mb:1024}") long walMaxDiskMb,
+                                    @Value("${ingest.wal.retry-delay-ms:5000}") long walRetryDelayMs,
+                                    @Value("${ingest.dedup.window-size:1024}") int dedupWindowSize) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("ingest.shards must be at least 1, got: " + shardCount);
+        }
+        int shardCapacity = Math.max(1, (queueCapacity + shardCount - 1) / shardCount);
+        long shardDiskBytes = walMaxDiskMb * 1024 * 1024 / shardCount;
+
+        List<IngestShard> created = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            MeasurementWal wal = walEnabled
+                    ? new MeasurementWal(Path.of(walDir, SHARD_DIR_PREFIX + i), walSegmentSizeMb * 1024 * 1024,
+                            shardDiskBytes, objectMapper)
+                    : null;
+            created.add(new IngestShard(i, measurementService, batchSize, maxDelayMs,
+                    new IngestQueue(shardCapacity, overloadPolicy, blockTimeoutMs, degradeWatermark),
+                    wal, walRetryDelayMs));
+        }
+        this.shards = List.copyOf(created);
+        this.duplicateFilter = new DuplicateFilter(dedupWindowSize);
+        this.walRoot = walEnabled ? Path.of(walDir) : null;
+        this.walDrainer = dir -> new IngestShard(-1, measurementService, batchSize, maxDelayMs,
+                new IngestQueue(1, overloadPolicy, blockTimeoutMs, degradeWatermark),
+                new MeasurementWal(dir, walSegmentSizeMb * 1024 * 1024, shardDiskBytes, objectMapper),
+                walRetryDelayMs);
+    }
+
+    MeasurementIngestService(MeasurementService measurementService, int batchSize, long maxDelayMs,
+                             IngestQueue queue) {
+        this(measurementService, batchSize, maxDelayMs, queue, null, 0, new DuplicateFilter(1024));
+    }
+
+    MeasurementIngestService(MeasurementService measurementService, int batchSize, long maxDelayMs,
+                             IngestQueue queue, MeasurementWal wal, long walRetryDelayMs,
+                             DuplicateFilter duplicateFilter) {
+        this(List.of(new IngestShard(0, measurementService, batchSize, maxDelayMs, queue, wal, walRetryDelayMs)),
+                duplicateFilter);
+    }
+
+    MeasurementIngestService(List<IngestShard> shards, DuplicateFilter duplicateFilter) {
+        this(shards, duplicateFilter, null, null);
+    }
+
+    MeasurementIngestService(List<IngestShard> shards, DuplicateFilter duplicateFilter,
+                             Path walRoot, Function<Path, IngestShard> walDrainer) {
+        this.shards = List.copyOf(shards);
+        this.duplicateFilter = duplicateFilter;
+        this.walRoot = walRoot;
+        this.walDrainer = walDrainer;
+    }
+
+    /**
+     * Replays the logs of an earlier run, then starts the shard writers.
+     * Runs before the MQTT handler can submit, so no new measurement is appended before the
+     * old ones are saved.
+     */
+    @PostConstruct
+    public void start() {
+        if (walRoot != null) {
+            drainExistingWals();
+        }
+        for (IngestShard shard : shards) {
+            shard.start();
+        }
+        IngestQueue queue = shards.get(0).queue();
+        log.info("Measurement ingest started: shards={}, queueCapacity={}, overloadPolicy={}, wal={}",
+                shards.size(), getQueueCapacity(), queue.policy(), isWalEnabled());
+    }
+
+    /**
+     * Saves every log found under {@code ingest.wal.dir} and deletes it:
+     * - a log in the directory itself, written before the WAL was split into shards
+     * - every {@code shard-N} log, including those above the current {@code ingest.shards}
+     * <p>
+     * WHY ALL OF THEM: routing depends on the shard count, so after it changes a node's old
+     * records can be in another shard's log than its new ones. Saving them before any new
+     * append keeps per-node order, and no log is left orphaned. The shards then start with
+     * empty logs. While the database is unavailable this blocks and retries.
+     */
+    private void drainExistingWals() {
+        List<Path> logs = new ArrayList<>();
+        if (MeasurementWal.exists(walRoot)) {
+            logs.add(walRoot);
+        }
+        if (Files.isDirectory(walRoot)) {
+            try (Stream<Path> dirs = Files.list(walRoot)) {
+                dirs.filter(dir -> dir.getFileName().toString().startsWith(SHARD_DIR_PREFIX))
+                        .filter(MeasurementWal::exists)
+                        .sorted()
+                        .forEach(logs::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot list ingest WAL directory " + walRoot, e);
+            }
+        }
+        for (Path dir : logs) {
+            IngestShard drainer = walDrainer.apply(dir);
+            try {
+                drainer.drainWal();
+                drainer.wal().delete();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while replaying ingest WAL " + dir, e);
+            } catch (IOException e) {
+                log.warn("Cannot delete replayed ingest WAL {}: {}", dir, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops all writers and flushes whatever is still buffered.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (IngestShard shard : shards) {
+            shard.stop();
+        }
+    }
+
+    /**
+     * Queues a parsed measurement for batched persistence on its node's shard.
+     * <p>
+     * Under overload the configured policy applies, so this call may block (BLOCK)
+     * or cause a measurement to be dropped, but it never throws. With the WAL enabled
+     * the measurement is appended to the log instead. A measurement already seen within
+     * the dedup window is dropped and counted as suppressed.
+     *
+     * @param request measurement parsed from the MQTT payload
+     * @return true if the measurement was queued, false if it was dropped or a duplicate
+     */
+    public boolean submit(MeasurementRequest request) {
+        request.setReceivedAt(System.currentTimeMillis());
+        request.setPayloadHash(PayloadHash.of(request));
+        if (duplicateFilter.isDuplicate(request.getSensorId(), request.getTimestamp(), request.getPayloadHash())) {
+            return false;
+        }
+        try {
+            return shardFor(request.getSensorId()).submit(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for ingest queue space, measurement dropped");
+            return false;
+        }
+    }
+
+    /**
+     * Same node id, same shard: keeps per-node order. Measurements without a node id share shard 0.
+     */
+    IngestShard shardFor(String sensorId) {
+        int hash = sensorId != null ? sensorId.hashCode() : 0;
+        return shards.get(Math.floorMod(hash, shards.size()));
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /** Queue depth, WAL lag and batch timing of every shard. */
+    public List<IngestShardStatsDTO> getShardStats() {
+        return shards.stream().map(IngestShard::stats).toList();
+    }
+
+    /** Number of measurements waiting for the next flush, over all shards. */
+    public int getQueueDepth() {
+        return (int) sumQueues(IngestQueue::size);
+    }
+
+    public int getQueueCapacity() {
+        return (int) sumQueues(IngestQueue::capacity);
+    }
+
+    public String getOverloadPolicy() {
+        return shards.get(0).queue().policy().name();
+    }
+
+    /** Measurements discarded because a queue was full. */
+    public long getDroppedCount() {
+        return sumQueues(IngestQueue::droppedCount);
+    }
+
+    /** Measurements queued without waveforms because a queue was above the degrade watermark. */
+    public long getDegradedCount() {
+        return sumQueues(IngestQueue::degradedCount);
+    }
+
+    /** Number of times the MQTT thread had to wait for queue space (BLOCK policy). */
+    public long getWaitCount() {
+        return sumQueues(IngestQueue::waitCount);
+    }
+
+    /** Total time the MQTT thread spent waiting for queue space, in milliseconds. */
+    public long getWaitTimeMs() {
+        return sumQueues(IngestQueue::waitTimeMs);
+    }
+
+    /** Redelivered measurements dropped by the dedup window. */
+    public long getDuplicatesSuppressed() {
+        return duplicateFilter.suppressedCount();
+    }
+
+    public int getDedupWindowSize() {
+        return duplicateFilter.windowSize();
+    }
+
+    public boolean isWalEnabled() {
+        return shards.get(0).wal() != null;
+    }
+
+    /** Measurements in the WALs that are not yet committed to the database (replay lag). */
+    public long getWalLagRecords() {
+        return sumWals(MeasurementWal::getLagRecords);
+    }
+
+    public long getWalDiskBytes() {
+        return sumWals(MeasurementWal::getDiskBytes);
+    }
+
+    public long getWalMaxDiskBytes() {
+        return sumWals(MeasurementWal::getMaxDiskBytes);
+    }
+
+    public int getWalSegmentCount() {
+        return (int) sumWals(MeasurementWal::getSegmentCount);
+    }
+
+    /** Measurements not written to a WAL, mostly because its disk budget was exhausted. */
+    public long getWalRejectedCount() {
+        return sumWals(MeasurementWal::getRejectedCount);
+    }
+
+    private long sumQueues(ToLongFunction<IngestQueue> metric) {
+        long total = 0;
+        for (IngestShard shard : shards) {
+            total += metric.applyAsLong(shard.queue());
+        }
+        return total;
+    }
+
+    private long sumWals(ToLongFunction<MeasurementWal> metric) {
+        long total = 0;
+        for (IngestShard shard : shards) {
+            if (shard.wal() != null) {
+                total += metric.applyAsLong(shard.wal());
+            }
+        }
+        return total;
+    }
+}
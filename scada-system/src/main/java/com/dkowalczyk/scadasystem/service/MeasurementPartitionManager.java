@@ -0,0 +1,297 @@
+package com.dkowalczyk.scadasystem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the time partitions of the {@code measurements} table (see V10) and of its
+ * {@code measurement_waveforms} side table (V11) ahead of the clock and enforces the
+ * retention policy. Both tables get the same partition bounds, so they expire in step.
+ * <p>
+ * On every run (at startup, then every {@code measurements.partition.check-interval-ms}):
+ * - creates consecutive partitions from the end of the newest one until
+ *   {@code measurements.partition.precreate-days} ahead, so new rows never land in
+ *   measurements_default; rows that did land there are moved into the partition created for
+ *   their range (see {@link #createPartition})
+ * - detaches (or drops) partitions that ended more than
+ *   {@code measurements.partition.retention-days} ago; 0 keeps all data
+ * <p>
+ * Partitions are named {table}_pYYYYMMDD after their first day. New partitions follow
+ * {@code measurements.partition.interval}; WEEK partitions end on Mondays, so switching
+ * from DAY is aligned by one shorter partition. Detached partitions stay as plain tables
+ * (for manual DROP) and are no longer visible to queries. With archiving enabled a partition
+ * only expires once MeasurementArchiveService has archived all of its days.
+ * <p>
+ * Days are local dates of the JVM time zone, the same as stored measurement times and
+ * daily statistics. Skips tables that are not partitioned (dev profile with Hibernate DDL,
+ * H2 tests).
+ */
+@Service
+@Slf4j
+public class MeasurementPartitionManager {
+
+    static final List<String> PARENT_TABLES = List.of("measurements", "measurement_waveforms");
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern RANGE_BOUND = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+
+    public enum Interval {
+        DAY,
+        WEEK
+    }
+
+    public enum RetentionAction {
+        /** Partition becomes a standalone table, data is kept. */
+        DETACH,
+        /** Partition and its data are removed. */
+        DROP
+    }
+
+    /** One range partition: rows with from &lt;= time &lt; to. */
+    record Partition(String name, LocalDateTime from, LocalDateTime to) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeasurementArchiveService archiveService;
+    private final boolean enabled;
+    private final Interval interval;
+    private final int precreateDays;
+    private final int retentionDays;
+    private final RetentionAction retentionAction;
+
+    private volatile boolean partitioned = true;
+
+    public MeasurementPartitionManager(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       MeasurementArchiveService archiveService,
+                                       @Value("${measurements.partition.enabled:true}") boolean enabled,
+                                       @Value("${measurements.partition.interval:DAY}") Interval interval,
+                                       @Value("${measurements.partition.precreate-days:7}") int precreateDays,
+                                       @Value("${measurements.partition.retention-days:0}") int retentionDays,
+                                       @Value("${measurements.partition.retention-action:DETACH}") RetentionAction retentionAction) {
+        if (precreateDays < 1) {
+            throw new IllegalArgumentException("measurements.partition.precreate-days must be at least 1, got: " + precreateDays);
+        }
+        if (retentionDays < 0) {
+            throw new IllegalArgumentException("measurements.partition.retention-days must not be negative, got: " + retentionDays);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveService = archiveService;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.precreateDays = precreateDays;
+        this.retentionDays = retentionDays;
+        this.retentionAction = retentionAction;
+    }
+
+    /**
+     * Pre-creates future partitions and expires old ones.
+     * Failures are logged; the next run retries.
+     */
+    @Scheduled(fixedDelayString = "${measurements.partition.check-interval-ms:3600000}")
+    public void maintainPartitions() {
+        if (!enabled || !partitioned) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        boolean anyPartitioned = false;
+        for (String table : PARENT_TABLES) {
+            try {
+                if (!isPartitioned(table)) {
+                    continue;
+                }
+                anyPartitioned = true;
+                maintainPartitions(table, today);
+            } catch (DataAccessException e) {
+                anyPartitioned = true;
+                log.error("Partition maintenance of '{}' failed: {}", table, e.getMessage(), e);
+            }
+        }
+        if (!anyPartitioned) {
+            partitioned = false;
+            log.info("Tables {} are not partitioned, partition maintenance disabled", PARENT_TABLES);
+        }
+    }
+
+    private void maintainPartitions(String table, LocalDate today) {
+        List<Partition> existing = findPartitions(table);
+
+        // Stops at the first failure: the next run continues after the newest partition, so
+        // creating later ranges now would leave the failed one out for good
+        for (Partition partition : missingPartitions(table, existing, today)) {
+            try {
+                createPartition(table, partition);
+            } catch (DataAccessException | TransactionException e) {
+                log.error("Creating partition {} [{}, {}) failed, retrying on the next run: {}",
+                        partition.name(), partition.from(), partition.to(), e.getMessage(), e);
+                break;
+            }
+        }
+
+        for (Partition partition : expiredPartitions(existing, today)) {
+            if (!archiveService.isArchivedBefore(partition.to().toLocalDate())) {
+                log.warn("Expired partition {} is kept until its days are archived", partition.name());
+                continue;
+            }
+            jdbcTemplate.execute(String.format("ALTER TABLE %s DETACH PARTITION %s", table, partition.name()));
+            if (retentionAction == RetentionAction.DROP) {
+                jdbcTemplate.execute(String.format("DROP TABLE %s", partition.name()));
+                log.info("Dropped expired partition {} [{}, {})", partition.name(), partition.from(), partition.to());
+            } else {
+                log.info("Detached expired partition {} [{}, {})", partition.name(), partition.from(), partition.to());
+            }
+        }
+    }
+
+    /**
+     * Creates one range partition.
+     * <p>
+     * PostgreSQL refuses to create a partition while the default partition holds rows of its
+     * range, e.g. measurements that arrived with a timestamp beyond the pre-created days. In
+     * that case, in one transaction: detach the default partition, create the new one, move the
+     * range's rows into it and reattach the default. The parent table is locked until commit.
+     */
+    void createPartition(String table, Partition partition) {
+        String create = String.format(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                partition.name(), table,
+                BOUND_FORMAT.format(partition.from()), BOUND_FORMAT.format(partition.to()));
+        String defaultPartition = table + "_default";
+        String range = String.format("time >= '%s' AND time < '%s'",
+                BOUND_FORMAT.format(partition.from()), BOUND_FORMAT.format(partition.to()));
+
+        if (!hasRows(defaultPartition, range)) {
+            jdbcTemplate.execute(create);
+            log.info("Created partition {} [{}, {})", partition.name(), partition.from(), partition.to());
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute(String.format("ALTER TABLE %s DETACH PARTITION %s", table, defaultPartition));
+            jdbcTemplate.execute(create);
+            int moved = jdbcTemplate.update(String.format("INSERT INTO %s SELECT * FROM %s WHERE %s",
+                    partition.name(), defaultPartition, range));
+            jdbcTemplate.update(String.format("DELETE FROM %s WHERE %s", defaultPartition, range));
+            jdbcTemplate.execute(String.format("ALTER TABLE %s ATTACH PARTITION %s DEFAULT", table, defaultPartition));
+            log.info("Created partition {} [{}, {}), moved {} rows from {}",
+                    partition.name(), partition.from(), partition.to(), moved, defaultPartition);
+        });
+    }
+
+    /** True if the default partition exists and has rows matching the range condition. */
+    private boolean hasRows(String defaultPartition, String range) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                String.format("SELECT to_regclass('%s') IS NOT NULL", defaultPartition), Boolean.class);
+        if (!Boolean.TRUE.equals(exists)) {
+            return false;
+        }
+        Boolean hasRows = jdbcTemplate.queryForObject(
+                String.format("SELECT EXISTS (SELECT 1 FROM %s WHERE %s)", defaultPartition, range), Boolean.class);
+        return Boolean.TRUE.equals(hasRows);
+    }
+
+    /**
+     * Partitions to create so that [today, today + precreateDays) is covered, starting where
+     * the newest existing partition ends (or at the current interval start if there is none).
+     */
+    List<Partition> missingPartitions(String table, List<Partition> existing, LocalDate today) {
+        LocalDateTime horizon = today.plusDays(precreateDays).atStartOfDay();
+        LocalDateTime start = existing.stream()
+                .map(Partition::to)
+                .max(Comparator.naturalOrder())
+                .orElse(intervalStart(today).atStartOfDay());
+
+        List<Partition> result = new ArrayList<>();
+        while (start.isBefore(horizon)) {
+            LocalDate from = start.toLocalDate();
+            LocalDate to = intervalEnd(from);
+            result.add(new Partition(table + "_p" + NAME_FORMAT.format(from), start, to.atStartOfDay()));
+            start = to.atStartOfDay();
+        }
+        return result;
+    }
+
+    /** Partitions whose whole range is older than the retention period. */
+    List<Partition> expiredPartitions(List<Partition> existing, LocalDate today) {
+        if (retentionDays == 0) {
+            return List.of();
+        }
+        LocalDateTime cutoff = today.minusDays(retentionDays).atStartOfDay();
+        return existing.stream()
+                .filter(p -> !p.to().isAfter(cutoff))
+                .toList();
+    }
+
+    /**
+     * Parses a range bound expression as returned by pg_get_expr(relpartbound), e.g.
+     * {@code FOR VALUES FROM ('2026-01-01 00:00:00') TO ('2026-01-02 00:00:00')}.
+     *
+     * @return empty for the DEFAULT partition or unknown bounds
+     */
+    static Optional<Partition> parsePartition(String name, String bound) {
+        Matcher matcher = RANGE_BOUND.matcher(bound);
+        if (!matcher.find()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Partition(name,
+                LocalDateTime.parse(matcher.group(1), BOUND_FORMAT),
+                LocalDateTime.parse(matcher.group(2), BOUND_FORMAT)));
+    }
+
+    private LocalDate intervalStart(LocalDate day) {
+        return interval == Interval.WEEK ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : day;
+    }
+
+    private LocalDate intervalEnd(LocalDate from) {
+        return interval == Interval.WEEK ? from.with(TemporalAdjusters.next(DayOfWeek.MONDAY)) : from.plusDays(1);
+    }
+
+    private boolean isPartitioned(String table) {
+        try {
+            Integer count = jdbcTemplate.queryForObject("""
+                    SELECT COUNT(*) FROM pg_partitioned_table pt
+                    JOIN pg_class c ON c.oid = pt.partrelid
+                    WHERE c.relname = ? AND pg_table_is_visible(c.oid)
+                    """, Integer.class, table);
+            return count != null && count > 0;
+        } catch (DataAccessException e) {
+            // Not PostgreSQL (H2 in tests)
+            return false;
+        }
+    }
+
+    private List<Partition> findPartitions(String table) {
+        return jdbcTemplate.query("""
+                        SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+                        FROM pg_inherits i
+                        JOIN pg_class c ON c.oid = i.inhrelid
+                        JOIN pg_class p ON p.oid = i.inhparent
+                        WHERE p.relname = ? AND pg_table_is_visible(p.oid)
+                        """,
+                (rs, rowNum) -> parsePartition(rs.getString(1), rs.getString(2)),
+                table).stream()
+                .flatMap(Optional::stream)
+                .toList();
+    }
+}
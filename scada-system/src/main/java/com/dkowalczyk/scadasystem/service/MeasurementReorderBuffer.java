@@ -0,0 +1,160 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.event.LateMeasurementEvent;
+import com.dkowalczyk.scadasystem.model.event.MeasurementSavedEvent;
+import com.dkowalczyk.scadasystem.model.event.OrderedMeasurementEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-node reorder buffer between committed measurements and streaming consumers.
+ * <p>
+ * WHY: reconnect bursts and QoS 1 redeliveries commit measurements out of device-time order.
+ * Consumers that walk the stream (WebSocket broadcasts, event detection, running aggregates)
+ * assume time only moves forward, like StatsService does for its sorted daily batch.
+ * <p>
+ * Each committed measurement is held until one of:
+ * - the node's watermark (newest device time seen minus {@code stream.reorder.allowed-lateness-ms})
+ *   has passed it
+ * - it has waited allowed-lateness in wall-clock time (a node that goes quiet is not held back)
+ * and is then published as {@link OrderedMeasurementEvent}, in ascending device time per node.
+ * <p>
+ * A measurement older than the last one already emitted for its node cannot be put in order
+ * any more; it is published as {@link LateMeasurementEvent} (correction path) instead.
+ * With allowed-lateness 0 measurements are released immediately and only late ones are diverted.
+ */
+@Service
+@Slf4j
+public class MeasurementReorderBuffer {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final long allowedLatenessMs;
+    private final long allowedLatenessNanos;
+
+    private final Map<String, NodeBuffer> nodes = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong emittedCount = new AtomicLong();
+    private final AtomicLong lateCount = new AtomicLong();
+
+    private record Pending(Measurement measurement, MeasurementDTO dto, long arrivalNanos, long seq) {
+    }
+
+    private static final class NodeBuffer {
+        /** Oldest device time first; arrival sequence breaks ties. */
+        final PriorityQueue<Pending> pending = new PriorityQueue<>(
+                Comparator.comparing((Pending p) -> p.measurement().getTime()).thenComparingLong(Pending::seq));
+        Instant maxSeen;
+        Instant lastEmitted;
+    }
+
+    public MeasurementReorderBuffer(ApplicationEventPublisher eventPublisher,
+                                    @Value("${stream.reorder.allowed-lateness-ms:3000}") long allowedLatenessMs) {
+        if (allowedLatenessMs < 0) {
+            throw new IllegalArgumentException("stream.reorder.allowed-lateness-ms must not be negative, got: " + allowedLatenessMs);
+        }
+        this.eventPublisher = eventPublisher;
+        this.allowedLatenessMs = allowedLatenessMs;
+        this.allowedLatenessNanos = TimeUnit.MILLISECONDS.toNanos(allowedLatenessMs);
+    }
+
+    /**
+     * Receives every committed measurement (runs on the ingest writer or HTTP thread).
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMeasurementSaved(MeasurementSavedEvent event) {
+        add(event.getMeasurement(), event.getDto(), System.nanoTime());
+    }
+
+    /**
+     * Releases measurements that waited long enough, for nodes that stopped sending.
+     */
+    @Scheduled(fixedDelayString = "${stream.reorder.flush-interval-ms:500}")
+    public void flushExpired() {
+        long now = System.nanoTime();
+        for (NodeBuffer node : nodes.values()) {
+            synchronized (node) {
+                release(node, now);
+            }
+        }
+    }
+
+    void add(Measurement measurement, MeasurementDTO dto, long arrivalNanos) {
+        String key = measurement.getSensorId() != null ? measurement.getSensorId() : "";
+        NodeBuffer node = nodes.computeIfAbsent(key, k -> new NodeBuffer());
+        Instant time = measurement.getTime();
+
+        // Events are published while holding the node lock, so a node's events never interleave
+        synchronized (node) {
+            if (node.lastEmitted != null && time.isBefore(node.lastEmitted)) {
+                long late = lateCount.incrementAndGet();
+                log.debug("Late measurement for node '{}': time={} < watermark={} (total {})",
+                        key, time, node.lastEmitted, late);
+                eventPublisher.publishEvent(new LateMeasurementEvent(this, measurement, node.lastEmitted));
+                return;
+            }
+            node.pending.add(new Pending(measurement, dto, arrivalNanos, sequence.incrementAndGet()));
+            if (node.maxSeen == null || time.isAfter(node.maxSeen)) {
+                node.maxSeen = time;
+            }
+            release(node, arrivalNanos);
+        }
+    }
+
+    private void release(NodeBuffer node, long nowNanos) {
+        if (node.maxSeen == null) {
+            return;
+        }
+        Instant watermark = node.maxSeen.minusMillis(allowedLatenessMs);
+        while (!node.pending.isEmpty()) {
+            Pending head = node.pending.peek();
+            boolean pastWatermark = !head.measurement().getTime().isAfter(watermark);
+            boolean waitedLongEnough = nowNanos - head.arrivalNanos() >= allowedLatenessNanos;
+            if (!pastWatermark && !waitedLongEnough) {
+                break;
+            }
+            node.pending.poll();
+            node.lastEmitted = head.measurement().getTime();
+            emittedCount.incrementAndGet();
+            eventPublisher.publishEvent(new OrderedMeasurementEvent(this, head.measurement(), head.dto()));
+        }
+    }
+
+    public long getAllowedLatenessMs() {
+        return allowedLatenessMs;
+    }
+
+    /** Measurements waiting for their turn, over all nodes. */
+    public int getBufferedCount() {
+        int total = 0;
+        for (NodeBuffer node : nodes.values()) {
+            synchronized (node) {
+                total += node.pending.size();
+            }
+        }
+        return total;
+    }
+
+    public long getEmittedCount() {
+        return emittedCount.get();
+    }
+
+    /** Measurements routed to the correction path. */
+    public long getLateCount() {
+        return lateCount.get();
+    }
+}
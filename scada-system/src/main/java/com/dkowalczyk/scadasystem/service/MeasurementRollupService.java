@@ -0,0 +1,405 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.TrendDTO;
+import com.dkowalczyk.scadasystem.model.dto.TrendPointDTO;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementRollup;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementRollup.Resolution;
+import com.dkowalczyk.scadasystem.model.event.MeasurementSavedEvent;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementRollupRow;
+import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import com.dkowalczyk.scadasystem.repository.MeasurementRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Maintains the 1-minute, 10-minute and 1-hour rollups of valid measurements (see V12) and
+ * serves downsampled trend data from them.
+ * <p>
+ * Build path (every {@code rollup.interval-ms}):
+ * - Catch-up: everything between the watermark and now minus {@code rollup.lateness-ms} is
+ *   rolled up in chunks of {@code rollup.backfill-chunk-hours}, then the watermark moves on.
+ *   After a restart the watermark resumes after the newest MINUTE bucket; on an empty rollup
+ *   table the whole stored history is backfilled.
+ * - Corrections: measurements committed with a time before the watermark (WAL replay, very
+ *   late nodes) mark their hour dirty; dirty hours are rebuilt on the next run.
+ * <p>
+ * A rebuild of [from, to) replaces the MINUTE buckets from raw rows and re-merges the
+ * TEN_MINUTES and HOUR buckets that overlap the range from the finer tier, so partially built
+ * coarse buckets are completed as the watermark advances.
+ * <p>
+ * Energy is integrated per node with the trapezoidal rule (as in daily statistics) and each
+ * segment is booked to the bucket of its later sample. Segments longer than
+ * {@link #MAX_ENERGY_GAP} (node offline) are skipped, so the result does not depend on where
+ * chunks are cut.
+ */
+@Service
+@Slf4j
+public class MeasurementRollupService {
+
+    /** Longest gap between two samples of a node that is still integrated into energy. */
+    static final Duration MAX_ENERGY_GAP = Duration.ofMinutes(1);
+
+    /** Key column value for measurements without a node id. */
+    static final String NO_SENSOR = "";
+
+    private final MeasurementRepository measurementRepository;
+    private final MeasurementRollupRepository rollupRepository;
+    private final HotMeasurementStore hotStore;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration lateness;
+    private final Duration backfillChunk;
+
+    private final Set<Instant> dirtyHours = ConcurrentHashMap.newKeySet();
+
+    /** Rollups are complete before this time (minute-aligned); null until the first run. */
+    private volatile Instant watermark;
+
+    public MeasurementRollupService(MeasurementRepository measurementRepository,
+                                    MeasurementRollupRepository rollupRepository,
+                                    HotMeasurementStore hotStore,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${rollup.enabled:true}") boolean enabled,
+                                    @Value("${rollup.lateness-ms:120000}") long latenessMs,
+                                    @Value("${rollup.backfill-chunk-hours:6}") int backfillChunkHours) {
+        if (latenessMs < 0) {
+            throw new IllegalArgumentException("rollup.lateness-ms must not be negative, got: " + latenessMs);
+        }
+        if (backfillChunkHours < 1) {
+            throw new IllegalArgumentException("rollup.backfill-chunk-hours must be at least 1, got: " + backfillChunkHours);
+        }
+        this.measurementRepository = measurementRepository;
+        this.rollupRepository = rollupRepository;
+        this.hotStore = hotStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.lateness = Duration.ofMillis(latenessMs);
+        this.backfillChunk = Duration.ofHours(backfillChunkHours);
+    }
+
+    /**
+     * Marks the hour of a measurement that was committed behind the watermark for rebuild.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMeasurementSaved(MeasurementSavedEvent event) {
+        Instant current = watermark;
+        Instant time = event.getMeasurement().getTime();
+        if (current != null && time.isBefore(current) && dirtyHours.add(Resolution.HOUR.floor(time))) {
+            log.debug("Measurement at {} (node '{}') is behind the rollup watermark, hour will be rebuilt",
+                    time, event.getMeasurement().getSensorId());
+        }
+    }
+
+    /**
+     * Rebuilds dirty hours, then rolls up everything older than the lateness window.
+     * Failures are logged; the next run retries from the same watermark.
+     */
+    @Scheduled(fixedDelayString = "${rollup.interval-ms:60000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (watermark == null) {
+                watermark = initialWatermark();
+                if (watermark == null) {
+                    return;
+                }
+                log.info("Measurement rollups resume at {}", watermark);
+            }
+            rebuildDirtyHours();
+            catchUp(Resolution.MINUTE.floor(Instant.now().minus(lateness)));
+        } catch (DataAccessException e) {
+            log.error("Measurement rollup failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Downsampled trend of one node (or of all nodes merged) from the finest tier that
+     * returns at most {@code maxPoints} buckets for the range; HOUR if none does.
+     * <p>
+     * Ranges the hot tier covers are bucketed from its rows on the fly, including the newest
+     * minutes; older ranges read the stored rollups, which only cover data behind the watermark.
+     *
+     * @param sensorId node id, null for all nodes
+     */
+    @Transactional(readOnly = true)
+    public TrendDTO getTrend(String sensorId, Instant from, Instant to, int maxPoints) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("maxPoints must be positive");
+        }
+        Resolution resolution = chooseResolution(from, to, maxPoints);
+        Instant start = resolution.floor(from);
+        Instant end = resolution.ceil(to);
+
+        List<MeasurementRollup> buckets;
+        if (hotStore.covers(start.minus(MAX_ENERGY_GAP))) {
+            buckets = bucketsFromRows(resolution, hotStore.getRollupRows(sensorId, start.minus(MAX_ENERGY_GAP), end),
+                    start, sensorId == null);
+        } else {
+            buckets = sensorId != null
+                    ? rollupRepository.findBucketsBySensorId(resolution, sensorId, start, end)
+                    : mergeNodes(rollupRepository.findBuckets(resolution, start, end));
+        }
+
+        return TrendDTO.builder()
+                .sensorId(sensorId)
+                .from(start)
+                .to(end)
+                .resolution(resolution.name())
+                .bucketSeconds(resolution.getDuration().getSeconds())
+                .points(buckets.stream().map(MeasurementRollupService::toPoint).toList())
+                .build();
+    }
+
+    /**
+     * Buckets of the given resolution built from raw rows ordered by node and time, as the
+     * stored tiers are (MINUTE buckets merged upwards), ordered by bucket time.
+     */
+    static List<MeasurementRollup> bucketsFromRows(Resolution resolution, List<MeasurementRollupRow> rows,
+                                                   Instant from, boolean allNodes) {
+        List<MeasurementRollup> buckets = aggregate(rows, from);
+        if (resolution != Resolution.MINUTE) {
+            buckets = merge(resolution, buckets);
+        }
+        if (allNodes) {
+            buckets = mergeNodes(buckets);
+        }
+        buckets.sort(Comparator.comparing(MeasurementRollup::getBucket));
+        return buckets;
+    }
+
+    /** Finest resolution whose bucket count over [from, to) fits the point budget. */
+    static Resolution chooseResolution(Instant from, Instant to, int maxPoints) {
+        for (Resolution resolution : Resolution.values()) {
+            long span = Duration.between(resolution.floor(from), resolution.ceil(to)).getSeconds();
+            if (span / resolution.getDuration().getSeconds() <= maxPoints) {
+                return resolution;
+            }
+        }
+        return Resolution.HOUR;
+    }
+
+    private Instant initialWatermark() {
+        return rollupRepository.findLatestBucket(Resolution.MINUTE)
+                .map(bucket -> bucket.plus(Resolution.MINUTE.getDuration()))
+                .or(() -> measurementRepository.findEarliestTime().map(Resolution.MINUTE::floor))
+                .orElse(null);
+    }
+
+    private void rebuildDirtyHours() {
+        for (Instant hour : dirtyHours.stream().sorted().toList()) {
+            dirtyHours.remove(hour);
+            Instant hourEnd = hour.plus(Resolution.HOUR.getDuration());
+            Instant to = hourEnd.isBefore(watermark) ? hourEnd : watermark;
+            if (!hour.isBefore(to)) {
+                // Not rolled up yet, the catch-up covers it
+                continue;
+            }
+            try {
+                rebuild(hour, to);
+                log.info("Rebuilt measurement rollups of hour {}", hour);
+            } catch (RuntimeException e) {
+                dirtyHours.add(hour);
+                throw e;
+            }
+        }
+    }
+
+    private void catchUp(Instant limit) {
+        while (watermark.isBefore(limit)) {
+            Instant from = watermark;
+            Instant chunkEnd = from.plus(backfillChunk);
+            Instant to = chunkEnd.isBefore(limit) ? chunkEnd : limit;
+
+            // Advance first: measurements committed while the chunk is read are then marked dirty
+            watermark = to;
+            try {
+                rebuild(from, to);
+            } catch (RuntimeException e) {
+                watermark = from;
+                throw e;
+            }
+        }
+    }
+
+    /** Replaces the MINUTE buckets of [from, to) and re-merges the overlapping coarser buckets. */
+    void rebuild(Instant from, Instant to) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<MeasurementRollupRow> rows = measurementRepository.findRollupRows(from.minus(MAX_ENERGY_GAP), to);
+            rollupRepository.deleteBuckets(Resolution.MINUTE, from, to);
+            rollupRepository.saveAll(aggregate(rows, from));
+
+            remerge(Resolution.MINUTE, Resolution.TEN_MINUTES, from, to);
+            remerge(Resolution.TEN_MINUTES, Resolution.HOUR, from, to);
+        });
+    }
+
+    private void remerge(Resolution finer, Resolution target, Instant from, Instant to) {
+        Instant start = target.floor(from);
+        Instant end = target.ceil(to);
+        List<MeasurementRollup> parts = rollupRepository.findBuckets(finer, start, end);
+        rollupRepository.deleteBuckets(target, start, end);
+        rollupRepository.saveAll(merge(target, parts));
+    }
+
+    /**
+     * Builds MINUTE buckets from raw rows ordered by node and time.
+     * Rows before {@code from} are only used as the previous sample for energy.
+     */
+    static List<MeasurementRollup> aggregate(List<MeasurementRollupRow> rows, Instant from) {
+        Map<MeasurementRollup.Key, MeasurementRollup> buckets = new LinkedHashMap<>();
+        MeasurementRollupRow previous = null;
+
+        for (MeasurementRollupRow row : rows) {
+            if (!row.time().isBefore(from)) {
+                String sensorId = row.sensorId() != null ? row.sensorId() : NO_SENSOR;
+                MeasurementRollup.Key key = new MeasurementRollup.Key(
+                        Resolution.MINUTE, sensorId, Resolution.MINUTE.floor(row.time()));
+                MeasurementRollup bucket = buckets.computeIfAbsent(key, MeasurementRollupService::emptyBucket);
+                addSample(bucket, row);
+                if (previous != null && Objects.equals(previous.sensorId(), row.sensorId())) {
+                    bucket.setEnergyKwh(bucket.getEnergyKwh() + segmentEnergyKwh(previous, row));
+                }
+            }
+            previous = row;
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /** Merges finer buckets of each node into {@code target} buckets. */
+    static List<MeasurementRollup> merge(Resolution target, List<MeasurementRollup> parts) {
+        return combine(parts, part -> new MeasurementRollup.Key(target, part.getSensorId(), target.floor(part.getBucket())));
+    }
+
+    /** Merges the buckets of all nodes per bucket time (sensor id of the result is null). */
+    static List<MeasurementRollup> mergeNodes(List<MeasurementRollup> parts) {
+        return combine(parts, part -> new MeasurementRollup.Key(part.getResolution(), null, part.getBucket()));
+    }
+
+    private static List<MeasurementRollup> combine(List<MeasurementRollup> parts,
+                                                   Function<MeasurementRollup, MeasurementRollup.Key> keyOf) {
+        Map<MeasurementRollup.Key, MeasurementRollup> result = new LinkedHashMap<>();
+        for (MeasurementRollup part : parts) {
+            MeasurementRollup bucket = result.computeIfAbsent(keyOf.apply(part), MeasurementRollupService::emptyBucket);
+            addBucket(bucket, part);
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    private static MeasurementRollup emptyBucket(MeasurementRollup.Key key) {
+        return MeasurementRollup.builder()
+                .resolution(key.getResolution())
+                .sensorId(key.getSensorId())
+                .bucket(key.getBucket())
+                .build();
+    }
+
+    private static void addSample(MeasurementRollup bucket, MeasurementRollupRow row) {
+        double voltage = row.voltageRms();
+        double frequency = row.frequency();
+        if (bucket.getSampleCount() == 0) {
+            bucket.setVoltageMin(voltage);
+            bucket.setVoltageMax(voltage);
+            bucket.setFrequencyMin(frequency);
+            bucket.setFrequencyMax(frequency);
+        } else {
+            bucket.setVoltageMin(Math.min(bucket.getVoltageMin(), voltage));
+            bucket.setVoltageMax(Math.max(bucket.getVoltageMax(), voltage));
+            bucket.setFrequencyMin(Math.min(bucket.getFrequencyMin(), frequency));
+            bucket.setFrequencyMax(Math.max(bucket.getFrequencyMax(), frequency));
+        }
+        bucket.setSampleCount(bucket.getSampleCount() + 1);
+        bucket.setVoltageSum(bucket.getVoltageSum() + voltage);
+        bucket.setFrequencySum(bucket.getFrequencySum() + frequency);
+
+        if (row.powerActive() != null) {
+            double power = row.powerActive();
+            bucket.setPowerMin(bucket.getPowerCount() == 0 ? power : Math.min(bucket.getPowerMin(), power));
+            bucket.setPowerMax(bucket.getPowerCount() == 0 ? power : Math.max(bucket.getPowerMax(), power));
+            bucket.setPowerCount(bucket.getPowerCount() + 1);
+            bucket.setPowerSum(bucket.getPowerSum() + power);
+        }
+    }
+
+    private static void addBucket(MeasurementRollup bucket, MeasurementRollup part) {
+        if (bucket.getSampleCount() == 0) {
+            bucket.setVoltageMin(part.getVoltageMin());
+            bucket.setVoltageMax(part.getVoltageMax());
+            bucket.setFrequencyMin(part.getFrequencyMin());
+            bucket.setFrequencyMax(part.getFrequencyMax());
+        } else {
+            bucket.setVoltageMin(Math.min(bucket.getVoltageMin(), part.getVoltageMin()));
+            bucket.setVoltageMax(Math.max(bucket.getVoltageMax(), part.getVoltageMax()));
+            bucket.setFrequencyMin(Math.min(bucket.getFrequencyMin(), part.getFrequencyMin()));
+            bucket.setFrequencyMax(Math.max(bucket.getFrequencyMax(), part.getFrequencyMax()));
+        }
+        bucket.setSampleCount(bucket.getSampleCount() + part.getSampleCount());
+        bucket.setVoltageSum(bucket.getVoltageSum() + part.getVoltageSum());
+        bucket.setFrequencySum(bucket.getFrequencySum() + part.getFrequencySum());
+
+        if (part.getPowerCount() > 0) {
+            bucket.setPowerMin(bucket.getPowerCount() == 0 ? part.getPowerMin() : Math.min(bucket.getPowerMin(), part.getPowerMin()));
+            bucket.setPowerMax(bucket.getPowerCount() == 0 ? part.getPowerMax() : Math.max(bucket.getPowerMax(), part.getPowerMax()));
+            bucket.setPowerCount(bucket.getPowerCount() + part.getPowerCount());
+            bucket.setPowerSum(bucket.getPowerSum() + part.getPowerSum());
+        }
+        bucket.setEnergyKwh(bucket.getEnergyKwh() + part.getEnergyKwh());
+    }
+
+    /** Trapezoidal energy between two consecutive samples of a node, 0 across gaps. */
+    private static double segmentEnergyKwh(MeasurementRollupRow previous, MeasurementRollupRow current) {
+        if (previous.powerActive() == null || current.powerActive() == null) {
+            return 0.0;
+        }
+        Duration interval = Duration.between(previous.time(), current.time());
+        if (interval.isNegative() || interval.isZero() || interval.compareTo(MAX_ENERGY_GAP) > 0) {
+            return 0.0;
+        }
+        double avgPower = (previous.powerActive() + current.powerActive()) / 2.0;
+        // W·s -> kWh
+        return avgPower * (interval.toMillis() / 1000.0) / 3_600_000.0;
+    }
+
+    private static TrendPointDTO toPoint(MeasurementRollup bucket) {
+        int count = bucket.getSampleCount();
+        int powerCount = bucket.getPowerCount();
+        return TrendPointDTO.builder()
+                .time(bucket.getBucket())
+                .count(count)
+                .voltageMin(bucket.getVoltageMin())
+                .voltageAvg(bucket.getVoltageSum() / count)
+                .voltageMax(bucket.getVoltageMax())
+                .powerMin(powerCount > 0 ? bucket.getPowerMin() : null)
+                .powerAvg(powerCount > 0 ? bucket.getPowerSum() / powerCount : null)
+                .powerMax(powerCount > 0 ? bucket.getPowerMax() : null)
+                .frequencyMin(bucket.getFrequencyMin())
+                .frequencyAvg(bucket.getFrequencySum() / count)
+                .frequencyMax(bucket.getFrequencyMax())
+                .energyKwh(bucket.getEnergyKwh())
+                .build();
+    }
+}
@@ -2,21 +2,28 @@ package com.dkowalczyk.scadasystem.service;
 
 import com.dkowalczyk.scadasystem.model.dto.*;
 import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementWaveform;
 import com.dkowalczyk.scadasystem.model.event.MeasurementSavedEvent;
+import com.dkowalczyk.scadasystem.model.event.OrderedMeasurementEvent;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementKey;
+import com.dkowalczyk.scadasystem.repository.MeasurementBulkWriter;
 import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import com.dkowalczyk.scadasystem.repository.MeasurementWaveformRepository;
 import com.dkowalczyk.scadasystem.util.Constants;
+import com.dkowalczyk.scadasystem.util.PayloadHash;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.event.TransactionPhase;
-import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -30,6 +37,12 @@ public class MeasurementService {
     private final WaveformService waveformService;
     private final ApplicationEventPublisher eventPublisher;
     private final MeasurementValidator validator;
+    private final MeasurementWaveformRepository waveformRepository;
+    private final MeasurementBulkWriter bulkWriter;
+    private final HotMeasurementStore hotStore;
+    private final MeasurementArchiveService archiveService;
+    private final RecentMeasurementBuffer recentBuffer;
+    private final RealtimeFrameEncoder frameEncoder;
 
     /**
      * Helper method to get voltage and current waveforms.
@@ -41,24 +54,29 @@ public class MeasurementService {
      * to avoid code duplication.
      */
     private WaveformDTO reconstructWaveforms(Measurement measurement) {
+        return reconstructWaveforms(measurement.getWaveformV(), measurement.getWaveformI(),
+                MeasurementHistoryRow.of(measurement));
+    }
+
+    private WaveformDTO reconstructWaveforms(double[] waveformV, double[] waveformI, MeasurementHistoryRow row) {
         // Use raw waveform data if available (preferred - shows real distortions)
-        if (measurement.getWaveformV() != null && measurement.getWaveformI() != null) {
+        if (waveformV != null && waveformI != null) {
             return WaveformDTO.builder()
-                    .voltage(convertToDoubleArray(measurement.getWaveformV()))
-                    .current(convertToDoubleArray(measurement.getWaveformI()))
+                    .voltage(waveformV)
+                    .current(waveformI)
                     .build();
         }
 
         // Fallback: Reconstruct from harmonics (for backward compatibility)
-        double frequency = measurement.getFrequency() != null ? measurement.getFrequency() : 50.0;
-        double powerFactor = measurement.getPowerFactor() != null ? measurement.getPowerFactor() : 1.0;
+        double frequency = row.frequency() != null ? row.frequency() : 50.0;
+        double powerFactor = row.powerFactor() != null ? row.powerFactor() : 1.0;
         powerFactor = Math.min(1.0, Math.max(0.0, powerFactor));
         // Approximate phase shift from a power factor (only valid for sinusoidal-ish waveforms)
         double phaseShift = Math.acos(powerFactor);
         double[] voltageWaveform = waveformService.reconstructWaveform(
-                measurement.getHarmonicsV(), frequency, 200, 0.0);
+                row.harmonicsV(), frequency, 200, 0.0);
         double[] currentWaveform = waveformService.reconstructWaveform(
-                measurement.getHarmonicsI(), frequency, 200, phaseShift);
+                row.harmonicsI(), frequency, 200, phaseShift);
 
         return WaveformDTO.builder()
                 .voltage(voltageWaveform)
@@ -66,18 +84,6 @@ public class MeasurementService {
                 .build();
     }
 
-    /**
-     * Helper to convert Double[] (boxed) to double[] (primitive) for DTO.
-     */
-    private double[] convertToDoubleArray(Double[] boxed) {
-        if (boxed == null) return new double[0];
-        double[] primitive = new double[boxed.length];
-        for (int i = 0; i < boxed.length; i++) {
-            primitive[i] = boxed[i] != null ? boxed[i] : 0.0;
-        }
-        return primitive;
-    }
-
     /**
      * Calculates PN-EN 50160 power quality indicators from raw measurement data.
      * <p>
@@ -133,7 +139,8 @@ public class MeasurementService {
      * Saves a new measurement to the database and triggers WebSocket broadcast.
      * <p>
      * WHY SEPARATE EVENT PUBLISHING:
-     * - WebSocket broadcasts happen AFTER transaction commit via @TransactionalEventListener
+     * - WebSocket broadcasts happen AFTER transaction commit, released in device-time
+     *   order by MeasurementReorderBuffer (@TransactionalEventListener)
      * - This keeps the transaction short (only database write)
      * - Expensive waveform reconstruction doesn't block the transaction
      * - If transaction rolls back, no broadcasts are sent (data consistency)
@@ -145,38 +152,12 @@ public class MeasurementService {
      */
     @Transactional
     public MeasurementDTO saveMeasurement(MeasurementRequest request) {
-        // Convert DTO to Entity
-        // If ESP32 doesn't provide a timestamp, use current server time
-        Instant timestamp = (request.getTimestamp() != null)
-                ? Instant.ofEpochSecond(request.getTimestamp())
-                : Instant.now();
-        Measurement measurement = Measurement.builder()
-                .time(timestamp)
-                .voltageRms(request.getVoltageRms())
-                .currentRms(request.getCurrentRms())
-                .powerActive(request.getPowerActive())
-                .powerApparent(request.getPowerApparent())
-                .powerReactive(request.getPowerReactive())       // Q₁ - reactive power of fundamental
-                .powerDistortion(request.getPowerDistortion())   // D - distortion power from harmonics
-                .powerFactor(request.getPowerFactor())           // λ = P/S (NOT cos(φ)!)
-                .frequency(request.getFrequency())
-                .thdVoltage(request.getThdVoltage())
-                .thdCurrent(request.getThdCurrent())
-                .harmonicsV(request.getHarmonicsV())
-                .harmonicsI(request.getHarmonicsI())
-                .waveformV(request.getWaveformV())               // Raw waveform data from ESP32
-                .waveformI(request.getWaveformI())               // Raw waveform data from ESP32
-                .build();
-        measurement.setPowerFactor(normalizePowerFactor(request));
-
         ValidationResult validationResult = validator.validate(request);
-        measurement.setIsValid(validationResult.isValid());
-
-        // Calculate PN-EN 50160 power quality indicators
-        calculatePowerQualityIndicators(measurement);
+        Measurement measurement = toEntity(request, validationResult);
 
         // Save to database
         Measurement saved = repository.save(measurement);
+        saveWaveforms(List.of(saved));
         log.info("Saved measurement: id={}, voltage={}, current={}, voltage_deviation={}%, frequency_deviation={}Hz",
                 saved.getId(), saved.getVoltageRms(), saved.getCurrentRms(),
                 saved.getVoltageDeviationPercent() != null ? String.format("%.2f", saved.getVoltageDeviationPercent()) : "null",
@@ -195,54 +176,291 @@ public class MeasurementService {
         return dto;
     }
 
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    public void broadcastAfterCommit(MeasurementSavedEvent event) {
-        if (!Boolean.TRUE.equals(event.getMeasurement().getIsValid())) {
-            log.debug("Skipping broadcast for invalid measurement id={}", event.getMeasurement().getId());
+    /**
+     * Saves a batch of measurements in a single transaction (used by the MQTT ingest pipeline).
+     * <p>
+     * WHY BATCH:
+     * - One transaction and one JDBC batch per flush instead of one round-trip per measurement
+     * - Ids come from a pooled sequence, so Hibernate can group the INSERTs
+     * <p>
+     * Every row still publishes its own MeasurementSavedEvent, so after-commit
+     * WebSocket broadcasts fire for each valid measurement exactly as in saveMeasurement().
+     * <p>
+     * Measurements whose (time, payload hash) is already stored, or repeated within the batch,
+     * are skipped with one indexed lookup, so a redelivery or WAL replay cannot violate the
+     * unique index and roll back the whole batch.
+     * <p>
+     * With {@code ingest.write-mode=COPY} the rows are streamed by {@link MeasurementBulkWriter}
+     * (PostgreSQL COPY) instead of saveAll; ids and events are the same in both modes.
+     *
+     * @param requests parsed measurements in arrival order
+     * @return saved measurements as DTOs, in the same order (duplicates omitted)
+     */
+    @Transactional
+    public List<MeasurementDTO> saveMeasurements(List<MeasurementRequest> requests) {
+        List<Measurement> measurements = new ArrayList<>(requests.size());
+        int invalidCount = 0;
+        for (MeasurementRequest request : requests) {
+            ValidationResult validationResult = validator.validate(request);
+            if (!validationResult.isValid()) {
+                invalidCount++;
+                log.warn("Saving INVALID measurement from batch: reasons={}", validationResult.getErrors());
+            }
+            measurements.add(toEntity(request, validationResult));
+        }
+
+        List<Measurement> saved;
+        if (bulkWriter.isCopyMode()) {
+            saved = withoutDuplicates(measurements);
+            bulkWriter.insert(saved);
+        } else {
+            saved = repository.saveAll(withoutDuplicates(measurements));
+            saveWaveforms(saved);
+        }
+
+        List<MeasurementDTO> dtos = new ArrayList<>(saved.size());
+        for (Measurement measurement : saved) {
+            MeasurementDTO dto = toDTO(measurement);
+            dtos.add(dto);
+            eventPublisher.publishEvent(new MeasurementSavedEvent(this, measurement, dto));
+        }
+
+        log.info("Saved batch of {} measurements ({} invalid)", saved.size(), invalidCount);
+        return dtos;
+    }
+
+    /**
+     * Stores the raw waveforms of saved measurements in measurement_waveforms.
+     * <p>
+     * WHY SEPARATE ROWS: waveforms are several KB per measurement but only read by the
+     * dashboard; keeping them out of the measurements row keeps history and stats scans small.
+     * The arrays stay on the in-memory entity for the after-commit broadcast.
+     */
+    private void saveWaveforms(List<Measurement> saved) {
+        List<MeasurementWaveform> waveforms = new ArrayList<>();
+        for (Measurement measurement : saved) {
+            if (measurement.getWaveformV() != null || measurement.getWaveformI() != null) {
+                waveforms.add(MeasurementWaveform.builder()
+                        .measurement(measurement)
+                        .time(measurement.getTime())
+                        .waveformV(measurement.getWaveformV())
+                        .waveformI(measurement.getWaveformI())
+                        .build());
+            }
+        }
+        if (!waveforms.isEmpty()) {
+            waveformRepository.saveAll(waveforms);
+        }
+    }
+
+    /**
+     * Loads the stored raw waveforms into a measurement read from the database.
+     */
+    private void loadWaveforms(Measurement measurement) {
+        waveformRepository.findByMeasurementIdAndTime(measurement.getId(), measurement.getTime())
+                .ifPresent(waveform -> {
+                    measurement.setWaveformV(waveform.getWaveformV());
+                    measurement.setWaveformI(waveform.getWaveformI());
+                });
+    }
+
+    /**
+     * Drops measurements that are already stored or occur twice in the batch, by the same
+     * (time, payload hash) key as the unique index: equal readings at different times (e.g.
+     * without device timestamp, stored at their receive time) are distinct measurements.
+     */
+    private List<Measurement> withoutDuplicates(List<Measurement> measurements) {
+        if (measurements.isEmpty()) {
+            return measurements;
+        }
+        Instant from = measurements.get(0).getTime();
+        Instant to = from;
+        Set<Long> hashes = new HashSet<>();
+        for (Measurement measurement : measurements) {
+            from = measurement.getTime().isBefore(from) ? measurement.getTime() : from;
+            to = measurement.getTime().isAfter(to) ? measurement.getTime() : to;
+            hashes.add(measurement.getPayloadHash());
+        }
+        Set<MeasurementKey> seen = new HashSet<>(repository.findExistingKeys(from, to, hashes));
+
+        List<Measurement> unique = new ArrayList<>(measurements.size());
+        for (Measurement measurement : measurements) {
+            if (seen.add(new MeasurementKey(measurement.getTime(), measurement.getPayloadHash()))) {
+                unique.add(measurement);
+            }
+        }
+        if (unique.size() < measurements.size()) {
+            log.info("Skipped {} duplicate measurements already stored", measurements.size() - unique.size());
+        }
+        return unique;
+    }
+
+    /**
+     * Converts request DTO to entity, applying validation result and PN-EN 50160 indicators.
+     * <p>
+     * If ESP32 doesn't provide a timestamp, the receive time recorded at ingest is used
+     * (current server time for requests that did not go through the ingest queue).
+     */
+    private Measurement toEntity(MeasurementRequest request, ValidationResult validationResult) {
+        Instant timestamp;
+        if (request.getTimestamp() != null) {
+            timestamp = Instant.ofEpochSecond(request.getTimestamp());
+        } else if (request.getReceivedAt() != null) {
+            timestamp = Instant.ofEpochMilli(request.getReceivedAt());
+        } else {
+            timestamp = Instant.now();
+        }
+        Measurement measurement = Measurement.builder()
+                .time(timestamp)
+                .sensorId(request.getSensorId())
+                .payloadHash(request.getPayloadHash() != null ? request.getPayloadHash() : PayloadHash.of(request))
+                .voltageRms(request.getVoltageRms())
+                .currentRms(request.getCurrentRms())
+                .powerActive(request.getPowerActive())
+                .powerApparent(request.getPowerApparent())
+                .powerReactive(request.getPowerReactive())       // Q₁ - reactive power of fundamental
+                .powerDistortion(request.getPowerDistortion())   // D - distortion power from harmonics
+                .powerFactor(request.getPowerFactor())           // λ = P/S (NOT cos(φ)!)
+                .frequency(request.getFrequency())
+                .thdVoltage(request.getThdVoltage())
+                .thdCurrent(request.getThdCurrent())
+                .harmonicsV(request.getHarmonicsV())
+                .harmonicsI(request.getHarmonicsI())
+                .waveformV(request.getWaveformV())   // Raw waveform data from ESP32
+                .waveformI(request.getWaveformI())   // Raw waveform data from ESP32
+                .build();
+        measurement.setPowerFactor(normalizePowerFactor(request));
+        measurement.setIsValid(validationResult.isValid());
+
+        // Calculate PN-EN 50160 power quality indicators
+        calculatePowerQualityIndicators(measurement);
+        return measurement;
+    }
+
+    /**
+     * Broadcasts committed measurements in device-time order per node.
+     * <p>
+     * WHY ORDERED EVENT: MeasurementReorderBuffer holds each committed measurement until
+     * the node's watermark passes it, so the live charts never step back in time. Late
+     * measurements go to the correction path instead and are not broadcast.
+     * <p>
+     * WHY ENCODE ONCE: the measurement and waveform JSON is encoded a single time, shared by
+     * both topics and cached in the recent-measurements buffer for GET /api/dashboard.
+     */
+    @EventListener
+    public void broadcastAfterCommit(OrderedMeasurementEvent event) {
+        Measurement measurement = event.getMeasurement();
+        if (!Boolean.TRUE.equals(measurement.getIsValid())) {
+            log.debug("Skipping broadcast for invalid measurement id={}", measurement.getId());
             return;
         }
         // Broadcast outside transaction
-        WaveformDTO waveforms = reconstructWaveforms(event.getMeasurement());
-        webSocketService.broadcastMeasurement(event.getDto());
+        byte[] measurementJson = recentBuffer.find(measurement.getSensorId(), measurement.getId())
+                .map(entry -> entry.json(this::encodeMeasurement))
+                .orElseGet(() -> frameEncoder.encode(event.getDto()));
+        byte[] waveformsJson = recentBuffer.findLatestWaveforms(measurement.getSensorId(), measurement.getId())
+                .map(waveforms -> waveforms.json(() -> frameEncoder.encode(reconstructWaveforms(measurement))))
+                .orElseGet(() -> frameEncoder.encode(reconstructWaveforms(measurement)));
+
+        webSocketService.broadcastMeasurement(measurement.getSensorId(), measurementJson);
+        webSocketService.broadcastRealtimeDashboard(measurement.getSensorId(),
+                frameEncoder.realtimeDashboard(measurementJson, waveformsJson),
+                new BinaryDashboardFrame(event.getDto(), () -> reconstructWaveforms(measurement)));
+    }
 
-        RealtimeDashboardDTO realtimeDashboard = RealtimeDashboardDTO.builder()
-                .latestMeasurement(event.getDto())
-                .waveforms(waveforms)
-                .build();
-        webSocketService.broadcastRealtimeDashboard(realtimeDashboard);
+    private byte[] encodeMeasurement(MeasurementHistoryRow row) {
+        return frameEncoder.encode(toDTO(row));
     }
 
-    public Optional<MeasurementDTO> getLatestMeasurement() {
-        return repository.findTopByIsValidTrueOrderByTimeDesc()
+    /**
+     * Returns the latest valid measurement.
+     *
+     * Served from the recent-measurements buffer, or (when it is disabled) from the hot tier
+     * when the node sent anything within its window.
+     *
+     * @param sensorId node to query, or null for the latest measurement across all nodes
+     */
+    public Optional<MeasurementDTO> getLatestMeasurement(String sensorId) {
+        if (recentBuffer.isEnabled()) {
+            return recentBuffer.get(sensorId, 1).map(view -> toDTO(view.latest()));
+        }
+        Optional<MeasurementHistoryRow> hot = hotStore.getLatest(sensorId);
+        if (hot.isPresent()) {
+            return hot.map(this::toDTO);
+        }
+        return getLatestMeasurementEntity(sensorId)
                 .map(this::toDTO);
     }
 
     /**
      * Get latest measurement entity (strictly internal, for service-layer logic only).
      * <b>INTERNAL USE ONLY:</b> Do not expose domain entities to controllers. Use DTO-returning methods for API.
+     * <p>
+     * WHY SPLIT BY NODE: a per-node query is served by idx_measurements_valid_sensor_time
+     * instead of scanning every node's rows.
      */
-    private Optional<Measurement> getLatestMeasurementEntity() {
-        return repository.findTopByIsValidTrueOrderByTimeDesc();
+    private Optional<Measurement> getLatestMeasurementEntity(String sensorId) {
+        return sensorId == null
+                ? repository.findTopByIsValidTrueOrderByTimeDesc()
+                : repository.findTopBySensorIdAndIsValidTrueOrderByTimeDesc(sensorId);
     }
     /**
      * Returns the latest power quality indicators as a DTO for controller/API use.
      * This method ensures controllers do not access domain entities directly.
      *
+     * @param sensorId node to query, or null for the latest measurement across all nodes
      * @return Optional containing PowerQualityIndicatorsDTO for the latest measurement, or empty if none found.
      */
-    public Optional<PowerQualityIndicatorsDTO> getLatestPowerQualityIndicators() {
-        return getLatestMeasurementEntity().map(this::buildPowerQualityIndicatorsDTO);
+    public Optional<PowerQualityIndicatorsDTO> getLatestPowerQualityIndicators(String sensorId) {
+        if (recentBuffer.isEnabled()) {
+            return recentBuffer.get(sensorId, 1).map(view -> buildPowerQualityIndicatorsDTO(view.latest()));
+        }
+        return getLatestMeasurementEntity(sensorId)
+                .map(MeasurementHistoryRow::of)
+                .map(this::buildPowerQualityIndicatorsDTO);
+    }
+
+    /**
+     * Returns valid measurements in [from, to], newest first.
+     * <p>
+     * Ranges the hot tier covers are answered from memory; older ones go to the database, and
+     * the part before the archive boundary (days that left the database) to the archive files.
+     *
+     * @param sensorId node to query, or null for all nodes
+     */
+    public List<MeasurementDTO> getHistory(String sensorId, Instant from, Instant to, int limit) {
+        List<MeasurementHistoryRow> rows;
+        Instant archiveEnd = archiveService.getArchiveEnd();
+        if (hotStore.covers(from)) {
+            rows = hotStore.getHistory(sensorId, from, to, limit);
+        } else if (archiveEnd != null && from.isBefore(archiveEnd)) {
+            // Newest first: the database part, then the archive for what the limit leaves
+            rows = new ArrayList<>();
+            if (!to.isBefore(archiveEnd)) {
+                rows.addAll(findHistoryRows(sensorId, archiveEnd, to, limit));
+            }
+            if (rows.size() < limit) {
+                Instant archiveTo = to.isBefore(archiveEnd) ? to : archiveEnd.minus(1, ChronoUnit.MICROS);
+                rows.addAll(archiveService.readHistory(sensorId, from, archiveTo, limit - rows.size()));
+            }
+        } else {
+            rows = findHistoryRows(sensorId, from, to, limit);
+        }
+        return rows
+                .stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
     }
 
-    public List<MeasurementDTO> getHistory(Instant from, Instant to, int limit) {
+    private List<MeasurementHistoryRow> findHistoryRows(String sensorId, Instant from, Instant to, int limit) {
         // Create pageable request with limit and database-side sorting
         Pageable pageable =
             PageRequest.of(0, limit, Sort.by("time").descending());
 
-        return repository.findByIsValidTrueAndTimeBetween(from, to, pageable)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        // Projection: only the DTO columns, no managed entities
+        return sensorId == null
+                ? repository.findHistoryRows(from, to, pageable)
+                : repository.findHistoryRowsBySensorId(sensorId, from, to, pageable);
     }
 
     /**
@@ -250,12 +468,26 @@ public class MeasurementService {
      * <p>
      * WHY: Instead of 3 separate requests (latest + history + waveforms),
      * frontend makes 1 request and gets everything, reducing network overhead.
+     * <p>
+     * Served from the recent-measurements buffer without a database round-trip; the queries
+     * below only run with {@code recent.enabled=false}.
      *
+     * @param sensorId node to show, or null for the latest data across all nodes
      * @return DashboardDTO with latest measurement, waveforms, and recent history
      */
-    public Optional<DashboardDTO> getDashboardData() {
+    public Optional<DashboardDTO> getDashboardData(String sensorId) {
+        if (recentBuffer.isEnabled()) {
+            return recentBuffer.get(sensorId, RecentMeasurementBuffer.DASHBOARD_HISTORY_SIZE)
+                    .map(view -> DashboardDTO.builder()
+                            .latestMeasurement(toDTO(view.latest()))
+                            .waveforms(reconstructWaveforms(view.latestWaveforms().voltage(),
+                                    view.latestWaveforms().current(), view.latest()))
+                            .recentHistory(view.rows().stream().map(this::toDTO).collect(Collectors.toList()))
+                            .build());
+        }
+
         // 1. Get latest measurement
-        Optional<Measurement> latestMeasurement = repository.findTopByIsValidTrueOrderByTimeDesc();
+        Optional<Measurement> latestMeasurement = getLatestMeasurementEntity(sensorId);
         if (latestMeasurement.isEmpty()) {
             log.warn("No measurements found in database for dashboard");
             return Optional.empty();
@@ -264,11 +496,15 @@ public class MeasurementService {
         Measurement latest = latestMeasurement.get();
         MeasurementDTO latestDTO = toDTO(latest);
 
-        // 2. Reconstruct waveforms from harmonics
+        // 2. Raw waveforms (stored separately), or reconstructed from harmonics
+        loadWaveforms(latest);
         WaveformDTO waveforms = reconstructWaveforms(latest);
 
         // 3. Get last 100 measurements (history)
-        List<MeasurementDTO> recentHistory = repository.findTop100ByIsValidTrueOrderByTimeDesc()
+        List<Measurement> recent = sensorId == null
+                ? repository.findTop100ByIsValidTrueOrderByTimeDesc()
+                : repository.findTop100BySensorIdAndIsValidTrueOrderByTimeDesc(sensorId);
+        List<MeasurementDTO> recentHistory = recent
                 .stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
@@ -286,10 +522,36 @@ public class MeasurementService {
         return Optional.of(dashboard);
     }
 
+    /**
+     * Returns the dashboard data of {@link #getDashboardData(String)} as JSON.
+     * <p>
+     * WHY BYTES: the response is assembled from the JSON the recent-measurements buffer keeps
+     * for each measurement (the same bytes the WebSocket frames used), so a poll copies bytes
+     * instead of serializing 100 measurements and two waveforms again.
+     *
+     * @param sensorId node to show, or null for the latest data across all nodes
+     */
+    public Optional<byte[]> getDashboardJson(String sensorId) {
+        if (!recentBuffer.isEnabled()) {
+            return getDashboardData(sensorId).map(frameEncoder::encode);
+        }
+        return recentBuffer.get(sensorId, RecentMeasurementBuffer.DASHBOARD_HISTORY_SIZE).map(view -> {
+            List<byte[]> history = new ArrayList<>(view.entries().size());
+            for (RecentMeasurementBuffer.Entry entry : view.entries()) {
+                history.add(entry.json(this::encodeMeasurement));
+            }
+            RecentMeasurementBuffer.LatestWaveforms latest = view.latestWaveforms();
+            byte[] waveforms = latest.json(() -> frameEncoder.encode(
+                    reconstructWaveforms(latest.voltage(), latest.current(), view.latest())));
+            return frameEncoder.dashboard(history.get(0), waveforms, history);
+        });
+    }
+
     private MeasurementDTO toDTO(Measurement entity) {
         return MeasurementDTO.builder()
                 .id(entity.getId())
                 .time(entity.getTime())
+                .sensorId(entity.getSensorId())
                 .voltageRms(entity.getVoltageRms())
                 .currentRms(entity.getCurrentRms())
                 .powerActive(entity.getPowerActive())
@@ -307,6 +569,27 @@ public class MeasurementService {
                 .build();
     }
 
+    private MeasurementDTO toDTO(MeasurementHistoryRow row) {
+        return MeasurementDTO.builder()
+                .id(row.id())
+                .time(row.time())
+                .sensorId(row.sensorId())
+                .voltageRms(row.voltageRms())
+                .currentRms(row.currentRms())
+                .powerActive(row.powerActive())
+                .powerApparent(row.powerApparent())
+                .powerReactive(row.powerReactive())
+                .powerDistortion(row.powerDistortion())
+                .powerFactor(row.powerFactor())
+                .frequency(row.frequency())
+                .thdVoltage(row.thdVoltage())
+                .thdCurrent(row.thdCurrent())
+                .harmonicsV(row.harmonicsV())
+                .harmonicsI(row.harmonicsI())
+                .voltageDeviationPercent(row.voltageDeviationPercent())
+                .frequencyDeviationHz(row.frequencyDeviationHz())
+                .build();
+    }
 
     private Boolean allTrueOrNull(Boolean... values) {
         for (Boolean v : values) {
@@ -348,29 +631,29 @@ public class MeasurementService {
         return thdVoltage <= Constants.VOLTAGE_THD_LIMIT;
     }
 
-    private PowerQualityIndicatorsDTO buildPowerQualityIndicatorsDTO(Measurement measurement) {
-        Boolean voltageOk = checkVoltageCompliance(measurement.getVoltageDeviationPercent());
-        Boolean frequencyOk = checkFrequencyCompliance(measurement.getFrequencyDeviationHz());
-        Boolean thdOk = checkThdCompliance(measurement.getThdVoltage());
+    private PowerQualityIndicatorsDTO buildPowerQualityIndicatorsDTO(MeasurementHistoryRow measurement) {
+        Boolean voltageOk = checkVoltageCompliance(measurement.voltageDeviationPercent());
+        Boolean frequencyOk = checkFrequencyCompliance(measurement.frequencyDeviationHz());
+        Boolean thdOk = checkThdCompliance(measurement.thdVoltage());
 
         Boolean overallCompliant = allTrueOrNull(voltageOk, frequencyOk, thdOk);
         String statusMessage = buildStatusMessage(voltageOk, frequencyOk, thdOk,
-                measurement.getVoltageDeviationPercent(), measurement.getThdVoltage());
+                measurement.voltageDeviationPercent(), measurement.thdVoltage());
 
         return PowerQualityIndicatorsDTO.builder()
-                .timestamp(measurement.getTime())
+                .timestamp(measurement.time())
                 // Group 1: Supply voltage magnitude
-                .voltageRms(measurement.getVoltageRms())
-                .voltageDeviationPercent(measurement.getVoltageDeviationPercent())
+                .voltageRms(measurement.voltageRms())
+                .voltageDeviationPercent(measurement.voltageDeviationPercent())
                 .voltageWithinLimits(voltageOk)
                 // Group 2: Supply frequency
-                .frequency(measurement.getFrequency())
-                .frequencyDeviationHz(measurement.getFrequencyDeviationHz())
+                .frequency(measurement.frequency())
+                .frequencyDeviationHz(measurement.frequencyDeviationHz())
                 .frequencyWithinLimits(frequencyOk)
                 // Group 4: Voltage waveform distortions
-                .thdVoltage(measurement.getThdVoltage())
+                .thdVoltage(measurement.thdVoltage())
                 .thdWithinLimits(thdOk)
-                .harmonicsVoltage(measurement.getHarmonicsV())
+                .harmonicsVoltage(measurement.harmonicsV())
                 // Overall status
                 .overallCompliant(overallCompliant)
                 .statusMessage(statusMessage)
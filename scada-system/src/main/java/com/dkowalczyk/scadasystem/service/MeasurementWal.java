@@ -0,0 +1,455 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only write-ahead log for measurements, stored as memory-mapped segment files.
+ * <p>
+ * WHY: without it a measurement only lives in the in-memory queue until its batch is saved,
+ * so a database outage (or a restart during one) loses data. With the log enabled every
+ * decoded measurement is appended here first; the writer reads batches from the log and
+ * advances the checkpoint only after the database transaction commits. Records are replayed
+ * in order after an outage or restart, and fully committed segments are deleted.
+ * <p>
+ * Appending is a memcpy into a mapped page, so MQTT ingest latency no longer depends on
+ * database latency. Mapped pages survive a JVM crash; segments are only forced to disk on
+ * roll-over and close, so a power loss can still lose the unflushed tail.
+ * <p>
+ * On-disk layout (directory {@code ingest.wal.dir}):
+ * <pre>
+ * segment-{firstSeq}.wal  fixed-size segments, records: int32 length, int32 CRC32, JSON bytes
+ *                          (length 0 = end of data; length is written last, so a torn record
+ *                          reads as end of log)
+ * checkpoint              int64: sequence number of the first record not yet in the database
+ * </pre>
+ * Total segment size is bounded by {@code ingest.wal.max-disk-mb}; when the budget is used up
+ * new measurements are rejected until replay frees a segment.
+ * <p>
+ * Thread safety: all state is guarded by this object's monitor. Appends come from the MQTT
+ * thread, reads and commits from the single writer thread.
+ */
+@Slf4j
+class MeasurementWal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long maxDiskBytes;
+    private final ObjectWriter recordWriter;
+    private final ObjectReader recordReader;
+
+    /** Oldest first; the last one is the active (appended) segment. */
+    private final List<Segment> segments = new ArrayList<>();
+    private MappedByteBuffer checkpoint;
+
+    /** Sequence number the next appended record gets. */
+    private long nextSeq;
+
+    /** Replay cursor: first record not yet committed to the database. */
+    private long committedSeq;
+    private int commitSegment;
+    private int commitPosition;
+
+    /** Cursor after the last {@link #readBatch(int)}, becomes the replay cursor on {@link #commit()}. */
+    private long pendingSeq;
+    private int pendingSegment;
+    private int pendingPosition;
+
+    private long rejectedCount;
+    private boolean waitsInterrupted;
+
+    private static final class Segment {
+        final long firstSeq;
+        final Path path;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        int recordCount;
+
+        Segment(long firstSeq, Path path, MappedByteBuffer buffer) {
+            this.firstSeq = firstSeq;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    MeasurementWal(Path directory, int segmentBytes, long maxDiskBytes, ObjectMapper objectMapper) {
+        if (segmentBytes < 64 * 1024) {
+            throw new IllegalArgumentException("ingest.wal.segment-size-mb must be at least 64 KB, got: " + segmentBytes + " bytes");
+        }
+        if (maxDiskBytes < segmentBytes) {
+            throw new IllegalArgumentException("ingest.wal.max-disk-mb must hold at least one segment");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.recordWriter = objectMapper.writerFor(MeasurementRequest.class);
+        this.recordReader = objectMapper.readerFor(MeasurementRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * Maps existing segments, finds the end of valid data and positions the replay cursor
+     * at the checkpoint. Creates the directory and the first segment if needed.
+     */
+    synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        checkpoint = map(directory.resolve(CHECKPOINT_FILE), Long.BYTES);
+        committedSeq = checkpoint.getLong(0);
+
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentFiles = files
+                    .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted((a, b) -> Long.compare(firstSeqOf(a), firstSeqOf(b)))
+                    .toList();
+        }
+        for (Path path : segmentFiles) {
+            Segment segment = new Segment(firstSeqOf(path), path, map(path, (int) Files.size(path)));
+            recover(segment);
+            segments.add(segment);
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(createSegment(committedSeq));
+        } else {
+            zeroTail(segments.get(segments.size() - 1));
+        }
+        Segment last = segments.get(segments.size() - 1);
+        nextSeq = last.firstSeq + last.recordCount;
+
+        long firstSeq = segments.get(0).firstSeq;
+        if (committedSeq < firstSeq || committedSeq > nextSeq) {
+            log.warn("WAL checkpoint {} outside log range [{}, {}], replaying from {}",
+                    committedSeq, firstSeq, nextSeq, firstSeq);
+            committedSeq = firstSeq;
+            checkpoint.putLong(0, committedSeq);
+        }
+        positionCommitCursor();
+        deleteCommittedSegments();
+
+        log.info("WAL opened at {}: {} segments, {} records to replay", directory, segments.size(), getLagRecords());
+    }
+
+    /**
+     * Appends a measurement to the log.
+     *
+     * @return true if the record was written, false if it was rejected (disk budget exhausted
+     *         or the record cannot be serialized or does not fit in a segment)
+     */
+    boolean append(MeasurementRequest request) {
+        byte[] data;
+        try {
+            data = recordWriter.writeValueAsBytes(request);
+        } catch (IOException e) {
+            log.error("Cannot serialize measurement for WAL: {}", e.getMessage());
+            return reject();
+        }
+        int recordSize = RECORD_HEADER_SIZE + data.length;
+        if (recordSize > segmentBytes) {
+            log.error("Measurement of {} bytes exceeds WAL segment size {}", recordSize, segmentBytes);
+            return reject();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        synchronized (this) {
+            Segment active = segments.get(segments.size() - 1);
+            if (active.writePosition + recordSize > active.buffer.capacity()) {
+                if ((long) (segments.size() + 1) * segmentBytes > maxDiskBytes) {
+                    rejectedCount++;
+                    // Log the first rejection and then every 1000th to avoid flooding the log
+                    if (rejectedCount % 1000 == 1) {
+                        log.warn("WAL disk budget of {} bytes exhausted, {} measurements rejected so far (lag={})",
+                                maxDiskBytes, rejectedCount, getLagRecords());
+                    }
+                    return false;
+                }
+                active.buffer.force();
+                try {
+                    active = createSegment(nextSeq);
+                } catch (IOException e) {
+                    log.error("Cannot create WAL segment: {}", e.getMessage(), e);
+                    rejectedCount++;
+                    return false;
+                }
+                segments.add(active);
+            }
+
+            int position = active.writePosition;
+            active.buffer.putInt(position + 4, (int) crc.getValue());
+            active.buffer.put(position + RECORD_HEADER_SIZE, data);
+            active.buffer.putInt(position, data.length);
+            active.writePosition += recordSize;
+            active.recordCount++;
+            nextSeq++;
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Waits until at least minRecords uncommitted records are available, the timeout elapses
+     * or {@link #interruptWaits()} is called.
+     *
+     * @return number of uncommitted records
+     */
+    synchronized long awaitRecords(long minRecords, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (getLagRecords() < minRecords && !waitsInterrupted) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getLagRecords();
+    }
+
+    /** Wakes the writer from {@link #awaitRecords(long, long)} for shutdown. */
+    synchronized void interruptWaits() {
+        waitsInterrupted = true;
+        notifyAll();
+    }
+
+    /**
+     * Reads up to maxRecords records starting at the replay cursor, without advancing it.
+     * Calling it again before {@link #commit()} returns the same records.
+     */
+    List<MeasurementRequest> readBatch(int maxRecords) {
+        List<byte[]> records = new ArrayList<>(maxRecords);
+        synchronized (this) {
+            int segmentIndex = commitSegment;
+            int position = commitPosition;
+            long seq = committedSeq;
+            while (records.size() < maxRecords && seq < nextSeq) {
+                Segment segment = segments.get(segmentIndex);
+                if (position >= segment.writePosition) {
+                    segmentIndex++;
+                    position = 0;
+                    continue;
+                }
+                int length = segment.buffer.getInt(position);
+                byte[] data = new byte[length];
+                segment.buffer.get(position + RECORD_HEADER_SIZE, data);
+                records.add(data);
+                position += RECORD_HEADER_SIZE + length;
+                seq++;
+            }
+            pendingSegment = segmentIndex;
+            pendingPosition = position;
+            pendingSeq = seq;
+        }
+
+        List<MeasurementRequest> batch = new ArrayList<>(records.size());
+        for (byte[] data : records) {
+            try {
+                batch.add(recordReader.readValue(data));
+            } catch (IOException e) {
+                log.error("Skipping unreadable WAL record: {}", e.getMessage());
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Marks the records returned by the last {@link #readBatch(int)} as persisted,
+     * stores the checkpoint and deletes segments that are fully committed.
+     */
+    synchronized void commit() {
+        committedSeq = pendingSeq;
+        commitSegment = pendingSegment;
+        commitPosition = pendingPosition;
+        checkpoint.putLong(0, committedSeq);
+        deleteCommittedSegments();
+    }
+
+    /** Records appended but not yet committed to the database. */
+    synchronized long getLagRecords() {
+        return nextSeq - committedSeq;
+    }
+
+    synchronized long getDiskBytes() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.buffer.capacity();
+        }
+        return total;
+    }
+
+    long getMaxDiskBytes() {
+        return maxDiskBytes;
+    }
+
+    /** Share of the disk budget taken by the allocated segments, 0 to 1. */
+    synchronized double getDiskUsage() {
+        return (double) segments.size() * segmentBytes / maxDiskBytes;
+    }
+
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /** Measurements not written because the disk budget was exhausted or the record was invalid. */
+    synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (checkpoint != null) {
+            checkpoint.force();
+        }
+        if (!segments.isEmpty()) {
+            segments.get(segments.size() - 1).buffer.force();
+        }
+    }
+
+    /** True if the directory holds a log (at least its checkpoint file). */
+    static boolean exists(Path directory) {
+        return Files.isRegularFile(directory.resolve(CHECKPOINT_FILE));
+    }
+
+    /**
+     * Closes the log and deletes its segments and checkpoint, and the directory if nothing else
+     * is left in it. Used for logs that were fully replayed and are not reopened.
+     */
+    synchronized void delete() throws IOException {
+        close();
+        for (Segment segment : segments) {
+            Files.deleteIfExists(segment.path);
+        }
+        segments.clear();
+        Files.deleteIfExists(directory.resolve(CHECKPOINT_FILE));
+        checkpoint = null;
+        try (Stream<Path> remaining = Files.list(directory)) {
+            if (remaining.findAny().isEmpty()) {
+                Files.delete(directory);
+            }
+        }
+    }
+
+    private synchronized boolean reject() {
+        rejectedCount++;
+        return false;
+    }
+
+    /**
+     * Scans a segment for valid records; the first zero length, out-of-bounds length
+     * or CRC mismatch marks the end of data.
+     */
+    private void recover(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        int count = 0;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            byte[] data = new byte[length];
+            buffer.get(position + RECORD_HEADER_SIZE, data);
+            crc.reset();
+            crc.update(data);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                log.warn("WAL segment {}: corrupt record at offset {}, ignoring the rest", segment.path, position);
+                break;
+            }
+            position += RECORD_HEADER_SIZE + length;
+            count++;
+        }
+        segment.writePosition = position;
+        segment.recordCount = count;
+    }
+
+    /** Clears leftovers of a torn write so they cannot be mistaken for records after new appends. */
+    private void zeroTail(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        for (int i = segment.writePosition; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+    }
+
+    private void positionCommitCursor() {
+        commitSegment = 0;
+        while (commitSegment < segments.size() - 1) {
+            Segment segment = segments.get(commitSegment);
+            if (committedSeq < segment.firstSeq + segment.recordCount) {
+                break;
+            }
+            commitSegment++;
+        }
+        Segment segment = segments.get(commitSegment);
+        commitPosition = 0;
+        for (long seq = segment.firstSeq; seq < committedSeq; seq++) {
+            commitPosition += RECORD_HEADER_SIZE + segment.buffer.getInt(commitPosition);
+        }
+        pendingSeq = committedSeq;
+        pendingSegment = commitSegment;
+        pendingPosition = commitPosition;
+    }
+
+    private void deleteCommittedSegments() {
+        // A fully consumed segment that is not the active one can go as well
+        while (commitSegment < segments.size() - 1
+                && commitPosition >= segments.get(commitSegment).writePosition) {
+            commitSegment++;
+            commitPosition = 0;
+        }
+        while (commitSegment > 0) {
+            Segment segment = segments.remove(0);
+            commitSegment--;
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Cannot delete committed WAL segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+        pendingSegment = commitSegment;
+        pendingPosition = commitPosition;
+        pendingSeq = committedSeq;
+    }
+
+    private Segment createSegment(long firstSeq) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        return new Segment(firstSeq, path, map(path, segmentBytes));
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static long firstSeqOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -1,48 +1,141 @@
 package com.dkowalczyk.scadasystem.service;
 
 import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.dkowalczyk.scadasystem.util.MeasurementBinaryCodec;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class MqttMessageHandler {
 
-    private final MeasurementService measurementService;
-    private final ObjectMapper objectMapper;
+    /** Matches the sensor_id column length (V1 migration). */
+    private static final int MAX_SENSOR_ID_LENGTH = 50;
+
+    /** Topic segment marking binary payloads: scada/measurements/bin/{sensorId}. */
+    private static final String BINARY_TOPIC_SEGMENT = "/bin/";
+
+    private final MeasurementIngestService ingestService;
+
+    /**
+     * Reader bound to MeasurementRequest, created once.
+     * <p>
+     * WHY: ObjectReader is immutable and thread-safe, so the type lookup and deserializer
+     * resolution happen at startup instead of on every message. Unknown properties are
+     * ignored so newer firmware can add fields without breaking ingest.
+     */
+    private final ObjectReader measurementReader;
+
+    public MqttMessageHandler(MeasurementIngestService ingestService, ObjectMapper objectMapper) {
+        this.ingestService = ingestService;
+        this.measurementReader = objectMapper.readerFor(MeasurementRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
 
     /**
      * Handles incoming MQTT messages from ESP32 measurement nodes.
      * <p>
-     * Parses JSON payload, validates measurement data, and saves to database
-     * via MeasurementService. Triggered automatically when messages arrive on
-     * the mqttInputChannel.
+     * Parses JSON payload and hands the measurement to MeasurementIngestService,
+     * which validates and saves it as part of the next batch. Triggered automatically
+     * when messages arrive on the mqttInputChannel.
+     * <p>
+     * The node id is taken from the topic (scada/measurements/{sensorId}), so one
+     * subscription on scada/measurements/# keeps every node's data apart.
+     * <p>
+     * The inbound adapter delivers raw byte[] payloads (see MqttConfig); Jackson parses
+     * the UTF-8 bytes directly, without first building a String of the whole message.
+     * Messages on scada/measurements/bin/{sensorId} use the compact binary format
+     * ({@link MeasurementBinaryCodec}) instead of JSON.
      *
      * @param message MQTT message from mqttInputChannel containing JSON measurement data
      */
     @ServiceActivator(inputChannel = "mqttInputChannel")
     public void handleMqttMessage(Message<?> message) {
         try {
-            String payload = (String) message.getPayload();
             String topic = (String) message.getHeaders().get("mqtt_receivedTopic");
+            Object payload = message.getPayload();
+
+            log.debug("Received MQTT message from topic: {}", topic);
 
-            log.info("Received MQTT message from topic: {}", topic);
-            log.debug("Payload: {}", payload);
+            // Parse JSON or binary payload from ESP32
+            MeasurementRequest request = isBinaryTopic(topic)
+                    ? readBinaryMeasurement(payload)
+                    : readMeasurement(payload);
 
-            // Parse JSON from ESP32
-            MeasurementRequest request = objectMapper.readValue(payload, MeasurementRequest.class);
+            // Topic is authoritative for node identity (broker ACLs apply to topics, not payloads)
+            String sensorId = extractSensorId(topic);
+            if (sensorId != null) {
+                request.setSensorId(sensorId);
+            }
 
-            // Save measurement
-            measurementService.saveMeasurement(request);
-            log.info("Measurement processed successfully");
+            // Queue for batched persistence (keeps the Paho callback thread free of DB I/O)
+            ingestService.submit(request);
+            log.debug("Measurement queued for persistence");
 
         } catch (Exception e) {
             log.error("Error processing MQTT message: {}", e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Decodes a JSON payload delivered as byte[] (default) or String (other converters).
+     */
+    private MeasurementRequest readMeasurement(Object payload) throws IOException {
+        MeasurementRequest request;
+        if (payload instanceof byte[] bytes) {
+            log.debug("Payload: {} bytes", bytes.length);
+            request = measurementReader.readValue(bytes);
+        } else if (payload instanceof String json) {
+            log.debug("Payload: {}", json);
+            request = measurementReader.readValue(json);
+        } else {
+            throw new IllegalArgumentException("Unsupported MQTT payload type: "
+                    + (payload == null ? "null" : payload.getClass().getName()));
+        }
+        if (request == null) {
+            throw new IllegalArgumentException("MQTT payload is empty or JSON null");
+        }
+        return request;
+    }
+
+    private static boolean isBinaryTopic(String topic) {
+        return topic != null && topic.contains(BINARY_TOPIC_SEGMENT);
+    }
+
+    /**
+     * Decodes a binary payload; binary messages are only meaningful as byte[].
+     */
+    private MeasurementRequest readBinaryMeasurement(Object payload) {
+        if (!(payload instanceof byte[] bytes)) {
+            throw new IllegalArgumentException("Binary MQTT topic requires byte[] payload, got: "
+                    + (payload == null ? "null" : payload.getClass().getName()));
+        }
+        log.debug("Binary payload: {} bytes", bytes.length);
+        return MeasurementBinaryCodec.decode(bytes);
+    }
+
+    /**
+     * Returns the last topic segment as node id, e.g. "node1" for scada/measurements/node1
+     * and scada/measurements/bin/node1.
+     *
+     * @return node id, or null if the topic is missing or has no usable last segment
+     */
+    static String extractSensorId(String topic) {
+        if (topic == null) {
+            return null;
+        }
+        String sensorId = topic.substring(topic.lastIndexOf('/') + 1).trim();
+        if (sensorId.isEmpty() || sensorId.length() > MAX_SENSOR_ID_LENGTH) {
+            log.warn("Cannot derive sensor id from MQTT topic: {}", topic);
+            return null;
+        }
+        return sensorId;
+    }
+}
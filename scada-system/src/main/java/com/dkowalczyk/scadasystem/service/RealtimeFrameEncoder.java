@@ -0,0 +1,104 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.DashboardDTO;
+import com.dkowalczyk.scadasystem.model.dto.RealtimeDashboardDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encodes realtime frames and dashboard responses to JSON bytes from pre-encoded parts.
+ * <p>
+ * WHY: a measurement used to be serialized once per destination (/topic/measurements,
+ * /topic/dashboard) and again inside every GET /api/dashboard response that listed it, so
+ * serialization CPU grew with subscribers and polls. Its MeasurementDTO and waveform JSON is
+ * now encoded once (cached by {@link RecentMeasurementBuffer}) and the envelopes are assembled
+ * here by copying bytes.
+ * <p>
+ * The envelope property names are taken from the application ObjectMapper, so the output is
+ * byte-for-byte what serializing {@link RealtimeDashboardDTO} / {@link DashboardDTO} would give.
+ */
+@Service
+public class RealtimeFrameEncoder {
+
+    private final ObjectMapper objectMapper;
+    private final byte[] realtimeLatestKey;
+    private final byte[] realtimeWaveformsKey;
+    private final byte[] dashboardLatestKey;
+    private final byte[] dashboardWaveformsKey;
+    private final byte[] dashboardHistoryKey;
+
+    public RealtimeFrameEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.realtimeLatestKey = key(RealtimeDashboardDTO.class, "latestMeasurement", '{');
+        this.realtimeWaveformsKey = key(RealtimeDashboardDTO.class, "waveforms", ',');
+        this.dashboardLatestKey = key(DashboardDTO.class, "latestMeasurement", '{');
+        this.dashboardWaveformsKey = key(DashboardDTO.class, "waveforms", ',');
+        this.dashboardHistoryKey = key(DashboardDTO.class, "recentHistory", ',');
+    }
+
+    /** JSON of one value (a MeasurementDTO or WaveformDTO) with the application settings. */
+    public byte[] encode(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to encode " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    /** The /topic/dashboard frame: a RealtimeDashboardDTO of the given parts. */
+    public byte[] realtimeDashboard(byte[] measurement, byte[] waveforms) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                realtimeLatestKey.length + measurement.length + realtimeWaveformsKey.length + waveforms.length + 1);
+        out.writeBytes(realtimeLatestKey);
+        out.writeBytes(measurement);
+        out.writeBytes(realtimeWaveformsKey);
+        out.writeBytes(waveforms);
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    /** The GET /api/dashboard body: a DashboardDTO of the given parts. */
+    public byte[] dashboard(byte[] latest, byte[] waveforms, List<byte[]> history) {
+        int size = dashboardLatestKey.length + latest.length + dashboardWaveformsKey.length + waveforms.length
+                + dashboardHistoryKey.length + history.size() + 3;
+        for (byte[] measurement : history) {
+            size += measurement.length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.writeBytes(dashboardLatestKey);
+        out.writeBytes(latest);
+        out.writeBytes(dashboardWaveformsKey);
+        out.writeBytes(waveforms);
+        out.writeBytes(dashboardHistoryKey);
+        out.write('[');
+        for (int i = 0; i < history.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(history.get(i));
+        }
+        out.write(']');
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    /** {@code <separator>"<serialized name>":} of a DTO property under the mapper's naming strategy. */
+    private byte[] key(Class<?> type, String property, char separator) {
+        String name = objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(type))
+                .findProperties()
+                .stream()
+                .filter(definition -> definition.getInternalName().equals(property))
+                .map(BeanPropertyDefinition::getName)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(type.getSimpleName() + " has no property " + property));
+        return (separator + "\"" + name + "\":").getBytes(StandardCharsets.UTF_8);
+    }
+}
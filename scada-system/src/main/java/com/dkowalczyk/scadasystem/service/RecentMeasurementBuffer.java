@@ -0,0 +1,449 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementWaveform;
+import com.dkowalczyk.scadasystem.model.event.MeasurementSavedEvent;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import com.dkowalczyk.scadasystem.repository.MeasurementWaveformRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The last {@code recent.capacity} valid measurements of every node, newest first, with the raw
+ * waveforms of each node's newest one and the JSON of both once encoded.
+ * <p>
+ * WHY: the dashboard, latest-measurement and power-quality endpoints are polled by every open
+ * browser and each poll was two to three database round-trips (latest row, its waveforms, last
+ * 100 rows) for data that was committed by this instance moments before.
+ * <p>
+ * Lock-free: each node's buffer is an immutable, time-ordered array replaced by compare-and-set.
+ * A writer copies at most {@code capacity} references (nodes report about once per second);
+ * readers take the current array as a consistent snapshot with no lock and no copy. A node
+ * keeps its newest {@code capacity} rows by device time, so a late arrival lands in place and
+ * the oldest row drops out.
+ * <p>
+ * Encoded once: an entry keeps its JSON after the first use, so the WebSocket frames and every
+ * dashboard response that contains a measurement reuse the same bytes
+ * (see {@link RealtimeFrameEncoder}).
+ * <p>
+ * Warm-up: after startup the newest {@code capacity} rows over all nodes are loaded, which
+ * makes the all-nodes view complete. A single node is complete only once its own newest rows
+ * were read; that happens on its first request (one query, then memory). Rows committed while
+ * a warm-up query runs are merged, not lost. A node found without rows is remembered as empty
+ * for {@code recent.empty-node-ttl-ms}, so polling an unknown or silent node does not query on
+ * every request; the expiry keeps arbitrary ids in requests from piling up.
+ * <p>
+ * Only sees measurements committed by this instance; with several writers against one database
+ * disable it ({@code recent.enabled=false}).
+ */
+@Service
+@Slf4j
+public class RecentMeasurementBuffer {
+
+    /** Rows the dashboard shows as recent history; the buffer must hold at least this many. */
+    public static final int DASHBOARD_HISTORY_SIZE = 100;
+
+    private static final Comparator<Entry> NEWEST_FIRST =
+            Comparator.comparing((Entry entry) -> entry.row().time())
+                    .thenComparing(entry -> entry.row().id())
+                    .reversed();
+
+    private static final NodeBuffer EMPTY = new NodeBuffer(new Entry[0], null, false);
+
+    /** Remembered empty nodes above which expired ones are pruned. */
+    private static final int EMPTY_NODES_PRUNE_SIZE = 1024;
+
+    /**
+     * A buffered measurement and its JSON, encoded on first use and then shared by every
+     * broadcast and dashboard response that contains it.
+     */
+    public static final class Entry {
+
+        private final MeasurementHistoryRow row;
+        private volatile byte[] json;
+
+        Entry(MeasurementHistoryRow row) {
+            this.row = row;
+        }
+
+        public MeasurementHistoryRow row() {
+            return row;
+        }
+
+        /** Cached JSON of the row; concurrent first calls may both encode, to the same bytes. */
+        public byte[] json(Function<MeasurementHistoryRow, byte[]> encoder) {
+            byte[] encoded = json;
+            if (encoded == null) {
+                encoded = encoder.apply(row);
+                json = encoded;
+            }
+            return encoded;
+        }
+    }
+
+    /**
+     * Raw waveforms of a node's newest measurement (null when the device sent none) and the JSON
+     * of the waveforms shown for it, encoded on first use.
+     */
+    public static final class LatestWaveforms {
+
+        private final long measurementId;
+        private final double[] voltage;
+        private final double[] current;
+        private volatile byte[] json;
+
+        LatestWaveforms(long measurementId, double[] voltage, double[] current) {
+            this.measurementId = measurementId;
+            this.voltage = voltage;
+            this.current = current;
+        }
+
+        public long measurementId() {
+            return measurementId;
+        }
+
+        public double[] voltage() {
+            return voltage;
+        }
+
+        public double[] current() {
+            return current;
+        }
+
+        /** Cached JSON of the waveforms; concurrent first calls may both encode, to the same bytes. */
+        public byte[] json(Supplier<byte[]> encoder) {
+            byte[] encoded = json;
+            if (encoded == null) {
+                encoded = encoder.get();
+                json = encoded;
+            }
+            return encoded;
+        }
+    }
+
+    /**
+     * Newest entries of one node and the waveforms of entries[0]; never mutated.
+     *
+     * @param complete the node's newest rows were read from the database, so nothing newer is missing
+     */
+    private record NodeBuffer(Entry[] entries, LatestWaveforms latestWaveforms, boolean complete) {
+
+        MeasurementHistoryRow latest() {
+            return entries.length > 0 ? entries[0].row() : null;
+        }
+    }
+
+    /** Newest entries of a node (or of all nodes) and the waveforms of the first one. */
+    public record View(List<Entry> entries, LatestWaveforms latestWaveforms) {
+
+        public MeasurementHistoryRow latest() {
+            return entries.get(0).row();
+        }
+
+        public List<MeasurementHistoryRow> rows() {
+            return entries.stream().map(Entry::row).toList();
+        }
+    }
+
+    private final MeasurementRepository repository;
+    private final MeasurementWaveformRepository waveformRepository;
+    private final boolean enabled;
+    private final int capacity;
+    private final long emptyNodeTtlNanos;
+
+    private final Map<String, AtomicReference<NodeBuffer>> nodes = new ConcurrentHashMap<>();
+    /** Nodes whose warm-up found no rows: key → System.nanoTime() the answer expires. */
+    private final Map<String, Long> emptyNodes = new ConcurrentHashMap<>();
+    private final Object warmUpLock = new Object();
+
+    /** The union of node buffers holds the newest {@code capacity} rows over all nodes. */
+    private volatile boolean allNodesComplete;
+
+    public RecentMeasurementBuffer(MeasurementRepository repository,
+                                   MeasurementWaveformRepository waveformRepository,
+                                   @Value("${recent.enabled:true}") boolean enabled,
+                                   @Value("${recent.capacity:120}") int capacity,
+                                   @Value("${recent.empty-node-ttl-ms:5000}") long emptyNodeTtlMs) {
+        if (capacity < DASHBOARD_HISTORY_SIZE) {
+            throw new IllegalArgumentException("recent.capacity must be at least " + DASHBOARD_HISTORY_SIZE
+                    + ", got: " + capacity);
+        }
+        this.repository = repository;
+        this.waveformRepository = waveformRepository;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.emptyNodeTtlNanos = TimeUnit.MILLISECONDS.toNanos(emptyNodeTtlMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            warmUpAllNodes();
+        } catch (DataAccessException e) {
+            // Retried by the first all-nodes read
+            log.warn("Recent measurements warm-up failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Adds every committed valid measurement with its raw waveforms (runs on the ingest writer
+     * or HTTP thread).
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMeasurementSaved(MeasurementSavedEvent event) {
+        Measurement measurement = event.getMeasurement();
+        if (!enabled || !Boolean.TRUE.equals(measurement.getIsValid())) {
+            return;
+        }
+        MeasurementHistoryRow row = MeasurementHistoryRow.of(measurement);
+        merge(key(row.sensorId()), row, List.of(row), measurement.getWaveformV(), measurement.getWaveformI(), false);
+    }
+
+    /**
+     * Newest {@code limit} valid measurements of a node, or of all nodes, newest first.
+     * <p>
+     * Reads the database once per node (and once for all nodes if the startup warm-up failed);
+     * every later call is served from memory.
+     *
+     * @param sensorId node to query, or null for all nodes
+     * @return empty when there are no valid measurements
+     */
+    public Optional<View> get(String sensorId, int limit) {
+        if (limit < 1 || limit > capacity) {
+            throw new IllegalArgumentException("limit must be between 1 and " + capacity + ", got: " + limit);
+        }
+        if (sensorId == null) {
+            if (!allNodesComplete) {
+                warmUpAllNodes();
+            }
+            return allNodesView(limit);
+        }
+        NodeBuffer buffer = current(sensorId);
+        if (!buffer.complete() && !isKnownEmpty(sensorId)) {
+            warmUpNode(sensorId);
+            buffer = current(sensorId);
+        }
+        if (buffer.entries().length == 0) {
+            return Optional.empty();
+        }
+        List<Entry> entries = Arrays.asList(buffer.entries());
+        return Optional.of(new View(Collections.unmodifiableList(entries.subList(0, Math.min(limit, entries.size()))),
+                buffer.latestWaveforms()));
+    }
+
+    /**
+     * The buffered entry of a measurement, without loading anything; empty if the measurement
+     * is not (or no longer) among its node's newest.
+     */
+    public Optional<Entry> find(String sensorId, long measurementId) {
+        for (Entry entry : current(sensorId).entries()) {
+            if (entry.row().id() == measurementId) {
+                return Optional.of(entry);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** The waveforms of a measurement if it is its node's newest, without loading anything. */
+    public Optional<LatestWaveforms> findLatestWaveforms(String sensorId, long measurementId) {
+        LatestWaveforms waveforms = current(sensorId).latestWaveforms();
+        return waveforms != null && waveforms.measurementId() == measurementId
+                ? Optional.of(waveforms)
+                : Optional.empty();
+    }
+
+    private Optional<View> allNodesView(int limit) {
+        List<NodeBuffer> buffers = new ArrayList<>(nodes.size());
+        for (AtomicReference<NodeBuffer> buffer : nodes.values()) {
+            buffers.add(buffer.get());
+        }
+        // Every node buffer is newest first: merge the heads
+        int[] positions = new int[buffers.size()];
+        List<Entry> entries = new ArrayList<>(limit);
+        NodeBuffer newestNode = null;
+        while (entries.size() < limit) {
+            int best = -1;
+            for (int i = 0; i < buffers.size(); i++) {
+                Entry[] nodeEntries = buffers.get(i).entries();
+                if (positions[i] < nodeEntries.length && (best < 0
+                        || NEWEST_FIRST.compare(nodeEntries[positions[i]], buffers.get(best).entries()[positions[best]]) < 0)) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            if (entries.isEmpty()) {
+                newestNode = buffers.get(best);
+            }
+            entries.add(buffers.get(best).entries()[positions[best]++]);
+        }
+        if (newestNode == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new View(Collections.unmodifiableList(entries), newestNode.latestWaveforms()));
+    }
+
+    /**
+     * Loads the newest rows over all nodes; together with the rows added since, each node
+     * buffer then holds every row of the all-nodes newest {@code capacity}.
+     */
+    void warmUpAllNodes() {
+        synchronized (warmUpLock) {
+            if (allNodesComplete) {
+                return;
+            }
+            List<MeasurementHistoryRow> rows = repository.findRecentRows(
+                    PageRequest.of(0, capacity, Sort.by("time").descending()));
+            Map<String, List<MeasurementHistoryRow>> byNode = new HashMap<>();
+            for (MeasurementHistoryRow row : rows) {
+                byNode.computeIfAbsent(key(row.sensorId()), k -> new ArrayList<>()).add(row);
+            }
+            MeasurementHistoryRow newest = rows.isEmpty() ? null : rows.get(0);
+            Optional<MeasurementWaveform> waveform = loadWaveform(newest);
+            for (Map.Entry<String, List<MeasurementHistoryRow>> entry : byNode.entrySet()) {
+                // Only the overall newest row's waveforms are loaded here; other nodes get theirs
+                // with their own warm-up or next measurement
+                List<MeasurementHistoryRow> nodeRows = entry.getValue();
+                boolean withWaveform = nodeRows.get(0) == newest;
+                merge(entry.getKey(), nodeRows.get(0), nodeRows,
+                        withWaveform ? waveform.map(MeasurementWaveform::getWaveformV).orElse(null) : null,
+                        withWaveform ? waveform.map(MeasurementWaveform::getWaveformI).orElse(null) : null,
+                        false);
+            }
+            allNodesComplete = true;
+            log.info("Recent measurements loaded: {} rows of {} nodes", rows.size(), byNode.size());
+        }
+    }
+
+    private void warmUpNode(String sensorId) {
+        List<MeasurementHistoryRow> rows = repository.findRecentRowsBySensorId(sensorId,
+                PageRequest.of(0, capacity, Sort.by("time").descending()));
+        if (rows.isEmpty()) {
+            // Rows committed from now on are merged as usual, so the buffer stays exact
+            rememberEmpty(sensorId);
+            return;
+        }
+        MeasurementHistoryRow newest = rows.get(0);
+        Optional<MeasurementWaveform> waveform = loadWaveform(newest);
+        merge(key(sensorId), newest, rows, waveform.map(MeasurementWaveform::getWaveformV).orElse(null),
+                waveform.map(MeasurementWaveform::getWaveformI).orElse(null), true);
+    }
+
+    /** True if the node's warm-up found no rows less than the TTL ago. */
+    private boolean isKnownEmpty(String sensorId) {
+        Long expiresAt = emptyNodes.get(key(sensorId));
+        return expiresAt != null && expiresAt - System.nanoTime() > 0;
+    }
+
+    private void rememberEmpty(String sensorId) {
+        long now = System.nanoTime();
+        if (emptyNodes.size() >= EMPTY_NODES_PRUNE_SIZE) {
+            emptyNodes.values().removeIf(expiresAt -> expiresAt - now <= 0);
+        }
+        emptyNodes.put(key(sensorId), now + emptyNodeTtlNanos);
+    }
+
+    private Optional<MeasurementWaveform> loadWaveform(MeasurementHistoryRow row) {
+        return row == null
+                ? Optional.empty()
+                : waveformRepository.findByMeasurementIdAndTime(row.id(), row.time());
+    }
+
+    /**
+     * Merges rows into a node buffer (compare-and-set, retried on a concurrent change): keeps the
+     * newest {@code capacity} distinct rows and the waveforms that belong to the newest one.
+     *
+     * @param withWaveforms the row the given waveforms belong to (null when there are none)
+     */
+    private void merge(String key, MeasurementHistoryRow withWaveforms, List<MeasurementHistoryRow> added,
+                       double[] waveformV, double[] waveformI, boolean complete) {
+        AtomicReference<NodeBuffer> reference = buffer(key);
+        while (true) {
+            NodeBuffer current = reference.get();
+            NodeBuffer updated = merged(current, withWaveforms, added, waveformV, waveformI, complete);
+            if (reference.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    private NodeBuffer merged(NodeBuffer current, MeasurementHistoryRow withWaveforms,
+                              List<MeasurementHistoryRow> added, double[] waveformV, double[] waveformI,
+                              boolean complete) {
+        List<Entry> entries = new ArrayList<>(current.entries().length + added.size());
+        entries.addAll(Arrays.asList(current.entries()));
+        for (MeasurementHistoryRow row : added) {
+            if (!containsId(current.entries(), row.id())) {
+                entries.add(new Entry(row));
+            }
+        }
+        entries.sort(NEWEST_FIRST);
+        Entry[] kept = entries.subList(0, Math.min(capacity, entries.size())).toArray(Entry[]::new);
+
+        MeasurementHistoryRow newest = kept.length > 0 ? kept[0].row() : null;
+        LatestWaveforms latestWaveforms = null;
+        if (newest != null && withWaveforms != null && newest.id().equals(withWaveforms.id())
+                && (waveformV != null || waveformI != null)) {
+            latestWaveforms = new LatestWaveforms(newest.id(), waveformV, waveformI);
+        } else if (newest != null && current.latest() != null && newest.id().equals(current.latest().id())) {
+            // Same newest measurement: keep the object and its cached JSON
+            latestWaveforms = current.latestWaveforms();
+        } else if (newest != null) {
+            latestWaveforms = new LatestWaveforms(newest.id(), null, null);
+        }
+        return new NodeBuffer(kept, latestWaveforms, current.complete() || complete);
+    }
+
+    private static boolean containsId(Entry[] entries, Long id) {
+        for (Entry entry : entries) {
+            if (entry.row().id().equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private NodeBuffer current(String sensorId) {
+        AtomicReference<NodeBuffer> reference = nodes.get(key(sensorId));
+        return reference != null ? reference.get() : EMPTY;
+    }
+
+    private AtomicReference<NodeBuffer> buffer(String sensorId) {
+        return nodes.computeIfAbsent(key(sensorId), k -> new AtomicReference<>(EMPTY));
+    }
+
+    private static String key(String sensorId) {
+        return sensorId != null ? sensorId : "";
+    }
+}
@@ -5,19 +5,17 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Predicate;
 
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 
 import com.dkowalczyk.scadasystem.model.dto.StatsDTO;
 import com.dkowalczyk.scadasystem.model.entity.DailyStats;
-import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementStatsRow;
 import com.dkowalczyk.scadasystem.repository.DailyStatsRepository;
 import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
 import com.dkowalczyk.scadasystem.util.Constants;
@@ -95,81 +93,80 @@ public class StatsService {
         Instant startOfDay = date.atStartOfDay(ZoneId.systemDefault()).toInstant();
         Instant endOfDay = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
 
-        List<Measurement> measurements =
-                measurementRepository.findByIsValidTrueAndTimeBetween(startOfDay, endOfDay, Pageable.unpaged());
+        // WHY PROJECTION: a day is up to 28,800 rows per node; only six scalars are needed,
+        // so harmonics arrays and entity management are skipped. Sorted by time in the query.
+        List<MeasurementStatsRow> measurements = measurementRepository.findStatsRows(startOfDay, endOfDay);
 
         if (measurements.isEmpty()) {
             return StatsDTO.builder().date(date).build();
         }
 
         // === Voltage Stats ===
-        List<Double> voltages = measurements.stream().map(Measurement::getVoltageRms).toList();
+        List<Double> voltages = measurements.stream().map(MeasurementStatsRow::voltageRms).toList();
         double avgVoltage = MathUtils.average(voltages);
         double minVoltage = MathUtils.min(voltages);
         double maxVoltage = MathUtils.max(voltages);
         double stdDevVoltage = MathUtils.standardDeviation(voltages, avgVoltage);
 
         // === Active Power Stats ===
-        List<Double> powerActive = measurements.stream().map(Measurement::getPowerActive).toList();
+        List<Double> powerActive = measurements.stream().map(MeasurementStatsRow::powerActive).toList();
         double avgPowerActive = MathUtils.average(powerActive);
         double minPowerActive = MathUtils.min(powerActive);
         double maxPowerActive = MathUtils.max(powerActive);
 
         // === Frequency Stats ===
-        List<Double> frequency = measurements.stream().map(Measurement::getFrequency).toList();
+        List<Double> frequency = measurements.stream().map(MeasurementStatsRow::frequency).toList();
         double avgFrequency = MathUtils.average(frequency);
         double minFrequency = MathUtils.min(frequency);
         double maxFrequency = MathUtils.max(frequency);
 
         // === Power Factor Stats ===
         List<Double> powerFactor = measurements.stream()
-                .map(Measurement::getPowerFactor)
+                .map(MeasurementStatsRow::powerFactor)
                 .filter(Objects::nonNull)
                 .toList();
         double avgPowerFactor = MathUtils.average(powerFactor);
         double minPowerFactor = MathUtils.min(powerFactor);
 
         // === Energy Calculation ===
-        List<Measurement> sortedMeasurements = measurements.stream()
-                .sorted(Comparator.comparing(Measurement::getTime))
-                .toList();
-        double totalEnergyKwh = MathUtils.calculateEnergy(sortedMeasurements);
+        double totalEnergyKwh = MathUtils.calculateEnergy(
+                measurements, MeasurementStatsRow::time, MeasurementStatsRow::powerActive);
 
         // === Event Counters (IEC 61000-4-30 compliant) ===
         // Events must have minimum duration to be counted as valid
         int voltageSagCount = countEventsWithDuration(
-                sortedMeasurements,
-                m -> m.getVoltageRms() < Constants.VOLTAGE_SAG_THRESHOLD,
+                measurements,
+                m -> m.voltageRms() < Constants.VOLTAGE_SAG_THRESHOLD,
                 Constants.SAG_MIN_DURATION_MS / 1000.0
         );
 
         int voltageSwellCount = countEventsWithDuration(
-                sortedMeasurements,
-                m -> m.getVoltageRms() > Constants.VOLTAGE_SWELL_THRESHOLD,
+                measurements,
+                m -> m.voltageRms() > Constants.VOLTAGE_SWELL_THRESHOLD,
                 Constants.SAG_MIN_DURATION_MS / 1000.0  // Same duration threshold as sag
         );
 
         int interruptionCount = countEventsWithDuration(
-                sortedMeasurements,
-                m -> m.getVoltageRms() < Constants.VOLTAGE_INTERRUPTION_THRESHOLD,
+                measurements,
+                m -> m.voltageRms() < Constants.VOLTAGE_INTERRUPTION_THRESHOLD,
                 Constants.VOLTAGE_INTERRUPTION_MIN_DURATION_SECONDS
         );
 
         int thdViolationsCount = countEventsWithDuration(
-                sortedMeasurements,
-                m -> m.getThdVoltage() > Constants.VOLTAGE_THD_LIMIT,
+                measurements,
+                m -> m.thdVoltage() > Constants.VOLTAGE_THD_LIMIT,
                 0.01  // 10ms minimum duration for THD violations
         );
 
         int frequencyDevCount = countEventsWithDuration(
-                sortedMeasurements,
-                m -> m.getFrequency() < Constants.FREQUENCY_MIN || m.getFrequency() > Constants.FREQUENCY_MAX,
+                measurements,
+                m -> m.frequency() < Constants.FREQUENCY_MIN || m.frequency() > Constants.FREQUENCY_MAX,
                 0.01  // 10ms minimum duration
         );
 
         int powerFactorPenaltyCount = countEventsWithDuration(
-                sortedMeasurements,
-                m -> m.getPowerFactor() != null && m.getPowerFactor() < Constants.MIN_POWER_FACTOR,
+                measurements,
+                m -> m.powerFactor() != null && m.powerFactor() < Constants.MIN_POWER_FACTOR,
                 0.01  // 10ms minimum duration
         );
 
@@ -262,8 +259,8 @@ public class StatsService {
      * @param minDurationSeconds Minimum duration in seconds to count as valid event
      * @return Number of events meeting the duration threshold
      */
-    private int countEventsWithDuration(List<Measurement> measurements,
-                                         Predicate<Measurement> condition,
+    private int countEventsWithDuration(List<MeasurementStatsRow> measurements,
+                                         Predicate<MeasurementStatsRow> condition,
                                          double minDurationSeconds) {
         if (measurements.isEmpty()) {
             return 0;
@@ -273,15 +270,15 @@ public class StatsService {
         Instant eventStart = null;
 
         for (int i = 0; i < measurements.size(); i++) {
-            Measurement current = measurements.get(i);
+            MeasurementStatsRow current = measurements.get(i);
             boolean inEvent = condition.test(current);
 
             if (inEvent && eventStart == null) {
                 // Event starts
-                eventStart = current.getTime();
+                eventStart = current.time();
             } else if (!inEvent && eventStart != null) {
                 // Event ends - calculate duration
-                Instant eventEnd = current.getTime();
+                Instant eventEnd = current.time();
                 double durationSeconds = Duration.between(eventStart, eventEnd).toMillis() / 1000.0;
 
                 if (durationSeconds >= minDurationSeconds) {
@@ -294,8 +291,8 @@ public class StatsService {
 
         // Handle case where event is still active at end of measurements
         if (eventStart != null) {
-            Measurement lastMeasurement = measurements.get(measurements.size() - 1);
-            double durationSeconds = Duration.between(eventStart, lastMeasurement.getTime()).toMillis() / 1000.0;
+            MeasurementStatsRow lastMeasurement = measurements.get(measurements.size() - 1);
+            double durationSeconds = Duration.between(eventStart, lastMeasurement.time()).toMillis() / 1000.0;
 
             if (durationSeconds >= minDurationSeconds) {
                 eventCount++;
@@ -25,7 +25,7 @@ public class WaveformService {
      * @param phaseShift      phase shift in radians (arccos(cosPhi) for current)
      * @return waveform samples for one complete cycle
      */
-    public double[] reconstructWaveform(Double[] harmonics, double frequency, int samplesPerCycle, double phaseShift) {
+    public double[] reconstructWaveform(double[] harmonics, double frequency, int samplesPerCycle, double phaseShift) {
         // Delegate to MathUtils for the actual mathematical computation
         return MathUtils.reconstructWaveform(harmonics, frequency, samplesPerCycle, phaseShift);
     }
@@ -0,0 +1,174 @@
+package com.dkowalczyk.scadasystem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-subscriber backpressure on the client outbound channel: drops broadcast frames for a
+ * session that has too many undelivered ones and closes sessions that stay behind.
+ * <p>
+ * WHY: the simple broker fans every frame out to each session through one shared executor.
+ * A browser on a slow link made its frames pile up in that queue (and in the session's send
+ * buffer) for as long as it stayed connected, delaying and growing memory for everyone.
+ * <p>
+ * A session may have at most {@code websocket.max-pending-frames} broadcast frames queued or
+ * being written; further frames are dropped (a later one carries newer data anyway). If it
+ * stays at the limit for {@code websocket.slow-consumer-timeout-ms} it is closed with
+ * {@link CloseStatus#SESSION_NOT_RELIABLE} so the client reconnects and resubscribes.
+ * Only MESSAGE frames are dropped; CONNECTED, RECEIPT and ERROR frames always pass.
+ * <p>
+ * Registered by WebSocketConfig as outbound channel interceptor and handler decorator (the
+ * decorator keeps the sessions by id so that they can be closed).
+ */
+@Service
+@Slf4j
+public class WebSocketOutboundGuard implements ExecutorChannelInterceptor {
+
+    private static final class SessionState {
+
+        private final WebSocketSession session;
+        private final AtomicInteger pendingFrames = new AtomicInteger();
+        private final AtomicBoolean closing = new AtomicBoolean();
+        /** System.nanoTime() when the session reached the limit, 0 while below it. */
+        private volatile long fullSince;
+
+        SessionState(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+
+    private final int maxPendingFrames;
+    private final long slowConsumerTimeoutNanos;
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong slowConsumerCount = new AtomicLong();
+
+    public WebSocketOutboundGuard(@Value("${websocket.max-pending-frames:32}") int maxPendingFrames,
+                                  @Value("${websocket.slow-consumer-timeout-ms:10000}") long slowConsumerTimeoutMs) {
+        if (maxPendingFrames < 1) {
+            throw new IllegalArgumentException("websocket.max-pending-frames must be at least 1, got: " + maxPendingFrames);
+        }
+        if (slowConsumerTimeoutMs < 1) {
+            throw new IllegalArgumentException("websocket.slow-consumer-timeout-ms must be positive, got: "
+                    + slowConsumerTimeoutMs);
+        }
+        this.maxPendingFrames = maxPendingFrames;
+        this.slowConsumerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(slowConsumerTimeoutMs);
+    }
+
+    /**
+     * Wraps the STOMP WebSocket handler to track the open sessions.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), new SessionState(session));
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SessionState state = broadcastTarget(message);
+        if (state == null) {
+            return message;
+        }
+        if (state.pendingFrames.get() < maxPendingFrames) {
+            state.fullSince = 0;
+            state.pendingFrames.incrementAndGet();
+            return message;
+        }
+        droppedCount.incrementAndGet();
+        long now = System.nanoTime();
+        if (state.fullSince == 0) {
+            state.fullSince = now;
+        } else if (now - state.fullSince > slowConsumerTimeoutNanos) {
+            closeSlowConsumer(state);
+        }
+        return null;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent) {
+            release(message);
+        }
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        release(message);
+    }
+
+    private void release(Message<?> message) {
+        SessionState state = broadcastTarget(message);
+        if (state != null) {
+            state.pendingFrames.decrementAndGet();
+        }
+    }
+
+    private SessionState broadcastTarget(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return null;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId != null ? sessions.get(sessionId) : null;
+    }
+
+    private void closeSlowConsumer(SessionState state) {
+        if (!state.closing.compareAndSet(false, true)) {
+            return;
+        }
+        slowConsumerCount.incrementAndGet();
+        log.warn("Closing slow WebSocket consumer session={} ({} frames pending)",
+                state.session.getId(), state.pendingFrames.get());
+        try {
+            state.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("Closing session {} failed: {}", state.session.getId(), e.getMessage());
+        }
+    }
+
+    /** Broadcast frames dropped because their session had too many pending. */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /** Sessions closed for staying at the pending limit. */
+    public long getSlowConsumerCount() {
+        return slowConsumerCount.get();
+    }
+
+    /** Open WebSocket sessions. */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+}
@@ -1,10 +1,29 @@
 package com.dkowalczyk.scadasystem.service;
 
-import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
-import com.dkowalczyk.scadasystem.model.dto.RealtimeDashboardDTO;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for broadcasting real-time measurement data to WebSocket clients.
@@ -12,26 +31,230 @@ import org.springframework.stereotype.Service;
  * <p>Publishes dashboard updates (measurements + waveforms) to /topic/dashboard
  * for real-time frontend display. Updates sent every 6 seconds when ESP32 publishes via MQTT.
  *
+ * <p>Frames arrive already encoded (see {@link RealtimeFrameEncoder}) and are sent as they are:
+ * convertAndSend() would run them through the message converters again.
+ *
+ * <p>WHY CONFLATION: every committed measurement produced two broker sends, so with many nodes
+ * browsers got more frames than they can render and slow clients backed up the outbound
+ * channel. Frames are now held per topic and node, a newer one replacing the unsent older one,
+ * and flushed every {@code websocket.flush-interval-ms}: each subscriber gets at most one frame
+ * per topic and node per interval, always the latest. Subscribers that still fall behind are
+ * handled by {@link WebSocketOutboundGuard}.
+ *
+ * <p>WHY PER-NODE TOPICS: every frame also goes to {@code /topic/dashboard/{sensorId}} and
+ * {@code /topic/measurements/{sensorId}}, so a client showing one node no longer receives and
+ * filters every node's data. The last {@code websocket.replay.max-frames} frames sent to each
+ * destination are kept; a new subscription immediately gets the newest one (or the newest N
+ * with a {@code replay: N} header on SUBSCRIBE, {@code replay: 0} for none), so a client does
+ * not need GET /api/dashboard before the first frame arrives.
+ *
+ * <p>Dashboard frames may carry a {@link BinaryDashboardFrame}; subscriptions that negotiated
+ * binary get it instead of the JSON (see {@link BinaryFrameNegotiator}).
+ *
  * @author Bachelor Thesis - SCADA System Project
  * @since 1.0
  */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class WebSocketService {
 
+    static final String MEASUREMENTS_TOPIC = "/topic/measurements";
+    static final String DASHBOARD_TOPIC = "/topic/dashboard";
+
+    /** SUBSCRIBE header: number of retained frames to replay (default 1). */
+    static final String REPLAY_HEADER = "replay";
+
+    private record FrameKey(String destination, String sensorId) {}
+
+    /** JSON payload and, for dashboard frames, its binary form (null otherwise). */
+    private record Frame(byte[] json, BinaryDashboardFrame binary) {}
+
     private final SimpMessagingTemplate messagingTemplate;
+    private final MessageChannel clientOutboundChannel;
+    private final boolean conflationEnabled;
+    private final int replayMaxFrames;
+
+    private final Map<FrameKey, Frame> pending = new ConcurrentHashMap<>();
+    /** Last frames sent per destination, oldest first; each deque is guarded by itself. */
+    private final Map<String, Deque<Frame>> sentFrames = new ConcurrentHashMap<>();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong conflatedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong replayedCount = new AtomicLong();
+
+    public WebSocketService(SimpMessagingTemplate messagingTemplate,
+                            @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                            @Value("${websocket.conflation.enabled:true}") boolean conflationEnabled,
+                            @Value("${websocket.replay.max-frames:10}") int replayMaxFrames) {
+        if (replayMaxFrames < 0) {
+            throw new IllegalArgumentException("websocket.replay.max-frames must not be negative, got: " + replayMaxFrames);
+        }
+        this.messagingTemplate = messagingTemplate;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.conflationEnabled = conflationEnabled;
+        this.replayMaxFrames = replayMaxFrames;
+    }
 
-    /** Broadcasts simple measurement (legacy - for backward compatibility). */
-    public void broadcastMeasurement(MeasurementDTO measurement) {
-        messagingTemplate.convertAndSend("/topic/measurements", measurement);
+    /**
+     * Broadcasts simple measurement (legacy - for backward compatibility).
+     *
+     * @param sensorId    node the measurement belongs to (conflation key)
+     * @param measurement JSON of a MeasurementDTO
+     */
+    public void broadcastMeasurement(String sensorId, byte[] measurement) {
+        Frame frame = new Frame(measurement, null);
+        publish(MEASUREMENTS_TOPIC, sensorId, frame);
+        if (sensorId != null) {
+            publish(MEASUREMENTS_TOPIC + "/" + sensorId, sensorId, frame);
+        }
     }
 
     /**
      * Broadcasts real-time dashboard data with reconstructed waveforms to /topic/dashboard.
      *
-     * @param dashboard measurement values + voltage/current waveforms for frontend graph display
+     * @param sensorId  node the measurement belongs to (conflation key)
+     * @param dashboard JSON of a RealtimeDashboardDTO (measurement values + voltage/current waveforms)
+     * @param binary    the same frame for binary subscriptions, or null to send JSON to all
+     */
+    public void broadcastRealtimeDashboard(String sensorId, byte[] dashboard, BinaryDashboardFrame binary) {
+        Frame frame = new Frame(dashboard, binary);
+        publish(DASHBOARD_TOPIC, sensorId, frame);
+        if (sensorId != null) {
+            publish(DASHBOARD_TOPIC + "/" + sensorId, sensorId, frame);
+        }
+    }
+
+    private void publish(String destination, String sensorId, Frame frame) {
+        publishedCount.incrementAndGet();
+        if (!conflationEnabled) {
+            send(destination, frame);
+            return;
+        }
+        if (pending.put(new FrameKey(destination, sensorId != null ? sensorId : ""), frame) != null) {
+            conflatedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Sends the latest pending frame of every topic and node.
      */
-    public void broadcastRealtimeDashboard(RealtimeDashboardDTO dashboard) {
-        messagingTemplate.convertAndSend("/topic/dashboard", dashboard);
+    @Scheduled(fixedRateString = "${websocket.flush-interval-ms:250}")
+    public void flush() {
+        for (FrameKey key : pending.keySet()) {
+            Frame frame = pending.remove(key);
+            if (frame != null) {
+                send(key.destination(), frame);
+            }
+        }
+    }
+
+    private void send(String destination, Frame frame) {
+        Message<byte[]> message = message(SimpMessageHeaderAccessor.create(), frame);
+        try {
+            messagingTemplate.send(destination, message);
+            sentCount.incrementAndGet();
+            retain(destination, frame);
+        } catch (MessagingException e) {
+            // Broker channel refused the frame: the next one of this topic and node replaces it
+            failedCount.incrementAndGet();
+            log.warn("Failed to broadcast to {}: {}", destination, e.getMessage());
+        }
+    }
+
+    private static Message<byte[]> message(SimpMessageHeaderAccessor accessor, Frame frame) {
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (frame.binary() != null) {
+            accessor.setHeader(BinaryDashboardFrame.HEADER, frame.binary());
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(frame.json(), accessor.getMessageHeaders());
+    }
+
+    private void retain(String destination, Frame frame) {
+        if (replayMaxFrames == 0) {
+            return;
+        }
+        Deque<Frame> frames = sentFrames.computeIfAbsent(destination, d -> new ArrayDeque<>(replayMaxFrames));
+        synchronized (frames) {
+            if (frames.size() == replayMaxFrames) {
+                frames.removeFirst();
+            }
+            frames.addLast(frame);
+        }
+    }
+
+    /**
+     * Sends the retained frames of the destination to a new subscription only, oldest first.
+     * <p>
+     * Runs before the broker registers the subscription, so a broadcast racing with it can
+     * arrive before the replayed frames; clients order frames by measurement time anyway.
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor subscribe = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = subscribe.getDestination();
+        Deque<Frame> frames = destination != null ? sentFrames.get(destination) : null;
+        int count = replayCount(subscribe.getFirstNativeHeader(REPLAY_HEADER));
+        if (frames == null || count == 0) {
+            return;
+        }
+        List<Frame> replay;
+        synchronized (frames) {
+            replay = new ArrayList<>(frames);
+        }
+        for (Frame frame : replay.subList(Math.max(0, replay.size() - count), replay.size())) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setSessionId(subscribe.getSessionId());
+            accessor.setSubscriptionId(subscribe.getSubscriptionId());
+            accessor.setDestination(destination);
+            clientOutboundChannel.send(message(accessor, frame));
+            replayedCount.incrementAndGet();
+        }
+    }
+
+    private int replayCount(String header) {
+        if (header == null) {
+            return Math.min(1, replayMaxFrames);
+        }
+        try {
+            return Math.max(0, Math.min(replayMaxFrames, Integer.parseInt(header.trim())));
+        } catch (NumberFormatException e) {
+            return Math.min(1, replayMaxFrames);
+        }
+    }
+
+    /** Frames handed to this service. */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /** Frames passed to the broker. */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /** Frames replaced by a newer frame of the same topic and node before they were sent. */
+    public long getConflatedCount() {
+        return conflatedCount.get();
+    }
+
+    /** Frames the broker channel refused. */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /** Retained frames sent to new subscriptions. */
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    /** Topic/node pairs with a frame waiting for the next flush. */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public boolean isConflationEnabled() {
+        return conflationEnabled;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,315 @@
+package com.dkowalczyk.scadasystem.util;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Bit-level time-series compression after Facebook's Gorilla paper (Pelkonen et al., VLDB 2015),
+ * used by the in-memory hot tier.
+ * <p>
+ * WHY: measurements arrive at a fixed cadence and most values change slowly. Delta-of-delta
+ * timestamps take 1 bit per sample at a steady cadence, and XOR-ing a double with its
+ * predecessor leaves a short run of meaningful bits (0 bits for a repeated value), so a
+ * column of 12 scalars plus harmonics shrinks to a fraction of its raw 8 bytes per value.
+ * <p>
+ * Encodings (one bit stream per column, read back in insertion order):
+ * <pre>
+ * Delta-of-delta (longs: epoch millis, ids), first value raw 64 bits, then D = delta - previous delta:
+ *   '0'                  D = 0
+ *   '10'   + 7 bits      D in [-64, 63]
+ *   '110'  + 9 bits      D in [-256, 255]
+ *   '1110' + 12 bits     D in [-2048, 2047]
+ *   '1111' + 64 bits     otherwise
+ * XOR (doubles), first value raw 64 bits, then X = bits XOR previous bits:
+ *   '0'                                        X = 0
+ *   '10' + meaningful bits                     fits the previous leading/trailing zero window
+ *   '11' + 5 bits leading zeros + 6 bits (length - 1) + meaningful bits
+ * </pre>
+ * Nullable doubles are stored as {@link #NULL_BITS}, a NaN payload no computation produces.
+ * <p>
+ * Not thread-safe; callers synchronize writers with readers of the same stream.
+ */
+public final class GorillaCodec {
+
+    /** Raw bits standing for null in XOR columns. */
+    public static final long NULL_BITS = 0x7FF8_0000_0000_0BADL;
+
+    private GorillaCodec() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+
+    /** Append-only bit buffer, most significant bit first. */
+    public static final class BitWriter {
+
+        private long[] words = new long[4];
+        private long bitCount;
+
+        public void writeBit(boolean bit) {
+            writeBits(bit ? 1 : 0, 1);
+        }
+
+        /** Writes the lowest {@code n} bits of value (1 &lt;= n &lt;= 64). */
+        public void writeBits(long value, int n) {
+            long bits = n == 64 ? value : value & ((1L << n) - 1);
+            int index = (int) (bitCount >>> 6);
+            int free = 64 - (int) (bitCount & 63);
+            if (index + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            if (n <= free) {
+                words[index] |= bits << (free - n);
+            } else {
+                int rest = n - free;
+                words[index] |= bits >>> rest;
+                words[index + 1] |= bits << (64 - rest);
+            }
+            bitCount += n;
+        }
+
+        public long bitCount() {
+            return bitCount;
+        }
+
+        /** Bytes held by the buffer (including unused capacity). */
+        public long sizeBytes() {
+            return words.length * 8L;
+        }
+
+        /** Drops unused capacity; call when no more bits are written. */
+        public void trim() {
+            words = Arrays.copyOf(words, (int) ((bitCount + 63) >>> 6) + 1);
+        }
+
+        /** Reader over the bits written so far. */
+        public BitReader reader() {
+            return new BitReader(LongBuffer.wrap(words));
+        }
+
+        /** Copy of the used words, e.g. for writing the stream to a file. */
+        public long[] words() {
+            return Arrays.copyOf(words, (int) ((bitCount + 63) >>> 6));
+        }
+    }
+
+    /**
+     * Sequential reader of a {@link BitWriter} buffer, or of words stored elsewhere
+     * (a memory-mapped file region).
+     */
+    public static final class BitReader {
+
+        private final LongBuffer words;
+        private long position;
+
+        public BitReader(LongBuffer words) {
+            this.words = words;
+        }
+
+        public boolean readBit() {
+            return readBits(1) != 0;
+        }
+
+        /** Reads {@code n} bits (1 &lt;= n &lt;= 64) as an unsigned value. */
+        public long readBits(int n) {
+            int index = (int) (position >>> 6);
+            int free = 64 - (int) (position & 63);
+            long result;
+            if (n <= free) {
+                result = (words.get(index) >>> (free - n)) & mask(n);
+            } else {
+                int rest = n - free;
+                result = ((words.get(index) & mask(free)) << rest) | (words.get(index + 1) >>> (64 - rest));
+            }
+            position += n;
+            return result;
+        }
+
+        private static long mask(int n) {
+            return n == 64 ? -1L : (1L << n) - 1;
+        }
+    }
+
+    /** Delta-of-delta encoder for longs (timestamps, ids). */
+    public static final class DeltaOfDeltaEncoder {
+
+        private final BitWriter out = new BitWriter();
+        private boolean first = true;
+        private long previous;
+        private long previousDelta;
+
+        public void add(long value) {
+            if (first) {
+                out.writeBits(value, 64);
+                first = false;
+            } else {
+                long delta = value - previous;
+                long deltaOfDelta = delta - previousDelta;
+                if (deltaOfDelta == 0) {
+                    out.writeBit(false);
+                } else if (fits(deltaOfDelta, 7)) {
+                    out.writeBits(0b10, 2);
+                    out.writeBits(deltaOfDelta, 7);
+                } else if (fits(deltaOfDelta, 9)) {
+                    out.writeBits(0b110, 3);
+                    out.writeBits(deltaOfDelta, 9);
+                } else if (fits(deltaOfDelta, 12)) {
+                    out.writeBits(0b1110, 4);
+                    out.writeBits(deltaOfDelta, 12);
+                } else {
+                    out.writeBits(0b1111, 4);
+                    out.writeBits(deltaOfDelta, 64);
+                }
+                previousDelta = delta;
+            }
+            previous = value;
+        }
+
+        public BitWriter bits() {
+            return out;
+        }
+
+        public DeltaOfDeltaDecoder decoder() {
+            return new DeltaOfDeltaDecoder(out.reader());
+        }
+
+        private static boolean fits(long value, int bits) {
+            return value >= -(1L << (bits - 1)) && value < (1L << (bits - 1));
+        }
+    }
+
+    public static final class DeltaOfDeltaDecoder {
+
+        private final BitReader in;
+        private boolean first = true;
+        private long previous;
+        private long previousDelta;
+
+        public DeltaOfDeltaDecoder(BitReader in) {
+            this.in = in;
+        }
+
+        public long next() {
+            if (first) {
+                first = false;
+                previous = in.readBits(64);
+                return previous;
+            }
+            long deltaOfDelta;
+            if (!in.readBit()) {
+                deltaOfDelta = 0;
+            } else if (!in.readBit()) {
+                deltaOfDelta = signExtend(in.readBits(7), 7);
+            } else if (!in.readBit()) {
+                deltaOfDelta = signExtend(in.readBits(9), 9);
+            } else if (!in.readBit()) {
+                deltaOfDelta = signExtend(in.readBits(12), 12);
+            } else {
+                deltaOfDelta = in.readBits(64);
+            }
+            previousDelta += deltaOfDelta;
+            previous += previousDelta;
+            return previous;
+        }
+
+        private static long signExtend(long value, int bits) {
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+
+    /** XOR encoder for doubles; null is stored as {@link #NULL_BITS}. */
+    public static final class XorEncoder {
+
+        private final BitWriter out = new BitWriter();
+        private boolean first = true;
+        private long previous;
+        private int previousLeading = -1;
+        private int previousTrailing;
+
+        public void add(Double value) {
+            addBits(value != null ? Double.doubleToRawLongBits(value) : NULL_BITS);
+        }
+
+        public void add(double value) {
+            addBits(Double.doubleToRawLongBits(value));
+        }
+
+        private void addBits(long bits) {
+            if (first) {
+                out.writeBits(bits, 64);
+                first = false;
+                previous = bits;
+                return;
+            }
+            long xor = bits ^ previous;
+            if (xor == 0) {
+                out.writeBit(false);
+            } else {
+                out.writeBit(true);
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                    out.writeBit(false);
+                    out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int meaningful = 64 - leading - trailing;
+                    out.writeBit(true);
+                    out.writeBits(leading, 5);
+                    out.writeBits(meaningful - 1, 6);
+                    out.writeBits(xor >>> trailing, meaningful);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previous = bits;
+        }
+
+        public BitWriter bits() {
+            return out;
+        }
+
+        public XorDecoder decoder() {
+            return new XorDecoder(out.reader());
+        }
+    }
+
+    public static final class XorDecoder {
+
+        private final BitReader in;
+        private boolean first = true;
+        private long previous;
+        private int previousLeading;
+        private int previousTrailing;
+
+        public XorDecoder(BitReader in) {
+            this.in = in;
+        }
+
+        /** Next value, null if a null was stored. */
+        public Double nextNullable() {
+            long bits = nextBits();
+            return bits == NULL_BITS ? null : Double.longBitsToDouble(bits);
+        }
+
+        public double next() {
+            return Double.longBitsToDouble(nextBits());
+        }
+
+        private long nextBits() {
+            if (first) {
+                first = false;
+                previous = in.readBits(64);
+                return previous;
+            }
+            if (!in.readBit()) {
+                return previous;
+            }
+            if (in.readBit()) {
+                previousLeading = (int) in.readBits(5);
+                int meaningful = (int) in.readBits(6) + 1;
+                previousTrailing = 64 - previousLeading - meaningful;
+            }
+            int meaningful = 64 - previousLeading - previousTrailing;
+            previous ^= in.readBits(meaningful) << previousTrailing;
+            return previous;
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.dkowalczyk.scadasystem.util;
 import com.dkowalczyk.scadasystem.model.entity.Measurement;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 public class MathUtils {
 
@@ -73,19 +76,32 @@ public class MathUtils {
      * @return Total energy in kWh
      */
     public static double calculateEnergy(List<Measurement> measurements) {
-        if (measurements == null || measurements.size() < 2) {
+        return calculateEnergy(measurements, Measurement::getTime, Measurement::getPowerActive);
+    }
+
+    /**
+     * Trapezoidal energy integration over any time-sorted samples (entities or projections).
+     *
+     * @param samples     samples sorted by time
+     * @param time        sample timestamp
+     * @param powerActive sample active power in W
+     * @return Total energy in kWh
+     */
+    public static <T> double calculateEnergy(List<T> samples, Function<T, Instant> time,
+                                             ToDoubleFunction<T> powerActive) {
+        if (samples == null || samples.size() < 2) {
             return 0.0;
         }
 
         double totalEnergyWattSeconds = 0.0;
 
-        for (int i = 0; i < measurements.size() - 1; i++) {
-            Measurement current = measurements.get(i);
-            Measurement next = measurements.get(i + 1);
+        for (int i = 0; i < samples.size() - 1; i++) {
+            T current = samples.get(i);
+            T next = samples.get(i + 1);
 
-            double avgPower = (current.getPowerActive() + next.getPowerActive()) / 2.0;
+            double avgPower = (powerActive.applyAsDouble(current) + powerActive.applyAsDouble(next)) / 2.0;
 
-            Duration interval = Duration.between(current.getTime(), next.getTime());
+            Duration interval = Duration.between(time.apply(current), time.apply(next));
             double deltaTimeSeconds = interval.toMillis() / 1000.0;
 
             // Energy for this segment (watt-seconds)
@@ -121,7 +137,7 @@ public class MathUtils {
      *         -> returns samples representing voltage waveform over one cycle
      *         (20 ms at 50 Hz)
      */
-    public static double[] reconstructWaveform(Double[] harmonics, double frequency, int samplesPerCycle,
+    public static double[] reconstructWaveform(double[] harmonics, double frequency, int samplesPerCycle,
             double phaseShift) {
         if (harmonics == null || harmonics.length == 0) {
             return new double[samplesPerCycle];
@@ -136,9 +152,6 @@ public class MathUtils {
             double sum = 0;
 
             for (int h = 0; h < harmonics.length; h++) {
-                if (harmonics[h] == null)
-                    continue;
-
                 int harmonicOrder = h + 1;
                 double amplitude = harmonics[h] * Math.sqrt(2);
 
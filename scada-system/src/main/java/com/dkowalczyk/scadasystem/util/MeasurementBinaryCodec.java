@@ -0,0 +1,266 @@
+package com.dkowalczyk.scadasystem.util;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Compact binary MQTT payload format (topic: scada/measurements/bin/{sensorId}).
+ * <p>
+ * WHY: a JSON message with 2 x 25 harmonics and 2 x ~400 waveform samples is mostly decimal
+ * text, which is large on the wire and slow to parse. The binary format carries the same
+ * fields as {@link MeasurementRequest} as float32 values (waveforms optionally as scaled int16),
+ * little-endian to match the ESP32 memory layout.
+ * <p>
+ * Layout, version 1 (offsets in bytes, all values little-endian):
+ * <pre>
+ *  0  2   magic 'S' 'M'
+ *  2  1   version (1)
+ *  3  1   flags: bit0 = timestamp present, bit1 = waveforms as scaled int16 (else float32)
+ *  4  8   timestamp (int64, epoch seconds)
+ * 12 40   10 x float32: v_rms, i_rms, p_act, power_apparent, power_reactive,
+ *         power_distortion, power_factor, freq, thd_v, thd_i (NaN = absent)
+ * 52  1   harm_v count (uint8)
+ * 53  1   harm_i count (uint8)
+ * 54  2   waveform_v count (uint16)
+ * 56  2   waveform_i count (uint16)
+ * 58  4   waveform_v scale (float32, int16 encoding only: value = raw * scale)
+ * 62  4   waveform_i scale (float32)
+ * 66      harm_v float32[], harm_i float32[], waveform_v[], waveform_i[]
+ * </pre>
+ * A count of 0 means the array is absent (null in MeasurementRequest).
+ */
+public final class MeasurementBinaryCodec {
+
+    public static final byte MAGIC_0 = 'S';
+    public static final byte MAGIC_1 = 'M';
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 66;
+
+    private static final int FLAG_TIMESTAMP = 0x01;
+    private static final int FLAG_INT16_WAVEFORMS = 0x02;
+
+    private static final int MAX_HARMONICS = 0xFF;
+    private static final int MAX_WAVEFORM_SAMPLES = 0xFFFF;
+
+    /**
+     * Waveform sample encoding.
+     * <p>
+     * FLOAT32: 4 bytes per sample, full ADC resolution.
+     * INT16: 2 bytes per sample, scale = max|x| / 32767 (below ESP32 12-bit ADC noise).
+     */
+    public enum SampleEncoding {
+        FLOAT32,
+        INT16
+    }
+
+    private MeasurementBinaryCodec() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Decodes a binary payload into a MeasurementRequest.
+     * <p>
+     * Scalars and harmonics are converted via their shortest float representation
+     * (230.1f becomes 230.1, not 230.10000610351562), so the same reading is stored, exported
+     * and shown with the same values whichever topic it came on. This costs one short string
+     * per value (about 60 per message). Waveforms hold most of the values and are widened
+     * directly.
+     *
+     * @throws IllegalArgumentException if the payload is not a valid version 1 message
+     */
+    public static MeasurementRequest decode(byte[] payload) {
+        if (payload == null || payload.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Binary payload too short: "
+                    + (payload == null ? 0 : payload.length) + " bytes, header needs " + HEADER_SIZE);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.get() != MAGIC_0 || buffer.get() != MAGIC_1) {
+            throw new IllegalArgumentException("Invalid binary payload magic");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary payload version: " + version);
+        }
+        int flags = buffer.get() & 0xFF;
+        long timestamp = buffer.getLong();
+
+        MeasurementRequest request = new MeasurementRequest();
+        request.setTimestamp((flags & FLAG_TIMESTAMP) != 0 ? timestamp : null);
+        request.setVoltageRms(readScalar(buffer));
+        request.setCurrentRms(readScalar(buffer));
+        request.setPowerActive(readScalar(buffer));
+        request.setPowerApparent(readScalar(buffer));
+        request.setPowerReactive(readScalar(buffer));
+        request.setPowerDistortion(readScalar(buffer));
+        request.setPowerFactor(readScalar(buffer));
+        request.setFrequency(readScalar(buffer));
+        request.setThdVoltage(readScalar(buffer));
+        request.setThdCurrent(readScalar(buffer));
+
+        int harmonicsVCount = buffer.get() & 0xFF;
+        int harmonicsICount = buffer.get() & 0xFF;
+        int waveformVCount = buffer.getShort() & 0xFFFF;
+        int waveformICount = buffer.getShort() & 0xFFFF;
+        float waveformVScale = buffer.getFloat();
+        float waveformIScale = buffer.getFloat();
+
+        boolean int16 = (flags & FLAG_INT16_WAVEFORMS) != 0;
+        int expectedSize = HEADER_SIZE
+                + 4 * (harmonicsVCount + harmonicsICount)
+                + (int16 ? 2 : 4) * (waveformVCount + waveformICount);
+        if (payload.length < expectedSize) {
+            throw new IllegalArgumentException("Binary payload truncated: "
+                    + payload.length + " bytes, expected " + expectedSize);
+        }
+
+        try {
+            request.setHarmonicsV(readHarmonics(buffer, harmonicsVCount));
+            request.setHarmonicsI(readHarmonics(buffer, harmonicsICount));
+            request.setWaveformV(readWaveform(buffer, waveformVCount, int16, waveformVScale));
+            request.setWaveformI(readWaveform(buffer, waveformICount, int16, waveformIScale));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Binary payload truncated", e);
+        }
+        return request;
+    }
+
+    /**
+     * Encodes a MeasurementRequest into the version 1 binary format.
+     * sensorId is not encoded - it is carried by the MQTT topic.
+     *
+     * @throws IllegalArgumentException if an array exceeds the format limits
+     */
+    public static byte[] encode(MeasurementRequest request, SampleEncoding encoding) {
+        double[] harmonicsV = request.getHarmonicsV();
+        double[] harmonicsI = request.getHarmonicsI();
+        double[] waveformV = request.getWaveformV();
+        double[] waveformI = request.getWaveformI();
+
+        int harmonicsVCount = checkedLength(harmonicsV == null ? 0 : harmonicsV.length, MAX_HARMONICS, "harm_v");
+        int harmonicsICount = checkedLength(harmonicsI == null ? 0 : harmonicsI.length, MAX_HARMONICS, "harm_i");
+        int waveformVCount = checkedLength(waveformV == null ? 0 : waveformV.length, MAX_WAVEFORM_SAMPLES, "waveform_v");
+        int waveformICount = checkedLength(waveformI == null ? 0 : waveformI.length, MAX_WAVEFORM_SAMPLES, "waveform_i");
+
+        boolean int16 = encoding == SampleEncoding.INT16;
+        int size = HEADER_SIZE
+                + 4 * (harmonicsVCount + harmonicsICount)
+                + (int16 ? 2 : 4) * (waveformVCount + waveformICount);
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        int flags = (request.getTimestamp() != null ? FLAG_TIMESTAMP : 0)
+                | (int16 ? FLAG_INT16_WAVEFORMS : 0);
+        float waveformVScale = int16 ? int16Scale(waveformV) : 0f;
+        float waveformIScale = int16 ? int16Scale(waveformI) : 0f;
+
+        buffer.put(MAGIC_0).put(MAGIC_1).put(VERSION).put((byte) flags);
+        buffer.putLong(request.getTimestamp() != null ? request.getTimestamp() : 0L);
+        writeScalar(buffer, request.getVoltageRms());
+        writeScalar(buffer, request.getCurrentRms());
+        writeScalar(buffer, request.getPowerActive());
+        writeScalar(buffer, request.getPowerApparent());
+        writeScalar(buffer, request.getPowerReactive());
+        writeScalar(buffer, request.getPowerDistortion());
+        writeScalar(buffer, request.getPowerFactor());
+        writeScalar(buffer, request.getFrequency());
+        writeScalar(buffer, request.getThdVoltage());
+        writeScalar(buffer, request.getThdCurrent());
+        buffer.put((byte) harmonicsVCount);
+        buffer.put((byte) harmonicsICount);
+        buffer.putShort((short) waveformVCount);
+        buffer.putShort((short) waveformICount);
+        buffer.putFloat(waveformVScale);
+        buffer.putFloat(waveformIScale);
+
+        writeHarmonics(buffer, harmonicsV);
+        writeHarmonics(buffer, harmonicsI);
+        writeWaveform(buffer, waveformV, int16, waveformVScale);
+        writeWaveform(buffer, waveformI, int16, waveformIScale);
+        return buffer.array();
+    }
+
+    private static Double readScalar(ByteBuffer buffer) {
+        float value = buffer.getFloat();
+        return Float.isNaN(value) ? null : Double.valueOf(Float.toString(value));
+    }
+
+    private static void writeScalar(ByteBuffer buffer, Double value) {
+        buffer.putFloat(value == null ? Float.NaN : value.floatValue());
+    }
+
+    private static double[] readHarmonics(ByteBuffer buffer, int count) {
+        if (count == 0) {
+            return null;
+        }
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = Double.parseDouble(Float.toString(buffer.getFloat()));
+        }
+        return values;
+    }
+
+    private static void writeHarmonics(ByteBuffer buffer, double[] values) {
+        if (values == null) {
+            return;
+        }
+        for (double value : values) {
+            buffer.putFloat((float) value);
+        }
+    }
+
+    private static double[] readWaveform(ByteBuffer buffer, int count, boolean int16, float scale) {
+        if (count == 0) {
+            return null;
+        }
+        double[] samples = new double[count];
+        if (int16) {
+            for (int i = 0; i < count; i++) {
+                samples[i] = buffer.getShort() * (double) scale;
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                samples[i] = buffer.getFloat();
+            }
+        }
+        return samples;
+    }
+
+    private static void writeWaveform(ByteBuffer buffer, double[] samples, boolean int16, float scale) {
+        if (samples == null) {
+            return;
+        }
+        if (int16) {
+            for (double sample : samples) {
+                long raw = Math.round(sample / scale);
+                buffer.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, raw)));
+            }
+        } else {
+            for (double sample : samples) {
+                buffer.putFloat((float) sample);
+            }
+        }
+    }
+
+    /**
+     * Scale mapping the largest absolute sample to 32767.
+     */
+    private static float int16Scale(double[] samples) {
+        double maxAbs = 0.0;
+        if (samples != null) {
+            for (double sample : samples) {
+                maxAbs = Math.max(maxAbs, Math.abs(sample));
+            }
+        }
+        return maxAbs > 0.0 ? (float) (maxAbs / Short.MAX_VALUE) : 1f;
+    }
+
+    private static int checkedLength(int length, int max, String field) {
+        if (length > max) {
+            throw new IllegalArgumentException(field + " has " + length + " values, binary format allows " + max);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,322 @@
+package com.dkowalczyk.scadasystem.util;
+
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.BitReader;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.DeltaOfDeltaDecoder;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.DeltaOfDeltaEncoder;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.XorDecoder;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.XorEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Columnar file of one node's measurements (cold archive, one file per node and day).
+ * <p>
+ * WHY COLUMNAR: archived days are read for history pages and exports, which often need a few
+ * columns of a long range. Each column is a separate Gorilla stream (see {@link GorillaCodec}),
+ * stored contiguously, and the file is memory-mapped: a read decodes and pages in only the
+ * time and id streams plus the requested columns.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int    magic 'MCOL', short version
+ * int    row count, long min time, long max time (epoch micros)
+ * byte   1 if a sensor id follows, string sensor id
+ * int    stream count, then per stream: string name, long offset, int word count
+ * (zero padding to 8 bytes)
+ * words of every stream, at their offsets
+ * </pre>
+ * Strings are a short length and UTF-8 bytes. Streams are named after the JSON fields
+ * (time, id, voltage_rms, ...); arrays are split into {@code <field>.length} (-1 for null)
+ * and one stream per element index {@code <field>.<i>}.
+ */
+public final class MeasurementColumnFile {
+
+    public static final String EXTENSION = ".mcol";
+
+    private static final int MAGIC = 0x4D434F4C;
+    private static final short VERSION = 1;
+
+    public static final String TIME = "time";
+    public static final String ID = "id";
+    public static final String HARMONICS_V = "harmonics_v";
+    public static final String HARMONICS_I = "harmonics_i";
+
+    /** Nullable double columns in {@link MeasurementHistoryRow} order. */
+    public static final List<String> SCALARS = List.of(
+            "voltage_rms", "current_rms", "power_active", "power_apparent", "power_reactive",
+            "power_distortion", "power_factor", "frequency", "thd_voltage", "thd_current",
+            "voltage_deviation_percent", "frequency_deviation_hz");
+
+    private MeasurementColumnFile() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Collects rows of one node in memory (compressed) and writes them as one file.
+     * Rows should be added in time order for good compression.
+     */
+    public static final class Writer {
+
+        private final String sensorId;
+        private final DeltaOfDeltaEncoder times = new DeltaOfDeltaEncoder();
+        private final DeltaOfDeltaEncoder ids = new DeltaOfDeltaEncoder();
+        private final List<XorEncoder> scalars = new ArrayList<>();
+        private final ArrayColumn harmonicsV = new ArrayColumn(HARMONICS_V);
+        private final ArrayColumn harmonicsI = new ArrayColumn(HARMONICS_I);
+        private int count;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+
+        public Writer(String sensorId) {
+            this.sensorId = sensorId;
+            for (int i = 0; i < SCALARS.size(); i++) {
+                scalars.add(new XorEncoder());
+            }
+        }
+
+        public void add(MeasurementHistoryRow row) {
+            long time = toMicros(row.time());
+            times.add(time);
+            ids.add(row.id());
+            scalars.get(0).add(row.voltageRms());
+            scalars.get(1).add(row.currentRms());
+            scalars.get(2).add(row.powerActive());
+            scalars.get(3).add(row.powerApparent());
+            scalars.get(4).add(row.powerReactive());
+            scalars.get(5).add(row.powerDistortion());
+            scalars.get(6).add(row.powerFactor());
+            scalars.get(7).add(row.frequency());
+            scalars.get(8).add(row.thdVoltage());
+            scalars.get(9).add(row.thdCurrent());
+            scalars.get(10).add(row.voltageDeviationPercent());
+            scalars.get(11).add(row.frequencyDeviationHz());
+            harmonicsV.add(row.harmonicsV());
+            harmonicsI.add(row.harmonicsI());
+            count++;
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void writeTo(Path file) throws IOException {
+            Map<String, long[]> streams = new LinkedHashMap<>();
+            streams.put(TIME, times.bits().words());
+            streams.put(ID, ids.bits().words());
+            for (int i = 0; i < SCALARS.size(); i++) {
+                streams.put(SCALARS.get(i), scalars.get(i).bits().words());
+            }
+            harmonicsV.collect(streams);
+            harmonicsI.collect(streams);
+
+            // Header size does not depend on the offsets, so lay it out first
+            ByteBuffer header = header(streams, new long[streams.size()]);
+            long offset = align8(header.limit());
+            long[] offsets = new long[streams.size()];
+            int index = 0;
+            for (long[] words : streams.values()) {
+                offsets[index++] = offset;
+                offset += words.length * 8L;
+            }
+            header = header(streams, offsets);
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer padded = ByteBuffer.allocate((int) align8(header.limit()));
+                padded.put(header).rewind();
+                writeFully(channel, padded);
+                for (long[] words : streams.values()) {
+                    ByteBuffer data = ByteBuffer.allocate(words.length * 8).order(ByteOrder.BIG_ENDIAN);
+                    data.asLongBuffer().put(words);
+                    writeFully(channel, data);
+                }
+                channel.force(true);
+            }
+        }
+
+        private ByteBuffer header(Map<String, long[]> streams, long[] offsets) {
+            List<byte[]> names = streams.keySet().stream().map(name -> name.getBytes(StandardCharsets.UTF_8)).toList();
+            byte[] sensor = sensorId != null ? sensorId.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            int size = 4 + 2 + 4 + 8 + 8 + 1 + (sensorId != null ? 2 + sensor.length : 0) + 4;
+            for (byte[] name : names) {
+                size += 2 + name.length + 8 + 4;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+            buffer.putInt(MAGIC).putShort(VERSION).putInt(count).putLong(minTime).putLong(maxTime);
+            buffer.put((byte) (sensorId != null ? 1 : 0));
+            if (sensorId != null) {
+                buffer.putShort((short) sensor.length).put(sensor);
+            }
+            buffer.putInt(names.size());
+            int index = 0;
+            for (long[] words : streams.values()) {
+                byte[] name = names.get(index);
+                buffer.putShort((short) name.length).put(name).putLong(offsets[index]).putInt(words.length);
+                index++;
+            }
+            return buffer.flip();
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /** Length stream plus one stream per element index. */
+    private static final class ArrayColumn {
+
+        private final String field;
+        private final DeltaOfDeltaEncoder lengths = new DeltaOfDeltaEncoder();
+        private final List<XorEncoder> elements = new ArrayList<>();
+
+        ArrayColumn(String field) {
+            this.field = field;
+        }
+
+        void add(double[] values) {
+            lengths.add(values != null ? values.length : -1);
+            if (values == null) {
+                return;
+            }
+            while (elements.size() < values.length) {
+                elements.add(new XorEncoder());
+            }
+            for (int i = 0; i < values.length; i++) {
+                elements.get(i).add(values[i]);
+            }
+        }
+
+        void collect(Map<String, long[]> streams) {
+            streams.put(field + ".length", lengths.bits().words());
+            for (int i = 0; i < elements.size(); i++) {
+                streams.put(field + "." + i, elements.get(i).bits().words());
+            }
+        }
+    }
+
+    /**
+     * Reads rows with time in [from, to] from a memory-mapped file, in file (time) order.
+     * Only the time and id streams and the requested fields are decoded; other fields are null.
+     *
+     * @param fields JSON field names to read, null for all
+     */
+    public static List<MeasurementHistoryRow> read(Path file, Set<String> fields, Instant from, Instant to)
+            throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+            throw new IOException("Not a measurement column file: " + file);
+        }
+        int count = buffer.getInt();
+        long minTime = buffer.getLong();
+        long maxTime = buffer.getLong();
+        long fromMicros = toMicros(from);
+        long toMicros = toMicros(to);
+        if (count == 0 || maxTime < fromMicros || minTime > toMicros) {
+            return List.of();
+        }
+        String sensorId = buffer.get() == 1 ? readString(buffer) : null;
+        Map<String, BitReader> streams = new HashMap<>();
+        int streamCount = buffer.getInt();
+        for (int i = 0; i < streamCount; i++) {
+            String name = readString(buffer);
+            long offset = buffer.getLong();
+            int words = buffer.getInt();
+            streams.put(name, new BitReader(buffer.slice((int) offset, words * 8).order(ByteOrder.BIG_ENDIAN).asLongBuffer()));
+        }
+
+        DeltaOfDeltaDecoder timeIn = new DeltaOfDeltaDecoder(streams.get(TIME));
+        DeltaOfDeltaDecoder idIn = new DeltaOfDeltaDecoder(streams.get(ID));
+        XorDecoder[] scalarIn = new XorDecoder[SCALARS.size()];
+        for (int i = 0; i < scalarIn.length; i++) {
+            if (fields == null || fields.contains(SCALARS.get(i))) {
+                scalarIn[i] = new XorDecoder(streams.get(SCALARS.get(i)));
+            }
+        }
+        ArrayReader harmonicsVIn = fields == null || fields.contains(HARMONICS_V) ? new ArrayReader(HARMONICS_V, streams) : null;
+        ArrayReader harmonicsIIn = fields == null || fields.contains(HARMONICS_I) ? new ArrayReader(HARMONICS_I, streams) : null;
+
+        List<MeasurementHistoryRow> rows = new ArrayList<>();
+        Double[] values = new Double[SCALARS.size()];
+        for (int r = 0; r < count; r++) {
+            long time = timeIn.next();
+            long id = idIn.next();
+            for (int i = 0; i < scalarIn.length; i++) {
+                values[i] = scalarIn[i] != null ? scalarIn[i].nextNullable() : null;
+            }
+            double[] harmonicsV = harmonicsVIn != null ? harmonicsVIn.next() : null;
+            double[] harmonicsI = harmonicsIIn != null ? harmonicsIIn.next() : null;
+            if (time >= fromMicros && time <= toMicros) {
+                rows.add(new MeasurementHistoryRow(id, fromMicros(time), sensorId, values[0], values[1], values[2],
+                        values[3], values[4], values[5], values[6], values[7], values[8], values[9],
+                        harmonicsV, harmonicsI, values[10], values[11]));
+            }
+        }
+        return rows;
+    }
+
+    private static final class ArrayReader {
+
+        private final DeltaOfDeltaDecoder lengths;
+        private final List<XorDecoder> elements = new ArrayList<>();
+
+        ArrayReader(String field, Map<String, BitReader> streams) {
+            this.lengths = new DeltaOfDeltaDecoder(streams.get(field + ".length"));
+            for (int i = 0; streams.containsKey(field + "." + i); i++) {
+                elements.add(new XorDecoder(streams.get(field + "." + i)));
+            }
+        }
+
+        double[] next() {
+            int length = (int) lengths.next();
+            if (length < 0) {
+                return null;
+            }
+            double[] values = new double[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = elements.get(i).next();
+            }
+            return values;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long align8(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static long toMicros(Instant time) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, time);
+    }
+
+    private static Instant fromMicros(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+}
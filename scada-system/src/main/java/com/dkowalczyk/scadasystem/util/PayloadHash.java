@@ -0,0 +1,70 @@
+package com.dkowalczyk.scadasystem.util;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+
+/**
+ * 64-bit content hash of a measurement, used to recognise MQTT QoS 1 redeliveries.
+ * <p>
+ * WHY content, not raw bytes: the same measurement can reach the database as JSON, as a
+ * binary payload or replayed from the WAL; hashing the decoded fields gives the same value
+ * for all of them. The hash covers node id, device timestamp, scalars, harmonics and waveforms.
+ * <p>
+ * Not cryptographic - it only has to make accidental collisions between two different
+ * measurements with the same timestamp negligible.
+ */
+public final class PayloadHash {
+
+    private static final long SEED = 0x5CADA5CADA5CADAL;
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private PayloadHash() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+
+    public static long of(MeasurementRequest request) {
+        long h = SEED;
+        h = mix(h, request.getSensorId() != null ? request.getSensorId().hashCode() : 0);
+        h = mix(h, request.getTimestamp() != null ? request.getTimestamp() : Long.MIN_VALUE);
+        h = mix(h, request.getVoltageRms());
+        h = mix(h, request.getCurrentRms());
+        h = mix(h, request.getPowerActive());
+        h = mix(h, request.getPowerApparent());
+        h = mix(h, request.getPowerReactive());
+        h = mix(h, request.getPowerDistortion());
+        h = mix(h, request.getPowerFactor());
+        h = mix(h, request.getFrequency());
+        h = mix(h, request.getThdVoltage());
+        h = mix(h, request.getThdCurrent());
+        h = mix(h, request.getHarmonicsV());
+        h = mix(h, request.getHarmonicsI());
+        h = mix(h, request.getWaveformV());
+        h = mix(h, request.getWaveformI());
+        return finish(h);
+    }
+
+    private static long mix(long h, Double value) {
+        return mix(h, value != null ? Double.doubleToLongBits(value) : Long.MIN_VALUE);
+    }
+
+    private static long mix(long h, double[] values) {
+        if (values == null) {
+            return mix(h, -1L);
+        }
+        h = mix(h, values.length);
+        for (double value : values) {
+            h = mix(h, Double.doubleToLongBits(value));
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        return Long.rotateLeft((h ^ value) * MULTIPLIER, 31);
+    }
+
+    /** Final avalanche (SplitMix64), so similar inputs do not give similar hashes. */
+    private static long finish(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
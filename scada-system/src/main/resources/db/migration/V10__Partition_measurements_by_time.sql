@@ -0,0 +1,201 @@
+-- Migration V10: Convert measurements to a range-partitioned table (by time)
+--
+-- Why:
+-- measurements was one ever-growing heap table. At a 3 s cadence per node, range scans
+-- and retention deletes keep getting slower: every DELETE leaves dead tuples for VACUUM
+-- and every index covers the whole history.
+--
+-- With declarative range partitioning:
+-- - Queries with a time range (all MeasurementRepository queries except findById) only
+--   touch the partitions of that range (partition pruning, also for bind parameters)
+-- - Retention is DETACH/DROP of a whole partition instead of row-by-row DELETE
+-- - Each partition has its own, small indexes
+--
+-- Partitions are daily here; MeasurementPartitionManager pre-creates future partitions
+-- (daily or weekly, measurements.partition.interval) and detaches or drops expired ones.
+-- Rows outside every partition land in measurements_default, so inserts never fail.
+--
+-- Notes:
+-- - The primary key must contain the partition key: PRIMARY KEY (id, time).
+--   ids still come from measurements_id_seq, so they stay unique on their own.
+-- - Existing rows are copied (INSERT ... SELECT); on a large table run this migration
+--   in a maintenance window.
+
+-- Waveform columns are mapped by the entity; make sure they exist before copying
+ALTER TABLE measurements ADD COLUMN IF NOT EXISTS waveform_v DOUBLE PRECISION[];
+ALTER TABLE measurements ADD COLUMN IF NOT EXISTS waveform_i DOUBLE PRECISION[];
+
+-- Keep the id sequence alive when the old table is dropped
+ALTER SEQUENCE measurements_id_seq OWNED BY NONE;
+
+ALTER TABLE measurements RENAME TO measurements_unpartitioned;
+DROP INDEX IF EXISTS idx_measurements_time;
+DROP INDEX IF EXISTS idx_measurements_sensor_time;
+DROP INDEX IF EXISTS uk_measurements_time_payload_hash;
+
+CREATE TABLE measurements (
+    id BIGINT NOT NULL DEFAULT nextval('measurements_id_seq'),
+    time TIMESTAMP NOT NULL,
+    sensor_id VARCHAR(50),
+    payload_hash BIGINT,
+    voltage_rms DOUBLE PRECISION NOT NULL,
+    current_rms DOUBLE PRECISION NOT NULL,
+    frequency DOUBLE PRECISION NOT NULL,
+    power_active DOUBLE PRECISION,
+    power_apparent DOUBLE PRECISION,
+    power_reactive_fund DOUBLE PRECISION,
+    power_distortion DOUBLE PRECISION,
+    power_factor DOUBLE PRECISION,
+    phase_shift DOUBLE PRECISION,
+    thd_voltage DOUBLE PRECISION,
+    thd_current DOUBLE PRECISION,
+    harmonics_v DOUBLE PRECISION[],
+    harmonics_i DOUBLE PRECISION[],
+    waveform_v DOUBLE PRECISION[],
+    waveform_i DOUBLE PRECISION[],
+    voltage_deviation_percent DOUBLE PRECISION,
+    frequency_deviation_hz DOUBLE PRECISION,
+    is_valid BOOLEAN,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, time)
+) PARTITION BY RANGE (time);
+
+CREATE TABLE measurements_default PARTITION OF measurements DEFAULT;
+
+-- Daily partitions from the oldest stored day up to a week ahead
+-- Naming: measurements_pYYYYMMDD (first day of the partition)
+DO $$
+DECLARE
+    day DATE := COALESCE((SELECT MIN(time)::date FROM measurements_unpartitioned), CURRENT_DATE);
+BEGIN
+    WHILE day < CURRENT_DATE + 7 LOOP
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF measurements FOR VALUES FROM (%L) TO (%L)',
+            'measurements_p' || to_char(day, 'YYYYMMDD'), day::timestamp, (day + 1)::timestamp);
+        day := day + 1;
+    END LOOP;
+END $$;
+
+INSERT INTO measurements (
+    id, time, sensor_id, payload_hash, voltage_rms, current_rms, frequency,
+    power_active, power_apparent, power_reactive_fund, power_distortion, power_factor, phase_shift,
+    thd_voltage, thd_current, harmonics_v, harmonics_i, waveform_v, waveform_i,
+    voltage_deviation_percent, frequency_deviation_hz, is_valid, created_at)
+SELECT
+    id, time, sensor_id, payload_hash, voltage_rms, current_rms, frequency,
+    power_active, power_apparent, power_reactive_fund, power_distortion, power_factor, phase_shift,
+    thd_voltage, thd_current, harmonics_v, harmonics_i, waveform_v, waveform_i,
+    voltage_deviation_percent, frequency_deviation_hz, is_valid, created_at
+FROM measurements_unpartitioned;
+
+DROP TABLE measurements_unpartitioned;
+ALTER SEQUENCE measurements_id_seq OWNED BY measurements.id;
+
+-- Partitioned indexes: created on every existing and future partition
+CREATE INDEX idx_measurements_time ON measurements (time DESC);
+CREATE INDEX idx_measurements_sensor_time ON measurements (sensor_id, time DESC);
+CREATE UNIQUE INDEX uk_measurements_time_payload_hash ON measurements (time, payload_hash);
+
+COMMENT ON TABLE measurements IS
+'Electrical measurements with PN-EN 50160 power quality indicators.
+Harmonics limited to H1-H8 (50-400 Hz) due to 800-1000 Hz sampling rate and Nyquist constraint.
+System capable of measuring:
+- Group 1: Supply voltage magnitude (voltage deviation)
+- Group 2: Supply frequency (frequency deviation)
+- Group 4: Voltage waveform distortions (THD and harmonics 2-8, partial)
+- Group 5: Supply interruptions (detectable as events, separate implementation)
+System NOT capable of measuring:
+- Group 3: Voltage fluctuations & flicker (requires IEC 61000-4-15 filter and 20 kHz sampling)
+Range-partitioned by time (measurements_pYYYYMMDD + measurements_default), partitions
+are created and expired by MeasurementPartitionManager.';
+COMMENT ON COLUMN measurements.time IS 'Measurement timestamp from sensor (NOT database insertion time). Partition key.';
+COMMENT ON COLUMN measurements.payload_hash IS 'Content hash of the measurement for MQTT redelivery suppression (unique together with time).';
+
+-- Column comments do not survive the table swap; restored from V3, V4 and V5
+COMMENT ON COLUMN measurements.voltage_rms IS
+'RMS voltage measured in 10-20 cycle window (200-400 ms at 50 Hz).
+Used to calculate voltage_deviation_percent indicator.
+Accuracy: ±1-3% after ADC calibration.';
+
+COMMENT ON COLUMN measurements.frequency IS
+'Frequency measured via zero-crossing detection.
+Averaged over 10-20 cycles for noise reduction.
+Used to calculate frequency_deviation_hz indicator.
+Accuracy: ±0.01-0.02 Hz.';
+
+COMMENT ON COLUMN measurements.power_active IS
+'Active power in watts (not a PN-EN 50160 indicator).
+Formula: P = U_rms × I_rms × cos φ
+Used for energy billing and load analysis.';
+
+COMMENT ON COLUMN measurements.power_apparent IS
+'Apparent power in VA (not a PN-EN 50160 indicator).
+Formula: S = U_rms × I_rms
+Used for load analysis.';
+
+COMMENT ON COLUMN measurements.thd_voltage IS
+'PN-EN 50160 Group 4 indicator: Total Harmonic Distortion of voltage.
+Formula: THD = sqrt(sum(U_h^2 for h=2..8)) / U_1 * 100%
+Note: Partial calculation - IEC 61000-4-7 requires harmonics 2-40 for full compliance.
+Our system measures only harmonics 2-8 due to Nyquist limitation at 800-1000 Hz sampling.
+This represents a lower bound of actual THD (real THD may be higher).
+Limit: THD < 8% per PN-EN 50160 (for full spectrum 2-40).
+Calculated by ESP32 from FFT/DFT.';
+
+COMMENT ON COLUMN measurements.harmonics_v IS
+'PN-EN 50160 Group 4 indicator: Voltage harmonics array.
+Array structure: [H1, H2, H3, H4, H5, H6, H7, H8]
+Index 0 = H1 (50 Hz fundamental)
+Index 1 = H2 (100 Hz)
+Index 2 = H3 (150 Hz)
+...
+Index 7 = H8 (400 Hz)
+Note: Limited to 8 harmonics due to Nyquist constraint at 800-1000 Hz sampling.
+IEC 61000-4-7 requires harmonics up to H40 (2000 Hz) for full compliance.
+Calculated by ESP32 from FFT/DFT.';
+
+COMMENT ON COLUMN measurements.thd_current IS
+'Total Harmonic Distortion of current (diagnostic parameter, not PN-EN 50160 indicator).
+Formula: THD = sqrt(sum(I_h^2 for h=2..8)) / I_1 * 100%
+Note: Partial calculation, harmonics 2-8 only.
+Related to IEC 61000-3-2 (emission limits for equipment).
+Used for diagnostics of non-linear loads.
+Calculated by ESP32 from FFT/DFT.';
+
+COMMENT ON COLUMN measurements.harmonics_i IS
+'Current harmonics array (diagnostic parameter, not PN-EN 50160 indicator).
+Array structure: [H1, H2, H3, H4, H5, H6, H7, H8]
+Related to IEC 61000-3-2 (emission limits).
+Used for diagnostics of non-linear loads (switch-mode power supplies, inverters, LED drivers).
+Calculated by ESP32 from FFT/DFT.';
+
+COMMENT ON COLUMN measurements.voltage_deviation_percent IS
+'PN-EN 50160 Group 1 indicator: Voltage deviation from declared value.
+Formula: (U_measured - U_nominal) / U_nominal * 100%
+where U_nominal = 230V for single-phase EU grid.
+Limit: ±10% for 95% of week per PN-EN 50160.
+Calculated by backend from voltage_rms.';
+
+COMMENT ON COLUMN measurements.frequency_deviation_hz IS
+'PN-EN 50160 Group 2 indicator: Frequency deviation from nominal.
+Formula: f_measured - f_nominal
+where f_nominal = 50 Hz for EU grid.
+Limit: ±1% (49.5-50.5 Hz) for 99.5% of year per PN-EN 50160.
+Calculated by backend from frequency.';
+
+COMMENT ON COLUMN measurements.is_valid IS
+'Indicates if the measurement passed validation checks.
+Validation includes:
+- Voltage range: 0-400V (allows overvoltage detection)
+- Current range: 0-100A
+- Frequency range: 45-55 Hz (±10% of 50 Hz nominal)
+- Power factor: -1 to 1
+- THD: 0-100%
+NULL value indicates validation was not performed.
+TRUE = passed all validation checks
+FALSE = failed at least one validation check';
+
+COMMENT ON COLUMN measurements.power_reactive_fund IS 'Reactive power Q1 of fundamental frequency (50 Hz) in var. Calculated from FFT phase shift: Q1 = V_rms × I_rms × sin(φ). Valid ONLY for fundamental harmonic.';
+COMMENT ON COLUMN measurements.power_distortion IS 'Distortion power D in var from non-sinusoidal components. Formula: D = sqrt(S² - P² - Q1²). Non-zero indicates non-linear loads.';
+COMMENT ON COLUMN measurements.power_factor IS 'General power factor λ = P/S. Valid for both sinusoidal and distorted waveforms. NOT cos(φ) for distorted waveforms.';
+COMMENT ON COLUMN measurements.phase_shift IS 'Phase shift φ between fundamental voltage and current in degrees. Calculated from FFT: φ = phase_I - phase_U. Note: ~0.3° error from sequential ADC reading.';
@@ -0,0 +1,59 @@
+-- Migration V11: Move raw waveforms out of the measurements row
+--
+-- Why:
+-- waveform_v / waveform_i hold about 400 samples each, which makes every measurements
+-- row several KB. That bloats the table and its TOAST storage, and every history or
+-- stats scan pays for bytes only the dashboard reads.
+--
+-- Waveforms now live in measurement_waveforms, one row per measurement that carried
+-- them, keyed by (measurement_id, time). The table is range-partitioned by time like
+-- measurements (same partition bounds, managed together by MeasurementPartitionManager),
+-- so retention detaches or drops both in step and the dashboard lookup by
+-- (id, time) touches one partition.
+--
+-- No foreign key to measurements: its primary key is (id, time), and both tables lose
+-- whole partitions together anyway.
+--
+-- Note: DROP COLUMN only hides the columns; the old waveform bytes are reclaimed as
+-- partitions are rewritten or expire.
+
+CREATE TABLE measurement_waveforms (
+    measurement_id BIGINT NOT NULL,
+    time TIMESTAMP NOT NULL,
+    waveform_v DOUBLE PRECISION[],
+    waveform_i DOUBLE PRECISION[],
+    PRIMARY KEY (measurement_id, time)
+) PARTITION BY RANGE (time);
+
+CREATE TABLE measurement_waveforms_default PARTITION OF measurement_waveforms DEFAULT;
+
+-- Same bounds as the existing measurements partitions: measurements_pX -> measurement_waveforms_pX
+DO $$
+DECLARE
+    part RECORD;
+BEGIN
+    FOR part IN
+        SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        JOIN pg_class p ON p.oid = i.inhparent
+        WHERE p.relname = 'measurements' AND c.relname LIKE 'measurements\_p%'
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF measurement_waveforms %s',
+            'measurement_waveforms_p' || substring(part.name FROM length('measurements_p') + 1),
+            part.bound);
+    END LOOP;
+END $$;
+
+INSERT INTO measurement_waveforms (measurement_id, time, waveform_v, waveform_i)
+SELECT id, time, waveform_v, waveform_i
+FROM measurements
+WHERE waveform_v IS NOT NULL OR waveform_i IS NOT NULL;
+
+ALTER TABLE measurements DROP COLUMN waveform_v;
+ALTER TABLE measurements DROP COLUMN waveform_i;
+
+COMMENT ON TABLE measurement_waveforms IS
+'Raw ESP32 waveform samples (about 400 per channel) of measurements that carried them.
+Kept apart from measurements so history and stats scans never read waveform bytes.
+Partitioned by time with the same bounds as measurements.';
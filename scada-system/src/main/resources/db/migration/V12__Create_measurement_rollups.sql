@@ -0,0 +1,49 @@
+-- Migration V12: Tiered downsampling of measurements (1 minute, 10 minutes, 1 hour)
+--
+-- Why:
+-- Trend charts over days or weeks read tens of thousands of raw rows per node (one every
+-- 3 s) only to draw a few hundred points. measurement_rollups keeps min / max / sum / count
+-- and energy per node and bucket at three resolutions, so a chart reads at most a few
+-- hundred small rows from the tier that fits its point budget.
+--
+-- Tiers (resolution column):
+-- - MINUTE        built from raw valid measurements
+-- - TEN_MINUTES   merged from MINUTE (same interval as PN-EN 50160 aggregation)
+-- - HOUR          merged from TEN_MINUTES
+--
+-- Rows are maintained by MeasurementRollupService (catch-up job behind a watermark; hours
+-- that receive measurements older than the watermark are rebuilt). A bucket is rebuilt by
+-- DELETE + INSERT, never updated in place.
+--
+-- Notes:
+-- - sensor_id is '' for measurements without a node id (part of the primary key).
+-- - Averages are sum / count, so buckets merge exactly into coarser tiers.
+-- - Not partitioned: the table is small (about 1,600 rows per node and day) and outlives
+--   the raw partitions expired by MeasurementPartitionManager.
+
+CREATE TABLE measurement_rollups (
+    resolution VARCHAR(16) NOT NULL,
+    sensor_id VARCHAR(50) NOT NULL,
+    bucket TIMESTAMP NOT NULL,           -- bucket start (inclusive)
+    sample_count INT NOT NULL,
+    voltage_min DOUBLE PRECISION NOT NULL,
+    voltage_max DOUBLE PRECISION NOT NULL,
+    voltage_sum DOUBLE PRECISION NOT NULL,
+    power_count INT NOT NULL,            -- samples with a power value
+    power_min DOUBLE PRECISION NOT NULL,
+    power_max DOUBLE PRECISION NOT NULL,
+    power_sum DOUBLE PRECISION NOT NULL,
+    frequency_min DOUBLE PRECISION NOT NULL,
+    frequency_max DOUBLE PRECISION NOT NULL,
+    frequency_sum DOUBLE PRECISION NOT NULL,
+    energy_kwh DOUBLE PRECISION NOT NULL,
+    PRIMARY KEY (resolution, sensor_id, bucket)
+);
+
+-- Trend queries over all nodes: WHERE resolution = ? AND bucket BETWEEN ? AND ?
+CREATE INDEX idx_measurement_rollups_resolution_bucket ON measurement_rollups (resolution, bucket);
+
+COMMENT ON TABLE measurement_rollups IS
+'Per-node downsampled measurements (MINUTE, TEN_MINUTES, HOUR) for trend charts.
+Maintained by MeasurementRollupService from valid measurements.';
+COMMENT ON COLUMN measurement_rollups.energy_kwh IS 'Trapezoidal energy of the segments that end in this bucket (segments longer than 1 minute are skipped).';
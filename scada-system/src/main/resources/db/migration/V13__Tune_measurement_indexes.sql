@@ -0,0 +1,48 @@
+-- Migration V13: Index strategy matched to the MeasurementRepository query shapes
+--
+-- Why:
+-- Every read query filters is_valid = true and ranges or sorts on time; only the
+-- duplicate check (uk_measurements_time_payload_hash) and the rollup backfill start
+-- look at all rows. The full btrees from V10 index invalid rows nobody reads, and
+-- idx_measurements_time duplicates the leading column of the unique index.
+--
+-- Query shapes -> index:
+-- - findTop[100]ByIsValidTrueOrderByTimeDesc, history pages (ORDER BY time DESC LIMIT n)
+--   -> idx_measurements_valid_time: partial btree, read backwards from the newest
+--      partition, stops after n rows
+-- - per-node latest / top 100 / history
+--   -> idx_measurements_valid_sensor_time: partial btree (sensor_id, time DESC)
+-- - daily stats, rollup chunks and other wide time ranges (thousands of rows)
+--   -> idx_measurements_time_brin: block range index. Rows are appended in time order,
+--      so each range of 32 pages covers a narrow time span and the planner reads only
+--      matching blocks with a bitmap heap scan. A few KB per partition instead of a btree
+--      of tens of MB.
+-- - duplicate check on (time, payload_hash), MIN(time)
+--   -> uk_measurements_time_payload_hash (unchanged)
+--
+-- Notes:
+-- - Indexes on the partitioned parent are created on every existing and future partition.
+-- - CREATE INDEX CONCURRENTLY is not available on partitioned tables; on a large table run
+--   this migration in a maintenance window.
+-- - autosummarize queues BRIN summarization of newly filled ranges for autovacuum, so the
+--   newest blocks do not stay unsummarized (unsummarized ranges are always read).
+-- - The partial predicates use "is_valid", which PostgreSQL matches to "is_valid = true".
+
+DROP INDEX IF EXISTS idx_measurements_time;
+DROP INDEX IF EXISTS idx_measurements_sensor_time;
+-- Created by Hibernate (ddl-auto=update) on databases that started with the dev profile
+DROP INDEX IF EXISTS idx_measurement_time;
+
+CREATE INDEX idx_measurements_valid_time
+    ON measurements (time DESC)
+    WHERE is_valid;
+
+CREATE INDEX idx_measurements_valid_sensor_time
+    ON measurements (sensor_id, time DESC)
+    WHERE is_valid;
+
+CREATE INDEX idx_measurements_time_brin
+    ON measurements USING brin (time)
+    WITH (pages_per_range = 32, autosummarize = on);
+
+ANALYZE measurements;
@@ -0,0 +1,14 @@
+-- Migration V8: Switch measurement id generation to a pooled sequence
+--
+-- Why:
+-- Measurement.id used GenerationType.IDENTITY, which forces Hibernate to execute
+-- every INSERT immediately to read back the generated key. That disables JDBC
+-- batching for the MQTT ingest pipeline (one round-trip per measurement).
+--
+-- The entity now uses GenerationType.SEQUENCE with allocationSize = 50 on the
+-- sequence created by BIGSERIAL in V1. Hibernate's pooled optimizer reserves
+-- 50 ids per nextval() call, so the sequence increment must match.
+--
+-- The column default (nextval) is kept, so manual inserts still work.
+
+ALTER SEQUENCE measurements_id_seq INCREMENT BY 50;
@@ -0,0 +1,15 @@
+-- Migration V9: Reject duplicate measurements from MQTT QoS 1 redeliveries
+--
+-- Why:
+-- The MQTT adapter subscribes with QoS 1 and a clean session, so a reconnect can
+-- redeliver a message. Each redelivery used to become a new row, which skews the
+-- daily statistics (sample counts, energy integration).
+--
+-- payload_hash is a 64-bit hash of the decoded measurement (node, device timestamp,
+-- all values), computed by the backend. The ingest pipeline drops most duplicates
+-- in memory; this unique index is the guarantee for the rest (e.g. after a restart
+-- or a WAL replay). Existing rows keep NULL, which never conflicts.
+
+ALTER TABLE measurements ADD COLUMN payload_hash BIGINT;
+
+CREATE UNIQUE INDEX uk_measurements_time_payload_hash ON measurements (time, payload_hash);
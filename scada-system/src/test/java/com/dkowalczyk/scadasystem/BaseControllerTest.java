@@ -14,8 +14,14 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.dkowalczyk.scadasystem.service.DataAggregationService;
+import com.dkowalczyk.scadasystem.service.MeasurementExportService;
+import com.dkowalczyk.scadasystem.service.MeasurementIngestService;
+import com.dkowalczyk.scadasystem.service.MeasurementReorderBuffer;
+import com.dkowalczyk.scadasystem.service.MeasurementRollupService;
 import com.dkowalczyk.scadasystem.service.MeasurementService;
 import com.dkowalczyk.scadasystem.service.StatsService;
+import com.dkowalczyk.scadasystem.service.WebSocketOutboundGuard;
+import com.dkowalczyk.scadasystem.service.WebSocketService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -68,6 +74,24 @@ public abstract class BaseControllerTest {
     @MockitoBean
     protected DataAggregationService dataAggregationService;
 
+    @MockitoBean
+    protected MeasurementIngestService ingestService;
+
+    @MockitoBean
+    protected MeasurementReorderBuffer reorderBuffer;
+
+    @MockitoBean
+    protected MeasurementRollupService rollupService;
+
+    @MockitoBean
+    protected MeasurementExportService exportService;
+
+    @MockitoBean
+    protected WebSocketService webSocketService;
+
+    @MockitoBean
+    protected WebSocketOutboundGuard webSocketOutboundGuard;
+
     @BeforeEach
     void setupDefaultValidation() {
         lenient().when(statsService.getStatsInDateRange(any(), any()))
@@ -46,8 +46,8 @@ class DashboardControllerTest extends BaseControllerTest {
                 .frequency(50.0)
                 .thdVoltage(2.5)
                 .thdCurrent(5.0)
-                .harmonicsV(new Double[]{230.0, 0.5, 1.2, 0.3, 0.8, 0.4, 0.2, 0.1})
-                .harmonicsI(new Double[]{5.0, 0.05, 0.12, 0.03, 0.08, 0.04, 0.02, 0.01})
+                .harmonicsV(new double[]{230.0, 0.5, 1.2, 0.3, 0.8, 0.4, 0.2, 0.1})
+                .harmonicsI(new double[]{5.0, 0.05, 0.12, 0.03, 0.08, 0.04, 0.02, 0.01})
                 .voltageDeviationPercent(0.0)
                 .frequencyDeviationHz(0.0)
                 .build();
@@ -89,7 +89,7 @@ class DashboardControllerTest extends BaseControllerTest {
                 .frequencyWithinLimits(true)
                 .thdVoltage(2.5)
                 .thdWithinLimits(true)
-                .harmonicsVoltage(new Double[]{230.0, 0.5, 1.2, 0.3, 0.8, 0.4, 0.2, 0.1})
+                .harmonicsVoltage(new double[]{230.0, 0.5, 1.2, 0.3, 0.8, 0.4, 0.2, 0.1})
                 .overallCompliant(true)
                 .statusMessage("All indicators within PN-EN 50160 limits")
                 .build();
@@ -106,7 +106,7 @@ class DashboardControllerTest extends BaseControllerTest {
                 .frequencyWithinLimits(false)
                 .thdVoltage(10.0)  // Exceeds 8% limit
                 .thdWithinLimits(false)
-                .harmonicsVoltage(new Double[]{205.0, 5.0, 3.0, 2.0, 1.0, 0.5, 0.3, 0.2})
+                .harmonicsVoltage(new double[]{205.0, 5.0, 3.0, 2.0, 1.0, 0.5, 0.3, 0.2})
                 .overallCompliant(false)
                 .statusMessage("Non-compliant: Voltage deviation (-10.87%), Frequency deviation (-1.0 Hz), THD exceeded (10.0%)")
                 .build();
@@ -125,7 +125,7 @@ class DashboardControllerTest extends BaseControllerTest {
         void shouldReturn200_withCompleteDashboard() throws Exception {
             // Given
             DashboardDTO mockDashboard = createMockDashboard();
-            when(measurementService.getDashboardData()).thenReturn(Optional.of(mockDashboard));
+            when(measurementService.getDashboardJson(null)).thenReturn(Optional.of(objectMapper.writeValueAsBytes(mockDashboard)));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard"))
@@ -147,7 +147,7 @@ class DashboardControllerTest extends BaseControllerTest {
         @DisplayName("should return 404 Not Found when no data available")
         void shouldReturn404_whenNoDashboardData() throws Exception {
             // Given
-            when(measurementService.getDashboardData()).thenReturn(Optional.empty());
+            when(measurementService.getDashboardJson(null)).thenReturn(Optional.empty());
 
             // When & Then
             mockMvc.perform(get("/api/dashboard"))
@@ -159,7 +159,7 @@ class DashboardControllerTest extends BaseControllerTest {
         void shouldIncludeAllElectricalParameters() throws Exception {
             // Given
             DashboardDTO mockDashboard = createMockDashboard();
-            when(measurementService.getDashboardData()).thenReturn(Optional.of(mockDashboard));
+            when(measurementService.getDashboardJson(null)).thenReturn(Optional.of(objectMapper.writeValueAsBytes(mockDashboard)));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard"))
@@ -177,7 +177,7 @@ class DashboardControllerTest extends BaseControllerTest {
         void shouldIncludeHarmonicsArrays() throws Exception {
             // Given
             DashboardDTO mockDashboard = createMockDashboard();
-            when(measurementService.getDashboardData()).thenReturn(Optional.of(mockDashboard));
+            when(measurementService.getDashboardJson(null)).thenReturn(Optional.of(objectMapper.writeValueAsBytes(mockDashboard)));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard"))
@@ -195,7 +195,7 @@ class DashboardControllerTest extends BaseControllerTest {
         void shouldIncludePowerQualityDeviations() throws Exception {
             // Given
             DashboardDTO mockDashboard = createMockDashboard();
-            when(measurementService.getDashboardData()).thenReturn(Optional.of(mockDashboard));
+            when(measurementService.getDashboardJson(null)).thenReturn(Optional.of(objectMapper.writeValueAsBytes(mockDashboard)));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard"))
@@ -213,7 +213,7 @@ class DashboardControllerTest extends BaseControllerTest {
                     .waveforms(createMockWaveforms())
                     .recentHistory(List.of())  // Empty history
                     .build();
-            when(measurementService.getDashboardData()).thenReturn(Optional.of(dashboardWithNoHistory));
+            when(measurementService.getDashboardJson(null)).thenReturn(Optional.of(objectMapper.writeValueAsBytes(dashboardWithNoHistory)));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard"))
@@ -236,7 +236,7 @@ class DashboardControllerTest extends BaseControllerTest {
         void shouldReturn200_withCompliantIndicators() throws Exception {
             // Given
             PowerQualityIndicatorsDTO compliant = createCompliantIndicators();
-            when(measurementService.getLatestPowerQualityIndicators()).thenReturn(Optional.of(compliant));
+            when(measurementService.getLatestPowerQualityIndicators(null)).thenReturn(Optional.of(compliant));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard/power-quality-indicators"))
@@ -258,7 +258,7 @@ class DashboardControllerTest extends BaseControllerTest {
         void shouldReturn200_withNonCompliantIndicators() throws Exception {
             // Given
             PowerQualityIndicatorsDTO nonCompliant = createNonCompliantIndicators();
-            when(measurementService.getLatestPowerQualityIndicators()).thenReturn(Optional.of(nonCompliant));
+            when(measurementService.getLatestPowerQualityIndicators(null)).thenReturn(Optional.of(nonCompliant));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard/power-quality-indicators"))
@@ -279,7 +279,7 @@ class DashboardControllerTest extends BaseControllerTest {
         @DisplayName("should return 404 Not Found when no indicators available")
         void shouldReturn404_whenNoIndicators() throws Exception {
             // Given
-            when(measurementService.getLatestPowerQualityIndicators()).thenReturn(Optional.empty());
+            when(measurementService.getLatestPowerQualityIndicators(null)).thenReturn(Optional.empty());
 
             // When & Then
             mockMvc.perform(get("/api/dashboard/power-quality-indicators"))
@@ -291,7 +291,7 @@ class DashboardControllerTest extends BaseControllerTest {
         void shouldIncludeTimestamp() throws Exception {
             // Given
             PowerQualityIndicatorsDTO indicators = createCompliantIndicators();
-            when(measurementService.getLatestPowerQualityIndicators()).thenReturn(Optional.of(indicators));
+            when(measurementService.getLatestPowerQualityIndicators(null)).thenReturn(Optional.of(indicators));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard/power-quality-indicators"))
@@ -304,7 +304,7 @@ class DashboardControllerTest extends BaseControllerTest {
         void shouldIncludeHarmonicsVoltageArray() throws Exception {
             // Given
             PowerQualityIndicatorsDTO indicators = createCompliantIndicators();
-            when(measurementService.getLatestPowerQualityIndicators()).thenReturn(Optional.of(indicators));
+            when(measurementService.getLatestPowerQualityIndicators(null)).thenReturn(Optional.of(indicators));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard/power-quality-indicators"))
@@ -328,11 +328,11 @@ class DashboardControllerTest extends BaseControllerTest {
                     .frequencyWithinLimits(true)
                     .thdVoltage(2.5)
                     .thdWithinLimits(true)
-                    .harmonicsVoltage(new Double[]{207.0, 0.5, 1.0, 0.3, 0.5, 0.2, 0.1, 0.05})
+                    .harmonicsVoltage(new double[]{207.0, 0.5, 1.0, 0.3, 0.5, 0.2, 0.1, 0.05})
                     .overallCompliant(true)
                     .statusMessage("All indicators within PN-EN 50160 limits")
                     .build();
-            when(measurementService.getLatestPowerQualityIndicators()).thenReturn(Optional.of(atLimit));
+            when(measurementService.getLatestPowerQualityIndicators(null)).thenReturn(Optional.of(atLimit));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard/power-quality-indicators"))
@@ -355,11 +355,11 @@ class DashboardControllerTest extends BaseControllerTest {
                     .frequencyWithinLimits(true)  // +0.5Hz is still within limits
                     .thdVoltage(2.5)
                     .thdWithinLimits(true)
-                    .harmonicsVoltage(new Double[]{230.0, 0.5, 1.0, 0.3, 0.5, 0.2, 0.1, 0.05})
+                    .harmonicsVoltage(new double[]{230.0, 0.5, 1.0, 0.3, 0.5, 0.2, 0.1, 0.05})
                     .overallCompliant(true)
                     .statusMessage("All indicators within PN-EN 50160 limits")
                     .build();
-            when(measurementService.getLatestPowerQualityIndicators()).thenReturn(Optional.of(atLimit));
+            when(measurementService.getLatestPowerQualityIndicators(null)).thenReturn(Optional.of(atLimit));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard/power-quality-indicators"))
@@ -382,11 +382,11 @@ class DashboardControllerTest extends BaseControllerTest {
                     .frequencyWithinLimits(true)
                     .thdVoltage(8.0)
                     .thdWithinLimits(true)  // 8% is still within limits (< not <=)
-                    .harmonicsVoltage(new Double[]{230.0, 5.0, 3.0, 2.0, 1.0, 0.5, 0.3, 0.2})
+                    .harmonicsVoltage(new double[]{230.0, 5.0, 3.0, 2.0, 1.0, 0.5, 0.3, 0.2})
                     .overallCompliant(true)
                     .statusMessage("All indicators within PN-EN 50160 limits")
                     .build();
-            when(measurementService.getLatestPowerQualityIndicators()).thenReturn(Optional.of(atLimit));
+            when(measurementService.getLatestPowerQualityIndicators(null)).thenReturn(Optional.of(atLimit));
 
             // When & Then
             mockMvc.perform(get("/api/dashboard/power-quality-indicators"))
@@ -1,6 +1,7 @@
 package com.dkowalczyk.scadasystem.controller;
 
 import com.dkowalczyk.scadasystem.BaseControllerTest;
+import com.dkowalczyk.scadasystem.model.dto.IngestShardStatsDTO;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,8 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.Mockito.when;
@@ -318,4 +321,166 @@ class HealthControllerTest extends BaseControllerTest {
                     .andExpect(jsonPath("$.aggregation_job.last_error").isEmpty());
         }
     }
+
+    // ========================================
+    // GET /health/ingest Tests
+    // ========================================
+
+    @Nested
+    @DisplayName("GET /health/ingest")
+    class IngestHealth {
+
+        @Test
+        @DisplayName("should return UP with queue metrics when nothing was dropped")
+        void shouldReturnUp_whenNoDrops() throws Exception {
+            // Given
+            when(ingestService.getQueueDepth()).thenReturn(250);
+            when(ingestService.getQueueCapacity()).thenReturn(1000);
+            when(ingestService.getOverloadPolicy()).thenReturn("DEGRADE");
+            when(ingestService.getDroppedCount()).thenReturn(0L);
+            when(ingestService.getDegradedCount()).thenReturn(12L);
+            when(ingestService.getWaitCount()).thenReturn(0L);
+            when(ingestService.getWaitTimeMs()).thenReturn(0L);
+
+            // When & Then
+            mockMvc.perform(get("/health/ingest"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("UP"))
+                    .andExpect(jsonPath("$.queue.depth").value(250))
+                    .andExpect(jsonPath("$.queue.capacity").value(1000))
+                    .andExpect(jsonPath("$.queue.utilization_percent").value(25.0))
+                    .andExpect(jsonPath("$.queue.overload_policy").value("DEGRADE"))
+                    .andExpect(jsonPath("$.queue.degraded_count").value(12))
+                    .andExpect(jsonPath("$.timestamp").exists());
+        }
+
+        @Test
+        @DisplayName("should return DEGRADED when measurements were dropped")
+        void shouldReturnDegraded_whenDropped() throws Exception {
+            // Given
+            when(ingestService.getQueueCapacity()).thenReturn(1000);
+            when(ingestService.getQueueDepth()).thenReturn(1000);
+            when(ingestService.getDroppedCount()).thenReturn(42L);
+            when(ingestService.getOverloadPolicy()).thenReturn("BLOCK");
+            when(ingestService.getWaitCount()).thenReturn(42L);
+            when(ingestService.getWaitTimeMs()).thenReturn(42_000L);
+
+            // When & Then
+            mockMvc.perform(get("/health/ingest"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("DEGRADED"))
+                    .andExpect(jsonPath("$.queue.dropped_count").value(42))
+                    .andExpect(jsonPath("$.queue.wait_time_ms").value(42000));
+        }
+
+        @Test
+        @DisplayName("should report WAL replay lag and DEGRADED when WAL rejected measurements")
+        void shouldReportWal_whenEnabled() throws Exception {
+            // Given: database outage, disk budget exhausted
+            when(ingestService.getQueueCapacity()).thenReturn(1000);
+            when(ingestService.getOverloadPolicy()).thenReturn("DEGRADE");
+            when(ingestService.isWalEnabled()).thenReturn(true);
+            when(ingestService.getWalLagRecords()).thenReturn(120_000L);
+            when(ingestService.getWalSegmentCount()).thenReturn(128);
+            when(ingestService.getWalDiskBytes()).thenReturn(1_073_741_824L);
+            when(ingestService.getWalMaxDiskBytes()).thenReturn(1_073_741_824L);
+            when(ingestService.getWalRejectedCount()).thenReturn(7L);
+
+            // When & Then
+            mockMvc.perform(get("/health/ingest"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("DEGRADED"))
+                    .andExpect(jsonPath("$.wal.enabled").value(true))
+                    .andExpect(jsonPath("$.wal.lag_records").value(120000))
+                    .andExpect(jsonPath("$.wal.segments").value(128))
+                    .andExpect(jsonPath("$.wal.rejected_count").value(7));
+        }
+
+        @Test
+        @DisplayName("should report per-shard writer metrics")
+        void shouldReportShardStats() throws Exception {
+            // Given
+            when(ingestService.getOverloadPolicy()).thenReturn("DEGRADE");
+            when(ingestService.getShardCount()).thenReturn(2);
+            when(ingestService.getShardStats()).thenReturn(List.of(
+                    IngestShardStatsDTO.builder().shard(0).queueDepth(3).batchCount(10).measurementCount(480)
+                            .avgBatchTimeMs(12.5).maxBatchTimeMs(40.0).lastBatchTimeMs(11.0).build(),
+                    IngestShardStatsDTO.builder().shard(1).queueDepth(0).batchCount(8).measurementCount(400)
+                            .avgBatchTimeMs(10.0).maxBatchTimeMs(30.0).lastBatchTimeMs(9.0).build()));
+
+            // When & Then
+            mockMvc.perform(get("/health/ingest"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.shard_count").value(2))
+                    .andExpect(jsonPath("$.shards[0].queue_depth").value(3))
+                    .andExpect(jsonPath("$.shards[0].avg_batch_time_ms").value(12.5))
+                    .andExpect(jsonPath("$.shards[1].measurement_count").value(400));
+        }
+
+        @Test
+        @DisplayName("should report stream reordering and late measurements")
+        void shouldReportReorderStats() throws Exception {
+            // Given
+            when(ingestService.getOverloadPolicy()).thenReturn("DEGRADE");
+            when(reorderBuffer.getAllowedLatenessMs()).thenReturn(3000L);
+            when(reorderBuffer.getBufferedCount()).thenReturn(12);
+            when(reorderBuffer.getEmittedCount()).thenReturn(5000L);
+            when(reorderBuffer.getLateCount()).thenReturn(4L);
+            when(dataAggregationService.getDatesToCorrect()).thenReturn(Set.of(LocalDate.of(2026, 1, 14)));
+
+            // When & Then
+            mockMvc.perform(get("/health/ingest"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.reorder.allowed_lateness_ms").value(3000))
+                    .andExpect(jsonPath("$.reorder.buffered_count").value(12))
+                    .andExpect(jsonPath("$.reorder.emitted_count").value(5000))
+                    .andExpect(jsonPath("$.reorder.late_count").value(4))
+                    .andExpect(jsonPath("$.reorder.days_to_correct").value(1));
+        }
+    }
+
+    // ========================================
+    // GET /health/websocket Tests
+    // ========================================
+
+    @Nested
+    @DisplayName("GET /health/websocket")
+    class WebSocketHealth {
+
+        @Test
+        @DisplayName("should return UP with conflation counters when no subscriber fell behind")
+        void shouldReturnUp_whenNothingDropped() throws Exception {
+            // Given
+            when(webSocketService.isConflationEnabled()).thenReturn(true);
+            when(webSocketService.getPublishedCount()).thenReturn(1000L);
+            when(webSocketService.getSentCount()).thenReturn(400L);
+            when(webSocketService.getConflatedCount()).thenReturn(600L);
+            when(webSocketOutboundGuard.getSessionCount()).thenReturn(3);
+
+            // When & Then
+            mockMvc.perform(get("/health/websocket"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("UP"))
+                    .andExpect(jsonPath("$.broadcast.conflation_enabled").value(true))
+                    .andExpect(jsonPath("$.broadcast.conflated_count").value(600))
+                    .andExpect(jsonPath("$.broadcast.sent_count").value(400))
+                    .andExpect(jsonPath("$.subscribers.session_count").value(3))
+                    .andExpect(jsonPath("$.timestamp").exists());
+        }
+
+        @Test
+        @DisplayName("should return DEGRADED when frames were dropped for slow subscribers")
+        void shouldReturnDegraded_whenFramesDropped() throws Exception {
+            // Given
+            when(webSocketOutboundGuard.getDroppedCount()).thenReturn(25L);
+            when(webSocketOutboundGuard.getSlowConsumerCount()).thenReturn(1L);
+
+            // When & Then
+            mockMvc.perform(get("/health/websocket"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("DEGRADED"))
+                    .andExpect(jsonPath("$.subscribers.dropped_count").value(25))
+                    .andExpect(jsonPath("$.subscribers.slow_consumer_count").value(1));
+        }
+    }
 }
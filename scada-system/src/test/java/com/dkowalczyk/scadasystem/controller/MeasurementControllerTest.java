@@ -3,6 +3,10 @@ package com.dkowalczyk.scadasystem.controller;
 import com.dkowalczyk.scadasystem.BaseControllerTest;
 import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
 import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.dkowalczyk.scadasystem.model.dto.TrendDTO;
+import com.dkowalczyk.scadasystem.model.dto.TrendPointDTO;
+import com.dkowalczyk.scadasystem.service.MeasurementExportService.Column;
+import com.dkowalczyk.scadasystem.service.MeasurementExportService.Format;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -10,13 +14,20 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -50,8 +61,8 @@ class MeasurementControllerTest extends BaseControllerTest {
         request.setFrequency(50.0);
         request.setThdVoltage(2.5);
         request.setThdCurrent(5.0);
-        request.setHarmonicsV(new Double[]{230.0, 0.5, 1.2, 0.3, 0.8, 0.4, 0.2, 0.1});
-        request.setHarmonicsI(new Double[]{5.0, 0.05, 0.12, 0.03, 0.08, 0.04, 0.02, 0.01});
+        request.setHarmonicsV(new double[]{230.0, 0.5, 1.2, 0.3, 0.8, 0.4, 0.2, 0.1});
+        request.setHarmonicsI(new double[]{5.0, 0.05, 0.12, 0.03, 0.08, 0.04, 0.02, 0.01});
         return request;
     }
 
@@ -231,7 +242,7 @@ class MeasurementControllerTest extends BaseControllerTest {
         void shouldReturn200_whenMeasurementExists() throws Exception {
             // Given
             MeasurementDTO mockMeasurement = createMockDTO();
-            when(measurementService.getLatestMeasurement()).thenReturn(Optional.of(mockMeasurement));
+            when(measurementService.getLatestMeasurement(null)).thenReturn(Optional.of(mockMeasurement));
 
             // When & Then
             mockMvc.perform(get("/api/measurements/latest"))
@@ -246,12 +257,26 @@ class MeasurementControllerTest extends BaseControllerTest {
         @DisplayName("should return 404 Not Found when no measurements exist")
         void shouldReturn404_whenNoMeasurements() throws Exception {
             // Given
-            when(measurementService.getLatestMeasurement()).thenReturn(Optional.empty());
+            when(measurementService.getLatestMeasurement(null)).thenReturn(Optional.empty());
 
             // When & Then
             mockMvc.perform(get("/api/measurements/latest"))
                     .andExpect(status().isNotFound());
         }
+
+        @Test
+        @DisplayName("should return latest measurement of requested node")
+        void shouldReturnLatestOfNode_whenSensorIdProvided() throws Exception {
+            // Given
+            MeasurementDTO mockMeasurement = createMockDTO();
+            mockMeasurement.setSensorId("node2");
+            when(measurementService.getLatestMeasurement("node2")).thenReturn(Optional.of(mockMeasurement));
+
+            // When & Then
+            mockMvc.perform(get("/api/measurements/latest").param("sensorId", "node2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.sensor_id").value("node2"));
+        }
     }
 
     // ========================================
@@ -271,7 +296,7 @@ class MeasurementControllerTest extends BaseControllerTest {
                     createMockDTO(),
                     createMockDTO()
             );
-            when(measurementService.getHistory(any(Instant.class), any(Instant.class), any(Integer.class)))
+            when(measurementService.getHistory(isNull(), any(Instant.class), any(Instant.class), any(Integer.class)))
                     .thenReturn(mockHistory);
 
             long now = Instant.now().getEpochSecond();
@@ -292,7 +317,7 @@ class MeasurementControllerTest extends BaseControllerTest {
         void shouldUseDefaults_whenParametersNotProvided() throws Exception {
             // Given
             List<MeasurementDTO> mockHistory = List.of(createMockDTO());
-            when(measurementService.getHistory(any(Instant.class), any(Instant.class), any(Integer.class)))
+            when(measurementService.getHistory(isNull(), any(Instant.class), any(Instant.class), any(Integer.class)))
                     .thenReturn(mockHistory);
 
             // When & Then: No parameters = defaults (last 1 hour, limit 100)
@@ -305,7 +330,7 @@ class MeasurementControllerTest extends BaseControllerTest {
         @DisplayName("should return empty list when no data in range")
         void shouldReturnEmptyList_whenNoDataInRange() throws Exception {
             // Given
-            when(measurementService.getHistory(any(Instant.class), any(Instant.class), any(Integer.class)))
+            when(measurementService.getHistory(isNull(), any(Instant.class), any(Instant.class), any(Integer.class)))
                     .thenReturn(List.of());
 
             long now = Instant.now().getEpochSecond();
@@ -327,7 +352,7 @@ class MeasurementControllerTest extends BaseControllerTest {
                     createMockDTO(),
                     createMockDTO()
             );
-            when(measurementService.getHistory(any(Instant.class), any(Instant.class), any(Integer.class)))
+            when(measurementService.getHistory(isNull(), any(Instant.class), any(Instant.class), any(Integer.class)))
                     .thenReturn(mockHistory);
 
             // When & Then
@@ -337,6 +362,20 @@ class MeasurementControllerTest extends BaseControllerTest {
                     .andExpect(jsonPath("$", hasSize(2)));
         }
 
+        @Test
+        @DisplayName("should pass sensorId filter to service")
+        void shouldFilterByNode_whenSensorIdProvided() throws Exception {
+            // Given
+            when(measurementService.getHistory(eq("node2"), any(Instant.class), any(Instant.class), any(Integer.class)))
+                    .thenReturn(List.of(createMockDTO()));
+
+            // When & Then
+            mockMvc.perform(get("/api/measurements/history")
+                            .param("sensorId", "node2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(1)));
+        }
+
         @Test
         @DisplayName("should return 400 Bad Request when limit exceeds maximum")
         void shouldReturn400_whenLimitExceedsMax() throws Exception {
@@ -355,4 +394,111 @@ class MeasurementControllerTest extends BaseControllerTest {
                     .andExpect(status().isBadRequest());
         }
     }
+
+    // ========================================
+    // GET /api/measurements/trend Tests
+    // ========================================
+
+    @Nested
+    @DisplayName("GET /api/measurements/trend")
+    class GetTrend {
+
+        @Test
+        @DisplayName("should return 200 OK with rollup points")
+        void shouldReturnTrend() throws Exception {
+            // Given
+            Instant from = Instant.ofEpochSecond(1_700_000_000L);
+            Instant to = from.plusSeconds(3600);
+            TrendDTO trend = TrendDTO.builder()
+                    .sensorId("node1")
+                    .from(from)
+                    .to(to)
+                    .resolution("MINUTE")
+                    .bucketSeconds(60)
+                    .points(List.of(TrendPointDTO.builder().time(from).count(20).voltageAvg(230.0).build()))
+                    .build();
+            when(rollupService.getTrend("node1", from, to, 100)).thenReturn(trend);
+
+            // When & Then
+            mockMvc.perform(get("/api/measurements/trend")
+                            .param("sensorId", "node1")
+                            .param("from", String.valueOf(from.getEpochSecond()))
+                            .param("to", String.valueOf(to.getEpochSecond()))
+                            .param("maxPoints", "100"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.resolution").value("MINUTE"))
+                    .andExpect(jsonPath("$.bucket_seconds").value(60))
+                    .andExpect(jsonPath("$.points", hasSize(1)))
+                    .andExpect(jsonPath("$.points[0].voltage_avg").value(230.0));
+        }
+
+        @Test
+        @DisplayName("should return 400 Bad Request when maxPoints exceeds maximum")
+        void shouldReturn400_whenMaxPointsExceedsMax() throws Exception {
+            // When & Then
+            mockMvc.perform(get("/api/measurements/trend")
+                            .param("maxPoints", "5001"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    // ========================================
+    // GET /api/measurements/export Tests
+    // ========================================
+
+    @Nested
+    @DisplayName("GET /api/measurements/export")
+    class Export {
+
+        @Test
+        @DisplayName("should stream the export as a CSV attachment")
+        void shouldStreamCsv() throws Exception {
+            // Given
+            doAnswer(invocation -> {
+                OutputStream out = invocation.getArgument(5);
+                out.write("time,voltage_rms\n2026-01-15T12:00:00Z,230.0\n".getBytes(StandardCharsets.UTF_8));
+                return 1L;
+            }).when(exportService).export(eq("node1"), eq(Instant.ofEpochSecond(1000)), eq(Instant.ofEpochSecond(2000)),
+                    eq(Format.CSV), eq(List.of(Column.TIME, Column.VOLTAGE_RMS)), any(OutputStream.class));
+
+            // When
+            MvcResult result = mockMvc.perform(get("/api/measurements/export")
+                            .param("sensorId", "node1")
+                            .param("from", "1000")
+                            .param("to", "2000")
+                            .param("format", "csv")
+                            .param("columns", "time,voltage_rms"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            // Then
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                    .andExpect(header().string("Content-Disposition", containsString("measurements-1000-2000.csv")))
+                    .andExpect(content().string("time,voltage_rms\n2026-01-15T12:00:00Z,230.0\n"));
+        }
+
+        @Test
+        @DisplayName("should return 400 Bad Request for an unknown column before streaming")
+        void shouldReturn400_whenColumnUnknown() throws Exception {
+            // When & Then
+            mockMvc.perform(get("/api/measurements/export")
+                            .param("columns", "time,waveform_v"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("should return 400 Bad Request when the range is rejected")
+        void shouldReturn400_whenRangeTooLong() throws Exception {
+            // Given
+            doThrow(new IllegalArgumentException("Export range cannot exceed 92 days"))
+                    .when(exportService).validateRange(any(Instant.class), any(Instant.class));
+
+            // When & Then
+            mockMvc.perform(get("/api/measurements/export")
+                            .param("format", "ndjson"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
 }
@@ -8,10 +8,12 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.sql.SQLException;
 import java.time.Instant;
 import java.util.List;
 
@@ -67,7 +69,7 @@ class GlobalExceptionHandlerTest extends BaseIntegrationTest {
         @DisplayName("should return 404 with error details when measurement not found")
         void shouldReturn404_whenMeasurementNotFound() throws Exception {
             // Given
-            when(measurementService.getLatestMeasurement())
+            when(measurementService.getLatestMeasurement(null))
                     .thenThrow(new MeasurementNotFoundException("No measurements found in database"));
 
             // When & Then
@@ -82,7 +84,7 @@ class GlobalExceptionHandlerTest extends BaseIntegrationTest {
         @DisplayName("should include ISO 8601 timestamp in error response")
         void shouldIncludeTimestampInErrorResponse() throws Exception {
             // Given
-            when(measurementService.getLatestMeasurement())
+            when(measurementService.getLatestMeasurement(null))
                     .thenThrow(new MeasurementNotFoundException("Not found"));
 
             // When & Then
@@ -96,7 +98,7 @@ class GlobalExceptionHandlerTest extends BaseIntegrationTest {
         @DisplayName("should return consistent error response structure")
         void shouldReturnConsistentStructure() throws Exception {
             // Given
-            when(measurementService.getLatestMeasurement())
+            when(measurementService.getLatestMeasurement(null))
                     .thenThrow(new MeasurementNotFoundException("Not found"));
 
             // When & Then
@@ -152,6 +154,69 @@ class GlobalExceptionHandlerTest extends BaseIntegrationTest {
         }
     }
 
+    // ========================================
+    // DataIntegrityViolationException Tests
+    // ========================================
+
+    @Nested
+    @DisplayName("DataIntegrityViolationException Handling")
+    class DataIntegrityViolationHandling {
+
+        @Test
+        @DisplayName("should return 409 when the measurement is already stored")
+        void shouldReturn409_whenDuplicateMeasurement() throws Exception {
+            // Given
+            MeasurementRequest request = createValidRequest();
+            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
+                    .thenThrow(new DataIntegrityViolationException(
+                            "duplicate key value violates unique constraint \"uk_measurements_time_payload_hash\""));
+
+            // When & Then: constraint details are not leaked
+            mockMvc.perform(post("/api/measurements")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$.error").value("Conflict"))
+                    .andExpect(jsonPath("$.message").value(not(containsString("uk_measurements"))));
+        }
+
+        @Test
+        @DisplayName("should return 409 when PostgreSQL names the partition's copy of the index")
+        void shouldReturn409_whenDuplicateInPartition() throws Exception {
+            // Given: the error as pgjdbc reports it for a partitioned measurements table
+            MeasurementRequest request = createValidRequest();
+            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
+                    .thenThrow(new DataIntegrityViolationException("could not execute statement",
+                            new SQLException("ERROR: duplicate key value violates unique constraint"
+                                    + " \"measurements_p20261016_time_payload_hash_idx\"", "23505")));
+
+            // When & Then
+            mockMvc.perform(post("/api/measurements")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$.error").value("Conflict"));
+        }
+
+        @Test
+        @DisplayName("should return 500 for violations of other constraints")
+        void shouldReturn500_whenOtherConstraintViolated() throws Exception {
+            // Given
+            MeasurementRequest request = createValidRequest();
+            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
+                    .thenThrow(new DataIntegrityViolationException(
+                            "null value in column \"voltage_rms\" violates not-null constraint"));
+
+            // When & Then
+            mockMvc.perform(post("/api/measurements")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isInternalServerError())
+                    .andExpect(jsonPath("$.error").value("Internal Server Error"))
+                    .andExpect(jsonPath("$.errorId").exists());
+        }
+    }
+
     // ========================================
     // MethodArgumentTypeMismatchException Tests
     // ========================================
@@ -0,0 +1,109 @@
+package com.dkowalczyk.scadasystem.loadgen;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Matches published measurements with the WebSocket frames that carry them and keeps the latencies.
+ * <p>
+ * A measurement is identified by node id + device timestamp (epoch seconds), which both survive
+ * the trip through MQTT, the database and /topic/measurements. Nodes publishing faster than once
+ * per second share a timestamp; those are matched first-in, first-out, which holds because the
+ * backend broadcasts a node's measurements in device-time order, ties in arrival order.
+ * <p>
+ * Latencies are kept in a growable array (one long per frame), enough for runs of a few million
+ * measurements, and percentiles are computed once at the end.
+ */
+public class LatencyRecorder {
+
+    private final Map<String, Queue<Long>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong unmatchedCount = new AtomicLong();
+
+    private long[] latencies = new long[1024];
+    private int size;
+
+    /** Called right before the measurement is handed to the MQTT client. */
+    public void published(String sensorId, long timestamp, long publishNanos) {
+        pending.computeIfAbsent(key(sensorId, timestamp), k -> new ConcurrentLinkedQueue<>()).add(publishNanos);
+        publishedCount.incrementAndGet();
+    }
+
+    /** Called when the publish failed, so the measurement is not counted as lost. */
+    public void publishFailed(String sensorId, long timestamp) {
+        Queue<Long> queue = pending.get(key(sensorId, timestamp));
+        if (queue != null && queue.poll() != null) {
+            publishedCount.decrementAndGet();
+        }
+    }
+
+    /** Called for every WebSocket frame; frames of other publishers are counted as unmatched. */
+    public void received(String sensorId, long timestamp, long receiveNanos) {
+        Queue<Long> queue = pending.get(key(sensorId, timestamp));
+        Long publishNanos = queue != null ? queue.poll() : null;
+        if (publishNanos == null) {
+            unmatchedCount.incrementAndGet();
+            return;
+        }
+        record(receiveNanos - publishNanos);
+    }
+
+    synchronized void record(long latencyNanos) {
+        if (size == latencies.length) {
+            latencies = Arrays.copyOf(latencies, size * 2);
+        }
+        latencies[size++] = latencyNanos;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    public synchronized int getReceivedCount() {
+        return size;
+    }
+
+    public long getUnmatchedCount() {
+        return unmatchedCount.get();
+    }
+
+    /** Published measurements without a frame yet (in flight, invalid or lost). */
+    public long getMissingCount() {
+        return publishedCount.get() - getReceivedCount();
+    }
+
+    /**
+     * @param percentile 0-100
+     * @return latency in milliseconds, 0 if nothing was received
+     */
+    public synchronized double percentileMs(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return toMillis(sorted[Math.max(0, Math.min(index, size - 1))]);
+    }
+
+    public synchronized double maxMs() {
+        long max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, latencies[i]);
+        }
+        return toMillis(max);
+    }
+
+    private static String key(String sensorId, long timestamp) {
+        return sensorId + '@' + timestamp;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,322 @@
+package com.dkowalczyk.scadasystem.loadgen;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.dkowalczyk.scadasystem.util.MeasurementBinaryCodec;
+import com.dkowalczyk.scadasystem.util.MeasurementBinaryCodec.SampleEncoding;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MQTT load generator: N virtual ESP32 nodes publishing simulator-like measurements.
+ * <p>
+ * WHY JAVA: esp32-simulator/simulator.js drives one node every 3 s; sizing the backend needs
+ * hundreds to thousands of nodes at configurable rates, with end-to-end latency measured
+ * from MQTT publish to the /topic/measurements WebSocket frame of the same measurement.
+ * <p>
+ * Nodes are named {prefix}1..{prefix}N, get load profiles round-robin and publish on
+ * scada/measurements/{node} (JSON) or scada/measurements/bin/{node} (binary). They share a
+ * few MQTT connections, since one connection per node would load the generator host more
+ * than the backend. Each node starts at a random offset inside the interval so publishes
+ * are spread evenly instead of arriving in bursts.
+ * <p>
+ * Settings are read from system properties, see {@link Config#fromSystemProperties()}.
+ * Run against a local broker and backend via {@link LoadGeneratorTest} or {@link #main}.
+ */
+public class LoadGenerator {
+
+    private static final String TOPIC_PREFIX = "scada/measurements/";
+    private static final String BINARY_TOPIC_PREFIX = "scada/measurements/bin/";
+    private static final String MEASUREMENTS_DESTINATION = "/topic/measurements";
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+
+    private final Config config;
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final AtomicLong publishErrors = new AtomicLong();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public LoadGenerator(Config config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Report report = new LoadGenerator(Config.fromSystemProperties()).run();
+        System.out.println(report.format());
+    }
+
+    /**
+     * Connects, publishes for the configured duration, waits for the last frames and
+     * returns the totals. Blocks for duration + drain time.
+     */
+    public Report run() throws Exception {
+        StompSession session = connectWebSocket();
+        List<MqttAsyncClient> clients = connectMqtt();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(config.publisherThreads());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        try {
+            long start = System.nanoTime();
+            scheduleNodes(scheduler, clients);
+            reporter.scheduleAtFixedRate(this::printProgress, REPORT_INTERVAL_SECONDS,
+                    REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+            TimeUnit.SECONDS.sleep(config.durationSeconds());
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            long publishNanos = System.nanoTime() - start;
+
+            // Measurements still in the ingest batch or reorder buffer arrive during the drain
+            long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.drainSeconds());
+            while (recorder.getMissingCount() > 0 && System.nanoTime() < drainDeadline) {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            return new Report(config, recorder, publishErrors.get(), publishNanos);
+        } finally {
+            scheduler.shutdownNow();
+            reporter.shutdownNow();
+            for (MqttAsyncClient client : clients) {
+                disconnectQuietly(client);
+            }
+            session.disconnect();
+        }
+    }
+
+    private void scheduleNodes(ScheduledExecutorService scheduler, List<MqttAsyncClient> clients) {
+        LoadProfile[] profiles = config.profiles();
+        for (int i = 0; i < config.nodes(); i++) {
+            String sensorId = config.nodePrefix() + (i + 1);
+            LoadProfile profile = profiles[i % profiles.length];
+            MqttAsyncClient client = clients.get(i % clients.size());
+            Random random = new Random(config.seed() + i);
+            long initialDelay = ThreadLocalRandom.current().nextLong(config.intervalMs());
+            scheduler.scheduleAtFixedRate(() -> publish(client, sensorId, profile, random),
+                    initialDelay, config.intervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publish(MqttAsyncClient client, String sensorId, LoadProfile profile, Random random) {
+        long timestamp = Instant.now().getEpochSecond();
+        try {
+            MeasurementRequest request = profile.generate(random, timestamp);
+            byte[] payload = config.binary()
+                    ? MeasurementBinaryCodec.encode(request, SampleEncoding.INT16)
+                    : objectMapper.writeValueAsBytes(request);
+            String topic = (config.binary() ? BINARY_TOPIC_PREFIX : TOPIC_PREFIX) + sensorId;
+
+            MqttMessage message = new MqttMessage(payload);
+            message.setQos(config.qos());
+            recorder.published(sensorId, timestamp, System.nanoTime());
+            client.publish(topic, message, null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken token) {
+                }
+
+                @Override
+                public void onFailure(IMqttToken token, Throwable exception) {
+                    recorder.publishFailed(sensorId, timestamp);
+                    publishErrors.incrementAndGet();
+                }
+            });
+        } catch (Exception e) {
+            // Includes "too many publishes in progress": the generator, not the backend, is saturated
+            recorder.publishFailed(sensorId, timestamp);
+            publishErrors.incrementAndGet();
+        }
+    }
+
+    private List<MqttAsyncClient> connectMqtt() throws MqttException {
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        options.setAutomaticReconnect(true);
+        options.setMaxInflight(config.maxInflight());
+        if (!config.username().isEmpty()) {
+            options.setUserName(config.username());
+            options.setPassword(config.password().toCharArray());
+        }
+
+        List<MqttAsyncClient> clients = new ArrayList<>();
+        String runId = UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i < config.connections(); i++) {
+            MqttAsyncClient client = new MqttAsyncClient(config.brokerUrl(),
+                    "scada-loadgen-" + runId + "-" + i, new MemoryPersistence());
+            client.connect(options).waitForCompletion(TimeUnit.SECONDS.toMillis(10));
+            clients.add(client);
+        }
+        return clients;
+    }
+
+    private StompSession connectWebSocket() throws Exception {
+        SockJsClient sockJsClient = new SockJsClient(
+                List.of(new WebSocketTransport(new StandardWebSocketClient())));
+        WebSocketStompClient stompClient = new WebSocketStompClient(sockJsClient);
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+
+        StompSession session = stompClient.connectAsync(config.webSocketUrl(), new StompSessionHandlerAdapter() {
+        }).get(10, TimeUnit.SECONDS);
+        session.subscribe(MEASUREMENTS_DESTINATION, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return JsonNode.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                onMeasurementFrame((JsonNode) payload, System.nanoTime());
+            }
+        });
+        return session;
+    }
+
+    /** MeasurementDTO as broadcast by the backend: snake_case, time as ISO-8601 string. */
+    void onMeasurementFrame(JsonNode frame, long receiveNanos) {
+        JsonNode sensorId = frame.get("sensor_id");
+        JsonNode time = frame.get("time");
+        if (sensorId == null || time == null || sensorId.isNull() || time.isNull()) {
+            return;
+        }
+        recorder.received(sensorId.asText(), Instant.parse(time.asText()).getEpochSecond(), receiveNanos);
+    }
+
+    LatencyRecorder getRecorder() {
+        return recorder;
+    }
+
+    private void printProgress() {
+        System.out.printf("[loadgen] published=%d received=%d missing=%d errors=%d p50=%.1fms p99=%.1fms%n",
+                recorder.getPublishedCount(), recorder.getReceivedCount(), recorder.getMissingCount(),
+                publishErrors.get(), recorder.percentileMs(50), recorder.percentileMs(99));
+    }
+
+    private static void disconnectQuietly(MqttAsyncClient client) {
+        try {
+            client.disconnect().waitForCompletion(TimeUnit.SECONDS.toMillis(5));
+            client.close();
+        } catch (MqttException e) {
+            // Shutting down anyway
+        }
+    }
+
+    /**
+     * Load generator settings.
+     *
+     * @param nodes            number of virtual nodes
+     * @param intervalMs       publish interval per node (simulator: 3000)
+     * @param durationSeconds  publishing time
+     * @param drainSeconds     max wait for outstanding frames after publishing stopped
+     * @param profiles         load profiles, assigned to nodes round-robin
+     * @param binary           publish the binary payload (INT16 waveforms) instead of JSON
+     * @param qos              MQTT QoS (backend subscribes with 1)
+     * @param connections      MQTT connections shared by all nodes
+     * @param maxInflight      unacknowledged publishes per connection
+     * @param publisherThreads threads generating and publishing measurements
+     */
+    public record Config(String brokerUrl, String username, String password, String webSocketUrl,
+                         String nodePrefix, int nodes, long intervalMs, long durationSeconds,
+                         long drainSeconds, LoadProfile[] profiles, boolean binary, int qos,
+                         int connections, int maxInflight, int publisherThreads, long seed) {
+
+        /**
+         * Reads loadgen.* system properties, defaulting to a local docker-compose setup:
+         * <pre>
+         * loadgen.broker-url=tcp://localhost:1883   loadgen.ws-url=http://localhost:8080/ws/measurements
+         * loadgen.username=  loadgen.password=      loadgen.node-prefix=loadgen-node
+         * loadgen.nodes=1000                        loadgen.interval-ms=3000
+         * loadgen.duration-s=60                     loadgen.drain-s=15
+         * loadgen.profiles=resistive,inductive,capacitive,nonlinear,rectifier
+         * loadgen.binary=false                      loadgen.qos=1
+         * loadgen.connections=8                     loadgen.max-inflight=1000
+         * loadgen.threads=4                         loadgen.seed=42
+         * </pre>
+         */
+        public static Config fromSystemProperties() {
+            LoadProfile[] profiles = Arrays.stream(
+                            System.getProperty("loadgen.profiles", "resistive,inductive,capacitive,nonlinear,rectifier")
+                                    .split(","))
+                    .map(LoadProfile::fromName)
+                    .toArray(LoadProfile[]::new);
+            return new Config(
+                    System.getProperty("loadgen.broker-url", "tcp://localhost:1883"),
+                    System.getProperty("loadgen.username", ""),
+                    System.getProperty("loadgen.password", ""),
+                    System.getProperty("loadgen.ws-url", "http://localhost:8080/ws/measurements"),
+                    System.getProperty("loadgen.node-prefix", "loadgen-node"),
+                    Integer.getInteger("loadgen.nodes", 1000),
+                    Long.getLong("loadgen.interval-ms", 3000),
+                    Long.getLong("loadgen.duration-s", 60),
+                    Long.getLong("loadgen.drain-s", 15),
+                    profiles,
+                    Boolean.getBoolean("loadgen.binary"),
+                    Integer.getInteger("loadgen.qos", 1),
+                    Integer.getInteger("loadgen.connections", 8),
+                    Integer.getInteger("loadgen.max-inflight", 1000),
+                    Integer.getInteger("loadgen.threads", 4),
+                    Long.getLong("loadgen.seed", 42));
+        }
+
+        /** Offered load in measurements per second. */
+        public double targetRate() {
+            return nodes * 1000.0 / intervalMs;
+        }
+    }
+
+    /**
+     * Totals of one run. Ingest throughput counts WebSocket frames, i.e. measurements that
+     * were validated, committed and released by the reorder buffer.
+     */
+    public record Report(Config config, LatencyRecorder recorder, long publishErrors, long publishNanos) {
+
+        public double publishRate() {
+            return recorder.getPublishedCount() / seconds();
+        }
+
+        public double ingestRate() {
+            return recorder.getReceivedCount() / seconds();
+        }
+
+        public String format() {
+            return String.format(
+                    "Load generator: %d nodes x %d ms (%s, %s), %.0f msg/s offered%n"
+                            + "  published : %d (%.1f msg/s), %d publish errors%n"
+                            + "  received  : %d (%.1f msg/s), %d missing, %d unmatched frames%n"
+                            + "  latency   : p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms",
+                    config.nodes(), config.intervalMs(), Arrays.toString(config.profiles()),
+                    config.binary() ? "binary" : "JSON", config.targetRate(),
+                    recorder.getPublishedCount(), publishRate(), publishErrors,
+                    recorder.getReceivedCount(), ingestRate(), recorder.getMissingCount(),
+                    recorder.getUnmatchedCount(),
+                    recorder.percentileMs(50), recorder.percentileMs(95), recorder.percentileMs(99),
+                    recorder.maxMs());
+        }
+
+        private double seconds() {
+            return publishNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+}
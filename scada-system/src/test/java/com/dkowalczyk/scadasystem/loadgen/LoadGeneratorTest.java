@@ -0,0 +1,85 @@
+package com.dkowalczyk.scadasystem.loadgen;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.dkowalczyk.scadasystem.service.MeasurementValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load generator tests. The load run itself is disabled by default; it needs a running
+ * broker and backend (docker compose up + the Spring Boot app). Run with:
+ * <pre>
+ * mvn test -Dtest=LoadGeneratorTest -Dloadgen=true -Dloadgen.nodes=2000 -Dloadgen.interval-ms=1000
+ * </pre>
+ * See {@link LoadGenerator.Config#fromSystemProperties()} for all settings.
+ */
+@DisplayName("Load generator")
+class LoadGeneratorTest {
+
+    private final MeasurementValidator validator = new MeasurementValidator();
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadgen", matches = "true")
+    @DisplayName("run load against local broker and backend")
+    void runLoad() throws Exception {
+        // When
+        LoadGenerator.Report report = new LoadGenerator(LoadGenerator.Config.fromSystemProperties()).run();
+
+        // Then
+        System.out.println(report.format());
+        assertThat(report.recorder().getReceivedCount()).isPositive();
+    }
+
+    @ParameterizedTest
+    @EnumSource(LoadProfile.class)
+    @DisplayName("generated measurements pass backend validation")
+    void shouldGenerateValidMeasurements(LoadProfile profile) {
+        // Given
+        Random random = new Random(1);
+
+        // When
+        MeasurementRequest request = profile.generate(random, 1_700_000_000L);
+
+        // Then
+        assertThat(validator.validate(request).isValid()).isTrue();
+        assertThat(request.getTimestamp()).isEqualTo(1_700_000_000L);
+        assertThat(request.getHarmonicsV()).hasSize(25);
+        assertThat(request.getHarmonicsI()).hasSize(25);
+        assertThat(request.getWaveformV()).hasSizeBetween(60, 62);
+    }
+
+    @Test
+    @DisplayName("should match WebSocket frames to publishes per node and timestamp")
+    void shouldMatchFramesToPublishes() throws Exception {
+        // Given
+        LoadGenerator generator = new LoadGenerator(LoadGenerator.Config.fromSystemProperties());
+        ObjectMapper objectMapper = new ObjectMapper();
+        LatencyRecorder recorder = generator.getRecorder();
+        recorder.published("node1", 1_700_000_000L, 1_000_000L);
+        recorder.published("node1", 1_700_000_000L, 2_000_000L);
+        recorder.published("node2", 1_700_000_000L, 3_000_000L);
+
+        // When
+        generator.onMeasurementFrame(objectMapper.readTree(
+                "{\"sensor_id\":\"node1\",\"time\":\"2023-11-14T22:13:20Z\"}"), 6_000_000L);
+        generator.onMeasurementFrame(objectMapper.readTree(
+                "{\"sensor_id\":\"node1\",\"time\":\"2023-11-14T22:13:20Z\"}"), 8_000_000L);
+        generator.onMeasurementFrame(objectMapper.readTree(
+                "{\"sensor_id\":\"other\",\"time\":\"2023-11-14T22:13:20Z\"}"), 9_000_000L);
+
+        // Then
+        assertThat(recorder.getReceivedCount()).isEqualTo(2);
+        assertThat(recorder.getMissingCount()).isEqualTo(1);
+        assertThat(recorder.getUnmatchedCount()).isEqualTo(1);
+        assertThat(recorder.percentileMs(50)).isEqualTo(5.0);
+        assertThat(recorder.maxMs()).isEqualTo(6.0);
+    }
+}
@@ -0,0 +1,171 @@
+package com.dkowalczyk.scadasystem.loadgen;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Electrical load profiles of esp32-simulator/simulator.js, ported for the Java load generator.
+ * <p>
+ * Each virtual node keeps one profile for the whole run, like a real heater or motor does.
+ * {@link #generate(Random, long)} reproduces the simulator's measurement: 1 cycle + 1 sample
+ * of waveform at 3 kHz, 25 harmonics per channel and Budeanu power values.
+ */
+public enum LoadProfile {
+
+    /** Heater / kettle: voltage and current in phase, minimal harmonics. */
+    RESISTIVE(new double[]{1.0, 0.01, 0.005, 0.003, 0.002, 0.001, 0.001, 0.001},
+            new double[]{1.0, 0.008, 0.004, 0.002, 0.001, 0.001, 0.001, 0.001},
+            0.3, 0.99, false, 0.8, 1.2),
+
+    /** Motor / transformer: current lags voltage, odd harmonics from magnetic saturation. */
+    INDUCTIVE(new double[]{1.0, 0.015, 0.008, 0.005, 0.003, 0.002, 0.001, 0.001},
+            new double[]{1.0, 0.03, 0.05, 0.02, 0.04, 0.015, 0.01, 0.008},
+            0.8, 0.70, false, 0.5, 0.9),
+
+    /** PFC bank: current leads voltage, very clean waveform. */
+    CAPACITIVE(new double[]{1.0, 0.01, 0.005, 0.003, 0.002, 0.001, 0.001, 0.001},
+            new double[]{1.0, 0.01, 0.006, 0.003, 0.002, 0.001, 0.001, 0.001},
+            0.4, 0.92, true, 0.3, 0.6),
+
+    /** SMPS / LED driver: heavy current harmonics, poor power factor. */
+    NONLINEAR(new double[]{1.0, 0.02, 0.04, 0.02, 0.03, 0.015, 0.01, 0.008},
+            new double[]{1.0, 0.05, 0.15, 0.08, 0.12, 0.06, 0.04, 0.03},
+            1.0, 0.62, false, 0.08, 0.15),
+
+    /** Bridge rectifier with RC filter: sharp current peaks, high THD. */
+    RECTIFIER(new double[]{1.0, 0.03, 0.06, 0.03, 0.04, 0.02, 0.015, 0.01},
+            new double[]{1.0, 0.08, 0.20, 0.12, 0.15, 0.08, 0.06, 0.04},
+            1.5, 0.72, false, 0.3, 0.6);
+
+    private static final double NOMINAL_VOLTAGE = 230.0;
+    private static final double SAMPLING_FREQ = 3000.0;
+    private static final int HARMONIC_COUNT = 25;
+
+    private final double[] voltageHarmonics;
+    private final double[] currentHarmonics;
+    private final double noise;
+    private final double cosPhi;
+    private final boolean leadingPowerFactor;
+    private final double currentMin;
+    private final double currentMax;
+
+    LoadProfile(double[] voltageHarmonics, double[] currentHarmonics, double noise, double cosPhi,
+                boolean leadingPowerFactor, double currentMin, double currentMax) {
+        this.voltageHarmonics = voltageHarmonics;
+        this.currentHarmonics = currentHarmonics;
+        this.noise = noise;
+        this.cosPhi = cosPhi;
+        this.leadingPowerFactor = leadingPowerFactor;
+        this.currentMin = currentMin;
+        this.currentMax = currentMax;
+    }
+
+    /**
+     * Parses a profile name as accepted by the simulator ("resistive", "inductive", ...).
+     */
+    public static LoadProfile fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Generates one measurement in the ESP32 payload format.
+     *
+     * @param random    per-node random source
+     * @param timestamp device timestamp (epoch seconds)
+     */
+    public MeasurementRequest generate(Random random, long timestamp) {
+        double frequency = 50.0 + (random.nextDouble() - 0.5) * 0.4;
+        int samples = (int) Math.round(SAMPLING_FREQ / frequency) + 1;
+
+        double vFundamental = (NOMINAL_VOLTAGE + (random.nextDouble() - 0.5) * 4) * Math.sqrt(2);
+        double iRms = currentMin + random.nextDouble() * (currentMax - currentMin);
+        double iFundamental = iRms * Math.sqrt(2);
+        double phaseShift = leadingPowerFactor ? -Math.acos(cosPhi) : Math.acos(cosPhi);
+
+        double[] waveformV = waveform(random, vFundamental, voltageHarmonics, samples, frequency, 0, noise);
+        double[] waveformI = waveform(random, iFundamental, currentHarmonics, samples, frequency, phaseShift, noise * 0.001);
+        double actualVRms = rms(waveformV);
+        double actualIRms = rms(waveformI);
+
+        // Budeanu: S = U*I, Q1 from the fundamental, D = sqrt(S² - P² - Q1²)
+        double pActive = actualVRms * actualIRms * cosPhi;
+        double sApparent = actualVRms * actualIRms;
+        double qReactive = (vFundamental / Math.sqrt(2)) * (iFundamental / Math.sqrt(2)) * Math.sin(phaseShift);
+        double distortion = Math.sqrt(Math.max(0, sApparent * sApparent - pActive * pActive - qReactive * qReactive));
+        double powerFactor = sApparent > 0.05 ? pActive / sApparent : 1.0;
+
+        MeasurementRequest request = new MeasurementRequest();
+        request.setTimestamp(timestamp);
+        request.setVoltageRms(round(actualVRms, 10));
+        request.setCurrentRms(round(actualIRms, 1000));
+        request.setPowerActive(round(pActive, 10));
+        request.setPowerApparent(round(sApparent, 10));
+        request.setPowerReactive(round(Math.abs(qReactive), 10));
+        request.setPowerDistortion(round(distortion, 10));
+        request.setPowerFactor(round(powerFactor, 100));
+        request.setFrequency(round(frequency, 10));
+        request.setThdVoltage(round(thd(vFundamental, voltageHarmonics, 10.0), 100));
+        request.setThdCurrent(round(thd(iFundamental, currentHarmonics, 0.15), 100));
+        request.setHarmonicsV(harmonics(random, vFundamental, voltageHarmonics, 100, 0.3));
+        request.setHarmonicsI(harmonics(random, iFundamental, currentHarmonics, 1000, 0.003));
+        request.setWaveformV(waveformV);
+        request.setWaveformI(waveformI);
+        return request;
+    }
+
+    private static double[] waveform(Random random, double fundamental, double[] harmonics, int samples,
+                                     double frequency, double phaseShift, double noise) {
+        double omega = 2 * Math.PI * frequency;
+        double[] waveform = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            double t = i / SAMPLING_FREQ;
+            double value = 0;
+            for (int h = 0; h < harmonics.length; h++) {
+                value += fundamental * harmonics[h] * Math.sin((h + 1) * omega * t + phaseShift);
+            }
+            value += (random.nextDouble() - 0.5) * noise;
+            waveform[i] = round(value, 100);
+        }
+        return waveform;
+    }
+
+    /** Profile harmonics scaled to the fundamental, padded to H25 with small random noise. */
+    private static double[] harmonics(Random random, double fundamental, double[] profile, double precision,
+                                      double paddingNoise) {
+        double[] result = new double[HARMONIC_COUNT];
+        for (int h = 0; h < HARMONIC_COUNT; h++) {
+            result[h] = h < profile.length
+                    ? round(fundamental * profile[h], precision)
+                    : round(random.nextDouble() * paddingNoise, precision);
+        }
+        return result;
+    }
+
+    /** THD in percent; 0 below the firmware's minimum fundamental. */
+    private static double thd(double fundamental, double[] profile, double minFundamental) {
+        if (fundamental < minFundamental) {
+            return 0;
+        }
+        double sumSquares = Arrays.stream(profile, 1, profile.length)
+                .map(h -> fundamental * h)
+                .map(a -> a * a)
+                .sum();
+        double thd = Math.sqrt(sumSquares) / fundamental * 100;
+        return thd > 100 ? 0 : thd;
+    }
+
+    private static double rms(double[] waveform) {
+        double sumSquares = 0;
+        for (double v : waveform) {
+            sumSquares += v * v;
+        }
+        return Math.sqrt(sumSquares / waveform.length);
+    }
+
+    private static double round(double value, double precision) {
+        return Math.round(value * precision) / precision;
+    }
+}
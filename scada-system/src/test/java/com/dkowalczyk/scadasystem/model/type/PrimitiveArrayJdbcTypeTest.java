@@ -0,0 +1,108 @@
+package com.dkowalczyk.scadasystem.model.type;
+
+import com.dkowalczyk.scadasystem.config.ScadaPostgreSQLDialect;
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementWaveform;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.descriptor.java.JavaType;
+import org.hibernate.type.descriptor.jdbc.DoubleJdbcType;
+import org.hibernate.type.descriptor.jdbc.JdbcType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PrimitiveArrayJdbcType.
+ *
+ * Testing strategy:
+ * - Literal formatting and parsing in PostgreSQL text form
+ * - Binding and extraction on mocked JDBC statements (no PostgreSQL available)
+ * - Type resolution of the entity arrays with ScadaPostgreSQLDialect, without a connection
+ */
+@DisplayName("PrimitiveArrayJdbcType Unit Tests")
+class PrimitiveArrayJdbcTypeTest {
+
+    private final PrimitiveArrayJdbcType type = new PrimitiveArrayJdbcType(DoubleJdbcType.INSTANCE);
+
+    @SuppressWarnings("unchecked")
+    private static <X> JavaType<X> javaType(Class<X> javaClass) {
+        JavaType<X> javaType = mock(JavaType.class);
+        when(javaType.getJavaTypeClass()).thenReturn(javaClass);
+        return javaType;
+    }
+
+    @Test
+    @DisplayName("should format and parse double and float arrays")
+    void shouldRoundTripLiterals() {
+        double[] doubles = {230.1, -4.8, 1.0E-5, Double.NaN};
+        float[] floats = {230.1f, -4.8f};
+
+        assertThat(PrimitiveArrayJdbcType.format(doubles)).isEqualTo("{230.1,-4.8,1.0E-5,NaN}");
+        assertThat(PrimitiveArrayJdbcType.parse(PrimitiveArrayJdbcType.format(doubles), double[].class))
+                .containsExactly(doubles);
+        assertThat(PrimitiveArrayJdbcType.parse(PrimitiveArrayJdbcType.format(floats), float[].class))
+                .containsExactly(floats);
+        assertThat(PrimitiveArrayJdbcType.parse("{}", double[].class)).isEmpty();
+        assertThat(PrimitiveArrayJdbcType.parse("{1,NULL}", double[].class)).containsExactly(1.0, Double.NaN);
+        assertThat(PrimitiveArrayJdbcType.parse(null, double[].class)).isNull();
+    }
+
+    @Test
+    @DisplayName("should bind the text literal and read the text form without java.sql.Array")
+    void shouldBindAndExtractText() throws Exception {
+        // Given
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getString(1)).thenReturn("{325.3,0,-325.3}");
+        JavaType<double[]> javaType = javaType(double[].class);
+
+        // When
+        type.getBinder(javaType).bind(statement, new double[]{1.5, 2.0}, 1, null);
+        double[] read = type.getExtractor(javaType).extract(resultSet, 1, null);
+
+        // Then
+        verify(statement).setObject(1, "{1.5,2.0}", Types.OTHER);
+        assertThat(read).containsExactly(325.3, 0.0, -325.3);
+        verify(resultSet, never()).getArray(anyInt());
+    }
+
+    @Test
+    @DisplayName("should map the harmonic and waveform arrays with this type on PostgreSQL")
+    void shouldResolveForPostgreSQL() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.dialect", ScadaPostgreSQLDialect.class.getName())
+                .applySetting("hibernate.boot.allow_jdbc_metadata_access", false)
+                .build();
+        try {
+            Metadata metadata = new MetadataSources(registry)
+                    .addAnnotatedClass(Measurement.class)
+                    .addAnnotatedClass(MeasurementWaveform.class)
+                    .buildMetadata();
+
+            assertThat(List.of(
+                    jdbcType(metadata, Measurement.class, "harmonicsV"),
+                    jdbcType(metadata, Measurement.class, "harmonicsI"),
+                    jdbcType(metadata, MeasurementWaveform.class, "waveformV"),
+                    jdbcType(metadata, MeasurementWaveform.class, "waveformI")))
+                    .allSatisfy(jdbcType -> assertThat(jdbcType).isInstanceOf(PrimitiveArrayJdbcType.class));
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+
+    private static JdbcType jdbcType(Metadata metadata, Class<?> entity, String property) {
+        return ((BasicType<?>) metadata.getEntityBinding(entity.getName()).getProperty(property).getType())
+                .getJdbcType();
+    }
+}
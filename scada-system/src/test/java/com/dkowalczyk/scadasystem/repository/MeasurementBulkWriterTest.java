@@ -0,0 +1,113 @@
+package com.dkowalczyk.scadasystem.repository;
+
+import com.dkowalczyk.scadasystem.BaseRepositoryTest;
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementWaveform;
+import com.dkowalczyk.scadasystem.repository.MeasurementBulkWriter.WriteMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for MeasurementBulkWriter on H2 (JDBC batch INSERT fallback).
+ * The COPY path needs PostgreSQL and shares id assignment and column lists with it.
+ */
+@DisplayName("MeasurementBulkWriter Integration Tests")
+class MeasurementBulkWriterTest extends BaseRepositoryTest {
+
+    @Autowired
+    private MeasurementRepository repository;
+
+    @Autowired
+    private MeasurementWaveformRepository waveformRepository;
+
+    private MeasurementBulkWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new MeasurementBulkWriter(entityManager.getEntityManager(), WriteMode.COPY);
+    }
+
+    private Measurement createMeasurement(Instant time) {
+        return Measurement.builder()
+                .time(time)
+                .sensorId("node1")
+                .payloadHash(time.getEpochSecond())
+                .voltageRms(230.0)
+                .currentRms(5.0)
+                .powerActive(1150.0)
+                .frequency(50.0)
+                .thdVoltage(2.5)
+                .harmonicsV(new double[]{230.0, 4.0, 2.0})
+                .isValid(true)
+                .build();
+    }
+
+    @Test
+    @DisplayName("should assign sequence ids and insert measurements")
+    void shouldAssignIdsAndInsert() {
+        // Given
+        Instant now = Instant.parse("2026-01-15T12:00:00Z");
+        Measurement first = createMeasurement(now);
+        Measurement second = createMeasurement(now.plusSeconds(3));
+
+        // When
+        writer.insert(List.of(first, second));
+        flushAndClear();
+
+        // Then
+        assertThat(first.getId()).isNotNull();
+        assertThat(second.getId()).isNotNull().isNotEqualTo(first.getId());
+        Optional<Measurement> stored = repository.findById(second.getId());
+        assertThat(stored).isPresent();
+        assertThat(stored.get().getTime()).isEqualTo(now.plusSeconds(3));
+        assertThat(stored.get().getSensorId()).isEqualTo("node1");
+        assertThat(stored.get().getHarmonicsV()).containsExactly(230.0, 4.0, 2.0);
+        assertThat(stored.get().getPowerFactor()).isNull();
+    }
+
+    @Test
+    @DisplayName("should store waveforms only for measurements that carry them")
+    void shouldInsertWaveforms() {
+        // Given
+        Instant now = Instant.parse("2026-01-15T12:00:00Z");
+        Measurement withWaveforms = createMeasurement(now);
+        withWaveforms.setWaveformV(new double[]{0.0, 325.0, 0.0});
+        withWaveforms.setWaveformI(new double[]{0.0, 7.0, 0.0});
+        Measurement withoutWaveforms = createMeasurement(now.plusSeconds(3));
+
+        // When
+        writer.insert(List.of(withWaveforms, withoutWaveforms));
+        flushAndClear();
+
+        // Then
+        assertThat(waveformRepository.count()).isEqualTo(1);
+        Optional<MeasurementWaveform> stored = waveformRepository.findByMeasurementIdAndTime(withWaveforms.getId(), now);
+        assertThat(stored).isPresent();
+        assertThat(stored.get().getWaveformI()).containsExactly(0.0, 7.0, 0.0);
+    }
+
+    @Test
+    @DisplayName("should not collide with ids assigned by JPA")
+    void shouldShareIdSequenceWithJpa() {
+        // Given
+        Instant now = Instant.parse("2026-01-15T12:00:00Z");
+        Measurement viaJpa = repository.save(createMeasurement(now));
+
+        // When
+        Measurement viaWriter = createMeasurement(now.plusSeconds(3));
+        writer.insert(List.of(viaWriter));
+        flushAndClear();
+
+        // Then
+        assertThat(viaWriter.getId()).isNotEqualTo(viaJpa.getId());
+        assertThat(repository.count()).isEqualTo(2);
+    }
+}
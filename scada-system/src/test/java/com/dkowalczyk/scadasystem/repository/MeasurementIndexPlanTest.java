@@ -0,0 +1,282 @@
+package com.dkowalczyk.scadasystem.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EXPLAIN-based regression tests for the measurement indexes of V13: the query shapes of
+ * MeasurementRepository must keep using the partial btrees and the BRIN on time, and time
+ * ranges must be pruned to their partitions.
+ * <p>
+ * Needs PostgreSQL; H2 plans say nothing about it. Migrates a scratch schema with the real
+ * Flyway migrations, loads {@code explain.nodes} nodes x 7 days at a 3 s cadence (15 nodes:
+ * about 3 million rows, 2% invalid, in time order like live ingest), VACUUM ANALYZE, then
+ * checks the plans. Disabled by default. Run with:
+ * <pre>
+ * mvn test -Dtest=MeasurementIndexPlanTest -Dexplain.jdbc-url=jdbc:postgresql://localhost:5432/energy_monitor \
+ *     -Dexplain.username=energyuser -Dexplain.password=...
+ * </pre>
+ * The schema is dropped afterwards unless {@code -Dexplain.keep=true}.
+ * <p>
+ * SQL mirrors the JPQL of MeasurementRepository (Hibernate renders the same predicates).
+ * The empty measurements_default partition is ignored: a sequential scan of an empty table
+ * is the right plan.
+ */
+@EnabledIfSystemProperty(named = "explain.jdbc-url", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("Measurement index plans (PostgreSQL)")
+class MeasurementIndexPlanTest {
+
+    private static final String SCHEMA = "measurement_index_plan_test";
+    private static final int DAYS = 7;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String VALID_TIME = "idx_measurements_valid_time";
+    private static final String VALID_SENSOR_TIME = "idx_measurements_valid_sensor_time";
+    private static final String TIME_BRIN = "idx_measurements_time_brin";
+    private static final String TIME_PAYLOAD_HASH = "uk_measurements_time_payload_hash";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JdbcTemplate jdbcTemplate;
+    /** Partition index name -> index on the measurements parent. */
+    private Map<String, String> parentIndexes;
+    /** Middle day of the loaded data. */
+    private LocalDate day;
+
+    /** Scan nodes of a plan: type, relation and (for index scans) the parent index. */
+    record Scan(String nodeType, String relation, String index) {
+    }
+
+    @BeforeAll
+    void setUp() {
+        Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("currentSchema", SCHEMA);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("explain.jdbc-url"),
+                System.getProperty("explain.username", "energyuser"),
+                System.getProperty("explain.password", ""));
+        dataSource.setConnectionProperties(connectionProperties);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(SCHEMA)
+                .defaultSchema(SCHEMA)
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+
+        // V10 pre-creates daily partitions from CURRENT_DATE for 7 days
+        LocalDate firstDay = jdbcTemplate.queryForObject("SELECT CURRENT_DATE", LocalDate.class);
+        day = firstDay.plusDays(DAYS / 2);
+
+        long start = System.nanoTime();
+        int rows = jdbcTemplate.update("""
+                INSERT INTO measurements (time, sensor_id, payload_hash, voltage_rms, current_rms, frequency,
+                    power_active, power_factor, thd_voltage, harmonics_v, harmonics_i, is_valid)
+                SELECT t, 'node' || n, extract(epoch FROM t)::bigint * 1000 + n,
+                    228 + random() * 4, 5.0, 49.95 + random() * 0.1,
+                    1100 + random() * 100, 0.95, 2.5,
+                    array_fill(1.0::float8, ARRAY[25]), array_fill(0.1::float8, ARRAY[25]),
+                    random() > 0.02
+                FROM generate_series(CAST(? AS timestamp), CAST(? AS timestamp), interval '3 seconds') t
+                CROSS JOIN generate_series(1, ?) n
+                ORDER BY t, n
+                """,
+                firstDay.atStartOfDay().format(TIMESTAMP),
+                firstDay.plusDays(DAYS).atStartOfDay().minusSeconds(3).format(TIMESTAMP),
+                Integer.getInteger("explain.nodes", 15));
+        jdbcTemplate.execute("VACUUM ANALYZE measurements");
+        System.out.printf("Loaded %,d measurements in %d s%n", rows, (System.nanoTime() - start) / 1_000_000_000L);
+
+        parentIndexes = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT child.relname, parent.relname
+                FROM pg_inherits i
+                JOIN pg_class child ON child.oid = i.inhrelid
+                JOIN pg_class parent ON parent.oid = i.inhparent
+                WHERE parent.relkind = 'I' AND parent.relnamespace = ?::regnamespace
+                """,
+                rs -> {
+                    parentIndexes.put(rs.getString(1), rs.getString(2));
+                },
+                SCHEMA);
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (jdbcTemplate != null && !Boolean.getBoolean("explain.keep")) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        }
+    }
+
+    @Test
+    @DisplayName("latest and top 100 valid measurements read the partial time index backwards")
+    void topQueriesUsePartialTimeIndex() {
+        for (String sql : List.of(
+                "SELECT * FROM measurements WHERE is_valid = true ORDER BY time DESC LIMIT 1",
+                "SELECT * FROM measurements WHERE is_valid = true ORDER BY time DESC LIMIT 100")) {
+            List<Scan> scans = explain(sql);
+
+            assertNoSequentialScans(scans);
+            assertThat(indexes(scans)).containsOnly(VALID_TIME);
+        }
+    }
+
+    @Test
+    @DisplayName("per-node latest and history use the partial (sensor_id, time) index")
+    void perNodeQueriesUsePartialSensorIndex() {
+        List<Scan> top = explain(
+                "SELECT * FROM measurements WHERE sensor_id = 'node3' AND is_valid = true ORDER BY time DESC LIMIT 100");
+        List<Scan> history = explain("SELECT id, time, voltage_rms FROM measurements"
+                + " WHERE sensor_id = 'node3' AND is_valid = true AND time BETWEEN " + range(10, 12)
+                + " ORDER BY time DESC LIMIT 1000");
+
+        assertNoSequentialScans(top);
+        assertThat(indexes(top)).containsOnly(VALID_SENSOR_TIME);
+        assertNoSequentialScans(history);
+        assertThat(indexes(history)).containsOnly(VALID_SENSOR_TIME);
+        assertThat(relations(history)).containsOnly(partition(day));
+    }
+
+    @Test
+    @DisplayName("history page is pruned to its partition and served by an index")
+    void historyPageUsesIndexOnOnePartition() {
+        List<Scan> scans = explain("SELECT id, time, voltage_rms FROM measurements"
+                + " WHERE is_valid = true AND time BETWEEN " + range(10, 11)
+                + " ORDER BY time DESC LIMIT 1000");
+
+        assertNoSequentialScans(scans);
+        assertThat(indexes(scans)).isNotEmpty().isSubsetOf(VALID_TIME, TIME_BRIN);
+        assertThat(relations(scans)).containsOnly(partition(day));
+    }
+
+    @Test
+    @DisplayName("wide stats and rollup ranges use the BRIN or partial index, not a full scan")
+    void wideRangesUseIndexes() {
+        List<Scan> stats = explain("SELECT time, voltage_rms, power_active, frequency, power_factor, thd_voltage"
+                + " FROM measurements WHERE is_valid = true AND time BETWEEN " + range(6, 10)
+                + " ORDER BY time");
+        List<Scan> rollup = explain("SELECT sensor_id, time, voltage_rms, power_active, frequency"
+                + " FROM measurements WHERE is_valid = true"
+                + " AND time >= '" + at(13) + "' AND time < '" + at(14) + "'"
+                + " ORDER BY sensor_id, time");
+
+        assertNoSequentialScans(stats);
+        assertThat(indexes(stats)).isNotEmpty().isSubsetOf(TIME_BRIN, VALID_TIME);
+        assertNoSequentialScans(rollup);
+        assertThat(indexes(rollup)).isNotEmpty().isSubsetOf(TIME_BRIN, VALID_TIME);
+    }
+
+    @Test
+    @DisplayName("full-day stats touch only that day's partition")
+    void dailyStatsArePrunedToOnePartition() {
+        List<Scan> scans = explain("SELECT time, voltage_rms, power_active, frequency, power_factor, thd_voltage"
+                + " FROM measurements WHERE is_valid = true AND time BETWEEN '" + at(0) + "' AND '"
+                + day.atTime(23, 59, 59).format(TIMESTAMP) + "' ORDER BY time");
+
+        // Whole partition: a sequential scan is the right plan here
+        assertThat(relations(scans)).containsOnly(partition(day));
+    }
+
+    @Test
+    @DisplayName("duplicate check uses the unique (time, payload_hash) index")
+    void duplicateCheckUsesUniqueIndex() {
+        List<Scan> scans = explain("SELECT payload_hash FROM measurements"
+                + " WHERE time BETWEEN '" + at(12) + "' AND '" + day.atTime(12, 0, 30).format(TIMESTAMP) + "'"
+                + " AND payload_hash IN (1, 2, 3)");
+
+        assertNoSequentialScans(scans);
+        assertThat(indexes(scans)).containsOnly(TIME_PAYLOAD_HASH);
+    }
+
+    // ========================================
+    // Plan helpers
+    // ========================================
+
+    private List<Scan> explain(String sql) {
+        String json = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class);
+        try {
+            List<Scan> scans = new ArrayList<>();
+            collectScans(objectMapper.readTree(json).get(0).get("Plan"), scans);
+            System.out.println(sql + "\n  -> " + scans);
+            return scans;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot parse plan of: " + sql, e);
+        }
+    }
+
+    private void collectScans(JsonNode plan, List<Scan> scans) {
+        if (plan.has("Relation Name") || plan.has("Index Name")) {
+            String index = plan.has("Index Name") ? plan.get("Index Name").asText() : null;
+            scans.add(new Scan(
+                    plan.get("Node Type").asText(),
+                    plan.has("Relation Name") ? plan.get("Relation Name").asText() : null,
+                    index != null ? parentIndexes.getOrDefault(index, index) : null));
+        }
+        if (plan.has("Plans")) {
+            for (JsonNode child : plan.get("Plans")) {
+                collectScans(child, scans);
+            }
+        }
+    }
+
+    private static void assertNoSequentialScans(List<Scan> scans) {
+        assertThat(scans)
+                .filteredOn(scan -> "Seq Scan".equals(scan.nodeType()))
+                .filteredOn(scan -> !"measurements_default".equals(scan.relation()))
+                .isEmpty();
+    }
+
+    private static Set<String> indexes(List<Scan> scans) {
+        return scans.stream()
+                .map(Scan::index)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    /** Scanned relations, without the empty default partition (bitmap index scans have none). */
+    private static Set<String> relations(List<Scan> scans) {
+        return scans.stream()
+                .map(Scan::relation)
+                .filter(relation -> relation != null && !"measurements_default".equals(relation))
+                .collect(Collectors.toSet());
+    }
+
+    private String at(int hour) {
+        return day.atTime(hour, 0).format(TIMESTAMP);
+    }
+
+    private String range(int fromHour, int toHour) {
+        return "'" + at(fromHour) + "' AND '" + at(toHour) + "'";
+    }
+
+    private static String partition(LocalDate day) {
+        return "measurements_p" + day.format(PARTITION_SUFFIX);
+    }
+}
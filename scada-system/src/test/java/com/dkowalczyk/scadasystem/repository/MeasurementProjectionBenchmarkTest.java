@@ -0,0 +1,178 @@
+package com.dkowalczyk.scadasystem.repository;
+
+import com.dkowalczyk.scadasystem.BaseRepositoryTest;
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Entity loads vs column-pruned projections for daily stats and history.
+ * <p>
+ * Bytes are estimated from the raw result sets of the equivalent SQL (8 bytes per number
+ * and timestamp, 8 per array element, string length), i.e. the payload the database has
+ * to read and send; protocol overhead is ignored.
+ * <p>
+ * Disabled by default. Run with:
+ * <pre>
+ * mvn test -Dtest=MeasurementProjectionBenchmarkTest -Dbenchmark=true
+ * </pre>
+ * Runs on H2 in-memory, so latency mostly shows mapping and persistence-context cost;
+ * over a network to PostgreSQL the byte savings add to it. Compare runs on the same machine.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Measurement projection benchmark")
+class MeasurementProjectionBenchmarkTest extends BaseRepositoryTest {
+
+    /** One node for a full day at a 3 s cadence. */
+    private static final int ROWS = 28_800;
+    private static final int HARMONICS = 25;
+    private static final int HISTORY_LIMIT = 1_000;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    private static final String WHERE = " FROM measurements WHERE is_valid = TRUE AND time BETWEEN ? AND ?";
+
+    @Autowired
+    private MeasurementRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("compare entity and projection loads")
+    void compareEntityAndProjection() {
+        // Given
+        Instant from = Instant.parse("2026-01-15T00:00:00Z");
+        Instant to = from.plusSeconds(86_400);
+        persistDay(from);
+        Pageable history = PageRequest.of(0, HISTORY_LIMIT, Sort.by("time").descending());
+
+        // When
+        double statsEntityMs = measure(() ->
+                repository.findByIsValidTrueAndTimeBetween(from, to, Pageable.unpaged()).size());
+        double statsRowsMs = measure(() -> repository.findStatsRows(from, to).size());
+        double historyEntityMs = measure(() ->
+                repository.findByIsValidTrueAndTimeBetween(from, to, history).size());
+        double historyRowsMs = measure(() -> repository.findHistoryRows(from, to, history).size());
+
+        long entityBytes = resultBytes("SELECT *" + WHERE, from, to);
+        long statsBytes = resultBytes("SELECT time, voltage_rms, power_active, frequency, power_factor, thd_voltage"
+                + WHERE, from, to);
+        long historyEntityBytes = resultBytes("SELECT *" + WHERE + " ORDER BY time DESC LIMIT " + HISTORY_LIMIT, from, to);
+        long historyBytes = resultBytes("SELECT id, time, sensor_id, voltage_rms, current_rms, power_active,"
+                + " power_apparent, power_reactive, power_distortion, power_factor, frequency, thd_voltage,"
+                + " thd_current, harmonics_v, harmonics_i, voltage_deviation_percent, frequency_deviation_hz"
+                + WHERE + " ORDER BY time DESC LIMIT " + HISTORY_LIMIT, from, to);
+
+        // Then
+        System.out.printf("Daily stats (%d rows)%n", ROWS);
+        System.out.printf("  entities   : %10d bytes, %8.1f ms%n", entityBytes, statsEntityMs);
+        System.out.printf("  projection : %10d bytes, %8.1f ms (%.1fx less data, %.1fx faster)%n",
+                statsBytes, statsRowsMs, (double) entityBytes / statsBytes, statsEntityMs / statsRowsMs);
+        System.out.printf("History (limit %d)%n", HISTORY_LIMIT);
+        System.out.printf("  entities   : %10d bytes, %8.1f ms%n", historyEntityBytes, historyEntityMs);
+        System.out.printf("  projection : %10d bytes, %8.1f ms (%.1fx less data, %.1fx faster)%n",
+                historyBytes, historyRowsMs, (double) historyEntityBytes / historyBytes, historyEntityMs / historyRowsMs);
+        assertThat(statsBytes).isLessThan(entityBytes);
+        assertThat(historyBytes).isLessThanOrEqualTo(historyEntityBytes);
+    }
+
+    private void persistDay(Instant from) {
+        for (int i = 0; i < ROWS; i++) {
+            double[] harmonicsV = new double[HARMONICS];
+            double[] harmonicsI = new double[HARMONICS];
+            for (int h = 0; h < HARMONICS; h++) {
+                harmonicsV[h] = h == 0 ? 230.0 : 2.0 / h;
+                harmonicsI[h] = h == 0 ? 5.0 : 0.5 / h;
+            }
+            entityManager.persist(Measurement.builder()
+                    .time(from.plusSeconds(i * 3L))
+                    .sensorId("node1")
+                    .payloadHash((long) i)
+                    .voltageRms(230.0 + (i % 10))
+                    .currentRms(5.0)
+                    .powerActive(1150.0)
+                    .powerApparent(1200.0)
+                    .powerReactive(300.0)
+                    .powerDistortion(50.0)
+                    .powerFactor(0.95)
+                    .frequency(50.0)
+                    .thdVoltage(2.5)
+                    .thdCurrent(8.0)
+                    .harmonicsV(harmonicsV)
+                    .harmonicsI(harmonicsI)
+                    .voltageDeviationPercent(0.0)
+                    .frequencyDeviationHz(0.0)
+                    .isValid(true)
+                    .build());
+            if (i % 1_000 == 999) {
+                flushAndClear();
+            }
+        }
+        flushAndClear();
+    }
+
+    /** Average wall time in ms; the persistence context is cleared so every run loads from the database. */
+    private double measure(Supplier<Integer> query) {
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            checksum += query.get();
+            entityManager.clear();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            checksum += query.get();
+            entityManager.clear();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(checksum).isPositive();
+        return elapsed / 1_000_000.0 / MEASURED_ITERATIONS;
+    }
+
+    private long resultBytes(String sql, Instant from, Instant to) {
+        return jdbcTemplate.query(sql, rs -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            long bytes = 0;
+            while (rs.next()) {
+                for (int c = 1; c <= meta.getColumnCount(); c++) {
+                    bytes += valueBytes(rs, c);
+                }
+            }
+            return bytes;
+        }, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    private static long valueBytes(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Array array) {
+            return 8L * ((Object[]) array.getArray()).length;
+        }
+        if (value instanceof Object[] elements) {
+            return 8L * elements.length;
+        }
+        if (value instanceof String text) {
+            return text.length();
+        }
+        return value instanceof Boolean ? 1 : 8;
+    }
+}
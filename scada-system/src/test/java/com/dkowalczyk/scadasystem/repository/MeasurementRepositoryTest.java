@@ -2,6 +2,9 @@ package com.dkowalczyk.scadasystem.repository;
 
 import com.dkowalczyk.scadasystem.BaseRepositoryTest;
 import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementKey;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementStatsRow;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -11,6 +14,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
@@ -55,6 +59,13 @@ class MeasurementRepositoryTest extends BaseRepositoryTest {
         return measurement;
     }
 
+    private Measurement persistMeasurement(String sensorId, Instant time, boolean isValid) {
+        Measurement measurement = createMeasurement(time, isValid);
+        measurement.setSensorId(sensorId);
+        entityManager.persist(measurement);
+        return measurement;
+    }
+
 
     // ========================================
     // findTopByIsValidTrueOrderByTimeDesc Tests
@@ -371,6 +382,250 @@ class MeasurementRepositoryTest extends BaseRepositoryTest {
     // Edge Cases & Performance
     // ========================================
 
+    // ========================================
+    // Per-node (sensorId) Query Tests
+    // ========================================
+
+    @Nested
+    @DisplayName("findBySensorId... queries")
+    class FindBySensorId {
+
+        @Test
+        @DisplayName("should return latest valid measurement of the requested node only")
+        void shouldReturnLatestOfNode() {
+            // Given: node2 has the newest row overall
+            Instant now = Instant.now();
+            Measurement node1Latest = persistMeasurement("node1", now.minusSeconds(10), true);
+            persistMeasurement("node1", now.minusSeconds(20), true);
+            persistMeasurement("node1", now.minusSeconds(5), false);
+            persistMeasurement("node2", now, true);
+            entityManager.flush();
+
+            // When
+            Optional<Measurement> result = repository.findTopBySensorIdAndIsValidTrueOrderByTimeDesc("node1");
+
+            // Then
+            assertThat(result).isPresent();
+            assertThat(result.get().getId()).isEqualTo(node1Latest.getId());
+            assertThat(result.get().getSensorId()).isEqualTo("node1");
+        }
+
+        @Test
+        @DisplayName("should return empty for unknown node")
+        void shouldReturnEmpty_forUnknownNode() {
+            // Given
+            persistMeasurement("node1", Instant.now(), true);
+            entityManager.flush();
+
+            // When
+            Optional<Measurement> result = repository.findTopBySensorIdAndIsValidTrueOrderByTimeDesc("node9");
+
+            // Then
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        @DisplayName("should return recent history of one node, newest first")
+        void shouldReturnRecentHistoryOfNode() {
+            // Given
+            Instant now = Instant.now();
+            for (int i = 0; i < 5; i++) {
+                persistMeasurement("node1", now.minusSeconds(i * 2L), true);
+                persistMeasurement("node2", now.minusSeconds(i * 2L + 1), true);
+            }
+            entityManager.flush();
+
+            // When
+            List<Measurement> result = repository.findTop100BySensorIdAndIsValidTrueOrderByTimeDesc("node2");
+
+            // Then
+            assertThat(result).hasSize(5)
+                    .allSatisfy(m -> assertThat(m.getSensorId()).isEqualTo("node2"));
+            assertThat(result.get(0).getTime()).isEqualTo(now.minusSeconds(1));
+        }
+
+        @Test
+        @DisplayName("should filter time range by node")
+        void shouldFilterTimeRangeByNode() {
+            // Given
+            Instant now = Instant.now();
+            persistMeasurement("node1", now.minusSeconds(30), true);
+            persistMeasurement("node1", now.minusSeconds(10), true);
+            persistMeasurement("node2", now.minusSeconds(10), true);
+            persistMeasurement("node1", now.minusSeconds(120), true); // outside range
+            entityManager.flush();
+
+            Pageable pageable = PageRequest.of(0, 100, Sort.by("time").descending());
+
+            // When
+            List<Measurement> result = repository.findBySensorIdAndIsValidTrueAndTimeBetween(
+                    "node1", now.minusSeconds(60), now, pageable);
+
+            // Then
+            assertThat(result).hasSize(2)
+                    .extracting(Measurement::getTime)
+                    .containsExactly(now.minusSeconds(10), now.minusSeconds(30));
+        }
+    }
+
+    // ========================================
+    // Projection Queries (history / stats rows)
+    // ========================================
+
+    @Nested
+    @DisplayName("Projection queries")
+    class ProjectionQueries {
+
+        @Test
+        @DisplayName("findHistoryRows() should return valid rows newest first with DTO columns")
+        void historyRowsShouldMatchEntities() {
+            // Given
+            Instant now = Instant.now();
+            Measurement older = persistMeasurement("node1", now.minusSeconds(30), true);
+            older.setHarmonicsV(new double[]{230.0, 4.0, 2.0});
+            Measurement newer = persistMeasurement("node1", now.minusSeconds(10), true);
+            persistMeasurement("node1", now.minusSeconds(20), false); // invalid
+            entityManager.flush();
+
+            Pageable pageable = PageRequest.of(0, 100, Sort.by("time").descending());
+
+            // When
+            List<MeasurementHistoryRow> result = repository.findHistoryRows(now.minusSeconds(60), now, pageable);
+
+            // Then
+            assertThat(result).extracting(MeasurementHistoryRow::id)
+                    .containsExactly(newer.getId(), older.getId());
+            MeasurementHistoryRow row = result.get(1);
+            assertThat(row.sensorId()).isEqualTo("node1");
+            assertThat(row.voltageRms()).isEqualTo(older.getVoltageRms());
+            assertThat(row.harmonicsV()).containsExactly(230.0, 4.0, 2.0);
+        }
+
+        @Test
+        @DisplayName("findHistoryRowsBySensorId() should filter by node and respect limit")
+        void historyRowsShouldFilterByNode() {
+            // Given
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+            for (int i = 1; i <= 5; i++) {
+                persistMeasurement("node1", now.minusSeconds(i * 10L), true);
+                persistMeasurement("node2", now.minusSeconds(i * 10L), true);
+            }
+            entityManager.flush();
+
+            Pageable pageable = PageRequest.of(0, 3, Sort.by("time").descending());
+
+            // When
+            List<MeasurementHistoryRow> result = repository.findHistoryRowsBySensorId(
+                    "node2", now.minusSeconds(100), now, pageable);
+
+            // Then
+            assertThat(result).hasSize(3)
+                    .allSatisfy(r -> assertThat(r.sensorId()).isEqualTo("node2"));
+            assertThat(result.get(0).time()).isEqualTo(now.minusSeconds(10));
+        }
+
+        @Test
+        @DisplayName("findHistoryRowsAfter() should page by (time, id) without gaps or repeats")
+        void historyRowsAfterShouldPageByKeyset() {
+            // Given: 4 valid rows, two sharing a timestamp, plus an invalid one
+            Instant start = Instant.parse("2026-01-15T12:00:00Z");
+            Measurement first = persistMeasurement("node1", start, true);
+            Measurement second = persistMeasurement("node2", start.plusSeconds(3), true);
+            Measurement third = persistMeasurement("node1", start.plusSeconds(3), true);
+            persistMeasurement("node1", start.plusSeconds(4), false);
+            Measurement fourth = persistMeasurement("node1", start.plusSeconds(6), true);
+            flushAndClear();
+
+            Instant end = start.plusSeconds(60);
+            Pageable page = PageRequest.of(0, 2);
+
+            // When
+            List<MeasurementHistoryRow> firstPage = repository.findHistoryRowsAfter(start, Long.MIN_VALUE, end, page);
+            MeasurementHistoryRow last = firstPage.get(1);
+            List<MeasurementHistoryRow> secondPage = repository.findHistoryRowsAfter(last.time(), last.id(), end, page);
+            List<MeasurementHistoryRow> node1 = repository.findHistoryRowsBySensorIdAfter(
+                    "node1", start, first.getId(), end, PageRequest.of(0, 10));
+
+            // Then
+            assertThat(firstPage).extracting(MeasurementHistoryRow::id)
+                    .containsExactly(first.getId(), second.getId());
+            assertThat(secondPage).extracting(MeasurementHistoryRow::id)
+                    .containsExactly(third.getId(), fourth.getId());
+            assertThat(node1).extracting(MeasurementHistoryRow::id)
+                    .containsExactly(third.getId(), fourth.getId());
+        }
+
+        @Test
+        @DisplayName("findStatsRows() should return valid rows in range sorted by time ascending")
+        void statsRowsShouldBeSortedAscending() {
+            // Given: persisted out of order
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+            persistMeasurement(now.minusSeconds(10), true);
+            persistMeasurement(now.minusSeconds(50), true);
+            persistMeasurement(now.minusSeconds(30), false); // invalid
+            persistMeasurement(now.minusSeconds(30), true);
+            persistMeasurement(now.minusSeconds(500), true); // outside range
+            entityManager.flush();
+
+            // When
+            List<MeasurementStatsRow> result = repository.findStatsRows(now.minusSeconds(60), now);
+
+            // Then
+            assertThat(result).extracting(MeasurementStatsRow::time)
+                    .containsExactly(now.minusSeconds(50), now.minusSeconds(30), now.minusSeconds(10));
+            assertThat(result).allSatisfy(r -> {
+                assertThat(r.powerActive()).isEqualTo(1150.0);
+                assertThat(r.thdVoltage()).isEqualTo(2.5);
+            });
+        }
+    }
+
+    @Nested
+    @DisplayName("findExistingKeys")
+    class FindExistingKeys {
+
+        @Test
+        @DisplayName("should return the keys of the given hashes stored within the time range")
+        void shouldReturnStoredKeysInRange() {
+            // Given
+            Instant now = Instant.parse("2025-01-01T12:00:00Z");
+            Measurement inRange = createMeasurement(now, true);
+            inRange.setPayloadHash(101L);
+            Measurement outOfRange = createMeasurement(now.minusSeconds(3600), true);
+            outOfRange.setPayloadHash(202L);
+            entityManager.persist(inRange);
+            entityManager.persist(outOfRange);
+            entityManager.flush();
+
+            // When
+            List<MeasurementKey> result = repository.findExistingKeys(
+                    now.minusSeconds(60), now.plusSeconds(60), List.of(101L, 202L, 303L));
+
+            // Then
+            assertThat(result).containsExactly(new MeasurementKey(now, 101L));
+        }
+
+        @Test
+        @DisplayName("should reject a second row with the same time and payload hash")
+        void shouldEnforceUniqueTimeAndHash() {
+            // Given
+            Instant now = Instant.parse("2025-01-01T12:00:00Z");
+            Measurement first = createMeasurement(now, true);
+            first.setPayloadHash(101L);
+            entityManager.persist(first);
+            entityManager.flush();
+
+            Measurement redelivery = createMeasurement(now, true);
+            redelivery.setPayloadHash(101L);
+
+            // When & Then
+            assertThatThrownBy(() -> {
+                entityManager.persist(redelivery);
+                entityManager.flush();
+            }).isInstanceOf(org.hibernate.exception.ConstraintViolationException.class);
+        }
+    }
+
     @Nested
     @DisplayName("Edge Cases and Performance")
     class EdgeCasesAndPerformance {
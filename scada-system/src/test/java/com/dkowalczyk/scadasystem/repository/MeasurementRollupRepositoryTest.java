@@ -0,0 +1,143 @@
+package com.dkowalczyk.scadasystem.repository;
+
+import com.dkowalczyk.scadasystem.BaseRepositoryTest;
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementRollup;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementRollup.Resolution;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementRollupRow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for MeasurementRollupRepository and the rollup source query of
+ * MeasurementRepository.
+ */
+@DisplayName("MeasurementRollupRepository Integration Tests")
+class MeasurementRollupRepositoryTest extends BaseRepositoryTest {
+
+    private static final Instant HOUR = Instant.parse("2026-01-15T12:00:00Z");
+
+    @Autowired
+    private MeasurementRollupRepository rollupRepository;
+
+    @Autowired
+    private MeasurementRepository measurementRepository;
+
+    private MeasurementRollup bucket(Resolution resolution, String sensorId, Instant time) {
+        return MeasurementRollup.builder()
+                .resolution(resolution)
+                .sensorId(sensorId)
+                .bucket(time)
+                .sampleCount(20)
+                .voltageMin(229.0).voltageMax(231.0).voltageSum(4600.0)
+                .powerCount(20).powerMin(1000.0).powerMax(1200.0).powerSum(22000.0)
+                .frequencyMin(49.9).frequencyMax(50.1).frequencySum(1000.0)
+                .energyKwh(0.018)
+                .build();
+    }
+
+    @Test
+    @DisplayName("should insert new buckets and find them by resolution and range")
+    void shouldFindBucketsInRange() {
+        // Given
+        rollupRepository.saveAll(List.of(
+                bucket(Resolution.MINUTE, "node1", HOUR.plusSeconds(60)),
+                bucket(Resolution.MINUTE, "node2", HOUR),
+                bucket(Resolution.MINUTE, "node1", HOUR),
+                bucket(Resolution.MINUTE, "node1", HOUR.plusSeconds(120)),
+                bucket(Resolution.HOUR, "node1", HOUR)));
+        flushAndClear();
+
+        // When
+        List<MeasurementRollup> all = rollupRepository.findBuckets(Resolution.MINUTE, HOUR, HOUR.plusSeconds(120));
+        List<MeasurementRollup> node1 = rollupRepository.findBucketsBySensorId(
+                Resolution.MINUTE, "node1", HOUR, HOUR.plusSeconds(180));
+
+        // Then: half-open range, ordered by bucket
+        assertThat(all).extracting(MeasurementRollup::getBucket, MeasurementRollup::getSensorId)
+                .containsExactly(
+                        tuple(HOUR, "node1"),
+                        tuple(HOUR, "node2"),
+                        tuple(HOUR.plusSeconds(60), "node1"));
+        assertThat(node1).extracting(MeasurementRollup::getBucket)
+                .containsExactly(HOUR, HOUR.plusSeconds(60), HOUR.plusSeconds(120));
+        assertThat(node1.get(0).isNew()).isFalse();
+        assertThat(node1.get(0).getEnergyKwh()).isEqualTo(0.018);
+    }
+
+    @Test
+    @DisplayName("should delete only buckets of the given resolution and range")
+    void shouldDeleteBuckets() {
+        // Given
+        rollupRepository.saveAll(List.of(
+                bucket(Resolution.MINUTE, "node1", HOUR),
+                bucket(Resolution.MINUTE, "node1", HOUR.plusSeconds(60)),
+                bucket(Resolution.TEN_MINUTES, "node1", HOUR)));
+        flushAndClear();
+
+        // When
+        int deleted = rollupRepository.deleteBuckets(Resolution.MINUTE, HOUR, HOUR.plusSeconds(60));
+
+        // Then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(rollupRepository.findAll()).extracting(MeasurementRollup::getResolution, MeasurementRollup::getBucket)
+                .containsExactlyInAnyOrder(
+                        tuple(Resolution.MINUTE, HOUR.plusSeconds(60)),
+                        tuple(Resolution.TEN_MINUTES, HOUR));
+    }
+
+    @Test
+    @DisplayName("should return the newest bucket of a resolution")
+    void shouldFindLatestBucket() {
+        // Given
+        rollupRepository.saveAll(List.of(
+                bucket(Resolution.MINUTE, "node1", HOUR),
+                bucket(Resolution.MINUTE, "node2", HOUR.plusSeconds(60))));
+        flushAndClear();
+
+        // When & Then
+        assertThat(rollupRepository.findLatestBucket(Resolution.MINUTE)).contains(HOUR.plusSeconds(60));
+        assertThat(rollupRepository.findLatestBucket(Resolution.HOUR)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should read valid rollup source rows ordered by node and time")
+    void shouldFindRollupRowsOrderedByNode() {
+        // Given
+        persistMeasurement("node2", HOUR.plusSeconds(3), true);
+        persistMeasurement("node1", HOUR.plusSeconds(6), true);
+        persistMeasurement("node1", HOUR, true);
+        persistMeasurement("node1", HOUR.plusSeconds(9), false);
+        persistMeasurement("node1", HOUR.plusSeconds(60), true);
+        flushAndClear();
+
+        // When
+        List<MeasurementRollupRow> rows = measurementRepository.findRollupRows(HOUR, HOUR.plusSeconds(60));
+
+        // Then: invalid and end-of-range rows excluded
+        assertThat(rows).extracting(MeasurementRollupRow::sensorId, MeasurementRollupRow::time)
+                .containsExactly(
+                        tuple("node1", HOUR),
+                        tuple("node1", HOUR.plusSeconds(6)),
+                        tuple("node2", HOUR.plusSeconds(3)));
+        assertThat(measurementRepository.findEarliestTime()).contains(HOUR);
+    }
+
+    private void persistMeasurement(String sensorId, Instant time, boolean isValid) {
+        entityManager.persist(Measurement.builder()
+                .time(time)
+                .sensorId(sensorId)
+                .voltageRms(230.0)
+                .currentRms(5.0)
+                .powerActive(1150.0)
+                .frequency(50.0)
+                .isValid(isValid)
+                .build());
+    }
+}
@@ -0,0 +1,121 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
+import com.dkowalczyk.scadasystem.model.dto.WaveformDTO;
+import com.dkowalczyk.scadasystem.service.BinaryDashboardFrame.SampleEncoding;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for BinaryDashboardFrame.
+ *
+ * Testing strategy:
+ * - Frames decoded field by field following the documented little-endian layout
+ * - float32 and scaled int16 samples, null scalars, lazy waveform resolution
+ */
+@DisplayName("BinaryDashboardFrame Unit Tests")
+class BinaryDashboardFrameTest {
+
+    private static final Instant TIME = Instant.parse("2026-01-15T10:00:00Z");
+
+    private static MeasurementDTO measurement() {
+        return MeasurementDTO.builder()
+                .id(42L).time(TIME).sensorId("node1")
+                .voltageRms(230.4).currentRms(4.8).powerFactor(0.97).frequency(50.01)
+                .build();
+    }
+
+    private static WaveformDTO waveforms() {
+        return WaveformDTO.builder()
+                .voltage(new double[]{0.0, 325.3, -325.3})
+                .current(new double[]{0.0, 6.8})
+                .build();
+    }
+
+    /** Reads the header up to the samples and checks it against {@link #measurement()}. */
+    private static ByteBuffer readHeader(byte[] frame, SampleEncoding encoding) {
+        ByteBuffer buffer = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(buffer.get()).isEqualTo((byte) 1);
+        assertThat(buffer.get()).isEqualTo(encoding.code());
+        assertThat(buffer.getShort()).isEqualTo((short) 3);
+        assertThat(buffer.getShort()).isEqualTo((short) 2);
+        byte[] sensorId = new byte[buffer.get()];
+        buffer.get(sensorId);
+        assertThat(new String(sensorId, StandardCharsets.UTF_8)).isEqualTo("node1");
+        assertThat(buffer.getLong()).isEqualTo(42L);
+        assertThat(buffer.getLong()).isEqualTo(TIME.toEpochMilli());
+        float[] scalars = new float[BinaryDashboardFrame.SCALAR_COUNT];
+        for (int i = 0; i < scalars.length; i++) {
+            scalars[i] = buffer.getFloat();
+        }
+        assertThat(scalars[0]).isEqualTo(230.4f);
+        assertThat(scalars[1]).isEqualTo(4.8f);
+        assertThat(scalars[2]).isNaN();
+        assertThat(scalars[6]).isEqualTo(0.97f);
+        assertThat(scalars[7]).isEqualTo(50.01f);
+        return buffer;
+    }
+
+    @Test
+    @DisplayName("should encode the scalar header and float32 samples")
+    void shouldEncodeFloat32() {
+        // When
+        byte[] frame = new BinaryDashboardFrame(measurement(), BinaryDashboardFrameTest::waveforms)
+                .bytes(SampleEncoding.FLOAT32);
+
+        // Then
+        ByteBuffer buffer = readHeader(frame, SampleEncoding.FLOAT32);
+        assertThat(new float[]{buffer.getFloat(), buffer.getFloat(), buffer.getFloat()})
+                .containsExactly(0f, 325.3f, -325.3f);
+        assertThat(new float[]{buffer.getFloat(), buffer.getFloat()}).containsExactly(0f, 6.8f);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should encode int16 samples scaled to the peak of each waveform")
+    void shouldEncodeInt16() {
+        // When
+        byte[] frame = new BinaryDashboardFrame(measurement(), BinaryDashboardFrameTest::waveforms)
+                .bytes(SampleEncoding.INT16);
+
+        // Then
+        ByteBuffer buffer = readHeader(frame, SampleEncoding.INT16);
+        float voltageScale = buffer.getFloat();
+        float currentScale = buffer.getFloat();
+        assertThat(new short[]{buffer.getShort(), buffer.getShort(), buffer.getShort()})
+                .containsExactly((short) 0, Short.MAX_VALUE, (short) -Short.MAX_VALUE);
+        assertThat(new short[]{buffer.getShort(), buffer.getShort()}).containsExactly((short) 0, Short.MAX_VALUE);
+        assertThat(Short.MAX_VALUE * voltageScale).isCloseTo(325.3f, within(0.01f));
+        assertThat(Short.MAX_VALUE * currentScale).isCloseTo(6.8f, within(0.001f));
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should resolve the waveforms once and reuse each encoding")
+    void shouldEncodeLazilyOnce() {
+        // Given
+        AtomicInteger resolved = new AtomicInteger();
+        BinaryDashboardFrame frame = new BinaryDashboardFrame(measurement(), () -> {
+            resolved.incrementAndGet();
+            return waveforms();
+        });
+        assertThat(resolved).hasValue(0);
+
+        // When
+        byte[] first = frame.bytes(SampleEncoding.FLOAT32);
+        byte[] second = frame.bytes(SampleEncoding.FLOAT32);
+        frame.bytes(SampleEncoding.INT16);
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(resolved).hasValue(1);
+    }
+}
@@ -0,0 +1,130 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
+import com.dkowalczyk.scadasystem.model.dto.WaveformDTO;
+import com.dkowalczyk.scadasystem.service.BinaryDashboardFrame.SampleEncoding;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for BinaryFrameNegotiator.
+ *
+ * Testing strategy:
+ * - Subscriptions registered through STOMP session events built in the test
+ * - Broker-to-subscriber messages passed through preSend() directly
+ */
+@DisplayName("BinaryFrameNegotiator Unit Tests")
+class BinaryFrameNegotiatorTest {
+
+    private static final byte[] JSON = "{}".getBytes();
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private final BinaryFrameNegotiator negotiator = new BinaryFrameNegotiator();
+    private final BinaryDashboardFrame binary = new BinaryDashboardFrame(
+            MeasurementDTO.builder().sensorId("node1").build(),
+            () -> WaveformDTO.builder().voltage(new double[]{1.0}).current(new double[]{0.5}).build());
+
+    private Message<byte[]> stomp(StompCommand command, String encoding, boolean plainWebSocket) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination(WebSocketService.DASHBOARD_TOPIC);
+        Map<String, Object> attributes = new HashMap<>();
+        if (plainWebSocket) {
+            attributes.put(BinaryFrameNegotiator.BINARY_CAPABLE_ATTRIBUTE, Boolean.TRUE);
+        }
+        accessor.setSessionAttributes(attributes);
+        if (encoding != null) {
+            accessor.setNativeHeader(BinaryFrameNegotiator.ENCODING_HEADER, encoding);
+        }
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private void subscribe(String encoding, boolean plainWebSocket) {
+        negotiator.onSubscribe(new SessionSubscribeEvent(this, stomp(StompCommand.SUBSCRIBE, encoding, plainWebSocket)));
+    }
+
+    private Message<byte[]> broadcast(BinaryDashboardFrame frame) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (frame != null) {
+            accessor.setHeader(BinaryDashboardFrame.HEADER, frame);
+        }
+        return MessageBuilder.createMessage(JSON, accessor.getMessageHeaders());
+    }
+
+    @Test
+    @DisplayName("should send the binary frame to a subscription that negotiated it")
+    void shouldSwapPayloadForBinarySubscription() {
+        // Given
+        subscribe("int16", true);
+
+        // When
+        Message<?> sent = negotiator.preSend(broadcast(binary), channel);
+
+        // Then
+        assertThat((byte[]) sent.getPayload()).isEqualTo(binary.bytes(SampleEncoding.INT16));
+        assertThat(SimpMessageHeaderAccessor.wrap(sent).getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        assertThat(negotiator.getBinaryFrameCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should keep JSON without an encoding header, with encoding json, or over SockJS")
+    void shouldKeepJsonByDefault() {
+        subscribe(null, true);
+        assertThat(negotiator.preSend(broadcast(binary), channel).getPayload()).isSameAs(JSON);
+
+        subscribe("json", true);
+        assertThat(negotiator.preSend(broadcast(binary), channel).getPayload()).isSameAs(JSON);
+
+        subscribe("float32", false);
+        assertThat(negotiator.preSend(broadcast(binary), channel).getPayload()).isSameAs(JSON);
+        assertThat(negotiator.getBinarySubscriptionCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should keep JSON for frames without a binary form")
+    void shouldKeepJsonForMeasurementFrames() {
+        subscribe("float32", true);
+
+        assertThat(negotiator.preSend(broadcast(null), channel).getPayload()).isSameAs(JSON);
+    }
+
+    @Test
+    @DisplayName("should forget the encoding on unsubscribe and disconnect")
+    void shouldForgetEncoding() {
+        // Given
+        subscribe("float32", true);
+
+        // When
+        negotiator.onUnsubscribe(new SessionUnsubscribeEvent(this, stomp(StompCommand.UNSUBSCRIBE, null, true)));
+
+        // Then
+        assertThat(negotiator.preSend(broadcast(binary), channel).getPayload()).isSameAs(JSON);
+
+        subscribe("float32", true);
+        negotiator.onDisconnect(new SessionDisconnectEvent(this, stomp(StompCommand.DISCONNECT, null, true),
+                "s1", CloseStatus.NORMAL));
+        assertThat(negotiator.getBinarySubscriptionCount()).isZero();
+    }
+}
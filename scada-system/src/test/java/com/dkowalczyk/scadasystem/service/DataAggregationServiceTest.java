@@ -1,6 +1,8 @@
 package com.dkowalczyk.scadasystem.service;
 
 import com.dkowalczyk.scadasystem.model.dto.StatsDTO;
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.event.LateMeasurementEvent;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -9,8 +11,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -445,4 +449,66 @@ class DataAggregationServiceTest {
             assertThat(aggregationService.isLastRunSuccess()).isTrue();
         }
     }
+
+    // ========================================
+    // Late Measurement Correction Tests
+    // ========================================
+
+    @Nested
+    @DisplayName("Late measurement correction")
+    class LateMeasurementCorrection {
+
+        private LateMeasurementEvent lateEvent(LocalDate date) {
+            Instant time = date.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant();
+            Measurement measurement = Measurement.builder().sensorId("node1").time(time).build();
+            return new LateMeasurementEvent(this, measurement, time.plusSeconds(60));
+        }
+
+        @Test
+        @DisplayName("should recalculate each past day with late measurements once")
+        void shouldRecalculatePastDaysOnce() {
+            // Given
+            LocalDate twoDaysAgo = LocalDate.now().minusDays(2);
+            when(statsService.calculateDailyStats(twoDaysAgo)).thenReturn(createMockStats(twoDaysAgo));
+            aggregationService.onLateMeasurement(lateEvent(twoDaysAgo));
+            aggregationService.onLateMeasurement(lateEvent(twoDaysAgo));
+
+            // When
+            aggregationService.correctLateDays();
+            aggregationService.correctLateDays();
+
+            // Then
+            verify(statsService, times(1)).calculateDailyStats(twoDaysAgo);
+            assertThat(aggregationService.getDatesToCorrect()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("should ignore late measurements of today")
+        void shouldIgnoreToday() {
+            // Given
+            aggregationService.onLateMeasurement(lateEvent(LocalDate.now()));
+
+            // When
+            aggregationService.correctLateDays();
+
+            // Then
+            assertThat(aggregationService.getDatesToCorrect()).isEmpty();
+            verifyNoInteractions(statsService);
+        }
+
+        @Test
+        @DisplayName("should keep a day marked when recalculation fails")
+        void shouldRetryFailedDay() {
+            // Given
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            when(statsService.calculateDailyStats(yesterday)).thenThrow(new RuntimeException("Database down"));
+            aggregationService.onLateMeasurement(lateEvent(yesterday));
+
+            // When
+            aggregationService.correctLateDays();
+
+            // Then
+            assertThat(aggregationService.getDatesToCorrect()).containsExactly(yesterday);
+        }
+    }
 }
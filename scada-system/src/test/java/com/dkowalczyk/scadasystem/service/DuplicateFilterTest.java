@@ -0,0 +1,82 @@
+package com.dkowalczyk.scadasystem.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for DuplicateFilter.
+ *
+ * Testing strategy:
+ * - Keys are plain (sensorId, timestamp, hash) values, no MeasurementRequest needed
+ * - Window eviction tested with a window of 2
+ */
+@DisplayName("DuplicateFilter Unit Tests")
+class DuplicateFilterTest {
+
+    @Test
+    @DisplayName("should flag a redelivery and count it")
+    void shouldFlagRedelivery() {
+        // Given
+        DuplicateFilter filter = new DuplicateFilter(16);
+
+        // When
+        boolean first = filter.isDuplicate("node1", 1_700_000_000L, 42L);
+        boolean second = filter.isDuplicate("node1", 1_700_000_000L, 42L);
+
+        // Then
+        assertThat(first).isFalse();
+        assertThat(second).isTrue();
+        assertThat(filter.suppressedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should keep windows of different nodes apart")
+    void shouldSeparateNodes() {
+        // Given
+        DuplicateFilter filter = new DuplicateFilter(16);
+        filter.isDuplicate("node1", 1_700_000_000L, 42L);
+
+        // When & Then
+        assertThat(filter.isDuplicate("node2", 1_700_000_000L, 42L)).isFalse();
+        assertThat(filter.isDuplicate("node1", 1_700_000_000L, 43L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should forget keys that fell out of the window")
+    void shouldEvictOldestKey() {
+        // Given: window of 2
+        DuplicateFilter filter = new DuplicateFilter(2);
+        filter.isDuplicate("node1", 1L, 1L);
+        filter.isDuplicate("node1", 2L, 2L);
+        filter.isDuplicate("node1", 3L, 3L);
+
+        // When & Then: key 1 evicted, key 3 still known
+        assertThat(filter.isDuplicate("node1", 1L, 1L)).isFalse();
+        assertThat(filter.isDuplicate("node1", 3L, 3L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("should never flag measurements without device timestamp")
+    void shouldIgnoreMissingTimestamp() {
+        // Given
+        DuplicateFilter filter = new DuplicateFilter(16);
+        filter.isDuplicate("node1", null, 42L);
+
+        // When & Then
+        assertThat(filter.isDuplicate("node1", null, 42L)).isFalse();
+        assertThat(filter.suppressedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should pass everything when window size is 0")
+    void shouldBeDisabledWithZeroWindow() {
+        // Given
+        DuplicateFilter filter = new DuplicateFilter(0);
+        filter.isDuplicate("node1", 1L, 42L);
+
+        // When & Then
+        assertThat(filter.isDuplicate("node1", 1L, 42L)).isFalse();
+    }
+}
@@ -0,0 +1,235 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.event.MeasurementSavedEvent;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementRollupRow;
+import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for HotMeasurementStore.
+ *
+ * Testing strategy:
+ * - Startup load from a mocked repository, including rows committed during the load
+ * - Rows read back exactly (all columns, across sealed and open blocks)
+ * - Coverage moves forward on age and memory eviction
+ */
+@DisplayName("HotMeasurementStore Unit Tests")
+class HotMeasurementStoreTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private final MeasurementRepository repository = mock(MeasurementRepository.class);
+
+    private HotMeasurementStore store(int blockSize, int maxMemoryMb) {
+        return new HotMeasurementStore(repository, true, 6, blockSize, maxMemoryMb);
+    }
+
+    private HotMeasurementStore hydratedStore(int blockSize, List<MeasurementHistoryRow> rows) {
+        when(repository.findHistoryRowsAfter(any(), anyLong(), any(), any())).thenReturn(rows);
+        HotMeasurementStore store = store(blockSize, 256);
+        store.hydrate(NOW);
+        return store;
+    }
+
+    private static MeasurementHistoryRow row(long id, String sensorId, Instant time, double voltage) {
+        return new MeasurementHistoryRow(id, time, sensorId, voltage, 4.8, 1100.0, 1120.0, 200.0, null, 0.98,
+                50.01, 2.3, 12.4, new double[]{325.3, 3.1, 1.2}, null, (voltage - 230.0) / 2.3, 0.01);
+    }
+
+    @Nested
+    @DisplayName("Startup load")
+    class StartupLoad {
+
+        @Test
+        @DisplayName("should not cover anything before the load")
+        void shouldNotCoverBeforeLoad() {
+            HotMeasurementStore store = store(4, 256);
+
+            assertThat(store.covers(NOW)).isFalse();
+            assertThat(store.getLatest(null)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("should cover the window after loading it from the database")
+        void shouldCoverWindowAfterLoad() {
+            // Given
+            HotMeasurementStore store = hydratedStore(4, List.of(
+                    row(1, "node1", NOW.minusSeconds(3600), 230.0),
+                    row(2, "node1", NOW.minusSeconds(60), 231.0)));
+
+            // Then
+            assertThat(store.covers(NOW.minusSeconds(6 * 3600))).isTrue();
+            assertThat(store.covers(NOW.minusSeconds(6 * 3600 + 1))).isFalse();
+            assertThat(store.getLatest("node1")).get().extracting(MeasurementHistoryRow::id).isEqualTo(2L);
+            verify(repository).findHistoryRowsAfter(eq(NOW.minusSeconds(6 * 3600)), eq(Long.MIN_VALUE), any(), any());
+        }
+
+        @Test
+        @DisplayName("should replay rows committed during the load without duplicating loaded ones")
+        void shouldReplayRowsCommittedDuringLoad() {
+            // Given: row 2 commits while the load reads (and sees it), row 3 commits after the read
+            HotMeasurementStore store = store(4, 256);
+            MeasurementHistoryRow loaded = row(1, "node1", NOW.minusSeconds(2), 230.0);
+            MeasurementHistoryRow seen = row(2, "node1", NOW.minusSeconds(1), 230.5);
+            MeasurementHistoryRow missed = row(3, "node1", NOW, 231.0);
+            when(repository.findHistoryRowsAfter(any(), anyLong(), any(), any())).thenAnswer(invocation -> {
+                store.add(seen);
+                store.add(missed);
+                return List.of(loaded, seen);
+            });
+
+            // When
+            store.hydrate(NOW);
+
+            // Then
+            assertThat(store.getHistory("node1", NOW.minusSeconds(10), NOW, 10))
+                    .extracting(MeasurementHistoryRow::id)
+                    .containsExactly(3L, 2L, 1L);
+        }
+
+        @Test
+        @DisplayName("should stay unready and drop partial data when the load fails")
+        void shouldStayUnreadyWhenLoadFails() {
+            // Given
+            when(repository.findHistoryRowsAfter(any(), anyLong(), any(), any()))
+                    .thenThrow(new DataAccessResourceFailureException("database down"));
+            HotMeasurementStore store = store(4, 256);
+
+            // When
+            store.hydrate(NOW);
+
+            // Then
+            assertThat(store.covers(NOW)).isFalse();
+            assertThat(store.getRowCount()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Reads")
+    class Reads {
+
+        @Test
+        @DisplayName("should return rows exactly as stored, newest first, across sealed blocks")
+        void shouldReturnExactRowsNewestFirst() {
+            // Given: 10 rows in blocks of 4 (two sealed, one open)
+            List<MeasurementHistoryRow> rows = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                rows.add(row(100 + i, "node1", NOW.minusSeconds(10 - i), 230.0 + i / 10.0));
+            }
+            HotMeasurementStore store = hydratedStore(4, rows);
+
+            // When
+            List<MeasurementHistoryRow> history = store.getHistory("node1", NOW.minusSeconds(8), NOW, 5);
+
+            // Then
+            assertThat(history).usingRecursiveFieldByFieldElementComparator()
+                    .containsExactly(rows.get(9), rows.get(8), rows.get(7), rows.get(6), rows.get(5));
+        }
+
+        @Test
+        @DisplayName("should merge nodes and sort out-of-order arrivals")
+        void shouldMergeNodesAndSortLateArrivals() {
+            // Given
+            HotMeasurementStore store = hydratedStore(4, List.of(
+                    row(1, "node1", NOW.minusSeconds(30), 230.0),
+                    row(2, "node2", NOW.minusSeconds(20), 231.0)));
+            store.add(row(3, "node1", NOW.minusSeconds(25), 232.0));
+
+            // When
+            List<MeasurementHistoryRow> history = store.getHistory(null, NOW.minusSeconds(60), NOW, 10);
+            List<MeasurementRollupRow> rollupRows = store.getRollupRows(null, NOW.minusSeconds(60), NOW);
+
+            // Then
+            assertThat(history).extracting(MeasurementHistoryRow::id).containsExactly(2L, 3L, 1L);
+            assertThat(rollupRows).extracting(MeasurementRollupRow::sensorId, MeasurementRollupRow::voltageRms)
+                    .containsExactly(tuple("node1", 230.0), tuple("node1", 232.0), tuple("node2", 231.0));
+            assertThat(store.getLatest(null)).get().extracting(MeasurementHistoryRow::id).isEqualTo(2L);
+        }
+
+        @Test
+        @DisplayName("should ignore invalid measurements")
+        void shouldIgnoreInvalidMeasurements() {
+            // Given
+            HotMeasurementStore store = hydratedStore(4, List.of());
+            Measurement invalid = Measurement.builder()
+                    .id(5L).time(NOW).sensorId("node1").voltageRms(400.0).frequency(50.0).isValid(false)
+                    .build();
+
+            // When
+            store.onMeasurementSaved(new MeasurementSavedEvent(this, invalid, MeasurementDTO.builder().build()));
+
+            // Then
+            assertThat(store.getRowCount()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Eviction")
+    class Eviction {
+
+        @Test
+        @DisplayName("should drop blocks that left the window and raise coverage")
+        void shouldEvictByAge() {
+            // Given: 8 rows 10 minutes apart in two sealed blocks of 4
+            List<MeasurementHistoryRow> rows = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                rows.add(row(i, "node1", NOW.minusSeconds(5 * 3600 - i * 600L), 230.0));
+            }
+            HotMeasurementStore store = hydratedStore(4, rows);
+
+            // When: the window moves past the first block
+            Instant cutoff = rows.get(4).time();
+            store.evictOlderThan(cutoff);
+
+            // Then
+            assertThat(store.getRowCount()).isEqualTo(4);
+            assertThat(store.covers(cutoff)).isTrue();
+            assertThat(store.covers(cutoff.minusSeconds(1))).isFalse();
+        }
+
+        @Test
+        @DisplayName("should evict the oldest blocks when above the memory budget")
+        void shouldEvictOldestBlocksAboveBudget() {
+            // Given: noisy harmonics (about 400 bytes per row) for well over 1 MB
+            Random random = new Random(1);
+            List<MeasurementHistoryRow> rows = new ArrayList<>();
+            for (int i = 0; i < 4000; i++) {
+                double[] harmonics = random.doubles(25).toArray();
+                rows.add(new MeasurementHistoryRow((long) i, NOW.minusSeconds(4000 - i), "node1", 230.0, null, null,
+                        null, null, null, null, 50.0, null, null, harmonics, random.doubles(25).toArray(), null, null));
+            }
+            when(repository.findHistoryRowsAfter(any(), anyLong(), any(), any())).thenReturn(rows);
+            HotMeasurementStore store = store(100, 1);
+            store.hydrate(NOW);
+            assertThat(store.getMemoryBytes()).isGreaterThan(1024 * 1024);
+
+            // When
+            store.enforceMemoryBudget();
+
+            // Then: oldest rows are gone and no longer covered, the newest are still served
+            assertThat(store.getMemoryBytes()).isLessThanOrEqualTo(1024 * 1024);
+            assertThat(store.covers(rows.get(0).time())).isFalse();
+            assertThat(store.covers(rows.get(3999).time())).isTrue();
+            assertThat(store.getHistory("node1", rows.get(3999).time(), NOW, 1))
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .containsExactly(rows.get(3999));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for IngestQueue overload policies.
+ *
+ * Testing strategy:
+ * - Fill a tiny queue past capacity (no consumer running)
+ * - Verify which measurements survive and which counters move
+ */
+@DisplayName("IngestQueue Unit Tests")
+class IngestQueueTest {
+
+    private MeasurementRequest createRequest(long timestamp) {
+        MeasurementRequest request = new MeasurementRequest();
+        request.setTimestamp(timestamp);
+        request.setVoltageRms(230.0);
+        request.setCurrentRms(5.0);
+        request.setFrequency(50.0);
+        request.setWaveformV(new double[]{0.0, 325.0, 0.0, -325.0});
+        request.setWaveformI(new double[]{0.0, 7.0, 0.0, -7.0});
+        return request;
+    }
+
+    private List<MeasurementRequest> drainAll(IngestQueue queue) {
+        List<MeasurementRequest> drained = new ArrayList<>();
+        queue.drainTo(drained, Integer.MAX_VALUE);
+        return drained;
+    }
+
+    @Nested
+    @DisplayName("BLOCK policy")
+    class BlockPolicy {
+
+        @Test
+        @DisplayName("should wait for space, then drop the new measurement on timeout")
+        void shouldDropNewestAfterTimeout() throws InterruptedException {
+            // Given
+            IngestQueue queue = new IngestQueue(2, IngestQueue.OverloadPolicy.BLOCK, 20, 0.8);
+            queue.offer(createRequest(1L));
+            queue.offer(createRequest(2L));
+
+            // When
+            boolean accepted = queue.offer(createRequest(3L));
+
+            // Then
+            assertThat(accepted).isFalse();
+            assertThat(queue.droppedCount()).isEqualTo(1);
+            assertThat(queue.waitCount()).isEqualTo(1);
+            assertThat(queue.waitTimeMs()).isGreaterThanOrEqualTo(15);
+            assertThat(drainAll(queue)).extracting(MeasurementRequest::getTimestamp).containsExactly(1L, 2L);
+        }
+
+        @Test
+        @DisplayName("should not count waits when queue has space")
+        void shouldNotWait_whenSpaceAvailable() throws InterruptedException {
+            // Given
+            IngestQueue queue = new IngestQueue(2, IngestQueue.OverloadPolicy.BLOCK, 20, 0.8);
+
+            // When
+            queue.offer(createRequest(1L));
+
+            // Then
+            assertThat(queue.waitCount()).isZero();
+            assertThat(queue.size()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("DROP_OLDEST policy")
+    class DropOldestPolicy {
+
+        @Test
+        @DisplayName("should discard oldest measurement to make room")
+        void shouldDiscardOldest() throws InterruptedException {
+            // Given
+            IngestQueue queue = new IngestQueue(2, IngestQueue.OverloadPolicy.DROP_OLDEST, 0, 0.8);
+
+            // When
+            queue.offer(createRequest(1L));
+            queue.offer(createRequest(2L));
+            boolean accepted = queue.offer(createRequest(3L));
+
+            // Then
+            assertThat(accepted).isTrue();
+            assertThat(queue.droppedCount()).isEqualTo(1);
+            assertThat(drainAll(queue)).extracting(MeasurementRequest::getTimestamp).containsExactly(2L, 3L);
+        }
+    }
+
+    @Nested
+    @DisplayName("DEGRADE policy")
+    class DegradePolicy {
+
+        @Test
+        @DisplayName("should strip waveforms above watermark before dropping anything")
+        void shouldStripWaveformsAboveWatermark() throws InterruptedException {
+            // Given: capacity 4, watermark 0.5 -> degrade from the 3rd queued measurement
+            IngestQueue queue = new IngestQueue(4, IngestQueue.OverloadPolicy.DEGRADE, 0, 0.5);
+
+            // When
+            for (long i = 1; i <= 4; i++) {
+                queue.offer(createRequest(i));
+            }
+
+            // Then
+            List<MeasurementRequest> queued = drainAll(queue);
+            assertThat(queued).hasSize(4);
+            assertThat(queued.get(0).getWaveformV()).isNotNull();
+            assertThat(queued.get(1).getWaveformV()).isNotNull();
+            assertThat(queued.get(2).getWaveformV()).isNull();
+            assertThat(queued.get(3).getWaveformI()).isNull();
+            assertThat(queue.degradedCount()).isEqualTo(2);
+            assertThat(queue.droppedCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("should drop oldest when full even after degrading")
+        void shouldDropOldest_whenFull() throws InterruptedException {
+            // Given
+            IngestQueue queue = new IngestQueue(2, IngestQueue.OverloadPolicy.DEGRADE, 0, 0.5);
+
+            // When
+            for (long i = 1; i <= 3; i++) {
+                queue.offer(createRequest(i));
+            }
+
+            // Then
+            assertThat(queue.droppedCount()).isEqualTo(1);
+            assertThat(drainAll(queue)).extracting(MeasurementRequest::getTimestamp).containsExactly(2L, 3L);
+        }
+
+        @Test
+        @DisplayName("should not count measurements without waveforms as degraded")
+        void shouldNotCountDegrade_whenNoWaveforms() throws InterruptedException {
+            // Given
+            IngestQueue queue = new IngestQueue(2, IngestQueue.OverloadPolicy.DEGRADE, 0, 0.5);
+            MeasurementRequest plain = createRequest(2L);
+            plain.setWaveformV(null);
+            plain.setWaveformI(null);
+
+            // When
+            queue.offer(createRequest(1L));
+            queue.offer(plain);
+
+            // Then
+            assertThat(queue.degradedCount()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("should reject invalid configuration")
+    void shouldRejectInvalidConfiguration() {
+        assertThatThrownBy(() -> new IngestQueue(0, IngestQueue.OverloadPolicy.BLOCK, 0, 0.8))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("ingest.queue.capacity");
+        assertThatThrownBy(() -> new IngestQueue(10, IngestQueue.OverloadPolicy.DEGRADE, 0, 1.5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("ingest.queue.degrade-watermark");
+    }
+}
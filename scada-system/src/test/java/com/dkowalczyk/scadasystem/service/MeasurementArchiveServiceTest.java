@@ -0,0 +1,158 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MeasurementArchiveService.
+ *
+ * Testing strategy:
+ * - Days archived from a mocked repository into a temporary directory, read back from the files
+ * - Archive boundary and partition expiry guard derived from the archived days
+ */
+@DisplayName("MeasurementArchiveService Unit Tests")
+class MeasurementArchiveServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final LocalDate TODAY = LocalDate.now(ZONE);
+
+    @TempDir
+    Path dir;
+
+    private final MeasurementRepository repository = mock(MeasurementRepository.class);
+
+    private MeasurementArchiveService service(int retentionDays) {
+        return new MeasurementArchiveService(repository, true, dir.toString(), 1, true, retentionDays);
+    }
+
+    private static MeasurementHistoryRow row(long id, String sensorId, Instant time) {
+        return new MeasurementHistoryRow(id, time, sensorId, 230.0 + id / 10.0, 5.0, 1150.0, null, null, null,
+                0.95, 50.0, 2.5, null, new double[]{325.0, 4.5}, null, 0.0, 0.0);
+    }
+
+    private static Instant at(LocalDate day, int hour) {
+        return day.atStartOfDay(ZONE).plusHours(hour).toInstant();
+    }
+
+    @Test
+    @DisplayName("should archive closed days from the oldest measurement, one file per node")
+    void shouldArchiveClosedDays() {
+        // Given: data two and three days ago
+        LocalDate first = TODAY.minusDays(3);
+        LocalDate second = TODAY.minusDays(2);
+        when(repository.findEarliestTime()).thenReturn(Optional.of(at(first, 1)));
+        when(repository.findHistoryRowsAfter(eq(at(first, 0)), anyLong(), any(), any(Pageable.class)))
+                .thenReturn(List.of(row(1, "node1", at(first, 1)), row(2, "node/2", at(first, 2)), row(3, null, at(first, 3))));
+        when(repository.findHistoryRowsAfter(eq(at(second, 0)), anyLong(), any(), any(Pageable.class)))
+                .thenReturn(List.of(row(4, "node1", at(second, 5))));
+        MeasurementArchiveService service = service(7);
+
+        // When: yesterday is closed too (after-days = 1) but empty
+        service.archiveClosedDays();
+
+        // Then
+        assertThat(dir.resolve(first.toString())).isDirectoryContaining("glob:**/node1.mcol")
+                .isDirectoryContaining("glob:**/node%2F2.mcol")
+                .isDirectoryContaining("glob:**/@.mcol");
+        assertThat(Files.isDirectory(dir.resolve(TODAY.minusDays(1).toString()))).isTrue();
+        assertThat(Files.exists(dir.resolve(TODAY.toString()))).isFalse();
+        assertThat(service.readHistory(null, at(first, 0), at(second, 23), 10))
+                .extracting(MeasurementHistoryRow::id)
+                .containsExactly(4L, 3L, 2L, 1L);
+        assertThat(service.readHistory("node1", at(first, 0), at(second, 23), 10))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(row(4, "node1", at(second, 5)), row(1, "node1", at(first, 1)));
+    }
+
+    @Test
+    @DisplayName("should continue after the newest archived day on restart")
+    void shouldResumeAfterNewestArchivedDay() throws Exception {
+        // Given: everything up to yesterday is already archived
+        Files.createDirectories(dir.resolve(TODAY.minusDays(1).toString()));
+        Files.createDirectories(dir.resolve(TODAY.minusDays(2) + ".tmp"));
+
+        // When
+        service(7).archiveClosedDays();
+
+        // Then
+        verify(repository, never()).findHistoryRowsAfter(any(), anyLong(), any(), any());
+        assertThat(dir.resolve(TODAY.minusDays(2) + ".tmp")).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("should pass archived rows of several days to the consumer oldest first")
+    void shouldReadAscendingByDay() throws Exception {
+        // Given
+        LocalDate day = TODAY.minusDays(2);
+        when(repository.findEarliestTime()).thenReturn(Optional.of(at(day, 0)));
+        when(repository.findHistoryRowsAfter(any(), anyLong(), any(), any(Pageable.class))).thenReturn(List.of());
+        when(repository.findHistoryRowsAfter(eq(at(day, 0)), anyLong(), any(), any(Pageable.class)))
+                .thenReturn(List.of(row(1, "node1", at(day, 1)), row(2, "node1", at(day, 2))));
+        MeasurementArchiveService service = service(7);
+        service.archiveClosedDays();
+        List<MeasurementHistoryRow> read = new ArrayList<>();
+
+        // When
+        long count = service.read("node1", at(day, 0), at(TODAY, 0), null, read::addAll);
+
+        // Then
+        assertThat(count).isEqualTo(2);
+        assertThat(read).extracting(MeasurementHistoryRow::id).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("should put the archive boundary at the retention window once the days are archived")
+    void shouldDeriveArchiveBoundary() throws Exception {
+        // Given: archived through yesterday, retention 7 days
+        Files.createDirectories(dir.resolve(TODAY.minusDays(10).toString()));
+        Files.createDirectories(dir.resolve(TODAY.minusDays(1).toString()));
+        MeasurementArchiveService service = service(7);
+        assertThat(service.getArchiveEnd()).isNull();
+        assertThat(service.isArchivedBefore(TODAY.minusDays(7))).isFalse();
+
+        // When
+        service.archiveClosedDays();
+
+        // Then
+        assertThat(service.getArchiveEnd()).isEqualTo(at(TODAY.minusDays(7), 0));
+        assertThat(service.isArchivedBefore(TODAY)).isTrue();
+        assertThat(service.isArchivedBefore(TODAY.plusDays(1))).isFalse();
+    }
+
+    @Test
+    @DisplayName("should not read from the archive without a retention window")
+    void shouldNotUseArchiveWithoutRetention() throws Exception {
+        Files.createDirectories(dir.resolve(TODAY.minusDays(1).toString()));
+        MeasurementArchiveService service = service(0);
+
+        service.archiveClosedDays();
+
+        assertThat(service.getArchiveEnd()).isNull();
+    }
+
+    @Test
+    @DisplayName("should reject archiving later than the retention window")
+    void shouldRejectArchivingAfterRetention() {
+        assertThatThrownBy(() -> new MeasurementArchiveService(repository, true, dir.toString(), 7, true, 7))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
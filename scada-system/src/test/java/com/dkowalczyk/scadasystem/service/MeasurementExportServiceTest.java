@@ -0,0 +1,148 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import com.dkowalczyk.scadasystem.service.MeasurementExportService.Column;
+import com.dkowalczyk.scadasystem.service.MeasurementExportService.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MeasurementExportService.
+ *
+ * Testing strategy:
+ * - Keyset paging verified against a mocked repository (page size 2)
+ * - Archived part of a range read from the archive with the selected columns only
+ * - NDJSON and CSV output compared as text
+ */
+@DisplayName("MeasurementExportService Unit Tests")
+class MeasurementExportServiceTest {
+
+    private static final Instant FROM = Instant.parse("2026-01-15T12:00:00Z");
+    private static final Instant TO = FROM.plusSeconds(3600);
+
+    private final MeasurementRepository repository = mock(MeasurementRepository.class);
+    private final MeasurementArchiveService archiveService = mock(MeasurementArchiveService.class);
+    private final MeasurementExportService service =
+            new MeasurementExportService(repository, archiveService, new ObjectMapper(), 2, 31);
+
+    private static MeasurementHistoryRow row(long id, Instant time, String sensorId) {
+        return new MeasurementHistoryRow(id, time, sensorId, 230.0, 5.0,
+                1150.0, null, null, null, 0.95, 50.0, 2.5, null,
+                new double[]{230.0, 4.5}, null, 0.0, 0.0);
+    }
+
+    private String export(String sensorId, Format format, List<Column> columns) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(sensorId, FROM, TO, format, columns, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("should read the range before the archive boundary from the archive, then the database")
+    void shouldReadArchivedPartFromArchive() throws Exception {
+        // Given: the database holds data from FROM + 30 min
+        Instant archiveEnd = FROM.plusSeconds(1800);
+        when(archiveService.getArchiveEnd()).thenReturn(archiveEnd);
+        when(archiveService.read(eq(null), eq(FROM), eq(archiveEnd.minusNanos(1000)), eq(Set.of("id", "voltage_rms")), any()))
+                .thenAnswer(invocation -> {
+                    MeasurementArchiveService.RowsConsumer consumer = invocation.getArgument(4);
+                    consumer.accept(List.of(row(1, FROM, "node1")));
+                    return 1L;
+                });
+        when(repository.findHistoryRowsAfter(eq(archiveEnd), eq(Long.MIN_VALUE), eq(TO), any(Pageable.class)))
+                .thenReturn(List.of(row(2, archiveEnd, "node1")));
+
+        // When
+        String csv = export(null, Format.CSV, List.of(Column.ID, Column.VOLTAGE_RMS));
+
+        // Then
+        assertThat(csv).isEqualTo("id,voltage_rms\n1,230.0\n2,230.0\n");
+    }
+
+    @Test
+    @DisplayName("should continue each page after the last (time, id) until a short page")
+    void shouldPageByKeyset() throws Exception {
+        // Given: 3 rows, two with the same time
+        MeasurementHistoryRow first = row(10, FROM, "node1");
+        MeasurementHistoryRow second = row(11, FROM, "node2");
+        MeasurementHistoryRow third = row(12, FROM.plusSeconds(3), "node1");
+        when(repository.findHistoryRowsAfter(eq(FROM), eq(Long.MIN_VALUE), eq(TO), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        when(repository.findHistoryRowsAfter(eq(FROM), eq(11L), eq(TO), any(Pageable.class)))
+                .thenReturn(List.of(third));
+
+        // When
+        String csv = export(null, Format.CSV, List.of(Column.ID));
+
+        // Then
+        assertThat(csv).isEqualTo("id\n10\n11\n12\n");
+        verify(repository, times(2)).findHistoryRowsAfter(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should write one JSON object per line with the selected fields")
+    void shouldWriteNdjson() throws Exception {
+        // Given
+        when(repository.findHistoryRowsBySensorIdAfter(eq("node1"), eq(FROM), eq(Long.MIN_VALUE), eq(TO), any(Pageable.class)))
+                .thenReturn(List.of(row(10, FROM, "node1")));
+
+        // When
+        String ndjson = export("node1", Format.NDJSON,
+                Column.parse("time,sensor_id,voltage_rms,power_apparent,harmonics_v"));
+
+        // Then
+        assertThat(ndjson).isEqualTo("{\"time\":\"2026-01-15T12:00:00Z\",\"sensor_id\":\"node1\","
+                + "\"voltage_rms\":230.0,\"power_apparent\":null,\"harmonics_v\":[230.0,4.5]}\n");
+    }
+
+    @Test
+    @DisplayName("should write CSV with empty nulls, semicolon-separated arrays and quoted text")
+    void shouldWriteCsv() throws Exception {
+        // Given
+        when(repository.findHistoryRowsAfter(eq(FROM), eq(Long.MIN_VALUE), eq(TO), any(Pageable.class)))
+                .thenReturn(List.of(row(10, FROM, "hall,\"A\"")));
+
+        // When
+        String csv = export(null, Format.CSV, Column.parse("time,sensor_id,power_apparent,harmonics_v"));
+
+        // Then
+        assertThat(csv).isEqualTo("time,sensor_id,power_apparent,harmonics_v\n"
+                + "2026-01-15T12:00:00Z,\"hall,\"\"A\"\"\",,230.0;4.5\n");
+    }
+
+    @Test
+    @DisplayName("should parse formats and columns and reject unknown ones")
+    void shouldParseFormatsAndColumns() {
+        assertThat(Format.parse("csv")).isEqualTo(Format.CSV);
+        assertThat(Column.parse(null)).containsExactly(Column.values());
+        assertThat(Column.parse(" time , time,id")).containsExactly(Column.TIME, Column.ID);
+
+        assertThatThrownBy(() -> Format.parse("xml")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Column.parse("time,waveform_v"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("waveform_v");
+    }
+
+    @Test
+    @DisplayName("should reject reversed and too long ranges")
+    void shouldValidateRange() {
+        assertThatCode(() -> service.validateRange(FROM, TO)).doesNotThrowAnyException();
+        assertThatThrownBy(() -> service.validateRange(TO, FROM)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.validateRange(FROM, FROM.plusSeconds(32L * 86400)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,492 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.IngestShardStatsDTO;
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.nio.file.Path;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MeasurementIngestService micro-batching.
+ *
+ * Testing strategy:
+ * - Real writer thread, mocked MeasurementService
+ * - Mockito timeout() waits for asynchronous flushes
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MeasurementIngestService Unit Tests")
+class MeasurementIngestServiceTest {
+
+    @Mock
+    private MeasurementService measurementService;
+
+    private MeasurementIngestService ingestService;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (ingestService != null) {
+            ingestService.stop();
+        }
+    }
+
+    private MeasurementIngestService createService(int batchSize, long maxDelayMs) {
+        return new MeasurementIngestService(measurementService, batchSize, maxDelayMs,
+                new IngestQueue(1000, IngestQueue.OverloadPolicy.BLOCK, 1000, 0.8));
+    }
+
+    private MeasurementIngestService createWalService(Path walDir, int batchSize, long maxDelayMs) {
+        MeasurementWal wal = new MeasurementWal(walDir, 64 * 1024, 1024 * 1024, new ObjectMapper());
+        return new MeasurementIngestService(measurementService, batchSize, maxDelayMs,
+                new IngestQueue(1000, IngestQueue.OverloadPolicy.BLOCK, 1000, 0.8), wal, 50, new DuplicateFilter(1024));
+    }
+
+    private MeasurementRequest createRequest(long timestamp) {
+        MeasurementRequest request = new MeasurementRequest();
+        request.setTimestamp(timestamp);
+        request.setVoltageRms(230.0);
+        request.setCurrentRms(5.0);
+        request.setFrequency(50.0);
+        return request;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<MeasurementRequest>> captureBatches(int expectedFlushes) {
+        ArgumentCaptor<List<MeasurementRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(measurementService, timeout(2000).times(expectedFlushes)).saveMeasurements(captor.capture());
+        return captor.getAllValues();
+    }
+
+    @Test
+    @DisplayName("should flush a full batch as one saveMeasurements call")
+    void shouldFlushFullBatch() {
+        // Given: batch size 3, long delay so only the size limit can trigger a flush
+        ingestService = createService(3, 5000);
+        ingestService.start();
+
+        // When
+        ingestService.submit(createRequest(1L));
+        ingestService.submit(createRequest(2L));
+        ingestService.submit(createRequest(3L));
+
+        // Then
+        List<List<MeasurementRequest>> batches = captureBatches(1);
+        assertThat(batches.get(0))
+                .extracting(MeasurementRequest::getTimestamp)
+                .containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("should flush a partial batch after max delay")
+    void shouldFlushPartialBatchAfterDelay() {
+        // Given: batch size 50, short delay
+        ingestService = createService(50, 50);
+        ingestService.start();
+
+        // When
+        ingestService.submit(createRequest(1L));
+
+        // Then
+        List<List<MeasurementRequest>> batches = captureBatches(1);
+        assertThat(batches.get(0)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("should split input larger than batch size into several batches")
+    void shouldSplitIntoBatches() {
+        // Given
+        ingestService = createService(2, 5000);
+        ingestService.start();
+
+        // When
+        for (long i = 1; i <= 4; i++) {
+            ingestService.submit(createRequest(i));
+        }
+
+        // Then: arrival order is preserved across batches
+        List<List<MeasurementRequest>> batches = captureBatches(2);
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSize(2));
+        assertThat(batches.stream().flatMap(List::stream).map(MeasurementRequest::getTimestamp))
+                .containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    @DisplayName("should keep writing after a failed batch")
+    void shouldSurviveFailedBatch() {
+        // Given: first flush fails (e.g. database unavailable)
+        ingestService = createService(1, 5000);
+        when(measurementService.saveMeasurements(anyList()))
+                .thenThrow(new RuntimeException("Database connection failed"))
+                .thenReturn(List.of());
+        ingestService.start();
+
+        // When
+        ingestService.submit(createRequest(1L));
+        ingestService.submit(createRequest(2L));
+
+        // Then: second batch is still attempted
+        captureBatches(2);
+    }
+
+    @Test
+    @DisplayName("should flush buffered measurements on stop")
+    void shouldFlushOnStop() throws InterruptedException {
+        // Given: nothing would trigger a flush before stop()
+        ingestService = createService(50, 5000);
+        ingestService.start();
+        ingestService.submit(createRequest(1L));
+
+        // When
+        ingestService.stop();
+
+        // Then
+        verify(measurementService).saveMeasurements(anyList());
+        assertThat(ingestService.getQueueDepth()).isZero();
+    }
+
+    @Test
+    @DisplayName("should drop a redelivered measurement before it is queued")
+    void shouldSuppressDuplicates() {
+        // Given
+        ingestService = createService(1, 5000);
+        ingestService.start();
+
+        // When: QoS 1 redelivery of the same message
+        boolean first = ingestService.submit(createRequest(1L));
+        boolean redelivery = ingestService.submit(createRequest(1L));
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(redelivery).isFalse();
+        assertThat(ingestService.getDuplicatesSuppressed()).isEqualTo(1);
+        List<List<MeasurementRequest>> batches = captureBatches(1);
+        assertThat(batches.get(0).get(0).getPayloadHash()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("should reject non-positive batch size")
+    void shouldRejectInvalidBatchSize() {
+        assertThatThrownBy(() -> createService(0, 500))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("ingest.batch.size");
+    }
+
+    @Nested
+    @DisplayName("Sharding by node")
+    class Sharding {
+
+        private MeasurementIngestService createShardedService(int shardCount) {
+            List<IngestShard> shards = new ArrayList<>();
+            for (int i = 0; i < shardCount; i++) {
+                shards.add(new IngestShard(i, measurementService, 1, 5000,
+                        new IngestQueue(100, IngestQueue.OverloadPolicy.BLOCK, 1000, 0.8), null, 0));
+            }
+            return new MeasurementIngestService(shards, new DuplicateFilter(1024));
+        }
+
+        private MeasurementRequest createRequest(String sensorId, long timestamp) {
+            MeasurementRequest request = MeasurementIngestServiceTest.this.createRequest(timestamp);
+            request.setSensorId(sensorId);
+            return request;
+        }
+
+        @Test
+        @DisplayName("should route the same node to the same shard")
+        void shouldRouteNodeToStableShard() {
+            // Given
+            ingestService = createShardedService(4);
+
+            // When & Then
+            assertThat(ingestService.shardFor("node1")).isSameAs(ingestService.shardFor("node1"));
+            assertThat(ingestService.shardFor("node1")).isNotSameAs(ingestService.shardFor("node2"));
+            assertThat(ingestService.shardFor(null)).isSameAs(ingestService.shardFor(null));
+        }
+
+        @Test
+        @DisplayName("should keep writing other nodes while one shard is stuck")
+        void shouldWriteNodesInParallel() throws InterruptedException {
+            // Given: saving node1 blocks until released
+            CountDownLatch release = new CountDownLatch(1);
+            when(measurementService.saveMeasurements(anyList())).thenAnswer(invocation -> {
+                List<MeasurementRequest> batch = invocation.getArgument(0);
+                if ("node1".equals(batch.get(0).getSensorId())) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                return List.of();
+            });
+            ingestService = createShardedService(2);
+            ingestService.start();
+
+            // When
+            ingestService.submit(createRequest("node1", 1L));
+            ingestService.submit(createRequest("node2", 1L));
+
+            // Then: node2 is saved while node1's writer is still blocked
+            verify(measurementService, timeout(2000).times(2)).saveMeasurements(anyList());
+            IngestShardStatsDTO node2Stats = ingestService.shardFor("node2").stats();
+            assertThat(node2Stats.getBatchCount()).isEqualTo(1);
+            assertThat(ingestService.shardFor("node1").stats().getBatchCount()).isZero();
+            release.countDown();
+        }
+
+        @Test
+        @DisplayName("should preserve arrival order within a node")
+        void shouldPreserveOrderPerNode() {
+            // Given
+            ingestService = createShardedService(4);
+            ingestService.start();
+
+            // When: two nodes interleaved
+            for (long i = 1; i <= 5; i++) {
+                ingestService.submit(createRequest("node1", i));
+                ingestService.submit(createRequest("node2", i));
+            }
+
+            // Then
+            List<List<MeasurementRequest>> batches = captureBatches(10);
+            for (String node : List.of("node1", "node2")) {
+                assertThat(batches.stream().flatMap(List::stream)
+                        .filter(r -> node.equals(r.getSensorId()))
+                        .map(MeasurementRequest::getTimestamp))
+                        .containsExactly(1L, 2L, 3L, 4L, 5L);
+            }
+        }
+
+        @Test
+        @DisplayName("should report per-shard stats and aggregate queue capacity")
+        void shouldReportShardStats() {
+            // Given
+            ingestService = createShardedService(3);
+
+            // When
+            List<IngestShardStatsDTO> stats = ingestService.getShardStats();
+
+            // Then
+            assertThat(stats).extracting(IngestShardStatsDTO::getShard).containsExactly(0, 1, 2);
+            assertThat(ingestService.getShardCount()).isEqualTo(3);
+            assertThat(ingestService.getQueueCapacity()).isEqualTo(300);
+        }
+    }
+
+    @Nested
+    @DisplayName("With write-ahead log")
+    class WithWal {
+
+        @TempDir
+        Path walDir;
+
+        @Test
+        @DisplayName("should persist measurements appended to the WAL")
+        void shouldFlushFromWal() {
+            // Given
+            ingestService = createWalService(walDir, 2, 5000);
+            ingestService.start();
+
+            // When
+            ingestService.submit(createRequest(1L));
+            ingestService.submit(createRequest(2L));
+
+            // Then
+            List<List<MeasurementRequest>> batches = captureBatches(1);
+            assertThat(batches.get(0)).extracting(MeasurementRequest::getTimestamp).containsExactly(1L, 2L);
+            assertThat(batches.get(0)).allSatisfy(r -> assertThat(r.getReceivedAt()).isNotNull());
+        }
+
+        @Test
+        @DisplayName("should retry the same batch while the database is unavailable")
+        void shouldReplayAfterOutage() {
+            // Given: two failed attempts, then the database is back
+            ingestService = createWalService(walDir, 2, 5000);
+            when(measurementService.saveMeasurements(anyList()))
+                    .thenThrow(new CannotCreateTransactionException("Connection refused"))
+                    .thenThrow(new CannotCreateTransactionException("Connection refused"))
+                    .thenReturn(List.of());
+            ingestService.start();
+
+            // When
+            ingestService.submit(createRequest(1L));
+            ingestService.submit(createRequest(2L));
+
+            // Then: nothing lost, same records in every attempt
+            List<List<MeasurementRequest>> batches = captureBatches(3);
+            assertThat(batches).allSatisfy(batch ->
+                    assertThat(batch).extracting(MeasurementRequest::getTimestamp).containsExactly(1L, 2L));
+            await(() -> assertThat(ingestService.getWalLagRecords()).isZero());
+        }
+
+        @Test
+        @DisplayName("should skip a batch the database rejects for non-transient reasons")
+        void shouldSkipRejectedBatch() {
+            // Given
+            ingestService = createWalService(walDir, 1, 5000);
+            when(measurementService.saveMeasurements(anyList()))
+                    .thenThrow(new IllegalStateException("constraint violation"))
+                    .thenReturn(List.of());
+            ingestService.start();
+
+            // When
+            ingestService.submit(createRequest(1L));
+            ingestService.submit(createRequest(2L));
+
+            // Then
+            List<List<MeasurementRequest>> batches = captureBatches(2);
+            assertThat(batches.get(1)).extracting(MeasurementRequest::getTimestamp).containsExactly(2L);
+        }
+
+        @Test
+        @DisplayName("should retry a rejected batch one by one and drop only the bad record")
+        void shouldKeepValidRecordsOfRejectedBatch() {
+            // Given: the batch fails on its second record, which fails again alone
+            ingestService = createWalService(walDir, 3, 5000);
+            when(measurementService.saveMeasurements(anyList())).thenAnswer(invocation -> {
+                List<MeasurementRequest> batch = invocation.getArgument(0);
+                if (batch.stream().anyMatch(r -> r.getTimestamp() == 2L)) {
+                    throw new DataIntegrityViolationException("NOT NULL violation");
+                }
+                return List.of();
+            });
+            ingestService.start();
+
+            // When
+            ingestService.submit(createRequest(1L));
+            ingestService.submit(createRequest(2L));
+            ingestService.submit(createRequest(3L));
+
+            // Then: one batch attempt, then each record alone
+            List<List<MeasurementRequest>> batches = captureBatches(4);
+            assertThat(batches.get(0)).hasSize(3);
+            assertThat(batches.subList(1, 4)).extracting(batch -> batch.get(0).getTimestamp())
+                    .containsExactly(1L, 2L, 3L);
+            await(() -> assertThat(ingestService.getWalLagRecords()).isZero());
+            assertThat(ingestService.getShardStats().get(0).getDeadLetterCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should shed waveforms above the degrade watermark of the WAL disk budget")
+        void shouldDegradeAboveWalWatermark() {
+            // Given: DEGRADE at 50 %, the first of two segments already takes half the budget
+            IngestShard shard = new IngestShard(0, measurementService, 1, 5000,
+                    new IngestQueue(1000, IngestQueue.OverloadPolicy.DEGRADE, 1000, 0.5),
+                    new MeasurementWal(walDir, 64 * 1024, 128 * 1024, new ObjectMapper()), 50);
+            ingestService = new MeasurementIngestService(List.of(shard), new DuplicateFilter(1024));
+            ingestService.start();
+            MeasurementRequest request = createRequest(1L);
+            request.setWaveformV(new double[]{0.0, 325.3});
+            request.setWaveformI(new double[]{0.0, 6.8});
+
+            // When
+            ingestService.submit(request);
+
+            // Then
+            List<List<MeasurementRequest>> batches = captureBatches(1);
+            assertThat(batches.get(0).get(0).getWaveformV()).isNull();
+            assertThat(batches.get(0).get(0).getWaveformI()).isNull();
+            assertThat(ingestService.getDegradedCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should replay uncommitted measurements after restart")
+        void shouldReplayAfterRestart() throws InterruptedException {
+            // Given: database down for the whole first run
+            ingestService = createWalService(walDir, 50, 50);
+            when(measurementService.saveMeasurements(anyList()))
+                    .thenThrow(new CannotCreateTransactionException("Connection refused"));
+            ingestService.start();
+            ingestService.submit(createRequest(1L));
+            ingestService.submit(createRequest(2L));
+            verify(measurementService, timeout(2000).atLeastOnce()).saveMeasurements(anyList());
+            ingestService.stop();
+            assertThat(ingestService.getWalLagRecords()).isEqualTo(2);
+
+            // When: restart with the database back
+            reset(measurementService);
+            ingestService = createWalService(walDir, 50, 50);
+            ingestService.start();
+
+            // Then
+            List<List<MeasurementRequest>> batches = captureBatches(1);
+            assertThat(batches.get(0)).extracting(MeasurementRequest::getTimestamp).containsExactly(1L, 2L);
+        }
+
+        @Test
+        @DisplayName("should replay the legacy root log and orphaned shard logs before starting")
+        void shouldDrainExistingLogsAtStartup() throws Exception {
+            // Given: a log from before sharding and one of a shard that no longer exists
+            MeasurementWal legacy = walAt(walDir);
+            legacy.open();
+            legacy.append(createRequest(1L));
+            legacy.close();
+            MeasurementWal orphan = walAt(walDir.resolve("shard-5"));
+            orphan.open();
+            orphan.append(createRequest(2L));
+            orphan.close();
+            IngestShard shard = new IngestShard(0, measurementService, 50, 5000,
+                    new IngestQueue(1000, IngestQueue.OverloadPolicy.BLOCK, 1000, 0.8),
+                    walAt(walDir.resolve("shard-0")), 50);
+            ingestService = new MeasurementIngestService(List.of(shard), new DuplicateFilter(1024), walDir,
+                    dir -> new IngestShard(-1, measurementService, 50, 5000,
+                            new IngestQueue(1, IngestQueue.OverloadPolicy.BLOCK, 1000, 0.8), walAt(dir), 50));
+
+            // When
+            ingestService.start();
+
+            // Then: both saved before start() returned, oldest first, and the logs are gone
+            List<List<MeasurementRequest>> batches = captureBatches(2);
+            assertThat(batches).extracting(batch -> batch.get(0).getTimestamp()).containsExactly(1L, 2L);
+            assertThat(MeasurementWal.exists(walDir)).isFalse();
+            assertThat(walDir.resolve("shard-5")).doesNotExist();
+            assertThat(walDir.resolve("shard-0")).isDirectory();
+        }
+
+        private MeasurementWal walAt(Path dir) {
+            return new MeasurementWal(dir, 64 * 1024, 1024 * 1024, new ObjectMapper());
+        }
+
+        @Test
+        @DisplayName("should classify connection failures as database unavailable")
+        void shouldClassifyConnectionFailures() {
+            assertThat(IngestShard.isDatabaseUnavailable(
+                    new RuntimeException(new SQLTransientConnectionException("timeout")))).isTrue();
+            assertThat(IngestShard.isDatabaseUnavailable(
+                    new CannotCreateTransactionException("Connection refused"))).isTrue();
+            assertThat(IngestShard.isDatabaseUnavailable(
+                    new IllegalStateException("bad data"))).isFalse();
+        }
+
+        private void await(Runnable assertion) {
+            long deadline = System.currentTimeMillis() + 2000;
+            while (true) {
+                try {
+                    assertion.run();
+                    return;
+                } catch (AssertionError e) {
+                    if (System.currentTimeMillis() > deadline) {
+                        throw e;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                }
+            }
+        }
+    }
+}
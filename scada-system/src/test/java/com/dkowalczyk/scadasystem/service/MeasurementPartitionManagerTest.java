@@ -0,0 +1,214 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.service.MeasurementPartitionManager.Interval;
+import com.dkowalczyk.scadasystem.service.MeasurementPartitionManager.Partition;
+import com.dkowalczyk.scadasystem.service.MeasurementPartitionManager.RetentionAction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MeasurementPartitionManager.
+ *
+ * Testing strategy:
+ * - Partition planning (create / expire) tested as pure functions on a fixed "today"
+ * - Bound parsing tested with pg_get_expr output
+ * - No PostgreSQL available: maintainPartitions() must not issue DDL when the catalog query fails
+ * - DDL sequences verified on a mocked JdbcTemplate
+ */
+@DisplayName("MeasurementPartitionManager Unit Tests")
+class MeasurementPartitionManagerTest {
+
+    // Thursday
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 15);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final MeasurementArchiveService archiveService = mock(MeasurementArchiveService.class);
+
+    private MeasurementPartitionManager manager(Interval interval, int retentionDays) {
+        return new MeasurementPartitionManager(jdbcTemplate, transactionManager, archiveService, true, interval, 3, retentionDays,
+                RetentionAction.DETACH);
+    }
+
+    private static Partition day(LocalDate from) {
+        return new Partition("measurements_p" + from.toString().replace("-", ""),
+                from.atStartOfDay(), from.plusDays(1).atStartOfDay());
+    }
+
+    @Test
+    @DisplayName("should create daily partitions from the newest partition up to the horizon")
+    void shouldCreateDailyPartitionsAfterNewest() {
+        // Given: partitions up to and including today
+        List<Partition> existing = List.of(day(TODAY.minusDays(1)), day(TODAY));
+
+        // When
+        List<Partition> missing = manager(Interval.DAY, 0).missingPartitions("measurements", existing, TODAY);
+
+        // Then: tomorrow and the day after (horizon = today + 3 days)
+        assertThat(missing).extracting(Partition::name)
+                .containsExactly("measurements_p20260116", "measurements_p20260117");
+        assertThat(missing.get(0).from()).isEqualTo(LocalDateTime.of(2026, 1, 16, 0, 0));
+        assertThat(missing.get(1).to()).isEqualTo(LocalDateTime.of(2026, 1, 18, 0, 0));
+    }
+
+    @Test
+    @DisplayName("should align weekly partitions to Mondays after daily ones")
+    void shouldAlignWeeklyPartitions() {
+        // Given: daily partitions end on Friday
+        List<Partition> existing = List.of(day(TODAY));
+
+        // When
+        List<Partition> missing = manager(Interval.WEEK, 0).missingPartitions("measurements", existing, TODAY);
+
+        // Then: one short partition Friday-Monday, then none needed (horizon Sunday)
+        assertThat(missing).containsExactly(new Partition("measurements_p20260116",
+                LocalDateTime.of(2026, 1, 16, 0, 0), LocalDateTime.of(2026, 1, 19, 0, 0)));
+    }
+
+    @Test
+    @DisplayName("should start at the current week when no partition exists")
+    void shouldStartAtCurrentWeek() {
+        // When
+        List<Partition> missing = manager(Interval.WEEK, 0).missingPartitions("measurement_waveforms", List.of(), TODAY);
+
+        // Then
+        assertThat(missing).containsExactly(new Partition("measurement_waveforms_p20260112",
+                LocalDateTime.of(2026, 1, 12, 0, 0), LocalDateTime.of(2026, 1, 19, 0, 0)));
+    }
+
+    @Test
+    @DisplayName("should expire only partitions that ended before the retention cutoff")
+    void shouldExpireOldPartitions() {
+        // Given: retention 30 days, cutoff 2025-12-16 00:00
+        List<Partition> existing = List.of(
+                day(LocalDate.of(2025, 12, 14)),
+                day(LocalDate.of(2025, 12, 15)),
+                day(LocalDate.of(2025, 12, 16)));
+
+        // When
+        List<Partition> expired = manager(Interval.DAY, 30).expiredPartitions(existing, TODAY);
+
+        // Then
+        assertThat(expired).extracting(Partition::name)
+                .containsExactly("measurements_p20251214", "measurements_p20251215");
+    }
+
+    @Test
+    @DisplayName("should keep everything when retention is 0")
+    void shouldKeepAllWithoutRetention() {
+        // When
+        List<Partition> expired = manager(Interval.DAY, 0)
+                .expiredPartitions(List.of(day(LocalDate.of(2020, 1, 1))), TODAY);
+
+        // Then
+        assertThat(expired).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should parse range bounds and skip the default partition")
+    void shouldParseBounds() {
+        // When & Then
+        assertThat(MeasurementPartitionManager.parsePartition("measurements_p20260115",
+                "FOR VALUES FROM ('2026-01-15 00:00:00') TO ('2026-01-16 00:00:00')"))
+                .contains(day(TODAY));
+        assertThat(MeasurementPartitionManager.parsePartition("measurements_default", "DEFAULT")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should not issue DDL when the tables are not partitioned")
+    void shouldSkipWithoutPartitionedTable() {
+        // Given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any())).thenReturn(0);
+        MeasurementPartitionManager manager = manager(Interval.DAY, 30);
+
+        // When
+        manager.maintainPartitions();
+        manager.maintainPartitions();
+
+        // Then: both tables checked once, then disabled
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Integer.class), any());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    @DisplayName("should create the partition directly when the default partition has no rows for it")
+    void shouldCreatePartitionDirectly() {
+        // Given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenReturn(true, false);
+
+        // When
+        manager(Interval.DAY, 0).createPartition("measurements", day(TODAY));
+
+        // Then
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS measurements_p20260115 PARTITION OF measurements"
+                + " FOR VALUES FROM ('2026-01-15 00:00:00') TO ('2026-01-16 00:00:00')");
+        verify(jdbcTemplate, never()).update(anyString());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    @DisplayName("should move rows of the range out of the default partition in one transaction")
+    void shouldMoveRowsFromDefaultPartition() {
+        // Given: default partition exists and holds rows of the range
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenReturn(true, true);
+
+        // When
+        manager(Interval.DAY, 0).createPartition("measurements", day(TODAY));
+
+        // Then
+        String range = "time >= '2026-01-15 00:00:00' AND time < '2026-01-16 00:00:00'";
+        InOrder inOrder = inOrder(transactionManager, jdbcTemplate);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE measurements DETACH PARTITION measurements_default");
+        inOrder.verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS measurements_p20260115"));
+        inOrder.verify(jdbcTemplate).update(
+                "INSERT INTO measurements_p20260115 SELECT * FROM measurements_default WHERE " + range);
+        inOrder.verify(jdbcTemplate).update("DELETE FROM measurements_default WHERE " + range);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE measurements ATTACH PARTITION measurements_default DEFAULT");
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("should stop creating partitions of a table at the first failed range")
+    @SuppressWarnings("unchecked")
+    void shouldStopAtFailedRange() {
+        // Given: partitions up to today, creating tomorrow's measurements partition fails
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any())).thenReturn(1);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any()))
+                .thenReturn(List.of(Optional.of(day(TODAY))));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenReturn(false);
+        doThrow(new DataAccessResourceFailureException("lock timeout"))
+                .when(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS measurements_p20260116"));
+
+        // When
+        manager(Interval.DAY, 0).maintainPartitions();
+
+        // Then: the later range is left for the next run, the other table is still maintained
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE TABLE IF NOT EXISTS measurements_p20260117"));
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS measurement_waveforms_p20260116"));
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS measurement_waveforms_p20260117"));
+    }
+
+    @Test
+    @DisplayName("should reject invalid configuration")
+    void shouldRejectInvalidConfiguration() {
+        assertThatThrownBy(() -> new MeasurementPartitionManager(jdbcTemplate, transactionManager, archiveService, true, Interval.DAY, 0, 0, RetentionAction.DROP))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MeasurementPartitionManager(jdbcTemplate, transactionManager, archiveService, true, Interval.DAY, 7, -1, RetentionAction.DROP))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,210 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.event.LateMeasurementEvent;
+import com.dkowalczyk.scadasystem.model.event.OrderedMeasurementEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("MeasurementReorderBuffer Tests")
+class MeasurementReorderBufferTest {
+
+    private static final Instant BASE = Instant.parse("2026-01-15T12:00:00Z");
+    private static final long LATENESS_MS = 3000;
+
+    private final List<Object> published = new ArrayList<>();
+    private final ApplicationEventPublisher publisher = published::add;
+    private MeasurementReorderBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new MeasurementReorderBuffer(publisher, LATENESS_MS);
+    }
+
+    private void add(String node, int secondsAfterBase, long arrivalMs) {
+        Instant time = BASE.plusSeconds(secondsAfterBase);
+        Measurement measurement = Measurement.builder().sensorId(node).time(time).build();
+        MeasurementDTO dto = MeasurementDTO.builder().sensorId(node).time(time).build();
+        buffer.add(measurement, dto, TimeUnit.MILLISECONDS.toNanos(arrivalMs));
+    }
+
+    private List<Instant> orderedTimes(String node) {
+        return published.stream()
+                .filter(OrderedMeasurementEvent.class::isInstance)
+                .map(OrderedMeasurementEvent.class::cast)
+                .filter(e -> node.equals(e.getMeasurement().getSensorId()))
+                .map(e -> e.getMeasurement().getTime())
+                .toList();
+    }
+
+    private List<LateMeasurementEvent> lateEvents() {
+        return published.stream()
+                .filter(LateMeasurementEvent.class::isInstance)
+                .map(LateMeasurementEvent.class::cast)
+                .toList();
+    }
+
+    @Nested
+    @DisplayName("Ordering")
+    class Ordering {
+
+        @Test
+        @DisplayName("should emit out-of-order measurements in device-time order once the watermark passes")
+        void shouldEmitInDeviceTimeOrder() {
+            // Given: arrival order 0, 2, 1 within the allowed lateness
+            add("node1", 0, 0);
+            add("node1", 2, 10);
+            add("node1", 1, 20);
+            assertThat(orderedTimes("node1")).isEmpty();
+            assertThat(buffer.getBufferedCount()).isEqualTo(3);
+
+            // When: a measurement 3 s newer advances the watermark to t=2
+            add("node1", 5, 30);
+
+            // Then
+            assertThat(orderedTimes("node1"))
+                    .containsExactly(BASE, BASE.plusSeconds(1), BASE.plusSeconds(2));
+            assertThat(buffer.getBufferedCount()).isEqualTo(1);
+            assertThat(buffer.getEmittedCount()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("should keep nodes independent")
+        void shouldKeepNodesIndependent() {
+            // Given
+            add("node1", 0, 0);
+            add("node2", 0, 0);
+
+            // When: only node1 advances
+            add("node1", 10, 10);
+
+            // Then
+            assertThat(orderedTimes("node1")).containsExactly(BASE);
+            assertThat(orderedTimes("node2")).isEmpty();
+        }
+
+        @Test
+        @DisplayName("should release a quiet node after the allowed lateness in wall-clock time")
+        void shouldReleaseAfterTimeout() {
+            // Given: arrival at 0 ms, nothing newer follows
+            add("node1", 0, 0);
+            assertThat(orderedTimes("node1")).isEmpty();
+
+            // When: the next measurement arrives after the allowed lateness
+            add("node1", 1, LATENESS_MS);
+
+            // Then: the first one waited long enough, the second one did not
+            assertThat(orderedTimes("node1")).containsExactly(BASE);
+            assertThat(buffer.getBufferedCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should emit immediately with zero allowed lateness")
+        void shouldEmitImmediatelyWithoutLateness() {
+            // Given
+            buffer = new MeasurementReorderBuffer(publisher, 0);
+
+            // When
+            add("node1", 0, 0);
+            add("node1", 1, 0);
+
+            // Then
+            assertThat(orderedTimes("node1")).containsExactly(BASE, BASE.plusSeconds(1));
+            assertThat(buffer.getBufferedCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("should reject negative allowed lateness")
+        void shouldRejectNegativeLateness() {
+            assertThatThrownBy(() -> new MeasurementReorderBuffer(publisher, -1))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("stream.reorder.allowed-lateness-ms");
+        }
+    }
+
+    @Nested
+    @DisplayName("Late measurements")
+    class LateMeasurements {
+
+        @Test
+        @DisplayName("should route a measurement older than the last emitted one to the correction path")
+        void shouldRouteLateMeasurement() {
+            // Given: t=0 and t=5 emitted (t=0 by watermark, t=5 by timeout)
+            add("node1", 0, 0);
+            add("node1", 5, 10);
+            add("node1", 6, LATENESS_MS + 10);
+            assertThat(orderedTimes("node1")).containsExactly(BASE, BASE.plusSeconds(5));
+
+            // When: t=2 arrives after t=5 was emitted
+            add("node1", 2, LATENESS_MS + 20);
+
+            // Then
+            assertThat(lateEvents()).singleElement().satisfies(event -> {
+                assertThat(event.getMeasurement().getTime()).isEqualTo(BASE.plusSeconds(2));
+                assertThat(event.getWatermark()).isEqualTo(BASE.plusSeconds(5));
+            });
+            assertThat(orderedTimes("node1")).containsExactly(BASE, BASE.plusSeconds(5));
+            assertThat(buffer.getLateCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should accept a measurement with the same time as the last emitted one")
+        void shouldAcceptEqualTime() {
+            // Given
+            buffer = new MeasurementReorderBuffer(publisher, 0);
+            add("node1", 1, 0);
+
+            // When
+            add("node1", 1, 0);
+
+            // Then
+            assertThat(orderedTimes("node1")).hasSize(2);
+            assertThat(lateEvents()).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("flushExpired()")
+    class FlushExpired {
+
+        @Test
+        @DisplayName("should release measurements that waited past the allowed lateness")
+        void shouldFlushExpired() {
+            // Given: arrival timestamp far enough in the past
+            add("node1", 0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) - LATENESS_MS - 1);
+
+            // When
+            buffer.flushExpired();
+
+            // Then
+            assertThat(orderedTimes("node1")).containsExactly(BASE);
+            assertThat(buffer.getBufferedCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("should keep measurements still within the allowed lateness")
+        void shouldKeepFreshMeasurements() {
+            // Given
+            add("node1", 0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+
+            // When
+            buffer.flushExpired();
+
+            // Then
+            assertThat(orderedTimes("node1")).isEmpty();
+            assertThat(buffer.getBufferedCount()).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.TrendDTO;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementRollup;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementRollup.Resolution;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementRollupRow;
+import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import com.dkowalczyk.scadasystem.repository.MeasurementRollupRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MeasurementRollupService.
+ *
+ * Testing strategy:
+ * - Bucket building, merging and tier selection tested as pure functions
+ * - Catch-up and trend queries tested against mocked repositories
+ */
+@DisplayName("MeasurementRollupService Unit Tests")
+class MeasurementRollupServiceTest {
+
+    private static final Instant HOUR = Instant.parse("2026-01-15T12:00:00Z");
+
+    private final MeasurementRepository measurementRepository = mock(MeasurementRepository.class);
+    private final MeasurementRollupRepository rollupRepository = mock(MeasurementRollupRepository.class);
+    private final HotMeasurementStore hotStore = mock(HotMeasurementStore.class);
+
+    private MeasurementRollupService service(long latenessMs) {
+        return new MeasurementRollupService(measurementRepository, rollupRepository, hotStore,
+                mock(PlatformTransactionManager.class), true, latenessMs, 6);
+    }
+
+    private static MeasurementRollupRow row(String sensorId, Instant time, double voltage, Double power) {
+        return new MeasurementRollupRow(sensorId, time, voltage, power, 50.0);
+    }
+
+    @Nested
+    @DisplayName("Resolution")
+    class ResolutionTests {
+
+        @Test
+        @DisplayName("should align buckets to the resolution")
+        void shouldAlignBuckets() {
+            Instant time = Instant.parse("2026-01-15T12:34:56Z");
+
+            assertThat(Resolution.MINUTE.floor(time)).isEqualTo(Instant.parse("2026-01-15T12:34:00Z"));
+            assertThat(Resolution.TEN_MINUTES.floor(time)).isEqualTo(Instant.parse("2026-01-15T12:30:00Z"));
+            assertThat(Resolution.HOUR.floor(time)).isEqualTo(HOUR);
+            assertThat(Resolution.HOUR.ceil(time)).isEqualTo(Instant.parse("2026-01-15T13:00:00Z"));
+            assertThat(Resolution.HOUR.ceil(HOUR)).isEqualTo(HOUR);
+        }
+
+        @Test
+        @DisplayName("should choose the finest tier that fits the point budget")
+        void shouldChooseFinestFittingTier() {
+            // 6 hours: 360 minutes, 36 ten-minute buckets, 6 hours
+            Instant to = HOUR.plusSeconds(6 * 3600);
+
+            assertThat(MeasurementRollupService.chooseResolution(HOUR, to, 500)).isEqualTo(Resolution.MINUTE);
+            assertThat(MeasurementRollupService.chooseResolution(HOUR, to, 100)).isEqualTo(Resolution.TEN_MINUTES);
+            assertThat(MeasurementRollupService.chooseResolution(HOUR, to, 10)).isEqualTo(Resolution.HOUR);
+            // Budget too small even for hours: coarsest tier
+            assertThat(MeasurementRollupService.chooseResolution(HOUR, to, 2)).isEqualTo(Resolution.HOUR);
+        }
+    }
+
+    @Nested
+    @DisplayName("Bucket building")
+    class BucketBuilding {
+
+        @Test
+        @DisplayName("should aggregate min / max / sum / count per node and minute")
+        void shouldAggregatePerNodeAndMinute() {
+            // Given
+            List<MeasurementRollupRow> rows = List.of(
+                    row("node1", HOUR, 229.0, 1000.0),
+                    row("node1", HOUR.plusSeconds(3), 231.0, 1200.0),
+                    row("node1", HOUR.plusSeconds(60), 230.0, null),
+                    row("node2", HOUR.plusSeconds(1), 228.0, 500.0));
+
+            // When
+            List<MeasurementRollup> buckets = MeasurementRollupService.aggregate(rows, HOUR);
+
+            // Then
+            assertThat(buckets).hasSize(3);
+            MeasurementRollup first = buckets.get(0);
+            assertThat(first.getResolution()).isEqualTo(Resolution.MINUTE);
+            assertThat(first.getSensorId()).isEqualTo("node1");
+            assertThat(first.getBucket()).isEqualTo(HOUR);
+            assertThat(first.getSampleCount()).isEqualTo(2);
+            assertThat(first.getVoltageMin()).isEqualTo(229.0);
+            assertThat(first.getVoltageMax()).isEqualTo(231.0);
+            assertThat(first.getVoltageSum()).isEqualTo(460.0);
+            assertThat(first.getPowerCount()).isEqualTo(2);
+            assertThat(first.getPowerSum()).isEqualTo(2200.0);
+
+            MeasurementRollup second = buckets.get(1);
+            assertThat(second.getBucket()).isEqualTo(HOUR.plusSeconds(60));
+            assertThat(second.getSampleCount()).isEqualTo(1);
+            assertThat(second.getPowerCount()).isZero();
+
+            assertThat(buckets.get(2).getSensorId()).isEqualTo("node2");
+        }
+
+        @Test
+        @DisplayName("should book energy to the later sample and use lookback rows only as predecessors")
+        void shouldIntegrateEnergyAcrossBoundary() {
+            // Given: lookback sample 10 s before the range, 3600 W for 10 s = 0.01 kWh
+            List<MeasurementRollupRow> rows = List.of(
+                    row("node1", HOUR.minusSeconds(10), 230.0, 3600.0),
+                    row("node1", HOUR, 230.0, 3600.0),
+                    row("node1", HOUR.plusSeconds(10), 230.0, 3600.0));
+
+            // When
+            List<MeasurementRollup> buckets = MeasurementRollupService.aggregate(rows, HOUR);
+
+            // Then
+            assertThat(buckets).singleElement().satisfies(bucket -> {
+                assertThat(bucket.getSampleCount()).isEqualTo(2);
+                assertThat(bucket.getEnergyKwh()).isCloseTo(0.02, within(1e-9));
+            });
+        }
+
+        @Test
+        @DisplayName("should not integrate energy across gaps or between nodes")
+        void shouldSkipGapsAndNodeChanges() {
+            // Given
+            List<MeasurementRollupRow> rows = List.of(
+                    row("node1", HOUR, 230.0, 3600.0),
+                    row("node1", HOUR.plusSeconds(300), 230.0, 3600.0),
+                    row("node2", HOUR.plusSeconds(301), 230.0, 3600.0));
+
+            // When
+            List<MeasurementRollup> buckets = MeasurementRollupService.aggregate(rows, HOUR);
+
+            // Then
+            assertThat(buckets).allSatisfy(bucket -> assertThat(bucket.getEnergyKwh()).isZero());
+        }
+
+        @Test
+        @DisplayName("should store measurements without node id under the empty sensor id")
+        void shouldMapMissingSensorId() {
+            List<MeasurementRollup> buckets = MeasurementRollupService.aggregate(
+                    List.of(row(null, HOUR, 230.0, 100.0)), HOUR);
+
+            assertThat(buckets).singleElement()
+                    .extracting(MeasurementRollup::getSensorId).isEqualTo(MeasurementRollupService.NO_SENSOR);
+        }
+
+        @Test
+        @DisplayName("should merge finer buckets exactly into coarser ones")
+        void shouldMergeIntoCoarserTier() {
+            // Given: two minutes of node1 in the same 10-minute bucket
+            List<MeasurementRollup> minutes = MeasurementRollupService.aggregate(List.of(
+                    row("node1", HOUR.plusSeconds(60), 229.0, 1000.0),
+                    row("node1", HOUR.plusSeconds(90), 233.0, 2000.0),
+                    row("node1", HOUR.plusSeconds(540), 230.0, 3000.0),
+                    row("node2", HOUR.plusSeconds(600), 230.0, 3000.0)), HOUR);
+
+            // When
+            List<MeasurementRollup> merged = MeasurementRollupService.merge(Resolution.TEN_MINUTES, minutes);
+
+            // Then
+            assertThat(merged).hasSize(2);
+            MeasurementRollup node1 = merged.get(0);
+            assertThat(node1.getResolution()).isEqualTo(Resolution.TEN_MINUTES);
+            assertThat(node1.getBucket()).isEqualTo(HOUR);
+            assertThat(node1.getSampleCount()).isEqualTo(3);
+            assertThat(node1.getVoltageMin()).isEqualTo(229.0);
+            assertThat(node1.getVoltageMax()).isEqualTo(233.0);
+            assertThat(node1.getPowerMax()).isEqualTo(3000.0);
+            assertThat(node1.getPowerSum()).isEqualTo(6000.0);
+            assertThat(merged.get(1).getBucket()).isEqualTo(HOUR.plusSeconds(600));
+        }
+    }
+
+    @Nested
+    @DisplayName("Catch-up and queries")
+    class CatchUpAndQueries {
+
+        @Test
+        @DisplayName("should do nothing while there are no measurements")
+        void shouldWaitForData() {
+            // Given
+            when(rollupRepository.findLatestBucket(Resolution.MINUTE)).thenReturn(Optional.empty());
+            when(measurementRepository.findEarliestTime()).thenReturn(Optional.empty());
+
+            // When
+            service(0).refresh();
+
+            // Then
+            verify(measurementRepository, never()).findRollupRows(any(), any());
+        }
+
+        @Test
+        @DisplayName("should resume after the newest minute bucket and rebuild up to the lateness window")
+        void shouldResumeAfterNewestBucket() {
+            // Given
+            Instant latest = Resolution.MINUTE.floor(Instant.now()).minusSeconds(3 * 60);
+            when(rollupRepository.findLatestBucket(Resolution.MINUTE)).thenReturn(Optional.of(latest));
+
+            // When
+            service(0).refresh();
+
+            // Then: raw rows read with the energy lookback, coarser tiers re-merged
+            verify(measurementRepository).findRollupRows(eq(latest), any());
+            verify(rollupRepository).deleteBuckets(eq(Resolution.MINUTE), eq(latest.plusSeconds(60)), any());
+            verify(rollupRepository).findBuckets(eq(Resolution.MINUTE), any(), any());
+            verify(rollupRepository).findBuckets(eq(Resolution.TEN_MINUTES), any(), any());
+            verify(rollupRepository).deleteBuckets(eq(Resolution.HOUR), any(), any());
+        }
+
+        @Test
+        @DisplayName("should merge all nodes per bucket when no sensor id is given")
+        void shouldMergeNodesForTrend() {
+            // Given
+            List<MeasurementRollup> buckets = MeasurementRollupService.aggregate(List.of(
+                    row("node1", HOUR, 228.0, 1000.0),
+                    row("node2", HOUR, 232.0, 3000.0)), HOUR);
+            when(rollupRepository.findBuckets(Resolution.MINUTE, HOUR, HOUR.plusSeconds(600))).thenReturn(buckets);
+
+            // When
+            TrendDTO trend = service(0).getTrend(null, HOUR, HOUR.plusSeconds(600), 100);
+
+            // Then
+            assertThat(trend.getResolution()).isEqualTo("MINUTE");
+            assertThat(trend.getBucketSeconds()).isEqualTo(60);
+            assertThat(trend.getPoints()).singleElement().satisfies(point -> {
+                assertThat(point.getCount()).isEqualTo(2);
+                assertThat(point.getVoltageMin()).isEqualTo(228.0);
+                assertThat(point.getVoltageAvg()).isEqualTo(230.0);
+                assertThat(point.getVoltageMax()).isEqualTo(232.0);
+                assertThat(point.getPowerAvg()).isEqualTo(2000.0);
+            });
+        }
+
+        @Test
+        @DisplayName("should bucket hot tier rows instead of reading rollups when the range is in memory")
+        void shouldServeTrendFromHotTier() {
+            // Given: two samples 30 s apart in one minute, plus the energy lookback sample
+            when(hotStore.covers(any())).thenReturn(true);
+            when(hotStore.getRollupRows("node1", HOUR.minus(MeasurementRollupService.MAX_ENERGY_GAP), HOUR.plusSeconds(3600)))
+                    .thenReturn(List.of(
+                            row("node1", HOUR.minusSeconds(30), 230.0, 1000.0),
+                            row("node1", HOUR, 228.0, 1000.0),
+                            row("node1", HOUR.plusSeconds(30), 232.0, 3000.0)));
+
+            // When
+            TrendDTO trend = service(0).getTrend("node1", HOUR, HOUR.plusSeconds(3600), 10);
+
+            // Then
+            assertThat(trend.getResolution()).isEqualTo("TEN_MINUTES");
+            assertThat(trend.getPoints()).singleElement().satisfies(point -> {
+                assertThat(point.getTime()).isEqualTo(HOUR);
+                assertThat(point.getCount()).isEqualTo(2);
+                assertThat(point.getVoltageAvg()).isEqualTo(230.0);
+                // 1000 W for 30 s + 2000 W average for 30 s
+                assertThat(point.getEnergyKwh()).isCloseTo((1000.0 * 30 + 2000.0 * 30) / 3_600_000.0, within(1e-12));
+            });
+            verifyNoInteractions(rollupRepository);
+        }
+
+        @Test
+        @DisplayName("should reject an empty range")
+        void shouldRejectEmptyRange() {
+            assertThatThrownBy(() -> service(0).getTrend("node1", HOUR, HOUR, 100))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
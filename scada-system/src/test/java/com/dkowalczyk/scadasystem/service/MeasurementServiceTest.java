@@ -5,9 +5,17 @@ import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
 import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
 import com.dkowalczyk.scadasystem.model.dto.PowerQualityIndicatorsDTO;
 import com.dkowalczyk.scadasystem.model.dto.ValidationResult;
+import com.dkowalczyk.scadasystem.model.dto.DashboardDTO;
 import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementWaveform;
+import com.dkowalczyk.scadasystem.model.event.MeasurementSavedEvent;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementKey;
+import com.dkowalczyk.scadasystem.repository.MeasurementBulkWriter;
 import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import com.dkowalczyk.scadasystem.repository.MeasurementWaveformRepository;
 import com.dkowalczyk.scadasystem.util.Constants;
+import com.dkowalczyk.scadasystem.util.PayloadHash;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
@@ -15,10 +23,17 @@ import org.mockito.Mock;
 
 import java.time.Instant;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,6 +49,18 @@ class MeasurementServiceTest extends BaseServiceTest {
     private org.springframework.context.ApplicationEventPublisher eventPublisher;
     @Mock
     private MeasurementValidator validator;
+    @Mock
+    private MeasurementWaveformRepository waveformRepository;
+    @Mock
+    private MeasurementBulkWriter bulkWriter;
+    @Mock
+    private HotMeasurementStore hotStore;
+    @Mock
+    private MeasurementArchiveService archiveService;
+    @Mock
+    private RecentMeasurementBuffer recentBuffer;
+    @Mock
+    private RealtimeFrameEncoder frameEncoder;
 
     @InjectMocks
     private MeasurementService measurementService;
@@ -45,13 +72,13 @@ class MeasurementServiceTest extends BaseServiceTest {
             .voltageRms(230.0)
             .frequency(50.0)
             .thdVoltage(5.0)
-            .harmonicsV(new Double[]{1.0, 2.0, 3.0})
+            .harmonicsV(new double[]{1.0, 2.0, 3.0})
             .voltageDeviationPercent(0.0)
             .frequencyDeviationHz(0.0)
             .build();
         when(repository.findTopByIsValidTrueOrderByTimeDesc()).thenReturn(Optional.of(measurement));
 
-        Optional<PowerQualityIndicatorsDTO> result = measurementService.getLatestPowerQualityIndicators();
+        Optional<PowerQualityIndicatorsDTO> result = measurementService.getLatestPowerQualityIndicators(null);
 
         assertThat(result).isPresent();
         PowerQualityIndicatorsDTO dto = result.get();
@@ -72,13 +99,13 @@ class MeasurementServiceTest extends BaseServiceTest {
             .voltageRms(230.0)
             .frequency(50.0)
             .thdVoltage(Constants.VOLTAGE_THD_LIMIT)
-            .harmonicsV(new Double[]{1.0, 2.0, 3.0})
+            .harmonicsV(new double[]{1.0, 2.0, 3.0})
             .voltageDeviationPercent(0.0)
             .frequencyDeviationHz(0.0)
             .build();
         when(repository.findTopByIsValidTrueOrderByTimeDesc()).thenReturn(Optional.of(measurement));
 
-        Optional<PowerQualityIndicatorsDTO> result = measurementService.getLatestPowerQualityIndicators();
+        Optional<PowerQualityIndicatorsDTO> result = measurementService.getLatestPowerQualityIndicators(null);
 
         assertThat(result).isPresent();
         PowerQualityIndicatorsDTO dto = result.get();
@@ -90,7 +117,7 @@ class MeasurementServiceTest extends BaseServiceTest {
     @Test
     void getLatestPowerQualityIndicators_returnsEmptyWhenNoMeasurement() {
         when(repository.findTopByIsValidTrueOrderByTimeDesc()).thenReturn(Optional.empty());
-        Optional<PowerQualityIndicatorsDTO> result = measurementService.getLatestPowerQualityIndicators();
+        Optional<PowerQualityIndicatorsDTO> result = measurementService.getLatestPowerQualityIndicators(null);
         assertThat(result).isNotPresent();
     }
 
@@ -101,13 +128,13 @@ class MeasurementServiceTest extends BaseServiceTest {
             .voltageRms(205.0) // deviation < -10%
             .frequency(49.0)   // deviation > 0.5Hz
             .thdVoltage(10.0)  // > 8%
-            .harmonicsV(new Double[]{1.0, 2.0, 3.0})
+            .harmonicsV(new double[]{1.0, 2.0, 3.0})
             .voltageDeviationPercent(-10.869565217391305) // (205-230)/230*100
             .frequencyDeviationHz(-1.0) // 49-50
             .build();
         when(repository.findTopByIsValidTrueOrderByTimeDesc()).thenReturn(Optional.of(measurement));
 
-        Optional<PowerQualityIndicatorsDTO> result = measurementService.getLatestPowerQualityIndicators();
+        Optional<PowerQualityIndicatorsDTO> result = measurementService.getLatestPowerQualityIndicators(null);
         assertThat(result).isPresent();
         PowerQualityIndicatorsDTO dto = result.get();
         assertThat(dto.getVoltageWithinLimits()).isFalse();
@@ -194,6 +221,28 @@ class MeasurementServiceTest extends BaseServiceTest {
         assertThat(result).isNotNull();
     }
 
+    @Test
+    void saveMeasurement_withoutTimestamp_usesReceiveTimeFromIngest() {
+        // Given: replayed from the WAL long after it was received
+        long receivedAt = 1_702_901_234_567L;
+        MeasurementRequest request = new MeasurementRequest();
+        request.setReceivedAt(receivedAt);
+        request.setVoltageRms(230.0);
+        request.setCurrentRms(5.0);
+        request.setFrequency(50.0);
+
+        when(validator.validate(any())).thenReturn(new ValidationResult(true, Collections.emptyList(), Collections.emptyList()));
+        when(repository.save(any(Measurement.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        measurementService.saveMeasurement(request);
+
+        // Then
+        ArgumentCaptor<Measurement> measurementCaptor = ArgumentCaptor.forClass(Measurement.class);
+        verify(repository).save(measurementCaptor.capture());
+        assertThat(measurementCaptor.getValue().getTime()).isEqualTo(Instant.ofEpochMilli(receivedAt));
+    }
+
     @Test
     void saveMeasurement_clearsPowerFactorWhenApparentPowerIsZero() {
         MeasurementRequest request = new MeasurementRequest();
@@ -277,4 +326,322 @@ class MeasurementServiceTest extends BaseServiceTest {
         assertThat(measurementCaptor.getValue().getPowerFactor()).isNull();
         assertThat(result.getPowerFactor()).isNull();
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void saveMeasurements_persistsBatchWithSingleSaveAllAndPublishesEventPerRow() {
+        MeasurementRequest valid = new MeasurementRequest();
+        valid.setTimestamp(1_700_000_000L);
+        valid.setVoltageRms(230.0);
+        valid.setCurrentRms(5.0);
+        valid.setFrequency(50.0);
+
+        MeasurementRequest invalid = new MeasurementRequest();
+        invalid.setTimestamp(1_700_000_001L);
+        invalid.setVoltageRms(500.0);
+        invalid.setCurrentRms(5.0);
+        invalid.setFrequency(50.0);
+
+        when(validator.validate(valid)).thenReturn(new ValidationResult(true, Collections.emptyList(), Collections.emptyList()));
+        when(validator.validate(invalid)).thenReturn(new ValidationResult(false, List.of("Voltage out of range"), Collections.emptyList()));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<MeasurementDTO> result = measurementService.saveMeasurements(List.of(valid, invalid));
+
+        ArgumentCaptor<List<Measurement>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(batchCaptor.capture());
+        List<Measurement> batch = batchCaptor.getValue();
+        assertThat(batch).hasSize(2);
+        assertThat(batch.get(0).getTime()).isEqualTo(Instant.ofEpochSecond(1_700_000_000L));
+        assertThat(batch.get(0).getIsValid()).isTrue();
+        assertThat(batch.get(1).getIsValid()).isFalse();
+
+        assertThat(result).hasSize(2);
+        verify(eventPublisher, times(2)).publishEvent(any(MeasurementSavedEvent.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void saveMeasurements_skipsAlreadyStoredAndRepeatedMeasurements() {
+        MeasurementRequest stored = new MeasurementRequest();
+        stored.setTimestamp(1_700_000_000L);
+        stored.setVoltageRms(230.0);
+        stored.setCurrentRms(5.0);
+        stored.setFrequency(50.0);
+        stored.setPayloadHash(11L);
+
+        MeasurementRequest fresh = new MeasurementRequest();
+        fresh.setTimestamp(1_700_000_001L);
+        fresh.setVoltageRms(231.0);
+        fresh.setCurrentRms(5.0);
+        fresh.setFrequency(50.0);
+        fresh.setPayloadHash(22L);
+
+        when(validator.validate(any())).thenReturn(new ValidationResult(true, Collections.emptyList(), Collections.emptyList()));
+        when(repository.findExistingKeys(any(), any(), anyCollection()))
+                .thenReturn(List.of(new MeasurementKey(Instant.ofEpochSecond(1_700_000_000L), 11L)));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<MeasurementDTO> result = measurementService.saveMeasurements(List.of(stored, fresh, fresh));
+
+        ArgumentCaptor<List<Measurement>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(batchCaptor.capture());
+        assertThat(batchCaptor.getValue()).extracting(Measurement::getPayloadHash).containsExactly(22L);
+        assertThat(result).hasSize(1);
+        verify(eventPublisher, times(1)).publishEvent(any(MeasurementSavedEvent.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void saveMeasurements_keepsEqualReadingsWithoutTimestampReceivedAtDifferentTimes() {
+        MeasurementRequest first = new MeasurementRequest();
+        first.setReceivedAt(1_702_901_234_000L);
+        first.setVoltageRms(230.0);
+        first.setCurrentRms(5.0);
+        first.setFrequency(50.0);
+
+        MeasurementRequest second = new MeasurementRequest();
+        second.setReceivedAt(1_702_901_235_000L);
+        second.setVoltageRms(230.0);
+        second.setCurrentRms(5.0);
+        second.setFrequency(50.0);
+
+        // The first reading is already stored; the second has the same hash at another time
+        when(validator.validate(any())).thenReturn(new ValidationResult(true, Collections.emptyList(), Collections.emptyList()));
+        when(repository.findExistingKeys(any(), any(), anyCollection()))
+                .thenReturn(List.of(new MeasurementKey(Instant.ofEpochMilli(1_702_901_234_000L), PayloadHash.of(first))));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        measurementService.saveMeasurements(List.of(first, second, second));
+
+        ArgumentCaptor<List<Measurement>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(batchCaptor.capture());
+        assertThat(batchCaptor.getValue()).extracting(Measurement::getTime)
+                .containsExactly(Instant.ofEpochMilli(1_702_901_235_000L));
+        assertThat(PayloadHash.of(first)).isEqualTo(PayloadHash.of(second));
+    }
+
+    @Test
+    void saveMeasurement_computesPayloadHashWhenMissing() {
+        MeasurementRequest request = new MeasurementRequest();
+        request.setTimestamp(1_700_000_000L);
+        request.setVoltageRms(230.0);
+        request.setCurrentRms(5.0);
+        request.setFrequency(50.0);
+        when(validator.validate(request)).thenReturn(new ValidationResult(true, Collections.emptyList(), Collections.emptyList()));
+        when(repository.save(any(Measurement.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        measurementService.saveMeasurement(request);
+
+        ArgumentCaptor<Measurement> captor = ArgumentCaptor.forClass(Measurement.class);
+        verify(repository).save(captor.capture());
+        assertThat(captor.getValue().getPayloadHash()).isEqualTo(PayloadHash.of(request));
+    }
+
+    @Test
+    void getLatestMeasurement_withSensorId_queriesThatNodeOnly() {
+        Measurement measurement = Measurement.builder()
+            .id(7L)
+            .time(Instant.now())
+            .sensorId("node2")
+            .voltageRms(230.0)
+            .currentRms(5.0)
+            .frequency(50.0)
+            .isValid(true)
+            .build();
+        when(repository.findTopBySensorIdAndIsValidTrueOrderByTimeDesc("node2")).thenReturn(Optional.of(measurement));
+
+        Optional<MeasurementDTO> result = measurementService.getLatestMeasurement("node2");
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getSensorId()).isEqualTo("node2");
+        verify(repository, never()).findTopByIsValidTrueOrderByTimeDesc();
+    }
+
+    @Test
+    void getHistory_servedFromHotTierWhenRangeIsInMemory() {
+        Instant to = Instant.now();
+        Instant from = to.minusSeconds(600);
+        MeasurementHistoryRow row = new MeasurementHistoryRow(9L, to, "node1", 230.0, 5.0, 1000.0, null, null, null,
+                null, 50.0, null, null, null, null, 0.0, 0.0);
+        when(hotStore.covers(from)).thenReturn(true);
+        when(hotStore.getHistory("node1", from, to, 100)).thenReturn(List.of(row));
+
+        List<MeasurementDTO> result = measurementService.getHistory("node1", from, to, 100);
+
+        assertThat(result).singleElement().satisfies(dto -> {
+            assertThat(dto.getId()).isEqualTo(9L);
+            assertThat(dto.getVoltageRms()).isEqualTo(230.0);
+        });
+        verify(repository, never()).findHistoryRowsBySensorId(any(), any(), any(), any());
+    }
+
+    @Test
+    void getHistory_fallsBackToRepositoryForOlderRanges() {
+        Instant to = Instant.now();
+        Instant from = to.minusSeconds(86_400);
+        when(hotStore.covers(from)).thenReturn(false);
+
+        measurementService.getHistory("node1", from, to, 100);
+
+        verify(repository).findHistoryRowsBySensorId(eq("node1"), eq(from), eq(to), any());
+        verify(hotStore, never()).getHistory(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void getHistory_readsDaysBeforeArchiveBoundaryFromArchive() {
+        Instant archiveEnd = Instant.parse("2026-01-10T00:00:00Z");
+        Instant from = archiveEnd.minusSeconds(3600);
+        Instant to = archiveEnd.plusSeconds(3600);
+        MeasurementHistoryRow archived = new MeasurementHistoryRow(1L, from, "node1", 229.0, null, null, null, null,
+                null, null, 50.0, null, null, null, null, null, null);
+        when(archiveService.getArchiveEnd()).thenReturn(archiveEnd);
+        when(repository.findHistoryRowsBySensorId(eq("node1"), eq(archiveEnd), eq(to), any())).thenReturn(List.of());
+        when(archiveService.readHistory("node1", from, archiveEnd.minusNanos(1000), 100)).thenReturn(List.of(archived));
+
+        List<MeasurementDTO> result = measurementService.getHistory("node1", from, to, 100);
+
+        assertThat(result).extracting(MeasurementDTO::getId).containsExactly(1L);
+    }
+
+    @Test
+    void saveMeasurement_copiesSensorIdToEntity() {
+        MeasurementRequest request = new MeasurementRequest();
+        request.setSensorId("node1");
+        request.setVoltageRms(230.0);
+        request.setCurrentRms(5.0);
+        request.setFrequency(50.0);
+
+        when(validator.validate(any())).thenReturn(new ValidationResult(true, Collections.emptyList(), Collections.emptyList()));
+        when(repository.save(any(Measurement.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MeasurementDTO result = measurementService.saveMeasurement(request);
+
+        assertThat(result.getSensorId()).isEqualTo("node1");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void saveMeasurements_storesWaveformsInSideTableOnly() {
+        MeasurementRequest withWaveforms = new MeasurementRequest();
+        withWaveforms.setTimestamp(1_700_000_000L);
+        withWaveforms.setVoltageRms(230.0);
+        withWaveforms.setCurrentRms(5.0);
+        withWaveforms.setFrequency(50.0);
+        withWaveforms.setWaveformV(new double[]{0.0, 325.0, 0.0});
+        withWaveforms.setWaveformI(new double[]{0.0, 7.0, 0.0});
+
+        MeasurementRequest withoutWaveforms = new MeasurementRequest();
+        withoutWaveforms.setTimestamp(1_700_000_001L);
+        withoutWaveforms.setVoltageRms(230.0);
+        withoutWaveforms.setCurrentRms(5.0);
+        withoutWaveforms.setFrequency(50.0);
+
+        when(validator.validate(any())).thenReturn(new ValidationResult(true, Collections.emptyList(), Collections.emptyList()));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        measurementService.saveMeasurements(List.of(withWaveforms, withoutWaveforms));
+
+        ArgumentCaptor<List<MeasurementWaveform>> waveformCaptor = ArgumentCaptor.forClass(List.class);
+        verify(waveformRepository).saveAll(waveformCaptor.capture());
+        List<MeasurementWaveform> waveforms = waveformCaptor.getValue();
+        assertThat(waveforms).hasSize(1);
+        assertThat(waveforms.get(0).getTime()).isEqualTo(Instant.ofEpochSecond(1_700_000_000L));
+        assertThat(waveforms.get(0).getWaveformV()).containsExactly(0.0, 325.0, 0.0);
+        assertThat(waveforms.get(0).getMeasurement().getWaveformI()).containsExactly(0.0, 7.0, 0.0);
+    }
+
+    @Test
+    void saveMeasurements_usesBulkWriterInCopyMode() {
+        MeasurementRequest request = new MeasurementRequest();
+        request.setTimestamp(1_700_000_000L);
+        request.setVoltageRms(230.0);
+        request.setCurrentRms(5.0);
+        request.setFrequency(50.0);
+        request.setWaveformV(new double[]{0.0, 325.0, 0.0});
+
+        when(bulkWriter.isCopyMode()).thenReturn(true);
+        when(validator.validate(any())).thenReturn(new ValidationResult(true, Collections.emptyList(), Collections.emptyList()));
+
+        List<MeasurementDTO> result = measurementService.saveMeasurements(List.of(request));
+
+        assertThat(result).hasSize(1);
+        verify(bulkWriter).insert(anyList());
+        verify(repository, never()).saveAll(anyList());
+        verify(waveformRepository, never()).saveAll(anyList());
+        verify(eventPublisher).publishEvent(any(MeasurementSavedEvent.class));
+    }
+
+    @Test
+    void getDashboardData_loadsStoredWaveformsOfLatestMeasurement() {
+        Instant time = Instant.ofEpochSecond(1_700_000_000L);
+        Measurement latest = Measurement.builder()
+            .id(5L)
+            .time(time)
+            .voltageRms(230.0)
+            .currentRms(5.0)
+            .frequency(50.0)
+            .isValid(true)
+            .build();
+        MeasurementWaveform waveform = MeasurementWaveform.builder()
+            .measurementId(5L)
+            .time(time)
+            .waveformV(new double[]{1.0, 2.0})
+            .waveformI(new double[]{3.0, 4.0})
+            .build();
+        when(repository.findTopByIsValidTrueOrderByTimeDesc()).thenReturn(Optional.of(latest));
+        when(waveformRepository.findByMeasurementIdAndTime(5L, time)).thenReturn(Optional.of(waveform));
+
+        Optional<DashboardDTO> result = measurementService.getDashboardData(null);
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getWaveforms().getVoltage()).containsExactly(1.0, 2.0);
+        assertThat(result.get().getWaveforms().getCurrent()).containsExactly(3.0, 4.0);
+    }
+
+    @Test
+    void getDashboardData_servedFromRecentBufferWithoutRepository() {
+        MeasurementHistoryRow latest = new MeasurementHistoryRow(7L, Instant.ofEpochSecond(1_700_000_001L), "node1",
+            231.0, 5.0, null, null, null, null, 0.9, 50.0, 2.0, null, null, null, 0.43, 0.0);
+        MeasurementHistoryRow previous = new MeasurementHistoryRow(6L, Instant.ofEpochSecond(1_700_000_000L), "node1",
+            230.0, 5.0, null, null, null, null, 0.9, 50.0, 2.0, null, null, null, 0.0, 0.0);
+        when(recentBuffer.isEnabled()).thenReturn(true);
+        when(recentBuffer.get("node1", RecentMeasurementBuffer.DASHBOARD_HISTORY_SIZE))
+            .thenReturn(Optional.of(new RecentMeasurementBuffer.View(
+                List.of(new RecentMeasurementBuffer.Entry(latest), new RecentMeasurementBuffer.Entry(previous)),
+                new RecentMeasurementBuffer.LatestWaveforms(7L, new double[]{1.0, 2.0}, new double[]{3.0, 4.0}))));
+
+        Optional<DashboardDTO> result = measurementService.getDashboardData("node1");
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getLatestMeasurement().getId()).isEqualTo(7L);
+        assertThat(result.get().getRecentHistory()).extracting(MeasurementDTO::getId).containsExactly(7L, 6L);
+        assertThat(result.get().getWaveforms().getVoltage()).containsExactly(1.0, 2.0);
+        verify(repository, never()).findTopBySensorIdAndIsValidTrueOrderByTimeDesc(any());
+        verify(waveformRepository, never()).findByMeasurementIdAndTime(any(), any());
+    }
+
+    @Test
+    void getDashboardJson_reusesJsonCachedForEachMeasurement() {
+        MeasurementHistoryRow row = new MeasurementHistoryRow(7L, Instant.ofEpochSecond(1_700_000_001L), "node1",
+            231.0, 5.0, null, null, null, null, 0.9, 50.0, 2.0, null, null, null, 0.43, 0.0);
+        RecentMeasurementBuffer.Entry entry = new RecentMeasurementBuffer.Entry(row);
+        RecentMeasurementBuffer.LatestWaveforms waveforms =
+            new RecentMeasurementBuffer.LatestWaveforms(7L, new double[]{1.0}, new double[]{2.0});
+        byte[] measurementJson = {'m'};
+        byte[] waveformsJson = {'w'};
+        entry.json(r -> measurementJson);
+        waveforms.json(() -> waveformsJson);
+        when(recentBuffer.isEnabled()).thenReturn(true);
+        when(recentBuffer.get("node1", RecentMeasurementBuffer.DASHBOARD_HISTORY_SIZE))
+            .thenReturn(Optional.of(new RecentMeasurementBuffer.View(List.of(entry), waveforms)));
+        when(frameEncoder.dashboard(measurementJson, waveformsJson, List.of(measurementJson)))
+            .thenReturn(new byte[]{'d'});
+
+        Optional<byte[]> result = measurementService.getDashboardJson("node1");
+
+        assertThat(result).isPresent();
+        assertThat(result.get()).isEqualTo(new byte[]{'d'});
+        verify(frameEncoder, never()).encode(any());
+    }
 }
@@ -0,0 +1,236 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for MeasurementWal.
+ *
+ * Testing strategy:
+ * - Real memory-mapped files in a JUnit temp directory
+ * - Reopen the log to simulate a restart and verify replay from the checkpoint
+ */
+@DisplayName("MeasurementWal Unit Tests")
+class MeasurementWalTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+
+    @TempDir
+    Path walDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MeasurementWal wal;
+
+    @AfterEach
+    void tearDown() {
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    private MeasurementWal openWal(long maxDiskBytes) throws IOException {
+        MeasurementWal opened = new MeasurementWal(walDir, SEGMENT_BYTES, maxDiskBytes, objectMapper);
+        opened.open();
+        return opened;
+    }
+
+    private MeasurementRequest createRequest(long timestamp) {
+        MeasurementRequest request = new MeasurementRequest();
+        request.setTimestamp(timestamp);
+        request.setSensorId("node1");
+        request.setVoltageRms(230.0);
+        request.setCurrentRms(5.0);
+        request.setFrequency(50.0);
+        request.setWaveformV(new double[]{0.0, 325.3, 0.0, -325.3});
+        return request;
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(walDir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".wal")).count();
+        }
+    }
+
+    @Nested
+    @DisplayName("Append and replay")
+    class AppendAndReplay {
+
+        @Test
+        @DisplayName("should return appended measurements in order with all fields")
+        void shouldReadInOrder() throws IOException {
+            // Given
+            wal = openWal(SEGMENT_BYTES * 4L);
+            for (long i = 1; i <= 3; i++) {
+                wal.append(createRequest(i));
+            }
+
+            // When
+            List<MeasurementRequest> batch = wal.readBatch(10);
+
+            // Then
+            assertThat(batch).extracting(MeasurementRequest::getTimestamp).containsExactly(1L, 2L, 3L);
+            assertThat(batch.get(0).getSensorId()).isEqualTo("node1");
+            assertThat(batch.get(0).getWaveformV()).containsExactly(0.0, 325.3, 0.0, -325.3);
+            assertThat(wal.getLagRecords()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("should return the same records again until committed")
+        void shouldRereadUntilCommitted() throws IOException {
+            // Given: first attempt failed, nothing committed
+            wal = openWal(SEGMENT_BYTES * 4L);
+            wal.append(createRequest(1L));
+            wal.append(createRequest(2L));
+            wal.readBatch(10);
+
+            // When
+            List<MeasurementRequest> retry = wal.readBatch(10);
+            wal.commit();
+
+            // Then
+            assertThat(retry).extracting(MeasurementRequest::getTimestamp).containsExactly(1L, 2L);
+            assertThat(wal.getLagRecords()).isZero();
+            assertThat(wal.readBatch(10)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("should limit batch size and continue after commit")
+        void shouldReadInBatches() throws IOException {
+            // Given
+            wal = openWal(SEGMENT_BYTES * 4L);
+            for (long i = 1; i <= 5; i++) {
+                wal.append(createRequest(i));
+            }
+
+            // When
+            List<MeasurementRequest> first = wal.readBatch(2);
+            wal.commit();
+            List<MeasurementRequest> second = wal.readBatch(2);
+
+            // Then
+            assertThat(first).extracting(MeasurementRequest::getTimestamp).containsExactly(1L, 2L);
+            assertThat(second).extracting(MeasurementRequest::getTimestamp).containsExactly(3L, 4L);
+            assertThat(wal.getLagRecords()).isEqualTo(3);
+        }
+    }
+
+    @Nested
+    @DisplayName("Restart recovery")
+    class RestartRecovery {
+
+        @Test
+        @DisplayName("should replay only uncommitted records after reopen")
+        void shouldReplayFromCheckpoint() throws IOException {
+            // Given: 4 appended, 2 committed, then process stops
+            wal = openWal(SEGMENT_BYTES * 4L);
+            for (long i = 1; i <= 4; i++) {
+                wal.append(createRequest(i));
+            }
+            wal.readBatch(2);
+            wal.commit();
+            wal.close();
+
+            // When
+            wal = openWal(SEGMENT_BYTES * 4L);
+
+            // Then
+            assertThat(wal.getLagRecords()).isEqualTo(2);
+            assertThat(wal.readBatch(10)).extracting(MeasurementRequest::getTimestamp).containsExactly(3L, 4L);
+        }
+
+        @Test
+        @DisplayName("should ignore a torn record at the end of the log")
+        void shouldIgnoreTornRecord() throws IOException {
+            // Given: second record's CRC corrupted, as after a crash mid-write
+            wal = openWal(SEGMENT_BYTES * 4L);
+            wal.append(createRequest(1L));
+            wal.append(createRequest(2L));
+            wal.close();
+            Path segment;
+            try (Stream<Path> files = Files.list(walDir)) {
+                segment = files.filter(p -> p.getFileName().toString().endsWith(".wal")).findFirst().orElseThrow();
+            }
+            try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+                int firstLength = file.readInt();
+                file.seek(8L + firstLength + 4);
+                file.writeInt(0xDEADBEEF);
+            }
+
+            // When
+            wal = openWal(SEGMENT_BYTES * 4L);
+            wal.append(createRequest(3L));
+
+            // Then: record 2 is lost, the log stays readable
+            assertThat(wal.readBatch(10)).extracting(MeasurementRequest::getTimestamp).containsExactly(1L, 3L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Segments and disk budget")
+    class SegmentsAndBudget {
+
+        @Test
+        @DisplayName("should roll over to new segments and delete them once committed")
+        void shouldTruncateCommittedSegments() throws IOException {
+            // Given: enough records to fill several 64 KB segments
+            wal = openWal(SEGMENT_BYTES * 16L);
+            for (long i = 0; i < 1000; i++) {
+                assertThat(wal.append(createRequest(i))).isTrue();
+            }
+            assertThat(wal.getSegmentCount()).isGreaterThan(1);
+
+            // When
+            while (!wal.readBatch(100).isEmpty()) {
+                wal.commit();
+            }
+
+            // Then: only the active segment is left
+            assertThat(wal.getLagRecords()).isZero();
+            assertThat(wal.getSegmentCount()).isEqualTo(1);
+            assertThat(segmentFiles()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should reject appends when the disk budget is exhausted")
+        void shouldRejectOverBudget() throws IOException {
+            // Given: budget of one segment
+            wal = openWal(SEGMENT_BYTES);
+
+            // When
+            long accepted = 0;
+            for (long i = 0; i < 1000; i++) {
+                if (wal.append(createRequest(i))) {
+                    accepted++;
+                }
+            }
+
+            // Then
+            assertThat(accepted).isLessThan(1000);
+            assertThat(wal.getRejectedCount()).isEqualTo(1000 - accepted);
+            assertThat(wal.getLagRecords()).isEqualTo(accepted);
+            assertThat(wal.getDiskBytes()).isEqualTo(SEGMENT_BYTES);
+        }
+
+        @Test
+        @DisplayName("should reject a budget smaller than one segment")
+        void shouldRejectTinyBudget() {
+            assertThatThrownBy(() -> new MeasurementWal(walDir, SEGMENT_BYTES, SEGMENT_BYTES - 1, objectMapper))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("ingest.wal.max-disk-mb");
+        }
+    }
+}
@@ -1,20 +1,21 @@
 package com.dkowalczyk.scadasystem.service;
 
-import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
 import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.dkowalczyk.scadasystem.util.MeasurementBinaryCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.GenericMessage;
 
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,8 +27,8 @@ import static org.mockito.Mockito.*;
  * Modern unit tests for MqttMessageHandler.
  *
  * Testing strategy:
- * - Mock MeasurementService and ObjectMapper
- * - Create realistic MQTT Message objects with headers
+ * - Mock MeasurementIngestService, real ObjectMapper (the handler builds its own ObjectReader)
+ * - Create realistic MQTT Message objects with byte[] payloads, as delivered by the inbound adapter
  * - Test error resilience (handler must not crash on invalid data)
  * - Verify logging behavior implicitly through exception handling
  */
@@ -36,16 +37,17 @@ import static org.mockito.Mockito.*;
 class MqttMessageHandlerTest {
 
     @Mock
-    private MeasurementService measurementService;
+    private MeasurementIngestService ingestService;
 
-    @Mock
-    private ObjectMapper objectMapper;
-
-    @InjectMocks
     private MqttMessageHandler mqttMessageHandler;
 
     private static final String MQTT_TOPIC = "scada/measurements/node1";
 
+    @BeforeEach
+    void setUp() {
+        mqttMessageHandler = new MqttMessageHandler(ingestService, new ObjectMapper());
+    }
+
     // ========================================
     // Test Data Builders
     // ========================================
@@ -54,44 +56,33 @@ class MqttMessageHandlerTest {
         return """
                 {
                   "timestamp": 1702901234,
-                  "voltage_rms": 230.0,
-                  "current_rms": 5.0,
-                  "power_active": 1150.0,
+                  "v_rms": 230.0,
+                  "i_rms": 5.0,
+                  "p_act": 1150.0,
                   "power_apparent": 1200.0,
                   "power_reactive": 200.0,
-                  "cos_phi": 0.95,
-                  "frequency": 50.0,
-                  "thd_voltage": 2.5,
-                  "thd_current": 5.0,
-                  "harmonics_v": [230.0, 0.5, 1.2, 0.3, 0.8, 0.4, 0.2, 0.1],
-                  "harmonics_i": [5.0, 0.05, 0.12, 0.03, 0.08, 0.04, 0.02, 0.01]
+                  "power_factor": 0.95,
+                  "freq": 50.0,
+                  "thd_v": 2.5,
+                  "thd_i": 5.0,
+                  "harm_v": [230.0, 0.5, 1.2, 0.3, 0.8, 0.4, 0.2, 0.1],
+                  "harm_i": [5.0, 0.05, 0.12, 0.03, 0.08, 0.04, 0.02, 0.01],
+                  "waveform_v": [0.0, 325.3, 0.0, -325.3],
+                  "waveform_i": [0.0, 7.07, 0.0, -7.07]
                 }
                 """;
     }
 
-    private MeasurementRequest createValidRequest() {
-        MeasurementRequest request = new MeasurementRequest();
-        request.setTimestamp(1702901234L);
-        request.setVoltageRms(230.0);
-        request.setCurrentRms(5.0);
-        request.setFrequency(50.0);
-        return request;
-    }
-
-    private Message<String> createMqttMessage(String payload, String topic) {
+    private Message<byte[]> createMqttMessage(String payload, String topic) {
         Map<String, Object> headers = new HashMap<>();
         headers.put("mqtt_receivedTopic", topic);
-        return new GenericMessage<>(payload, new MessageHeaders(headers));
+        return new GenericMessage<>(payload.getBytes(StandardCharsets.UTF_8), new MessageHeaders(headers));
     }
 
-    private MeasurementDTO createMockDTO() {
-        return MeasurementDTO.builder()
-                .id(1L)
-                .time(Instant.now())
-                .voltageRms(230.0)
-                .currentRms(5.0)
-                .frequency(50.0)
-                .build();
+    private MeasurementRequest captureSubmitted() {
+        ArgumentCaptor<MeasurementRequest> captor = ArgumentCaptor.forClass(MeasurementRequest.class);
+        verify(ingestService, times(1)).submit(captor.capture());
+        return captor.getValue();
     }
 
     // ========================================
@@ -103,73 +94,148 @@ class MqttMessageHandlerTest {
     class SuccessfulProcessing {
 
         @Test
-        @DisplayName("should parse and save valid MQTT message")
-        void shouldProcessValidMessage() throws Exception {
+        @DisplayName("should parse and queue valid MQTT message")
+        void shouldProcessValidMessage() {
+            // Given
+            Message<byte[]> message = createMqttMessage(createValidMqttPayload(), MQTT_TOPIC);
+
+            // When
+            mqttMessageHandler.handleMqttMessage(message);
+
+            // Then
+            MeasurementRequest request = captureSubmitted();
+            assertThat(request.getTimestamp()).isEqualTo(1702901234L);
+            assertThat(request.getVoltageRms()).isEqualTo(230.0);
+            assertThat(request.getCurrentRms()).isEqualTo(5.0);
+            assertThat(request.getFrequency()).isEqualTo(50.0);
+            assertThat(request.getHarmonicsV()).hasSize(8);
+        }
+
+        @Test
+        @DisplayName("should parse waveforms into primitive arrays")
+        void shouldParseWaveformsAsPrimitives() {
+            // Given
+            Message<byte[]> message = createMqttMessage(createValidMqttPayload(), MQTT_TOPIC);
+
+            // When
+            mqttMessageHandler.handleMqttMessage(message);
+
+            // Then
+            MeasurementRequest request = captureSubmitted();
+            assertThat(request.getWaveformV()).containsExactly(0.0, 325.3, 0.0, -325.3);
+            assertThat(request.getWaveformI()).containsExactly(0.0, 7.07, 0.0, -7.07);
+        }
+
+        @Test
+        @DisplayName("should also accept String payloads")
+        void shouldAcceptStringPayload() {
+            // Given: converter configured without payloadAsBytes
+            Map<String, Object> headers = new HashMap<>();
+            headers.put("mqtt_receivedTopic", MQTT_TOPIC);
+            Message<String> message = new GenericMessage<>(createValidMqttPayload(), new MessageHeaders(headers));
+
+            // When
+            mqttMessageHandler.handleMqttMessage(message);
+
+            // Then
+            assertThat(captureSubmitted().getVoltageRms()).isEqualTo(230.0);
+        }
+
+        @Test
+        @DisplayName("should decode binary payload on scada/measurements/bin/{node}")
+        void shouldDecodeBinaryPayload() {
             // Given
-            String payload = createValidMqttPayload();
-            Message<String> message = createMqttMessage(payload, MQTT_TOPIC);
-            MeasurementRequest mockRequest = createValidRequest();
-            MeasurementDTO mockResponse = createMockDTO();
+            MeasurementRequest original = new MeasurementRequest();
+            original.setTimestamp(1702901234L);
+            original.setVoltageRms(230.1);
+            original.setCurrentRms(5.0);
+            original.setFrequency(50.0);
+            original.setWaveformV(new double[]{0.0, 325.3, 0.0, -325.3});
+            byte[] payload = MeasurementBinaryCodec.encode(original, MeasurementBinaryCodec.SampleEncoding.FLOAT32);
 
-            when(objectMapper.readValue(payload, MeasurementRequest.class))
-                    .thenReturn(mockRequest);
-            when(measurementService.saveMeasurement(mockRequest))
-                    .thenReturn(mockResponse);
+            Map<String, Object> headers = new HashMap<>();
+            headers.put("mqtt_receivedTopic", "scada/measurements/bin/node3");
+            Message<byte[]> message = new GenericMessage<>(payload, new MessageHeaders(headers));
 
             // When
             mqttMessageHandler.handleMqttMessage(message);
 
             // Then
-            verify(objectMapper, times(1)).readValue(payload, MeasurementRequest.class);
-            verify(measurementService, times(1)).saveMeasurement(mockRequest);
+            MeasurementRequest request = captureSubmitted();
+            assertThat(request.getSensorId()).isEqualTo("node3");
+            assertThat(request.getTimestamp()).isEqualTo(1702901234L);
+            assertThat(request.getVoltageRms()).isEqualTo(230.1);
+            assertThat(request.getWaveformV()).hasSize(4);
+        }
+
+        @Test
+        @DisplayName("should not parse JSON sent to the binary topic")
+        void shouldRejectJsonOnBinaryTopic() {
+            // Given
+            Message<byte[]> message = createMqttMessage(createValidMqttPayload(), "scada/measurements/bin/node1");
+
+            // When & Then
+            assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
+                    .doesNotThrowAnyException();
+            verify(ingestService, never()).submit(any());
         }
 
         @Test
         @DisplayName("should extract MQTT topic from message headers")
-        void shouldExtractTopicFromHeaders() throws Exception {
+        void shouldExtractTopicFromHeaders() {
             // Given
-            String payload = createValidMqttPayload();
             String customTopic = "scada/measurements/node2";
-            Message<String> message = createMqttMessage(payload, customTopic);
+            Message<byte[]> message = createMqttMessage(createValidMqttPayload(), customTopic);
+
+            // When
+            mqttMessageHandler.handleMqttMessage(message);
 
-            when(objectMapper.readValue(anyString(), eq(MeasurementRequest.class)))
-                    .thenReturn(createValidRequest());
-            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
-                    .thenReturn(createMockDTO());
+            // Then: node id is taken from the last topic segment
+            assertThat(captureSubmitted().getSensorId()).isEqualTo("node2");
+        }
+
+        @Test
+        @DisplayName("should override payload sensor_id with node id from topic")
+        void shouldPreferTopicOverPayloadSensorId() {
+            // Given
+            String payload = """
+                    {
+                      "sensor_id": "spoofed",
+                      "v_rms": 230.0,
+                      "i_rms": 5.0,
+                      "freq": 50.0
+                    }
+                    """;
+            Message<byte[]> message = createMqttMessage(payload, MQTT_TOPIC);
 
             // When
             mqttMessageHandler.handleMqttMessage(message);
 
-            // Then: Verify topic was accessed (logged internally)
-            assertThat(message.getHeaders().get("mqtt_receivedTopic"))
-                    .isEqualTo(customTopic);
-            verify(measurementService, times(1)).saveMeasurement(any(MeasurementRequest.class));
+            // Then
+            assertThat(captureSubmitted().getSensorId()).isEqualTo("node1");
         }
 
         @Test
         @DisplayName("should handle minimal valid payload")
-        void shouldHandleMinimalPayload() throws Exception {
+        void shouldHandleMinimalPayload() {
             // Given: Only required fields
             String minimalPayload = """
                     {
                       "timestamp": 1702901234,
-                      "voltage_rms": 230.0,
-                      "current_rms": 5.0,
-                      "frequency": 50.0
+                      "v_rms": 230.0,
+                      "i_rms": 5.0,
+                      "freq": 50.0
                     }
                     """;
-            Message<String> message = createMqttMessage(minimalPayload, MQTT_TOPIC);
-
-            when(objectMapper.readValue(minimalPayload, MeasurementRequest.class))
-                    .thenReturn(createValidRequest());
-            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
-                    .thenReturn(createMockDTO());
+            Message<byte[]> message = createMqttMessage(minimalPayload, MQTT_TOPIC);
 
             // When
             mqttMessageHandler.handleMqttMessage(message);
 
             // Then
-            verify(measurementService, times(1)).saveMeasurement(any(MeasurementRequest.class));
+            MeasurementRequest request = captureSubmitted();
+            assertThat(request.getWaveformV()).isNull();
+            assertThat(request.getHarmonicsV()).isNull();
         }
     }
 
@@ -183,33 +249,26 @@ class MqttMessageHandlerTest {
 
         @Test
         @DisplayName("should not throw exception when JSON parsing fails")
-        void shouldHandleJsonParseError() throws Exception {
+        void shouldHandleJsonParseError() {
             // Given: Invalid JSON payload
-            String invalidJson = "{invalid json}";
-            Message<String> message = createMqttMessage(invalidJson, MQTT_TOPIC);
-
-            when(objectMapper.readValue(invalidJson, MeasurementRequest.class))
-                    .thenThrow(new com.fasterxml.jackson.core.JsonParseException(null, "Invalid JSON"));
+            Message<byte[]> message = createMqttMessage("{invalid json}", MQTT_TOPIC);
 
             // When & Then: Should not propagate exception
             assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
                     .doesNotThrowAnyException();
 
             // Verify service was never called
-            verify(measurementService, never()).saveMeasurement(any());
+            verify(ingestService, never()).submit(any());
         }
 
         @Test
         @DisplayName("should not throw exception when service fails")
-        void shouldHandleServiceException() throws Exception {
+        void shouldHandleServiceException() {
             // Given
-            String payload = createValidMqttPayload();
-            Message<String> message = createMqttMessage(payload, MQTT_TOPIC);
+            Message<byte[]> message = createMqttMessage(createValidMqttPayload(), MQTT_TOPIC);
 
-            when(objectMapper.readValue(payload, MeasurementRequest.class))
-                    .thenReturn(createValidRequest());
-            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
-                    .thenThrow(new RuntimeException("Database connection failed"));
+            doThrow(new RuntimeException("Ingest queue unavailable"))
+                    .when(ingestService).submit(any(MeasurementRequest.class));
 
             // When & Then: Should catch and log exception, not propagate
             assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
@@ -218,78 +277,72 @@ class MqttMessageHandlerTest {
 
         @Test
         @DisplayName("should handle message with null payload reference")
-        void shouldHandleNullPayloadReference() throws Exception {
-            // Given: Message exists but with "null" string (realistic MQTT scenario)
-            String nullPayload = "null";
-            Message<String> message = createMqttMessage(nullPayload, MQTT_TOPIC);
-
-            when(objectMapper.readValue(nullPayload, MeasurementRequest.class))
-                    .thenThrow(new com.fasterxml.jackson.core.JsonParseException(null, "Unexpected token"));
+        void shouldHandleNullPayloadReference() {
+            // Given: Message exists but with "null" JSON literal (realistic MQTT scenario)
+            Message<byte[]> message = createMqttMessage("null", MQTT_TOPIC);
 
             // When & Then: Should handle gracefully
             assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
                     .doesNotThrowAnyException();
 
-            verify(measurementService, never()).saveMeasurement(any());
+            verify(ingestService, never()).submit(any());
         }
 
         @Test
         @DisplayName("should handle empty payload gracefully")
-        void shouldHandleEmptyPayload() throws Exception {
+        void shouldHandleEmptyPayload() {
             // Given
-            String emptyPayload = "";
-            Message<String> message = createMqttMessage(emptyPayload, MQTT_TOPIC);
+            Message<byte[]> message = createMqttMessage("", MQTT_TOPIC);
+
+            // When & Then
+            assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
+                    .doesNotThrowAnyException();
 
-            when(objectMapper.readValue(emptyPayload, MeasurementRequest.class))
-                    .thenThrow(new com.fasterxml.jackson.core.JsonParseException(null, "No content"));
+            verify(ingestService, never()).submit(any());
+        }
+
+        @Test
+        @DisplayName("should reject unsupported payload types")
+        void shouldRejectUnsupportedPayloadType() {
+            // Given
+            Message<Integer> message = new GenericMessage<>(42);
 
             // When & Then
             assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
                     .doesNotThrowAnyException();
 
-            verify(measurementService, never()).saveMeasurement(any());
+            verify(ingestService, never()).submit(any());
         }
 
         @Test
         @DisplayName("should handle missing mqtt_receivedTopic header")
-        void shouldHandleMissingTopicHeader() throws Exception {
+        void shouldHandleMissingTopicHeader() {
             // Given: Message without topic header
-            String payload = createValidMqttPayload();
+            byte[] payload = createValidMqttPayload().getBytes(StandardCharsets.UTF_8);
             Map<String, Object> headers = new HashMap<>();
             // No mqtt_receivedTopic header
-            Message<String> message = new GenericMessage<>(payload, new MessageHeaders(headers));
-
-            when(objectMapper.readValue(payload, MeasurementRequest.class))
-                    .thenReturn(createValidRequest());
-            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
-                    .thenReturn(createMockDTO());
+            Message<byte[]> message = new GenericMessage<>(payload, new MessageHeaders(headers));
 
             // When & Then: Should handle gracefully (topic will be null)
             assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
                     .doesNotThrowAnyException();
 
-            verify(measurementService, times(1)).saveMeasurement(any());
+            assertThat(captureSubmitted().getSensorId()).isNull();
         }
 
         @Test
         @DisplayName("should handle malformed JSON with missing required fields")
-        void shouldHandleMalformedJson() throws Exception {
-            // Given: JSON missing required fields
+        void shouldHandleMalformedJson() {
+            // Given: JSON missing required fields (validation happens downstream)
             String malformedPayload = """
                     {
-                      "voltage_rms": 230.0
+                      "v_rms": 230.0
                     }
                     """;
-            Message<String> message = createMqttMessage(malformedPayload, MQTT_TOPIC);
+            Message<byte[]> message = createMqttMessage(malformedPayload, MQTT_TOPIC);
 
-            MeasurementRequest incompleteRequest = new MeasurementRequest();
-            incompleteRequest.setVoltageRms(230.0);
-            // Missing timestamp, current, frequency
-
-            when(objectMapper.readValue(malformedPayload, MeasurementRequest.class))
-                    .thenReturn(incompleteRequest);
-            when(measurementService.saveMeasurement(incompleteRequest))
-                    .thenThrow(new IllegalArgumentException("Missing required fields"));
+            doThrow(new IllegalArgumentException("Missing required fields"))
+                    .when(ingestService).submit(any(MeasurementRequest.class));
 
             // When & Then
             assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
@@ -307,66 +360,49 @@ class MqttMessageHandlerTest {
 
         @Test
         @DisplayName("should handle very large payload")
-        void shouldHandleLargePayload() throws Exception {
-            // Given: Large harmonics arrays
+        void shouldHandleLargePayload() {
+            // Given: Waveform of 800 samples (4 cycles at 10 kHz)
             StringBuilder largePayload = new StringBuilder("{");
             largePayload.append("\"timestamp\": 1702901234,");
-            largePayload.append("\"voltage_rms\": 230.0,");
-            largePayload.append("\"current_rms\": 5.0,");
-            largePayload.append("\"frequency\": 50.0,");
-            largePayload.append("\"harmonics_v\": [");
-            for (int i = 0; i < 100; i++) {
-                largePayload.append(i == 0 ? "230.0" : "0.1");
-                if (i < 99) largePayload.append(",");
+            largePayload.append("\"v_rms\": 230.0,");
+            largePayload.append("\"i_rms\": 5.0,");
+            largePayload.append("\"freq\": 50.0,");
+            largePayload.append("\"waveform_v\": [");
+            for (int i = 0; i < 800; i++) {
+                largePayload.append(325.0 * Math.sin(2 * Math.PI * i / 200.0));
+                if (i < 799) largePayload.append(",");
             }
             largePayload.append("]");
             largePayload.append("}");
 
-            Message<String> message = createMqttMessage(largePayload.toString(), MQTT_TOPIC);
-
-            when(objectMapper.readValue(anyString(), eq(MeasurementRequest.class)))
-                    .thenReturn(createValidRequest());
-            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
-                    .thenReturn(createMockDTO());
+            Message<byte[]> message = createMqttMessage(largePayload.toString(), MQTT_TOPIC);
 
             // When & Then
             assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
                     .doesNotThrowAnyException();
 
-            verify(measurementService, times(1)).saveMeasurement(any());
+            assertThat(captureSubmitted().getWaveformV()).hasSize(800);
         }
 
         @Test
         @DisplayName("should handle special characters in topic")
-        void shouldHandleSpecialCharsInTopic() throws Exception {
+        void shouldHandleSpecialCharsInTopic() {
             // Given
             String specialTopic = "scada/measurements/node-1/sensor_A/temp";
-            String payload = createValidMqttPayload();
-            Message<String> message = createMqttMessage(payload, specialTopic);
-
-            when(objectMapper.readValue(payload, MeasurementRequest.class))
-                    .thenReturn(createValidRequest());
-            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
-                    .thenReturn(createMockDTO());
+            Message<byte[]> message = createMqttMessage(createValidMqttPayload(), specialTopic);
 
             // When & Then
             assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
                     .doesNotThrowAnyException();
 
-            verify(measurementService, times(1)).saveMeasurement(any());
+            assertThat(captureSubmitted().getSensorId()).isEqualTo("temp");
         }
 
         @Test
         @DisplayName("should handle rapid successive messages")
-        void shouldHandleRapidMessages() throws Exception {
+        void shouldHandleRapidMessages() {
             // Given
-            String payload = createValidMqttPayload();
-            Message<String> message = createMqttMessage(payload, MQTT_TOPIC);
-
-            when(objectMapper.readValue(payload, MeasurementRequest.class))
-                    .thenReturn(createValidRequest());
-            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
-                    .thenReturn(createMockDTO());
+            Message<byte[]> message = createMqttMessage(createValidMqttPayload(), MQTT_TOPIC);
 
             // When: Process 10 messages rapidly
             for (int i = 0; i < 10; i++) {
@@ -374,34 +410,29 @@ class MqttMessageHandlerTest {
             }
 
             // Then: All messages processed
-            verify(measurementService, times(10)).saveMeasurement(any());
+            verify(ingestService, times(10)).submit(any());
         }
 
         @Test
-        @DisplayName("should handle payload with Unicode characters")
-        void shouldHandleUnicodePayload() throws Exception {
-            // Given: Payload with Unicode in string fields (shouldn't affect numbers)
+        @DisplayName("should handle payload with Unicode characters and unknown fields")
+        void shouldHandleUnicodePayload() {
+            // Given: Payload with Unicode in an unknown string field (shouldn't affect numbers)
             String unicodePayload = """
                     {
                       "timestamp": 1702901234,
-                      "voltage_rms": 230.0,
-                      "current_rms": 5.0,
-                      "frequency": 50.0,
+                      "v_rms": 230.0,
+                      "i_rms": 5.0,
+                      "freq": 50.0,
                       "node_name": "węzeł №1 测试"
                     }
                     """;
-            Message<String> message = createMqttMessage(unicodePayload, MQTT_TOPIC);
-
-            when(objectMapper.readValue(unicodePayload, MeasurementRequest.class))
-                    .thenReturn(createValidRequest());
-            when(measurementService.saveMeasurement(any(MeasurementRequest.class)))
-                    .thenReturn(createMockDTO());
+            Message<byte[]> message = createMqttMessage(unicodePayload, MQTT_TOPIC);
 
             // When & Then
             assertThatCode(() -> mqttMessageHandler.handleMqttMessage(message))
                     .doesNotThrowAnyException();
 
-            verify(measurementService, times(1)).saveMeasurement(any());
+            assertThat(captureSubmitted().getVoltageRms()).isEqualTo(230.0);
         }
     }
 
@@ -413,43 +444,17 @@ class MqttMessageHandlerTest {
     @DisplayName("Integration Behavior")
     class IntegrationBehavior {
 
-        @Test
-        @DisplayName("should process message in correct order: parse -> save")
-        void shouldProcessInCorrectOrder() throws Exception {
-            // Given
-            String payload = createValidMqttPayload();
-            Message<String> message = createMqttMessage(payload, MQTT_TOPIC);
-            MeasurementRequest mockRequest = createValidRequest();
-
-            when(objectMapper.readValue(payload, MeasurementRequest.class))
-                    .thenReturn(mockRequest);
-            when(measurementService.saveMeasurement(mockRequest))
-                    .thenReturn(createMockDTO());
-
-            // When
-            mqttMessageHandler.handleMqttMessage(message);
-
-            // Then: Verify order using InOrder
-            var inOrder = inOrder(objectMapper, measurementService);
-            inOrder.verify(objectMapper).readValue(payload, MeasurementRequest.class);
-            inOrder.verify(measurementService).saveMeasurement(mockRequest);
-        }
-
         @Test
         @DisplayName("should not call save when parsing fails")
-        void shouldNotSaveWhenParseFails() throws Exception {
+        void shouldNotSaveWhenParseFails() {
             // Given
-            String invalidPayload = "{invalid}";
-            Message<String> message = createMqttMessage(invalidPayload, MQTT_TOPIC);
-
-            when(objectMapper.readValue(invalidPayload, MeasurementRequest.class))
-                    .thenThrow(new com.fasterxml.jackson.core.JsonParseException(null, "Error"));
+            Message<byte[]> message = createMqttMessage("{invalid}", MQTT_TOPIC);
 
             // When
             mqttMessageHandler.handleMqttMessage(message);
 
             // Then: Save should never be called
-            verify(measurementService, never()).saveMeasurement(any());
+            verify(ingestService, never()).submit(any());
         }
     }
 }
@@ -0,0 +1,87 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.DashboardDTO;
+import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
+import com.dkowalczyk.scadasystem.model.dto.RealtimeDashboardDTO;
+import com.dkowalczyk.scadasystem.model.dto.WaveformDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for RealtimeFrameEncoder.
+ *
+ * Testing strategy:
+ * - Envelopes assembled from encoded parts compared byte for byte with a full serialization
+ *   under the application's Jackson settings
+ */
+@DisplayName("RealtimeFrameEncoder Unit Tests")
+class RealtimeFrameEncoderTest {
+
+    private static final WaveformDTO WAVEFORMS = WaveformDTO.builder()
+            .voltage(new double[]{0.0, 325.3, -325.3})
+            .current(new double[]{0.0, 6.8, -6.8})
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+
+    private final RealtimeFrameEncoder encoder = new RealtimeFrameEncoder(objectMapper);
+
+    private static MeasurementDTO measurement(long id) {
+        return MeasurementDTO.builder()
+                .id(id).time(Instant.parse("2026-01-15T10:00:00Z").plusSeconds(id)).sensorId("node1")
+                .voltageRms(230.4).currentRms(4.8).powerFactor(0.97).frequency(50.01)
+                .harmonicsV(new double[]{325.3, 3.1}).voltageDeviationPercent(0.17)
+                .build();
+    }
+
+    @Test
+    @DisplayName("should assemble the realtime frame exactly as Jackson serializes the DTO")
+    void shouldMatchRealtimeDashboardSerialization() throws Exception {
+        // Given
+        MeasurementDTO latest = measurement(1);
+
+        // When
+        byte[] frame = encoder.realtimeDashboard(encoder.encode(latest), encoder.encode(WAVEFORMS));
+
+        // Then
+        byte[] expected = objectMapper.writeValueAsBytes(
+                RealtimeDashboardDTO.builder().latestMeasurement(latest).waveforms(WAVEFORMS).build());
+        assertThat(new String(frame)).isEqualTo(new String(expected));
+    }
+
+    @Test
+    @DisplayName("should assemble the dashboard response exactly as Jackson serializes the DTO")
+    void shouldMatchDashboardSerialization() throws Exception {
+        // Given
+        List<MeasurementDTO> history = List.of(measurement(3), measurement(2), measurement(1));
+        List<byte[]> encoded = history.stream().map(encoder::encode).toList();
+
+        // When
+        byte[] body = encoder.dashboard(encoded.get(0), encoder.encode(WAVEFORMS), encoded);
+
+        // Then
+        byte[] expected = objectMapper.writeValueAsBytes(DashboardDTO.builder()
+                .latestMeasurement(history.get(0)).waveforms(WAVEFORMS).recentHistory(history).build());
+        assertThat(new String(body)).isEqualTo(new String(expected));
+    }
+
+    @Test
+    @DisplayName("should write an empty history as an empty array")
+    void shouldWriteEmptyHistory() {
+        byte[] body = encoder.dashboard("{}".getBytes(), "{}".getBytes(), List.of());
+
+        assertThat(new String(body)).isEqualTo("{\"latest_measurement\":{},\"waveforms\":{},\"recent_history\":[]}");
+    }
+}
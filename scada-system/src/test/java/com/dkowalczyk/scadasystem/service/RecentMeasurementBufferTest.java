@@ -0,0 +1,215 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
+import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.entity.MeasurementWaveform;
+import com.dkowalczyk.scadasystem.model.event.MeasurementSavedEvent;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
+import com.dkowalczyk.scadasystem.repository.MeasurementWaveformRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RecentMeasurementBuffer.
+ *
+ * Testing strategy:
+ * - Startup and per-node warm-up from mocked repositories, then reads without further queries
+ * - Committed measurements merged in device-time order, bounded by the capacity
+ * - Waveforms kept for the newest measurement only
+ */
+@DisplayName("RecentMeasurementBuffer Unit Tests")
+class RecentMeasurementBufferTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private final MeasurementRepository repository = mock(MeasurementRepository.class);
+    private final MeasurementWaveformRepository waveformRepository = mock(MeasurementWaveformRepository.class);
+
+    private RecentMeasurementBuffer buffer() {
+        return new RecentMeasurementBuffer(repository, waveformRepository, true, 100, 60_000);
+    }
+
+    private static MeasurementHistoryRow row(long id, String sensorId, Instant time) {
+        return new MeasurementHistoryRow(id, time, sensorId, 230.0, 4.8, 1100.0, 1120.0, 200.0, null, 0.98,
+                50.01, 2.3, 12.4, new double[]{325.3, 3.1}, null, 0.0, 0.01);
+    }
+
+    private static MeasurementSavedEvent saved(long id, String sensorId, Instant time, double[] waveformV) {
+        Measurement measurement = Measurement.builder()
+                .id(id).time(time).sensorId(sensorId).voltageRms(230.0).frequency(50.0).isValid(true)
+                .waveformV(waveformV).waveformI(waveformV)
+                .build();
+        return new MeasurementSavedEvent(RecentMeasurementBufferTest.class, measurement, MeasurementDTO.builder().build());
+    }
+
+    @Nested
+    @DisplayName("Warm-up")
+    class WarmUp {
+
+        @Test
+        @DisplayName("should serve all nodes from memory after the startup load")
+        void shouldServeAllNodesAfterStartupLoad() {
+            // Given
+            when(repository.findRecentRows(any())).thenReturn(List.of(
+                    row(3, "node2", NOW.minusSeconds(1)), row(2, "node1", NOW.minusSeconds(2)),
+                    row(1, "node1", NOW.minusSeconds(3))));
+            when(waveformRepository.findByMeasurementIdAndTime(3L, NOW.minusSeconds(1))).thenReturn(Optional.of(
+                    MeasurementWaveform.builder().waveformV(new double[]{1.0}).waveformI(new double[]{2.0}).build()));
+            RecentMeasurementBuffer buffer = buffer();
+            buffer.onApplicationReady();
+
+            // When
+            Optional<RecentMeasurementBuffer.View> first = buffer.get(null, 100);
+            Optional<RecentMeasurementBuffer.View> second = buffer.get(null, 2);
+
+            // Then
+            assertThat(first.get().rows()).extracting(MeasurementHistoryRow::id).containsExactly(3L, 2L, 1L);
+            assertThat(first.get().latestWaveforms().voltage()).containsExactly(1.0);
+            assertThat(second.get().rows()).extracting(MeasurementHistoryRow::id).containsExactly(3L, 2L);
+            verify(repository, times(1)).findRecentRows(any());
+        }
+
+        @Test
+        @DisplayName("should read a node once, keeping rows committed during the read")
+        void shouldReadNodeOnceAndKeepConcurrentCommits() {
+            // Given: row 3 commits while the node query runs and does not see it
+            RecentMeasurementBuffer buffer = buffer();
+            when(repository.findRecentRowsBySensorId(eq("node1"), any())).thenAnswer(invocation -> {
+                buffer.onMeasurementSaved(saved(3, "node1", NOW, new double[]{9.0}));
+                return List.of(row(2, "node1", NOW.minusSeconds(1)), row(1, "node1", NOW.minusSeconds(2)));
+            });
+
+            // When
+            buffer.get("node1", 100);
+            Optional<RecentMeasurementBuffer.View> view = buffer.get("node1", 100);
+
+            // Then
+            assertThat(view.get().rows()).extracting(MeasurementHistoryRow::id).containsExactly(3L, 2L, 1L);
+            assertThat(view.get().latestWaveforms().voltage()).containsExactly(9.0);
+            verify(repository, times(1)).findRecentRowsBySensorId(eq("node1"), any());
+        }
+
+        @Test
+        @DisplayName("should return empty for a node without measurements and remember it")
+        void shouldReturnEmptyForUnknownNode() {
+            // Given
+            when(repository.findRecentRowsBySensorId(any(), any())).thenReturn(List.of());
+            RecentMeasurementBuffer buffer = buffer();
+
+            // When & Then: one query for repeated requests
+            assertThat(buffer.get("unknown", 1)).isEmpty();
+            assertThat(buffer.get("unknown", 1)).isEmpty();
+            verify(repository, times(1)).findRecentRowsBySensorId(eq("unknown"), any());
+        }
+
+        @Test
+        @DisplayName("should serve the first measurements of a node remembered as empty")
+        void shouldServeFirstMeasurementsOfEmptyNode() {
+            // Given
+            when(repository.findRecentRowsBySensorId(any(), any())).thenReturn(List.of());
+            RecentMeasurementBuffer buffer = buffer();
+            buffer.get("node1", 1);
+
+            // When
+            buffer.onMeasurementSaved(saved(1, "node1", NOW, null));
+
+            // Then
+            assertThat(buffer.get("node1", 100).get().rows()).extracting(MeasurementHistoryRow::id).containsExactly(1L);
+            verify(repository, times(1)).findRecentRowsBySensorId(eq("node1"), any());
+        }
+
+        @Test
+        @DisplayName("should query an empty node again once the TTL expired")
+        void shouldRequeryEmptyNodeAfterTtl() {
+            // Given: answers expire immediately
+            when(repository.findRecentRowsBySensorId(any(), any())).thenReturn(List.of());
+            RecentMeasurementBuffer buffer = new RecentMeasurementBuffer(repository, waveformRepository, true, 100, 0);
+
+            // When
+            buffer.get("unknown", 1);
+            buffer.get("unknown", 1);
+
+            // Then
+            verify(repository, times(2)).findRecentRowsBySensorId(eq("unknown"), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Committed measurements")
+    class Committed {
+
+        @Test
+        @DisplayName("should keep the newest rows by device time within the capacity")
+        void shouldKeepNewestRowsWithinCapacity() {
+            // Given
+            when(repository.findRecentRowsBySensorId(any(), any())).thenReturn(List.of());
+            RecentMeasurementBuffer buffer = buffer();
+            buffer.get("node1", 1);
+
+            // When: 150 rows, then two late ones: older than all of them and between the newest two
+            for (int i = 0; i < 150; i++) {
+                buffer.onMeasurementSaved(saved(i, "node1", NOW.minusSeconds(150 - i), null));
+            }
+            buffer.onMeasurementSaved(saved(999, "node1", NOW.minusSeconds(1000), null));
+            buffer.onMeasurementSaved(saved(500, "node1", NOW.minusMillis(1500), null));
+
+            // Then
+            List<MeasurementHistoryRow> rows = buffer.get("node1", 100).get().rows();
+            assertThat(rows).hasSize(100);
+            assertThat(rows.get(0).id()).isEqualTo(149L);
+            assertThat(rows.get(1).id()).isEqualTo(500L);
+            assertThat(rows).extracting(MeasurementHistoryRow::id).doesNotContain(999L);
+        }
+
+        @Test
+        @DisplayName("should keep the waveforms of the newest measurement when a late one arrives")
+        void shouldKeepWaveformsOfNewest() {
+            // Given
+            when(repository.findRecentRowsBySensorId(any(), any())).thenReturn(List.of());
+            RecentMeasurementBuffer buffer = buffer();
+            buffer.onMeasurementSaved(saved(2, "node1", NOW, new double[]{2.0}));
+
+            // When
+            buffer.onMeasurementSaved(saved(1, "node1", NOW.minusSeconds(5), new double[]{1.0}));
+
+            // Then
+            assertThat(buffer.get("node1", 1).get().latestWaveforms().voltage()).containsExactly(2.0);
+        }
+
+        @Test
+        @DisplayName("should ignore invalid measurements")
+        void shouldIgnoreInvalidMeasurements() {
+            // Given
+            when(repository.findRecentRowsBySensorId(any(), any())).thenReturn(List.of());
+            RecentMeasurementBuffer buffer = buffer();
+            Measurement invalid = Measurement.builder()
+                    .id(5L).time(NOW).sensorId("node1").voltageRms(400.0).frequency(50.0).isValid(false)
+                    .build();
+
+            // When
+            buffer.onMeasurementSaved(new MeasurementSavedEvent(this, invalid, MeasurementDTO.builder().build()));
+
+            // Then
+            assertThat(buffer.get("node1", 1)).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("should reject a capacity below the dashboard history size")
+    void shouldRejectSmallCapacity() {
+        assertThatThrownBy(() -> new RecentMeasurementBuffer(repository, waveformRepository, true, 99, 60_000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
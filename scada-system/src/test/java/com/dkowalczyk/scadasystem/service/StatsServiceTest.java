@@ -2,7 +2,7 @@ package com.dkowalczyk.scadasystem.service;
 
 import com.dkowalczyk.scadasystem.model.dto.StatsDTO;
 import com.dkowalczyk.scadasystem.model.entity.DailyStats;
-import com.dkowalczyk.scadasystem.model.entity.Measurement;
+import com.dkowalczyk.scadasystem.model.projection.MeasurementStatsRow;
 import com.dkowalczyk.scadasystem.repository.DailyStatsRepository;
 import com.dkowalczyk.scadasystem.repository.MeasurementRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,7 +13,6 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Pageable;
 
 import java.time.Instant;
 import java.time.LocalDate;
@@ -194,7 +193,7 @@ class StatsServiceTest {
         // Given: No measurements for the date
         Instant startOfDay = testDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
         Instant endOfDay = testDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
-        when(measurementRepository.findByIsValidTrueAndTimeBetween(startOfDay, endOfDay, Pageable.unpaged()))
+        when(measurementRepository.findStatsRows(startOfDay, endOfDay))
                 .thenReturn(Collections.emptyList());
 
         // When: Calculate daily stats
@@ -207,7 +206,7 @@ class StatsServiceTest {
         assertThat(result.getMeasurementCount()).isZero();
 
         // Verify no save was called
-        verify(measurementRepository).findByIsValidTrueAndTimeBetween(startOfDay, endOfDay, Pageable.unpaged());
+        verify(measurementRepository).findStatsRows(startOfDay, endOfDay);
         verifyNoInteractions(dailyStatsRepository);
     }
 
@@ -219,10 +218,10 @@ class StatsServiceTest {
     @DisplayName("calculateDailyStats() should calculate all statistics correctly with normal data")
     void calculateDailyStats_shouldCalculateCorrectly_withNormalData() {
         // Given: 3 measurements with normal values (no violations)
-        List<Measurement> measurements = createNormalMeasurements();
+        List<MeasurementStatsRow> measurements = createNormalMeasurements();
         Instant startOfDay = testDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
         Instant endOfDay = testDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
-        when(measurementRepository.findByIsValidTrueAndTimeBetween(startOfDay, endOfDay, Pageable.unpaged()))
+        when(measurementRepository.findStatsRows(startOfDay, endOfDay))
                 .thenReturn(measurements);
         when(dailyStatsRepository.save(any(DailyStats.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
@@ -265,7 +264,7 @@ class StatsServiceTest {
         assertThat(result.getDataCompleteness()).isGreaterThan(0);
 
         // Verify repository interactions
-        verify(measurementRepository).findByIsValidTrueAndTimeBetween(startOfDay, endOfDay, Pageable.unpaged());
+        verify(measurementRepository).findStatsRows(startOfDay, endOfDay);
         verify(dailyStatsRepository).save(any(DailyStats.class));
     }
 
@@ -276,7 +275,7 @@ class StatsServiceTest {
         // Event 1: sag at t=0s, 3s (duration = 3s) -> counts as 1 event
         // Event 2: sag at t=9s, 12s (duration = 3s) -> counts as 1 event
         // Total: 2 events
-        List<Measurement> measurements = List.of(
+        List<MeasurementStatsRow> measurements = List.of(
                 createMeasurement(testDate, 0, 205.0, 1000.0, 50.0, 0.95, 5.0),  // SAG start event 1
                 createMeasurement(testDate, 3, 205.0, 1000.0, 50.0, 0.95, 5.0),  // SAG continues
                 createMeasurement(testDate, 6, 230.0, 1500.0, 50.0, 0.95, 5.0),  // Normal (event 1 ends)
@@ -300,7 +299,7 @@ class StatsServiceTest {
     void calculateDailyStats_shouldCountVoltageSwells_correctly() {
         // Given: One continuous voltage swell event (> 253 V = 110% of 230 V)
         // Event: swell at t=3s, 6s (duration = 3s) -> counts as 1 event
-        List<Measurement> measurements = List.of(
+        List<MeasurementStatsRow> measurements = List.of(
                 createMeasurement(testDate, 0, 230.0, 1000.0, 50.0, 0.95, 5.0),  // Normal
                 createMeasurement(testDate, 3, 254.0, 1500.0, 50.0, 0.95, 5.0),  // SWELL starts
                 createMeasurement(testDate, 6, 255.0, 1200.0, 50.0, 0.95, 5.0),  // SWELL continues
@@ -322,7 +321,7 @@ class StatsServiceTest {
     void calculateDailyStats_shouldCountInterruptions_correctly() {
         // Given: One continuous interruption event (< 23 V = 10% of 230 V, duration > 0.01 s)
         // Event: interruption at t=3s, 6s (duration = 3s) -> counts as 1 event
-        List<Measurement> measurements = List.of(
+        List<MeasurementStatsRow> measurements = List.of(
                 createMeasurement(testDate, 0, 230.0, 1000.0, 50.0, 0.95, 5.0),  // Normal
                 createMeasurement(testDate, 3, 20.0, 0.0, 50.0, 0.0, 5.0),       // INTERRUPTION starts
                 createMeasurement(testDate, 6, 15.0, 0.0, 50.0, 0.0, 5.0),       // INTERRUPTION continues
@@ -343,7 +342,7 @@ class StatsServiceTest {
     void calculateDailyStats_shouldCountThdViolations_correctly() {
         // Given: One continuous THD violation event (> 8.0%)
         // Event: THD violation at t=3s, 6s (duration = 3s) -> counts as 1 event
-        List<Measurement> measurements = List.of(
+        List<MeasurementStatsRow> measurements = List.of(
                 createMeasurement(testDate, 0, 230.0, 1000.0, 50.0, 0.95, 5.0),   // Normal
                 createMeasurement(testDate, 3, 230.0, 1500.0, 50.0, 0.95, 9.0),   // THD violation starts
                 createMeasurement(testDate, 6, 230.0, 1200.0, 50.0, 0.95, 10.0),  // THD violation continues
@@ -365,7 +364,7 @@ class StatsServiceTest {
         // Given: Two separate frequency deviation events (< 49.5 or > 50.5 Hz)
         // Event 1: low frequency at t=0s (duration = 0s but single measurement at end)
         // Event 2: high frequency at t=6s, 9s (duration = 3s) -> counts as 1 event
-        List<Measurement> measurements = List.of(
+        List<MeasurementStatsRow> measurements = List.of(
                 createMeasurement(testDate, 0, 230.0, 1000.0, 49.4, 0.95, 5.0),  // Low frequency event
                 createMeasurement(testDate, 3, 230.0, 1500.0, 50.0, 0.95, 5.0),  // Normal
                 createMeasurement(testDate, 6, 230.0, 1200.0, 50.6, 0.95, 5.0),  // High frequency starts
@@ -388,7 +387,7 @@ class StatsServiceTest {
         // Given: Two separate low power factor events (< 0.85)
         // Event 1: low PF at t=0s (duration = 0s but single measurement at end)
         // Event 2: low PF at t=6s, 9s (duration = 3s) -> counts as 1 event
-        List<Measurement> measurements = List.of(
+        List<MeasurementStatsRow> measurements = List.of(
                 createMeasurement(testDate, 0, 230.0, 1000.0, 50.0, 0.80, 5.0),  // Low PF event 1
                 createMeasurement(testDate, 3, 230.0, 1500.0, 50.0, 0.95, 5.0),  // Normal
                 createMeasurement(testDate, 6, 230.0, 1200.0, 50.0, 0.75, 5.0),  // Low PF event 2 starts
@@ -408,10 +407,8 @@ class StatsServiceTest {
     @Test
     @DisplayName("calculateDailyStats() should ignore undefined power factor values")
     void calculateDailyStats_shouldIgnoreUndefinedPowerFactorValues() {
-        Measurement noLoadMeasurement = createMeasurement(testDate, 0, 222.0, 0.0, 50.0, 0.95, 16.4);
-        noLoadMeasurement.setPowerFactor(null);
-        List<Measurement> measurements = List.of(
-                noLoadMeasurement,
+        List<MeasurementStatsRow> measurements = List.of(
+                createMeasurement(testDate, 0, 222.0, 0.0, 50.0, null, 16.4),
                 createMeasurement(testDate, 3, 230.0, 1500.0, 50.0, 0.95, 5.0),
                 createMeasurement(testDate, 6, 231.0, 1600.0, 50.0, 0.96, 5.0)
         );
@@ -428,11 +425,9 @@ class StatsServiceTest {
     @Test
     @DisplayName("calculateDailyStats() should handle all undefined power factor values")
     void calculateDailyStats_shouldHandleAllUndefinedPowerFactorValues() {
-        Measurement firstNoLoadMeasurement = createMeasurement(testDate, 0, 222.0, 0.0, 50.0, 0.95, 16.4);
-        Measurement secondNoLoadMeasurement = createMeasurement(testDate, 3, 223.0, 0.0, 50.0, 0.95, 12.0);
-        firstNoLoadMeasurement.setPowerFactor(null);
-        secondNoLoadMeasurement.setPowerFactor(null);
-        List<Measurement> measurements = List.of(firstNoLoadMeasurement, secondNoLoadMeasurement);
+        List<MeasurementStatsRow> measurements = List.of(
+                createMeasurement(testDate, 0, 222.0, 0.0, 50.0, null, 16.4),
+                createMeasurement(testDate, 3, 223.0, 0.0, 50.0, null, 12.0));
         mockRepositoryCalls(measurements);
 
         StatsDTO result = statsService.calculateDailyStats(testDate);
@@ -448,7 +443,7 @@ class StatsServiceTest {
     @DisplayName("calculateDailyStats() should save entity to repository")
     void calculateDailyStats_shouldSaveEntity_toRepository() {
         // Given: Normal measurements
-        List<Measurement> measurements = createNormalMeasurements();
+        List<MeasurementStatsRow> measurements = createNormalMeasurements();
         mockRepositoryCalls(measurements);
 
         // When: Calculate daily stats
@@ -468,7 +463,7 @@ class StatsServiceTest {
     @DisplayName("calculateDailyStats() should update existing daily stats for date")
     void calculateDailyStats_shouldUpdateExistingDailyStats_forDate() {
         // Given: Existing stale stats for the same date and fresh measurements
-        List<Measurement> measurements = createNormalMeasurements();
+        List<MeasurementStatsRow> measurements = createNormalMeasurements();
         DailyStats existingStats = createMockDailyStats(testDate);
         existingStats.setId(42L);
         existingStats.setAvgVoltage(1.0);
@@ -497,7 +492,7 @@ class StatsServiceTest {
     void calculateDailyStats_shouldCalculateDataCompleteness_correctly() {
         // Given: Expected measurements = 24 * 60 * 60 / 3 = 28,800
         // Actual measurements = 3
-        List<Measurement> measurements = createNormalMeasurements();
+        List<MeasurementStatsRow> measurements = createNormalMeasurements();
         mockRepositoryCalls(measurements);
 
         // When: Calculate daily stats
@@ -543,7 +538,7 @@ class StatsServiceTest {
     /**
      * Create 3 normal measurements with no violations.
      */
-    private List<Measurement> createNormalMeasurements() {
+    private List<MeasurementStatsRow> createNormalMeasurements() {
         return List.of(
                 createMeasurement(testDate, 0, 229.0, 1400.0, 50.0, 0.94, 5.0),
                 createMeasurement(testDate, 3, 230.0, 1500.0, 50.0, 0.95, 5.0),
@@ -552,37 +547,24 @@ class StatsServiceTest {
     }
 
     /**
-     * Create a single measurement.
+     * Create a single measurement row (columns loaded by findStatsRows).
      */
-    private Measurement createMeasurement(LocalDate date, int secondsOffset,
-                                          double voltage, double power,
-                                          double frequency, double cosPhi,
-                                          double thdVoltage) {
+    private MeasurementStatsRow createMeasurement(LocalDate date, int secondsOffset,
+                                                  double voltage, double power,
+                                                  double frequency, Double cosPhi,
+                                                  double thdVoltage) {
         Instant time = date.atStartOfDay(ZoneId.systemDefault()).toInstant()
                 .plusSeconds(secondsOffset);
-        return Measurement.builder()
-                .time(time)
-                .voltageRms(voltage)
-                .currentRms(power / voltage) // I = P / V
-                .powerActive(power)
-                .powerApparent(power / cosPhi)
-                .powerReactive(Math.sqrt(Math.pow(power / cosPhi, 2) - Math.pow(power, 2)))
-                .powerFactor(cosPhi)
-                .frequency(frequency)
-                .thdVoltage(thdVoltage)
-                .thdCurrent(3.0)
-                .harmonicsV(new Double[]{0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0})
-                .harmonicsI(new Double[]{0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0})
-                .build();
+        return new MeasurementStatsRow(time, voltage, power, frequency, cosPhi, thdVoltage);
     }
 
     /**
      * Mock repository calls for calculateDailyStats.
      */
-    private void mockRepositoryCalls(List<Measurement> measurements) {
+    private void mockRepositoryCalls(List<MeasurementStatsRow> measurements) {
         Instant startOfDay = testDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
         Instant endOfDay = testDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
-        when(measurementRepository.findByIsValidTrueAndTimeBetween(startOfDay, endOfDay, Pageable.unpaged()))
+        when(measurementRepository.findStatsRows(startOfDay, endOfDay))
                 .thenReturn(measurements);
         when(dailyStatsRepository.save(any(DailyStats.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
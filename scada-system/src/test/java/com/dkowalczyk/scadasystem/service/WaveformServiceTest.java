@@ -26,7 +26,7 @@ class WaveformServiceTest {
     @Test
     @DisplayName("Should reconstruct pure sine wave from fundamental harmonic only")
     void shouldReconstructPureSineWave() {
-        Double[] harmonics = new Double[]{230.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0};
+        double[] harmonics = new double[]{230.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0};
         double frequency = 50.0;
         int samplesPerCycle = 200;
         double phaseShift = 0.0;
@@ -44,7 +44,7 @@ class WaveformServiceTest {
     @Test
     @DisplayName("Should reconstruct distorted waveform with multiple harmonics")
     void shouldReconstructDistortedWaveform() {
-        Double[] harmonics = new Double[]{230.0, 4.8, 2.3, 1.1, 0.8, 0.5, 0.3, 0.2};
+        double[] harmonics = new double[]{230.0, 4.8, 2.3, 1.1, 0.8, 0.5, 0.3, 0.2};
         
         double[] waveform = waveformService.reconstructWaveform(harmonics, 50.0, 200, 0.0);
 
@@ -62,7 +62,7 @@ class WaveformServiceTest {
     @DisplayName("Should handle empty harmonics array")
     void shouldHandleEmptyHarmonics() {
         // Given: Empty harmonics array
-        Double[] harmonics = new Double[]{};
+        double[] harmonics = new double[]{};
         double frequency = 50.0;
         int samplesPerCycle = 200;
         double phaseShift = 0.0; // No phase shift
@@ -78,7 +78,7 @@ class WaveformServiceTest {
     @Test
     @DisplayName("Should work with 60Hz frequency (USA power grid)")
     void shouldWorkWith60Hz() {
-        Double[] harmonics = new Double[]{120.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0};
+        double[] harmonics = new double[]{120.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0};
         double[] waveform = waveformService.reconstructWaveform(harmonics, 60.0, 200, 0.0);
 
         assertThat(findMax(waveform)).isCloseTo(120.0 * SQRT_2, within(1.0));
@@ -90,11 +90,11 @@ class WaveformServiceTest {
         // === EDUCATIONAL TEST - Shows how harmonics affect waveform ===
 
         // CASE 1: Pure sine wave (no distortion)
-        Double[] pureHarmonics = new Double[]{230.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0};
+        double[] pureHarmonics = new double[]{230.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0};
         double[] pureWave = waveformService.reconstructWaveform(pureHarmonics, 50.0, 200, 0.0);
 
         // CASE 2: With 2nd harmonic (adds "hump" to waveform)
-        Double[] with2ndHarmonic = new Double[]{230.0, 10.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0};
+        double[] with2ndHarmonic = new double[]{230.0, 10.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0};
         double[] distortedWave = waveformService.reconstructWaveform(with2ndHarmonic, 50.0, 200, 0.0);
         // Educational observation: 2nd harmonic CHANGES the waveform shape
         // The waveform is no longer a perfect sine - it's distorted!
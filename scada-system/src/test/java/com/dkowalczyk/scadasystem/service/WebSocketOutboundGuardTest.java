@@ -0,0 +1,108 @@
+package com.dkowalczyk.scadasystem.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for WebSocketOutboundGuard.
+ *
+ * Testing strategy:
+ * - Outbound frames of a mocked session passed through the interceptor callbacks directly
+ * - Pending limit, dropped frames and slow consumer close
+ */
+@DisplayName("WebSocketOutboundGuard Unit Tests")
+class WebSocketOutboundGuardTest {
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private final WebSocketSession session = mock(WebSocketSession.class);
+
+    private WebSocketOutboundGuard connectedGuard(int maxPendingFrames, long timeoutMs) throws Exception {
+        when(session.getId()).thenReturn("s1");
+        WebSocketOutboundGuard guard = new WebSocketOutboundGuard(maxPendingFrames, timeoutMs);
+        guard.decorate(mock(WebSocketHandler.class)).afterConnectionEstablished(session);
+        return guard;
+    }
+
+    private static Message<byte[]> frame(SimpMessageType type, String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    @Test
+    @DisplayName("should drop broadcast frames above the pending limit until one is delivered")
+    void shouldDropAbovePendingLimit() throws Exception {
+        // Given
+        WebSocketOutboundGuard guard = connectedGuard(2, 10_000);
+        Message<byte[]> first = frame(SimpMessageType.MESSAGE, "s1");
+
+        // When
+        assertThat(guard.preSend(first, channel)).isNotNull();
+        assertThat(guard.preSend(frame(SimpMessageType.MESSAGE, "s1"), channel)).isNotNull();
+        Message<?> dropped = guard.preSend(frame(SimpMessageType.MESSAGE, "s1"), channel);
+        guard.afterMessageHandled(first, channel, null, null);
+        Message<?> afterDelivery = guard.preSend(frame(SimpMessageType.MESSAGE, "s1"), channel);
+
+        // Then
+        assertThat(dropped).isNull();
+        assertThat(afterDelivery).isNotNull();
+        assertThat(guard.getDroppedCount()).isEqualTo(1);
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    @DisplayName("should never drop protocol frames or frames of unknown sessions")
+    void shouldPassProtocolFrames() throws Exception {
+        WebSocketOutboundGuard guard = connectedGuard(1, 10_000);
+        guard.preSend(frame(SimpMessageType.MESSAGE, "s1"), channel);
+
+        assertThat(guard.preSend(frame(SimpMessageType.CONNECT_ACK, "s1"), channel)).isNotNull();
+        assertThat(guard.preSend(frame(SimpMessageType.MESSAGE, "other"), channel)).isNotNull();
+        assertThat(guard.getDroppedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should close a session that stays at the limit longer than the timeout")
+    void shouldCloseSlowConsumer() throws Exception {
+        // Given
+        WebSocketOutboundGuard guard = connectedGuard(1, 1);
+        guard.preSend(frame(SimpMessageType.MESSAGE, "s1"), channel);
+        guard.preSend(frame(SimpMessageType.MESSAGE, "s1"), channel);
+
+        // When
+        Thread.sleep(5);
+        guard.preSend(frame(SimpMessageType.MESSAGE, "s1"), channel);
+        guard.preSend(frame(SimpMessageType.MESSAGE, "s1"), channel);
+
+        // Then
+        verify(session, times(1)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(guard.getSlowConsumerCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should forget a session once it is closed")
+    void shouldForgetClosedSession() throws Exception {
+        // Given
+        when(session.getId()).thenReturn("s1");
+        WebSocketOutboundGuard guard = new WebSocketOutboundGuard(1, 10_000);
+        WebSocketHandler handler = guard.decorate(mock(WebSocketHandler.class));
+        handler.afterConnectionEstablished(session);
+
+        // When
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        // Then
+        assertThat(guard.getSessionCount()).isZero();
+    }
+}
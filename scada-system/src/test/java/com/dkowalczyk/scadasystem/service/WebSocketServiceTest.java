@@ -0,0 +1,223 @@
+package com.dkowalczyk.scadasystem.service;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementDTO;
+import com.dkowalczyk.scadasystem.model.dto.WaveformDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for WebSocketService.
+ *
+ * Testing strategy:
+ * - Frames published to a mocked messaging template, flushed explicitly
+ * - Conflation per topic and node, counters
+ * - Per-node topics and replay of retained frames on SUBSCRIBE, captured on a mocked outbound channel
+ */
+@DisplayName("WebSocketService Unit Tests")
+class WebSocketServiceTest {
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final MessageChannel clientOutboundChannel = mock(MessageChannel.class);
+
+    private WebSocketService service(boolean conflationEnabled) {
+        return new WebSocketService(messagingTemplate, clientOutboundChannel, conflationEnabled, 10);
+    }
+
+    private static SessionSubscribeEvent subscribe(String destination, String replay) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination(destination);
+        if (replay != null) {
+            accessor.setNativeHeader(WebSocketService.REPLAY_HEADER, replay);
+        }
+        return new SessionSubscribeEvent(new Object(), MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Message<?>> replayedMessages() {
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(clientOutboundChannel, atLeast(0)).send(captor.capture());
+        return captor.getAllValues();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> sentPayloads(String destination) {
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, atLeast(0)).send(eq(destination), captor.capture());
+        return captor.getAllValues().stream().map(message -> new String((byte[]) message.getPayload())).toList();
+    }
+
+    @Test
+    @DisplayName("should send only the latest frame of each topic and node per flush")
+    void shouldConflatePerTopicAndNode() {
+        // Given
+        WebSocketService service = service(true);
+        service.broadcastRealtimeDashboard("node1", "{\"v\":1}".getBytes(), null);
+        service.broadcastRealtimeDashboard("node1", "{\"v\":2}".getBytes(), null);
+        service.broadcastRealtimeDashboard("node2", "{\"v\":3}".getBytes(), null);
+        service.broadcastMeasurement("node1", "{\"v\":4}".getBytes());
+        verifyNoInteractions(messagingTemplate);
+
+        // When
+        service.flush();
+
+        // Then
+        assertThat(sentPayloads(WebSocketService.DASHBOARD_TOPIC)).containsExactlyInAnyOrder("{\"v\":2}", "{\"v\":3}");
+        assertThat(sentPayloads(WebSocketService.MEASUREMENTS_TOPIC)).containsExactly("{\"v\":4}");
+        assertThat(service.getPublishedCount()).isEqualTo(8);
+        assertThat(service.getConflatedCount()).isEqualTo(2);
+        assertThat(service.getSentCount()).isEqualTo(6);
+        assertThat(service.getPendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should send nothing on a flush without new frames")
+    void shouldNotResendOnEmptyFlush() {
+        WebSocketService service = service(true);
+        service.broadcastMeasurement(null, "{}".getBytes());
+        service.flush();
+
+        service.flush();
+
+        verify(messagingTemplate, times(1)).send(anyString(), any(Message.class));
+    }
+
+    @Test
+    @DisplayName("should send immediately when conflation is disabled")
+    void shouldSendImmediatelyWithoutConflation() {
+        WebSocketService service = service(false);
+
+        service.broadcastMeasurement("node1", "{\"v\":1}".getBytes());
+        service.broadcastMeasurement("node1", "{\"v\":2}".getBytes());
+
+        assertThat(sentPayloads(WebSocketService.MEASUREMENTS_TOPIC)).containsExactly("{\"v\":1}", "{\"v\":2}");
+        assertThat(service.getConflatedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should count a frame the broker refused and keep flushing the others")
+    void shouldCountFailedSends() {
+        // Given
+        doThrow(new MessageDeliveryException("broker channel full"))
+                .when(messagingTemplate).send(eq(WebSocketService.DASHBOARD_TOPIC), any(Message.class));
+        WebSocketService service = service(true);
+        service.broadcastRealtimeDashboard("node1", "{}".getBytes(), null);
+        service.broadcastMeasurement("node1", "{}".getBytes());
+
+        // When
+        service.flush();
+
+        // Then
+        assertThat(service.getFailedCount()).isEqualTo(1);
+        assertThat(service.getSentCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should also send each frame to the topic of its node")
+    void shouldSendToPerNodeTopics() {
+        WebSocketService service = service(true);
+        service.broadcastRealtimeDashboard("node1", "{\"v\":1}".getBytes(), null);
+        service.broadcastRealtimeDashboard("node2", "{\"v\":2}".getBytes(), null);
+        service.broadcastMeasurement("node1", "{\"v\":3}".getBytes());
+
+        service.flush();
+
+        assertThat(sentPayloads(WebSocketService.DASHBOARD_TOPIC + "/node1")).containsExactly("{\"v\":1}");
+        assertThat(sentPayloads(WebSocketService.DASHBOARD_TOPIC + "/node2")).containsExactly("{\"v\":2}");
+        assertThat(sentPayloads(WebSocketService.MEASUREMENTS_TOPIC + "/node1")).containsExactly("{\"v\":3}");
+    }
+
+    @Test
+    @DisplayName("should replay the last sent frame to a new subscription only")
+    void shouldReplayLastFrameOnSubscribe() {
+        // Given
+        WebSocketService service = service(false);
+        service.broadcastRealtimeDashboard("node1", "{\"v\":1}".getBytes(), null);
+        service.broadcastRealtimeDashboard("node1", "{\"v\":2}".getBytes(), null);
+
+        // When
+        service.onSubscribe(subscribe(WebSocketService.DASHBOARD_TOPIC + "/node1", null));
+
+        // Then
+        List<Message<?>> replayed = replayedMessages();
+        assertThat(replayed).hasSize(1);
+        assertThat(new String((byte[]) replayed.get(0).getPayload())).isEqualTo("{\"v\":2}");
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(replayed.get(0));
+        assertThat(headers.getSessionId()).isEqualTo("s1");
+        assertThat(headers.getSubscriptionId()).isEqualTo("sub-0");
+        assertThat(headers.getDestination()).isEqualTo(WebSocketService.DASHBOARD_TOPIC + "/node1");
+        assertThat(service.getReplayedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should replay the last N frames oldest first when the subscription asks for them")
+    void shouldReplayRequestedFrames() {
+        WebSocketService service = service(false);
+        for (int i = 1; i <= 4; i++) {
+            service.broadcastMeasurement("node1", ("{\"v\":" + i + "}").getBytes());
+        }
+
+        service.onSubscribe(subscribe(WebSocketService.MEASUREMENTS_TOPIC + "/node1", "3"));
+
+        assertThat(replayedMessages()).extracting(message -> new String((byte[]) message.getPayload()))
+                .containsExactly("{\"v\":2}", "{\"v\":3}", "{\"v\":4}");
+    }
+
+    @Test
+    @DisplayName("should replay nothing with replay 0 or for a destination nothing was sent to")
+    void shouldSkipReplay() {
+        WebSocketService service = service(false);
+        service.broadcastMeasurement("node1", "{}".getBytes());
+
+        service.onSubscribe(subscribe(WebSocketService.MEASUREMENTS_TOPIC + "/node1", "0"));
+        service.onSubscribe(subscribe(WebSocketService.MEASUREMENTS_TOPIC + "/node2", null));
+
+        verifyNoInteractions(clientOutboundChannel);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("should attach the binary form of a dashboard frame to broadcast and replayed messages")
+    void shouldAttachBinaryFrame() {
+        // Given
+        WebSocketService service = service(false);
+        BinaryDashboardFrame binary = new BinaryDashboardFrame(MeasurementDTO.builder().build(),
+                () -> WaveformDTO.builder().build());
+
+        // When
+        service.broadcastRealtimeDashboard("node1", "{}".getBytes(), binary);
+        service.onSubscribe(subscribe(WebSocketService.DASHBOARD_TOPIC + "/node1", null));
+
+        // Then
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate).send(eq(WebSocketService.DASHBOARD_TOPIC), captor.capture());
+        assertThat(captor.getValue().getHeaders().get(BinaryDashboardFrame.HEADER)).isSameAs(binary);
+        assertThat(replayedMessages().get(0).getHeaders().get(BinaryDashboardFrame.HEADER)).isSameAs(binary);
+    }
+
+    @Test
+    @DisplayName("should reject a negative replay limit")
+    void shouldRejectNegativeReplayLimit() {
+        assertThatThrownBy(() -> new WebSocketService(messagingTemplate, clientOutboundChannel, true, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,161 @@
+package com.dkowalczyk.scadasystem.util;
+
+import com.dkowalczyk.scadasystem.util.GorillaCodec.BitReader;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.BitWriter;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.DeltaOfDeltaDecoder;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.DeltaOfDeltaEncoder;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.XorDecoder;
+import com.dkowalczyk.scadasystem.util.GorillaCodec.XorEncoder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for GorillaCodec.
+ *
+ * Testing strategy:
+ * - Round-trip of bit fields across word boundaries and of both value encodings
+ * - Edge values (64-bit escapes, NaN, infinities, null)
+ * - Compression of realistic series (steady cadence, slowly changing values)
+ */
+@DisplayName("GorillaCodec Unit Tests")
+class GorillaCodecTest {
+
+    @Nested
+    @DisplayName("Bit buffer")
+    class Bits {
+
+        @Test
+        @DisplayName("should read back fields of every width across word boundaries")
+        void shouldRoundTripBitFields() {
+            // Given
+            BitWriter writer = new BitWriter();
+            Random random = new Random(42);
+            long[] values = new long[500];
+            int[] widths = new int[500];
+            for (int i = 0; i < values.length; i++) {
+                widths[i] = 1 + random.nextInt(64);
+                values[i] = widths[i] == 64 ? random.nextLong() : random.nextLong() & ((1L << widths[i]) - 1);
+                writer.writeBits(values[i], widths[i]);
+            }
+
+            // When
+            BitReader reader = writer.reader();
+
+            // Then
+            for (int i = 0; i < values.length; i++) {
+                assertThat(reader.readBits(widths[i])).as("field %d", i).isEqualTo(values[i]);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Delta-of-delta")
+    class DeltaOfDelta {
+
+        @Test
+        @DisplayName("should round-trip irregular series including 64-bit jumps")
+        void shouldRoundTripIrregularSeries() {
+            // Given
+            long[] values = {1_700_000_000_000_000L, 1_700_000_001_000_000L, 1_700_000_002_000_000L,
+                    1_700_000_002_000_050L, 1_700_000_001_999_000L, 0L, -1L, Long.MAX_VALUE, Long.MIN_VALUE, 42L};
+            DeltaOfDeltaEncoder encoder = new DeltaOfDeltaEncoder();
+            for (long value : values) {
+                encoder.add(value);
+            }
+
+            // When
+            DeltaOfDeltaDecoder decoder = encoder.decoder();
+
+            // Then
+            for (long value : values) {
+                assertThat(decoder.next()).isEqualTo(value);
+            }
+        }
+
+        @Test
+        @DisplayName("should store a steady cadence in about one bit per value")
+        void shouldCompressSteadyCadence() {
+            // Given: one measurement per second, in microseconds
+            DeltaOfDeltaEncoder encoder = new DeltaOfDeltaEncoder();
+            for (int i = 0; i < 1000; i++) {
+                encoder.add(1_700_000_000_000_000L + i * 1_000_000L);
+            }
+
+            // Then: first value raw, first delta escaped, then '0' per value
+            assertThat(encoder.bits().bitCount()).isLessThan(64 + 68 + 1000);
+        }
+    }
+
+    @Nested
+    @DisplayName("XOR doubles")
+    class Xor {
+
+        @Test
+        @DisplayName("should round-trip special values and nulls")
+        void shouldRoundTripSpecialValues() {
+            // Given
+            Double[] values = {230.1, 230.1, null, 230.2, Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY,
+                    Double.MIN_VALUE, Double.MAX_VALUE, null, null, 49.98};
+            XorEncoder encoder = new XorEncoder();
+            for (Double value : values) {
+                encoder.add(value);
+            }
+
+            // When
+            XorDecoder decoder = encoder.decoder();
+
+            // Then
+            for (Double value : values) {
+                assertThat(decoder.nextNullable()).isEqualTo(value);
+            }
+        }
+
+        @Test
+        @DisplayName("should round-trip a noisy series bit-exactly")
+        void shouldRoundTripNoisySeries() {
+            // Given
+            Random random = new Random(7);
+            double[] values = new double[2000];
+            XorEncoder encoder = new XorEncoder();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = 230.0 + random.nextGaussian();
+                encoder.add(values[i]);
+            }
+
+            // When
+            XorDecoder decoder = encoder.decoder();
+
+            // Then
+            for (double value : values) {
+                assertThat(Double.doubleToRawLongBits(decoder.next())).isEqualTo(Double.doubleToRawLongBits(value));
+            }
+        }
+
+        @Test
+        @DisplayName("should compress slowly changing readings well below 64 bits per value")
+        void shouldCompressSlowlyChangingValues() {
+            // Given: voltage with 0.1 V resolution wandering around 230 V
+            XorEncoder encoder = new XorEncoder();
+            for (int i = 0; i < 1000; i++) {
+                encoder.add(Math.round((230.0 + Math.sin(i / 50.0)) * 10) / 10.0);
+            }
+
+            // Then
+            assertThat(encoder.bits().bitCount() / 1000.0).isLessThan(32.0);
+        }
+    }
+
+    @Test
+    @DisplayName("should not be instantiable")
+    void shouldNotBeInstantiable() throws Exception {
+        var constructor = GorillaCodec.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+
+        assertThatThrownBy(constructor::newInstance).hasCauseInstanceOf(AssertionError.class);
+    }
+}
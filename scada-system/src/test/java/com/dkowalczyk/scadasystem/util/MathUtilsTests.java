@@ -387,7 +387,7 @@ public class MathUtilsTests {
     @Test
     @DisplayName("Should apply phase shift to waveform")
     void shouldApplyPhaseShiftToWaveform() {
-        Double[] harmonics = new Double[]{230.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0};
+        double[] harmonics = new double[]{230.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0};
         double frequency = 50.0;
         int samplesPerCycle = 200;
         double phaseShift = -Math.PI / 2;
@@ -0,0 +1,224 @@
+package com.dkowalczyk.scadasystem.util;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.dkowalczyk.scadasystem.util.MeasurementBinaryCodec.SampleEncoding;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for MeasurementBinaryCodec.
+ *
+ * Testing strategy:
+ * - Round-trip: JSON and binary encodings of the same measurement decode to the same request
+ * - Precision bounds for float32 and scaled int16 waveforms
+ * - Malformed payloads are rejected with IllegalArgumentException
+ */
+@DisplayName("MeasurementBinaryCodec Unit Tests")
+class MeasurementBinaryCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Measurement shaped like simulator output: 25 harmonics, 400-sample waveforms.
+     */
+    static MeasurementRequest createRealisticRequest() {
+        MeasurementRequest request = new MeasurementRequest();
+        request.setTimestamp(1_702_901_234L);
+        request.setVoltageRms(230.1);
+        request.setCurrentRms(4.873);
+        request.setPowerActive(1098.4);
+        request.setPowerApparent(1121.3);
+        request.setPowerReactive(201.7);
+        request.setPowerDistortion(88.2);
+        request.setPowerFactor(0.98);
+        request.setFrequency(50.02);
+        request.setThdVoltage(2.35);
+        request.setThdCurrent(12.4);
+
+        double[] harmonicsV = new double[25];
+        double[] harmonicsI = new double[25];
+        for (int h = 0; h < 25; h++) {
+            harmonicsV[h] = h == 0 ? 325.27 : Math.round(325.27 * 0.01 / (h + 1) * 100) / 100.0;
+            harmonicsI[h] = h == 0 ? 6.891 : Math.round(6.891 * 0.08 / (h + 1) * 1000) / 1000.0;
+        }
+        request.setHarmonicsV(harmonicsV);
+        request.setHarmonicsI(harmonicsI);
+
+        double[] waveformV = new double[400];
+        double[] waveformI = new double[400];
+        for (int i = 0; i < 400; i++) {
+            double angle = 2 * Math.PI * i / 200.0;
+            waveformV[i] = Math.round(325.27 * Math.sin(angle) * 10) / 10.0;
+            waveformI[i] = Math.round((6.891 * Math.sin(angle - 0.2) + 0.5 * Math.sin(3 * angle)) * 1000) / 1000.0;
+        }
+        request.setWaveformV(waveformV);
+        request.setWaveformI(waveformI);
+        return request;
+    }
+
+    private static double maxAbsDiff(double[] a, double[] b) {
+        double max = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            max = Math.max(max, Math.abs(a[i] - b[i]));
+        }
+        return max;
+    }
+
+    @Nested
+    @DisplayName("Round-trip against JSON path")
+    class RoundTrip {
+
+        @Test
+        @DisplayName("should decode the same scalars and harmonics as JSON (FLOAT32)")
+        void shouldMatchJsonDecoding() throws Exception {
+            // Given
+            MeasurementRequest original = createRealisticRequest();
+            byte[] json = objectMapper.writeValueAsBytes(original);
+            byte[] binary = MeasurementBinaryCodec.encode(original, SampleEncoding.FLOAT32);
+
+            // When
+            MeasurementRequest fromJson = objectMapper.readValue(json, MeasurementRequest.class);
+            MeasurementRequest fromBinary = MeasurementBinaryCodec.decode(binary);
+
+            // Then: scalars survive float32 exactly (shortest decimal representation)
+            assertThat(fromBinary.getTimestamp()).isEqualTo(fromJson.getTimestamp());
+            assertThat(fromBinary.getVoltageRms()).isEqualTo(fromJson.getVoltageRms());
+            assertThat(fromBinary.getCurrentRms()).isEqualTo(fromJson.getCurrentRms());
+            assertThat(fromBinary.getPowerActive()).isEqualTo(fromJson.getPowerActive());
+            assertThat(fromBinary.getPowerApparent()).isEqualTo(fromJson.getPowerApparent());
+            assertThat(fromBinary.getPowerReactive()).isEqualTo(fromJson.getPowerReactive());
+            assertThat(fromBinary.getPowerDistortion()).isEqualTo(fromJson.getPowerDistortion());
+            assertThat(fromBinary.getPowerFactor()).isEqualTo(fromJson.getPowerFactor());
+            assertThat(fromBinary.getFrequency()).isEqualTo(fromJson.getFrequency());
+            assertThat(fromBinary.getThdVoltage()).isEqualTo(fromJson.getThdVoltage());
+            assertThat(fromBinary.getThdCurrent()).isEqualTo(fromJson.getThdCurrent());
+            assertThat(fromBinary.getHarmonicsV()).containsExactly(fromJson.getHarmonicsV());
+            assertThat(fromBinary.getHarmonicsI()).containsExactly(fromJson.getHarmonicsI());
+
+            // Waveforms: float32 keeps ~7 significant digits
+            assertThat(maxAbsDiff(fromBinary.getWaveformV(), fromJson.getWaveformV())).isLessThan(1e-4);
+            assertThat(maxAbsDiff(fromBinary.getWaveformI(), fromJson.getWaveformI())).isLessThan(1e-5);
+        }
+
+        @Test
+        @DisplayName("should keep int16 waveform error below half a quantization step")
+        void shouldBoundInt16Error() {
+            // Given
+            MeasurementRequest original = createRealisticRequest();
+
+            // When
+            MeasurementRequest decoded = MeasurementBinaryCodec.decode(
+                    MeasurementBinaryCodec.encode(original, SampleEncoding.INT16));
+
+            // Then: step = max|x| / 32767 (≈ 0.01 V, ≈ 0.0002 A)
+            double stepV = 325.3 / Short.MAX_VALUE;
+            double stepI = Arrays.stream(original.getWaveformI()).map(Math::abs).max().orElseThrow() / Short.MAX_VALUE;
+            assertThat(maxAbsDiff(decoded.getWaveformV(), original.getWaveformV())).isLessThanOrEqualTo(stepV);
+            assertThat(maxAbsDiff(decoded.getWaveformI(), original.getWaveformI())).isLessThanOrEqualTo(stepI);
+            assertThat(decoded.getVoltageRms()).isEqualTo(230.1);
+        }
+
+        @Test
+        @DisplayName("should be much smaller than JSON")
+        void shouldBeSmallerThanJson() throws Exception {
+            // Given
+            MeasurementRequest original = createRealisticRequest();
+
+            // When
+            int jsonSize = objectMapper.writeValueAsBytes(original).length;
+            int float32Size = MeasurementBinaryCodec.encode(original, SampleEncoding.FLOAT32).length;
+            int int16Size = MeasurementBinaryCodec.encode(original, SampleEncoding.INT16).length;
+
+            // Then: 66 header + 50 * 4 harmonics + 800 * 4 (or 2) waveform bytes
+            assertThat(float32Size).isEqualTo(66 + 200 + 3200);
+            assertThat(int16Size).isEqualTo(66 + 200 + 1600);
+            assertThat(int16Size).isLessThan(jsonSize / 3);
+        }
+
+        @Test
+        @DisplayName("should preserve absent optional fields as null")
+        void shouldPreserveNulls() {
+            // Given: only required fields, no timestamp
+            MeasurementRequest original = new MeasurementRequest();
+            original.setVoltageRms(229.5);
+            original.setCurrentRms(0.0);
+            original.setFrequency(49.98);
+
+            // When
+            MeasurementRequest decoded = MeasurementBinaryCodec.decode(
+                    MeasurementBinaryCodec.encode(original, SampleEncoding.FLOAT32));
+
+            // Then
+            assertThat(decoded.getTimestamp()).isNull();
+            assertThat(decoded.getPowerFactor()).isNull();
+            assertThat(decoded.getThdCurrent()).isNull();
+            assertThat(decoded.getHarmonicsV()).isNull();
+            assertThat(decoded.getWaveformV()).isNull();
+            assertThat(decoded.getVoltageRms()).isEqualTo(229.5);
+            assertThat(decoded.getFrequency()).isEqualTo(49.98);
+        }
+    }
+
+    @Nested
+    @DisplayName("Malformed payloads")
+    class MalformedPayloads {
+
+        @Test
+        @DisplayName("should reject payload shorter than header")
+        void shouldRejectShortPayload() {
+            assertThatThrownBy(() -> MeasurementBinaryCodec.decode(new byte[10]))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("too short");
+        }
+
+        @Test
+        @DisplayName("should reject wrong magic")
+        void shouldRejectWrongMagic() {
+            byte[] payload = MeasurementBinaryCodec.encode(createRealisticRequest(), SampleEncoding.FLOAT32);
+            payload[0] = '{';
+
+            assertThatThrownBy(() -> MeasurementBinaryCodec.decode(payload))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("magic");
+        }
+
+        @Test
+        @DisplayName("should reject unknown version")
+        void shouldRejectUnknownVersion() {
+            byte[] payload = MeasurementBinaryCodec.encode(createRealisticRequest(), SampleEncoding.FLOAT32);
+            payload[2] = 2;
+
+            assertThatThrownBy(() -> MeasurementBinaryCodec.decode(payload))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("version");
+        }
+
+        @Test
+        @DisplayName("should reject truncated sample data")
+        void shouldRejectTruncatedPayload() {
+            byte[] payload = MeasurementBinaryCodec.encode(createRealisticRequest(), SampleEncoding.INT16);
+            byte[] truncated = Arrays.copyOf(payload, payload.length - 1);
+
+            assertThatThrownBy(() -> MeasurementBinaryCodec.decode(truncated))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("truncated");
+        }
+
+        @Test
+        @DisplayName("should reject arrays exceeding format limits on encode")
+        void shouldRejectOversizedHarmonics() {
+            MeasurementRequest request = createRealisticRequest();
+            request.setHarmonicsV(new double[256]);
+
+            assertThatThrownBy(() -> MeasurementBinaryCodec.encode(request, SampleEncoding.FLOAT32))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("harm_v");
+        }
+    }
+}
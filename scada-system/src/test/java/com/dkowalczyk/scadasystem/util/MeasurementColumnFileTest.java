@@ -0,0 +1,106 @@
+package com.dkowalczyk.scadasystem.util;
+
+import com.dkowalczyk.scadasystem.model.projection.MeasurementHistoryRow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for MeasurementColumnFile.
+ *
+ * Testing strategy:
+ * - Round-trip of all columns (nulls, arrays of varying length) through a real file
+ * - Column selection and time range filtering on read
+ */
+@DisplayName("MeasurementColumnFile Unit Tests")
+class MeasurementColumnFileTest {
+
+    private static final Instant START = Instant.parse("2026-01-15T00:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private static List<MeasurementHistoryRow> rows(String sensorId, int count) {
+        List<MeasurementHistoryRow> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double voltage = 230.0 + (i % 7) / 10.0;
+            rows.add(new MeasurementHistoryRow((long) 1000 + i, START.plusSeconds(i), sensorId, voltage, 4.8,
+                    i % 5 == 0 ? null : 1100.0 + i, 1120.0, 200.0, null, 0.98, 50.0 + (i % 3) / 100.0, 2.3, 12.4,
+                    i % 4 == 0 ? null : new double[]{325.3, 3.1 + i % 2, 1.2}, new double[i % 3],
+                    (voltage - 230.0) / 2.3, (i % 3) / 100.0));
+        }
+        return rows;
+    }
+
+    private Path write(String sensorId, List<MeasurementHistoryRow> rows) throws IOException {
+        MeasurementColumnFile.Writer writer = new MeasurementColumnFile.Writer(sensorId);
+        rows.forEach(writer::add);
+        Path file = dir.resolve("node" + MeasurementColumnFile.EXTENSION);
+        writer.writeTo(file);
+        return file;
+    }
+
+    @Test
+    @DisplayName("should read back every column exactly")
+    void shouldRoundTripAllColumns() throws IOException {
+        // Given
+        List<MeasurementHistoryRow> rows = rows("node1", 500);
+        Path file = write("node1", rows);
+
+        // When
+        List<MeasurementHistoryRow> read = MeasurementColumnFile.read(file, null, START, START.plusSeconds(500));
+
+        // Then
+        assertThat(read).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(rows);
+        assertThat(Files.size(file)).isLessThan(500L * 8 * 20);
+    }
+
+    @Test
+    @DisplayName("should return only the requested columns and time range")
+    void shouldReadSelectedColumnsAndRange() throws IOException {
+        // Given
+        List<MeasurementHistoryRow> rows = rows(null, 100);
+        Path file = write(null, rows);
+
+        // When
+        List<MeasurementHistoryRow> read = MeasurementColumnFile.read(file, Set.of("voltage_rms"),
+                START.plusSeconds(10), START.plusSeconds(19));
+
+        // Then
+        assertThat(read).hasSize(10);
+        assertThat(read.get(0).id()).isEqualTo(1010L);
+        assertThat(read.get(0).time()).isEqualTo(START.plusSeconds(10));
+        assertThat(read.get(0).sensorId()).isNull();
+        assertThat(read.get(0).voltageRms()).isEqualTo(rows.get(10).voltageRms());
+        assertThat(read.get(0).frequency()).isNull();
+        assertThat(read.get(0).harmonicsV()).isNull();
+    }
+
+    @Test
+    @DisplayName("should skip a file outside the requested range")
+    void shouldSkipFileOutsideRange() throws IOException {
+        Path file = write("node1", rows("node1", 10));
+
+        assertThat(MeasurementColumnFile.read(file, null, START.plusSeconds(60), START.plusSeconds(120))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should reject a file of another format")
+    void shouldRejectForeignFile() throws IOException {
+        Path file = dir.resolve("foreign" + MeasurementColumnFile.EXTENSION);
+        Files.write(file, new byte[64]);
+
+        assertThatThrownBy(() -> MeasurementColumnFile.read(file, null, START, START))
+                .isInstanceOf(IOException.class);
+    }
+}
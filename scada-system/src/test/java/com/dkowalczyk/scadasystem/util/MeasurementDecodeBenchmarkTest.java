@@ -0,0 +1,73 @@
+package com.dkowalczyk.scadasystem.util;
+
+import com.dkowalczyk.scadasystem.model.dto.MeasurementRequest;
+import com.dkowalczyk.scadasystem.util.MeasurementBinaryCodec.SampleEncoding;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Decoder micro-benchmark: JSON (cached ObjectReader, byte[] input) vs binary FLOAT32 / INT16.
+ * <p>
+ * Disabled by default. Run with:
+ * <pre>
+ * mvn test -Dtest=MeasurementDecodeBenchmarkTest -Dbenchmark=true
+ * </pre>
+ * Numbers are indicative only (no JMH fork isolation); compare runs on the same machine.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Measurement decode benchmark")
+class MeasurementDecodeBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 50_000;
+
+    private interface Decoder {
+        MeasurementRequest decode(byte[] payload) throws Exception;
+    }
+
+    @Test
+    @DisplayName("compare JSON and binary decode throughput")
+    void compareDecoders() throws Exception {
+        // Given
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectReader reader = objectMapper.readerFor(MeasurementRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        MeasurementRequest request = MeasurementBinaryCodecTest.createRealisticRequest();
+
+        byte[] json = objectMapper.writeValueAsBytes(request);
+        byte[] float32 = MeasurementBinaryCodec.encode(request, SampleEncoding.FLOAT32);
+        byte[] int16 = MeasurementBinaryCodec.encode(request, SampleEncoding.INT16);
+
+        // When
+        double jsonNs = measure(json, reader::readValue);
+        double float32Ns = measure(float32, MeasurementBinaryCodec::decode);
+        double int16Ns = measure(int16, MeasurementBinaryCodec::decode);
+
+        // Then
+        System.out.printf("JSON    : %6d bytes, %8.0f ns/msg%n", json.length, jsonNs);
+        System.out.printf("FLOAT32 : %6d bytes, %8.0f ns/msg (%.1fx)%n", float32.length, float32Ns, jsonNs / float32Ns);
+        System.out.printf("INT16   : %6d bytes, %8.0f ns/msg (%.1fx)%n", int16.length, int16Ns, jsonNs / int16Ns);
+        assertThat(float32Ns).isLessThan(jsonNs);
+    }
+
+    private static double measure(byte[] payload, Decoder decoder) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            checksum += decoder.decode(payload).getWaveformV().length;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            checksum += decoder.decode(payload).getWaveformV().length;
+        }
+        long elapsed = System.nanoTime() - start;
+        // Keep the JIT from eliminating the decode calls
+        assertThat(checksum).isPositive();
+        return (double) elapsed / MEASURED_ITERATIONS;
+    }
+}